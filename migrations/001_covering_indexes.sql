@@ -0,0 +1,51 @@
+--
+-- Indici di copertura per le liste più richieste (PostgreSQL 11 o superiore).
+--
+-- Il dump definisce solo le chiavi primarie ed esterne, per cui le pagine
+-- filtrate di music (per album, genere e gruppo) e i link di una canzone
+-- scorrono l'intera tabella. Con questi indici le query di PostgreSQLImpl
+-- trovano tutte le colonne che leggono nell'indice, e quelle con poche
+-- colonne (parametro fields, ad esempio fields=musicid,title) vengono
+-- servite da un index-only scan senza leggere la tabella.
+--
+-- CREATE INDEX CONCURRENTLY non blocca le scritture ma non può essere
+-- eseguito in una transazione: lanciare il file con psql senza
+-- --single-transaction, ad esempio
+--
+--     psql -U postgres -d MusicDBPostgres -f migrations/001_covering_indexes.sql
+--
+
+SET search_path = "MusicDB";
+
+-- Pagine di canzoni filtrate (getMusicByAlbum/Genre/Group, countMusicBy).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS music_albumid_idx
+    ON music (albumid, musicid) INCLUDE (title, authorid, year, genreid);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS music_genreid_idx
+    ON music (genreid, musicid) INCLUDE (title, authorid, albumid, year);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS music_authorid_idx
+    ON music (authorid, musicid) INCLUDE (title, albumid, year, genreid);
+
+-- Liste di soli id e titoli/nomi in ordine di chiave (getFields).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS music_musicid_title_idx
+    ON music (musicid) INCLUDE (title);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS album_albumid_title_idx
+    ON album (albumid) INCLUDE (title);
+
+-- Link di una canzone (getLinksForMusic, musicJoinLink) e lista dei link,
+-- ordinata per (musicid, link).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS link_musicid_link_idx
+    ON link (musicid, link);
+
+-- Album e artisti di un gruppo (artistJoinGroup, ricerca per artista).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS album_groupid_idx
+    ON album (groupid) INCLUDE (albumid, title, year);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS artist_groupid_idx
+    ON artist (groupid) INCLUDE (artistid, name);
+
+-- Un index-only scan evita la tabella solo per le pagine segnate nella
+-- visibility map, aggiornata da VACUUM; ANALYZE aggiorna anche le stime
+-- usate da CountDAO.countRows.
+VACUUM ANALYZE music;
+VACUUM ANALYZE album;
+VACUUM ANALYZE artist;
+VACUUM ANALYZE link;
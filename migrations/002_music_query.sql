@@ -0,0 +1,26 @@
+--
+-- Indici per le ricerche di canzoni con MusicQuery (PostgreSQL 11 o superiore).
+--
+-- MusicQuerySql pagina per cursore: ogni pagina chiede le righe che
+-- seguono (valore, musicid) nell'ordine scelto, per cui un indice su
+-- (valore, musicid) restituisce la pagina leggendo solo le sue righe,
+-- in entrambe le direzioni. I filtri per album, genere e gruppo usano gli
+-- indici di 001_covering_indexes.sql, che terminano già con musicid.
+--
+-- Come 001, va eseguito fuori da una transazione:
+--
+--     psql -U postgres -d MusicDBPostgres -f migrations/002_music_query.sql
+--
+
+SET search_path = "MusicDB";
+
+-- sort=title
+CREATE INDEX CONCURRENTLY IF NOT EXISTS music_title_musicid_idx
+    ON music (title, musicid);
+
+-- prefix: lower(title) LIKE 'abc%' con text_pattern_ops usa l'indice
+-- qualunque sia la collation del database.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS music_lower_title_idx
+    ON music (lower(title) text_pattern_ops);
+
+ANALYZE music;
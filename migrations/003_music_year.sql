@@ -0,0 +1,41 @@
+--
+-- Filtri e ordinamento per anno di /music (yearFrom, yearTo, sort=year).
+--
+-- Il catalogo è concentrato sugli anni recenti, per cui la navigazione
+-- per anno dovrebbe leggere solo le pagine della tabella con quegli anni.
+--
+-- Il partizionamento dichiarativo per intervalli di anni non viene usato:
+-- in PostgreSQL ogni vincolo di unicità di una tabella partizionata deve
+-- contenere la chiave di partizione, per cui la chiave primaria di music
+-- diventerebbe (musicid, year) e Link_MusicId_fkey, che riferisce
+-- music(musicid), non potrebbe più essere definita. Lo stesso effetto del
+-- partition pruning si ottiene invece così:
+--
+-- 1. CLUSTER riscrive music in ordine di anno: le canzoni di un anno
+--    occupano pagine contigue, come in una partizione. Le nuove canzoni,
+--    quasi sempre recenti, vengono aggiunte in fondo e mantengono
+--    l'ordine; quando pg_stats.correlation di music.year scende (ad
+--    esempio sotto 0.9) si può ripetere CLUSTER music.
+-- 2. L'indice BRIN salva anno minimo e massimo di ogni gruppo di 16
+--    pagine: un intervallo di anni esclude tutte le altre pagine con un
+--    indice di poche pagine, anche su intervalli ampi.
+-- 3. L'indice B-tree (year, musicid) restituisce le canzoni già ordinate
+--    per sort=year e la paginazione per cursore di MusicQuerySql.
+--
+-- CLUSTER blocca music in lettura e scrittura fino alla fine: eseguire
+-- il file in un momento di basso traffico, fuori da una transazione.
+--
+--     psql -U postgres -d MusicDBPostgres -f migrations/003_music_year.sql
+--
+
+SET search_path = "MusicDB";
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS music_year_musicid_idx
+    ON music (year, musicid);
+
+CLUSTER music USING music_year_musicid_idx;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS music_year_brin_idx
+    ON music USING brin (year) WITH (pages_per_range = 16);
+
+ANALYZE music;
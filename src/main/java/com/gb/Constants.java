@@ -30,6 +30,47 @@ public class Constants {
     public static final String CONT_TYPE    = "content-type";
     public static final String DB_PATH      = "jdbc:postgresql://localhost:5432/MusicDBPostgres?currentSchema=MusicDB";
     public static final int    PAGE_SIZE    = 10;
+    public static final int    MAX_PAGE_SIZE = 1000;
+    public static final int    ASYNC_POOL_SIZE  = 4;
+    public static final int    ASYNC_QUEUE_SIZE = 64;
+    public static final int    EXPORT_FETCH_SIZE = 1000;
+    public static final int    EXPORT_MAX_STREAMS = 8;
+    public static final int    EVENTS_QUEUE_SIZE = 256;
+    public static final int    EVENTS_MAX_STREAMS = 64;
+    public static final long   EVENTS_HEARTBEAT_MILLIS = 15_000;
+    public static final int    AUTOCOMPLETE_SIZE = 10;
+    public static final int    FIND_SIZE = 5;
+    public static final int    FUZZY_MAX_POSTINGS = 50_000;
+    public static final int    SEARCH_CACHE_ENTRY_ROWS = 500;
+    public static final int    SEARCH_CACHE_MAX_ROWS = 20_000;
+    public static final int    FACET_SIZE = 10;
+    public static final long   COUNT_TTL_MILLIS = 10_000;
+    public static final long   COUNT_ESTIMATE_MIN_ROWS = 100_000;
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    public static final String PAGE_COUNT_HEADER  = "X-Page-Count";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /*
+     * Connessione al server PostgreSQL
+     */
+    public static final String DB_SERVER        = "localhost";
+    public static final int    DB_PORT          = 5432;
+    public static final String DB_DATABASE      = "MusicDBPostgres";
+    public static final String CREDENTIALS_FILE = "creds.txt";
+    public static final String REPLICAS_FILE    = "replicas.txt";
+    public static final String DUMP_FILE        = "musicdbdump.sql";
+    public static final String SNAPSHOT_FILE    = "catalog.snapshot";
+    public static final String CHANGE_CHANNEL   = "catalog_changes";
+
+    /*
+     * Implementazione del database, scelta con -Ddb.impl=...
+     */
+    public static final String DB_IMPL_PROPERTY = "db.impl";
+    public static final String DB_IMPL_POSTGRES = "postgres";
+    public static final String DB_IMPL_ROUTING  = "routing";
+    public static final String DB_IMPL_MEMORY   = "memory";
+    public static final String DB_COALESCE_PROPERTY = "db.coalesce";
+    public static final String DB_SEARCH_CACHE_PROPERTY = "db.searchCache";
 
     /*
      * HTTP METHODS
@@ -38,5 +79,10 @@ public class Constants {
     public static final String PUT = "PUT";
     public static final String POST = "POST";
     public static final String DELETE = "DELETE";
+    /**
+     * Parametro delle DELETE di gruppi e album: con "true" vengono
+     * eliminate anche le righe che li riferiscono.
+     */
+    public static final String CASCADE = "cascade";
 
 }
\ No newline at end of file
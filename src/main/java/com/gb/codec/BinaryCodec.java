@@ -0,0 +1,387 @@
+package com.gb.codec;
+
+import com.gb.modelObject.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Codifica binaria compatta delle liste restituite dai DAO, pensata per
+ * i client che leggono il catalogo in blocco (vedi MEDIA_TYPE). <br>
+ * Formato di un messaggio: <br>
+ * - lunghezza del resto del messaggio (varint), in modo che più messaggi
+ *   possano essere letti in sequenza dallo stesso stream <br>
+ * - VERSION (1 byte) e tipo delle righe (1 byte, vedi TYPE_*) <br>
+ * - dizionario: numero di stringhe (varint), poi per ogni stringa
+ *   lunghezza in byte (varint) e byte UTF-8 <br>
+ * - numero di righe (varint), poi i campi di ogni riga nell'ordine del
+ *   costruttore della classe. Interi come varint senza segno (id, anni e
+ *   conteggi non sono mai negativi), stringhe come posizione nel
+ *   dizionario + 1; lo 0 rappresenta null sia per le stringhe che per
+ *   gli interi opzionali (albumid), salvati a loro volta come valore + 1. <br>
+ * Le stringhe ripetute (nomi di gruppi, generi, album) vengono quindi
+ * scritte una sola volta per messaggio. Un messaggio con VERSION diversa
+ * viene rifiutato dal decoder.
+ */
+public final class BinaryCodec {
+
+    public static final String MEDIA_TYPE = "application/x-musicdb";
+
+    public static final int VERSION = 1;
+
+    public static final int TYPE_EMPTY = 0;
+    public static final int TYPE_MUSIC = 1;
+    public static final int TYPE_MUSIC_DETAILS = 2;
+    public static final int TYPE_ALBUM = 3;
+    public static final int TYPE_ARTIST = 4;
+    public static final int TYPE_GROUP = 5;
+    public static final int TYPE_GENRE = 6;
+    public static final int TYPE_LINK = 7;
+    public static final int TYPE_JOIN_ALL = 8;
+    public static final int TYPE_MUSIC_STRINGS = 9;
+
+    private static final Map<Class<?>, Integer> TYPES = new HashMap<>();
+    static {
+        TYPES.put(Music.class, TYPE_MUSIC);
+        TYPES.put(MusicDetails.class, TYPE_MUSIC_DETAILS);
+        TYPES.put(Album.class, TYPE_ALBUM);
+        TYPES.put(Artist.class, TYPE_ARTIST);
+        TYPES.put(Group.class, TYPE_GROUP);
+        TYPES.put(Genre.class, TYPE_GENRE);
+        TYPES.put(Link.class, TYPE_LINK);
+        TYPES.put(JoinAll.class, TYPE_JOIN_ALL);
+        TYPES.put(MusicStrings.class, TYPE_MUSIC_STRINGS);
+    }
+
+    private BinaryCodec() { }
+
+    /**
+     * Restituisce true se tutte le righe della lista sono di uno
+     * stesso tipo che può essere codificato.
+     */
+    public static boolean supports(List<?> rows) {
+        if(rows.isEmpty()) {
+            return true;
+        }
+        Class<?> type = rows.get(0).getClass();
+        if(!TYPES.containsKey(type)) {
+            return false;
+        }
+        for(Object row : rows) {
+            if(row.getClass() != type) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Codifica la lista in un messaggio.
+     * @throws IllegalArgumentException Se supports(rows) è false
+     */
+    public static byte[] encode(List<?> rows) {
+        if(!supports(rows)) {
+            throw new IllegalArgumentException("Tipo di righe non supportato dalla codifica binaria.");
+        }
+        int type = rows.isEmpty() ? TYPE_EMPTY : TYPES.get(rows.get(0).getClass());
+
+        Encoder body = new Encoder();
+        body.writeVarint(rows.size());
+        for(Object row : rows) {
+            body.writeRow(type, row);
+        }
+
+        Encoder payload = new Encoder();
+        payload.out.write(VERSION);
+        payload.out.write(type);
+        payload.writeVarint(body.dictionary.size());
+        for(String value : body.dictionary.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            payload.writeVarint(bytes.length);
+            payload.writeBytes(bytes);
+        }
+        payload.writeBytes(body.out.toByteArray());
+
+        Encoder message = new Encoder();
+        message.writeVarint(payload.out.size());
+        message.writeBytes(payload.out.toByteArray());
+        return message.out.toByteArray();
+    }
+
+    /**
+     * Decodifica un messaggio prodotto da encode.
+     * @return Le righe, istanze delle classi del modello
+     * @throws IOException Se il messaggio è troncato, corrotto o di una versione diversa
+     */
+    public static List<Object> decode(byte[] message) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(message);
+            int length = readVarint(buffer);
+            if(length != buffer.remaining()) {
+                throw new IOException("lunghezza del messaggio non valida");
+            }
+            return decodePayload(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                | NullPointerException e) {
+            throw new IOException("messaggio troncato o corrotto", e);
+        }
+    }
+
+    /**
+     * Legge dallo stream il prossimo messaggio e lo decodifica.
+     * @return Le righe, oppure null se lo stream è terminato
+     */
+    public static List<Object> decode(InputStream in) throws IOException {
+        int first = in.read();
+        if(first < 0) {
+            return null;
+        }
+        int length = first & 0x7F;
+        for(int shift = 7, b = first; (b & 0x80) != 0; shift += 7) {
+            b = in.read();
+            if(b < 0 || shift > 28) {
+                throw new IOException("lunghezza del messaggio non valida");
+            }
+            length |= (b & 0x7F) << shift;
+        }
+        byte[] payload = new byte[length];
+        new DataInputStream(in).readFully(payload);
+        try {
+            return decodePayload(ByteBuffer.wrap(payload));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                | NullPointerException e) {
+            throw new IOException("messaggio troncato o corrotto", e);
+        }
+    }
+
+    private static List<Object> decodePayload(ByteBuffer buffer) throws IOException {
+        int version = buffer.get() & 0xFF;
+        if(version != VERSION) {
+            throw new IOException("versione " + version + " della codifica binaria non supportata");
+        }
+        int type = buffer.get() & 0xFF;
+
+        String[] dictionary = new String[readLength(buffer)];
+        for(int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[readLength(buffer)];
+            buffer.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int count = readLength(buffer);
+        List<Object> rows = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            rows.add(readRow(type, buffer, dictionary));
+        }
+        return rows;
+    }
+
+    private static Object readRow(int type, ByteBuffer in, String[] dictionary) throws IOException {
+        switch (type) {
+            case TYPE_MUSIC:
+                return new Music(readVarint(in), readString(in, dictionary), readVarint(in),
+                        readOptionalInt(in), readVarint(in), readVarint(in));
+            case TYPE_MUSIC_DETAILS: {
+                MusicDetails music = new MusicDetails();
+                music.setMusicId(readVarint(in));
+                music.setTitle(readString(in, dictionary));
+                music.setAuthorId(readVarint(in));
+                music.setAlbumId(readOptionalInt(in));
+                music.setYear(readVarint(in));
+                music.setGenreId(readVarint(in));
+                music.setAuthorName(readString(in, dictionary));
+                music.setAlbumTitle(readString(in, dictionary));
+                music.setGenreName(readString(in, dictionary));
+                return music;
+            }
+            case TYPE_ALBUM:
+                return new Album(readVarint(in), readString(in, dictionary), readVarint(in), readVarint(in));
+            case TYPE_ARTIST:
+                return new Artist(readVarint(in), readString(in, dictionary), readVarint(in));
+            case TYPE_GROUP:
+                return new Group(readVarint(in), readString(in, dictionary));
+            case TYPE_GENRE:
+                return new Genre(readVarint(in), readString(in, dictionary));
+            case TYPE_LINK:
+                return new Link(readVarint(in), readString(in, dictionary));
+            case TYPE_JOIN_ALL:
+                return new JoinAll(readVarint(in), readString(in, dictionary), readString(in, dictionary),
+                        readVarint(in), readString(in, dictionary), readVarint(in),
+                        readString(in, dictionary), readVarint(in));
+            case TYPE_MUSIC_STRINGS: {
+                MusicStrings music = new MusicStrings();
+                music.setMusicId(readVarint(in));
+                music.setTitle(readString(in, dictionary));
+                music.setAuthor(readString(in, dictionary));
+                music.setArtist(readString(in, dictionary));
+                music.setAlbum(readString(in, dictionary));
+                music.setYear(readVarint(in));
+                music.setGenre(readString(in, dictionary));
+                return music;
+            }
+            default:
+                throw new IOException("tipo di riga " + type + " sconosciuto");
+        }
+    }
+
+    private static int readVarint(ByteBuffer in) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint troppo lungo");
+    }
+
+    /**
+     * Legge un numero di elementi, ognuno dei quali occupa almeno un
+     * byte: un valore maggiore dei byte rimasti indica un messaggio
+     * corrotto, e viene rifiutato prima di allocare gli array.
+     */
+    private static int readLength(ByteBuffer in) throws IOException {
+        int length = readVarint(in);
+        if(length < 0 || length > in.remaining()) {
+            throw new IOException("lunghezza " + length + " non valida");
+        }
+        return length;
+    }
+
+    private static Integer readOptionalInt(ByteBuffer in) throws IOException {
+        int value = readVarint(in);
+        return value == 0 ? null : value - 1;
+    }
+
+    private static String readString(ByteBuffer in, String[] dictionary) throws IOException {
+        int index = readVarint(in);
+        return index == 0 ? null : dictionary[index - 1];
+    }
+
+    /**
+     * Scrive i campi delle righe e raccoglie le stringhe nel dizionario.
+     */
+    private static final class Encoder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+
+        private void writeRow(int type, Object row) {
+            switch (type) {
+                case TYPE_MUSIC:
+                case TYPE_MUSIC_DETAILS: {
+                    Music music = (Music) row;
+                    writeVarint(music.getMusicId());
+                    writeString(music.getTitle());
+                    writeVarint(music.getAuthorId());
+                    writeOptionalInt(music.getAlbumId());
+                    writeVarint(music.getYear());
+                    writeVarint(music.getGenreId());
+                    if(type == TYPE_MUSIC_DETAILS) {
+                        MusicDetails details = (MusicDetails) row;
+                        writeString(details.getAuthorName());
+                        writeString(details.getAlbumTitle());
+                        writeString(details.getGenreName());
+                    }
+                    break;
+                }
+                case TYPE_ALBUM: {
+                    Album album = (Album) row;
+                    writeVarint(album.getAlbumId());
+                    writeString(album.getTitle());
+                    writeVarint(album.getYear());
+                    writeVarint(album.getGroupId());
+                    break;
+                }
+                case TYPE_ARTIST: {
+                    Artist artist = (Artist) row;
+                    writeVarint(artist.getArtistId());
+                    writeString(artist.getName());
+                    writeVarint(artist.getGroupId());
+                    break;
+                }
+                case TYPE_GROUP: {
+                    Group group = (Group) row;
+                    writeVarint(group.getGroupId());
+                    writeString(group.getName());
+                    break;
+                }
+                case TYPE_GENRE: {
+                    Genre genre = (Genre) row;
+                    writeVarint(genre.getGenreId());
+                    writeString(genre.getName());
+                    break;
+                }
+                case TYPE_LINK: {
+                    Link link = (Link) row;
+                    writeVarint(link.getMusicId());
+                    writeString(link.getLink());
+                    break;
+                }
+                case TYPE_JOIN_ALL: {
+                    JoinAll joinAll = (JoinAll) row;
+                    writeVarint(joinAll.getMusicId());
+                    writeString(joinAll.getMusicTitle());
+                    writeString(joinAll.getGroupName());
+                    writeVarint(joinAll.getNumArtists());
+                    writeString(joinAll.getAlbumTitle());
+                    writeVarint(joinAll.getYear());
+                    writeString(joinAll.getGenreName());
+                    writeVarint(joinAll.getNumLinks());
+                    break;
+                }
+                case TYPE_MUSIC_STRINGS: {
+                    MusicStrings music = (MusicStrings) row;
+                    writeVarint(music.getMusicId());
+                    writeString(music.getTitle());
+                    writeString(music.getAuthor());
+                    writeString(music.getArtist());
+                    writeString(music.getAlbum());
+                    writeVarint(music.getYear());
+                    writeString(music.getGenre());
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Tipo di riga " + type + " sconosciuto.");
+            }
+        }
+
+        private void writeVarint(int value) {
+            while((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        private void writeBytes(byte[] bytes) {
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private void writeOptionalInt(Integer value) {
+            writeVarint(value == null ? 0 : value + 1);
+        }
+
+        private void writeString(String value) {
+            if(value == null) {
+                writeVarint(0);
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if(index == null) {
+                index = dictionary.size();
+                dictionary.put(value, index);
+            }
+            writeVarint(index + 1);
+        }
+
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.gb.dao;
 
 import com.gb.modelObject.Album;
+import com.gb.modelObject.DeleteSummary;
 
 import java.util.List;
 import java.util.Map;
@@ -9,10 +10,23 @@ public interface AlbumDAO {
 
     List<Album> getAllAlbums(int page);
 
+    List<Album> getAllAlbums(int page, int pageSize);
+
     List<Album> getAlbumById(int albumId);
 
+    /**
+     * Gli album con gli id indicati (vedi MusicDAO.getMusicDetailsByIds).
+     */
+    List<Album> getAlbumsByIds(List<Integer> albumIds);
+
     int deleteAlbum(int albumId);
 
+    /**
+     * Elimina l'album insieme alle sue canzoni e ai loro link, in
+     * un'unica transazione (vedi GroupDAO.deleteGroupCascade).
+     */
+    DeleteSummary deleteAlbumCascade(int albumId);
+
     int insertAlbum(Album album);
 
     int updateAlbum(Album album);
@@ -9,8 +9,12 @@ public interface ArtistDAO {
 
     List<Artist> getAllArtists(int page);
 
+    List<Artist> getAllArtists(int page, int pageSize);
+
     List<ArtistJoinGroup> artistJoinGroup(int page);
 
+    List<ArtistJoinGroup> artistJoinGroup(int page, int pageSize);
+
     int updateArtist(Artist artist);
 
     int insertArtist(Artist artist);
@@ -19,4 +23,9 @@ public interface ArtistDAO {
 
     List<Artist> getArtistById(int artistId);
 
+    /**
+     * Gli artisti con gli id indicati (vedi MusicDAO.getMusicDetailsByIds).
+     */
+    List<Artist> getArtistsByIds(List<Integer> artistIds);
+
 }
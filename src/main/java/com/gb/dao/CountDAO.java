@@ -0,0 +1,26 @@
+package com.gb.dao;
+
+/**
+ * Conteggi per la paginazione delle liste, in modo che il client possa
+ * sapere quante pagine ci sono senza richiederle una alla volta. <br>
+ * Valori restituiti: il numero di righe, oppure "-1" se si è verificato
+ * un errore (o la tabella o il filtro non sono fra quelli previsti).
+ */
+public interface CountDAO {
+
+    /**
+     * Numero di righe della tabella (MUSIC_TABLE, ALBUM_TABLE, ARTIST_TABLE,
+     * GROUP_TABLE, GENRE_TABLE o LINK_TABLE). Per le tabelle grandi
+     * l'implementazione può restituire una stima.
+     */
+    long countRows(String table);
+
+    /**
+     * Numero di canzoni con il valore indicato.
+     * @param filter ALBUMID, GENREID, GROUPID oppure ARTISTID (le canzoni
+     *               del gruppo dell'artista), come nei filtri di /music
+     * @param id Il valore cercato
+     */
+    long countMusicBy(String filter, int id);
+
+}
@@ -0,0 +1,33 @@
+package com.gb.dao;
+
+import com.gb.modelObject.*;
+
+import java.util.function.Consumer;
+
+/**
+ * Metodi per l'esportazione del catalogo. A differenza degli altri DAO
+ * le righe non vengono restituite in una lista, ma passate una alla
+ * volta al consumer, in ordine di chiave primaria (musicid per i link e
+ * per joinAll), partendo dalla chiave fromId compresa. In questo modo la
+ * memoria occupata non dipende dal numero di righe, e un'esportazione
+ * interrotta può essere ripresa dall'ultima chiave ricevuta. <br>
+ * Valori restituiti: "0" se l'esportazione è terminata, "-2" se si è
+ * verificato un errore (le righe già passate al consumer restano valide).
+ */
+public interface ExportDAO {
+
+    int exportMusic(int fromId, Consumer<Music> consumer);
+
+    int exportAlbums(int fromId, Consumer<Album> consumer);
+
+    int exportArtists(int fromId, Consumer<Artist> consumer);
+
+    int exportGroups(int fromId, Consumer<Group> consumer);
+
+    int exportGenres(int fromId, Consumer<Genre> consumer);
+
+    int exportLinks(int fromMusicId, Consumer<Link> consumer);
+
+    int exportJoinAll(int fromMusicId, Consumer<JoinAll> consumer);
+
+}
@@ -9,8 +9,15 @@ public interface GenreDAO {
 
     List<Genre> getAllGenres(int page);
 
+    List<Genre> getAllGenres(int page, int pageSize);
+
     List<Genre> getGenreById(int genreId);
 
+    /**
+     * I generi con gli id indicati (vedi MusicDAO.getMusicDetailsByIds).
+     */
+    List<Genre> getGenresByIds(List<Integer> genreIds);
+
     int insertGenre(Genre genre);
 
     int updateGenre(Genre genre);
@@ -1,5 +1,6 @@
 package com.gb.dao;
 
+import com.gb.modelObject.DeleteSummary;
 import com.gb.modelObject.Group;
 
 import java.util.List;
@@ -9,14 +10,30 @@ public interface GroupDAO {
 
     List<Group> getAllGroups(int page);
 
+    List<Group> getAllGroups(int page, int pageSize);
+
     List<Group> getGroupById(int groupId);
 
+    /**
+     * I gruppi con gli id indicati (vedi MusicDAO.getMusicDetailsByIds).
+     */
+    List<Group> getGroupsByIds(List<Integer> groupIds);
+
     int insertGroup(Group group);
 
     int updateGroup(Group group);
 
     int deleteGroup(int groupId);
 
+    /**
+     * Elimina il gruppo insieme alle sue canzoni (comprese quelle di
+     * altri autori nei suoi album), ai loro link, ai suoi artisti e ai
+     * suoi album, in un'unica transazione: se una delle eliminazioni
+     * fallisce non viene eliminato nulla.
+     * @return Le righe eliminate per ogni tabella, oppure null in caso di errore
+     */
+    DeleteSummary deleteGroupCascade(int groupId);
+
     Map<Integer, String> getGroupMap();
 
 }
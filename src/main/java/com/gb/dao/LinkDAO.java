@@ -8,6 +8,8 @@ public interface LinkDAO {
 
     List<Link> getAllLinks(int page);
 
+    List<Link> getAllLinks(int page, int pageSize);
+
     List<Link> getLinksForMusic(int musicId);
 
     int insertLink(Link link);
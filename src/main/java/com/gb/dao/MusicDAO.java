@@ -2,8 +2,11 @@ package com.gb.dao;
 
 import com.gb.modelObject.JoinAll;
 import com.gb.modelObject.Music;
+import com.gb.modelObject.MusicDetails;
 import com.gb.modelObject.MusicJoinLink;
+import com.gb.modelObject.MusicPage;
 import com.gb.modelObject.MusicStrings;
+import com.gb.modelObject.MusicWithLinks;
 
 import java.util.List;
 
@@ -11,8 +14,22 @@ public interface MusicDAO {
 
     List<Music> getAllMusic(int page);
 
+    List<Music> getAllMusic(int page, int pageSize);
+
     List<Music> getMusicById(int musicId);
 
+    List<MusicDetails> getAllMusicDetails(int page);
+
+    List<MusicDetails> getAllMusicDetails(int page, int pageSize);
+
+    List<MusicDetails> getMusicDetailsById(int musicId);
+
+    /**
+     * Come la lettura per id, ma per più id con una sola query: le righe
+     * sono in ordine di id, gli id che non esistono vengono ignorati.
+     */
+    List<MusicDetails> getMusicDetailsByIds(List<Integer> musicIds);
+
     int updateMusic(Music music);
 
     int insertMusic(Music music);
@@ -21,16 +38,72 @@ public interface MusicDAO {
 
     List<JoinAll> joinAll(int page);
 
+    List<JoinAll> joinAll(int page, int pageSize);
+
     List<MusicJoinLink> musicJoinLink(int page);
 
+    List<MusicJoinLink> musicJoinLink(int page, int pageSize);
+
     List<MusicStrings> searchMusic(String searchTerm, int page);
 
+    /**
+     * Come searchMusic(searchTerm, page), ma restituisce limit righe a
+     * partire dalla riga offset (nello stesso ordine).
+     */
+    List<MusicStrings> searchMusic(String searchTerm, int offset, int limit);
+
+    /**
+     * Gli id (distinti, in ordine crescente) delle canzoni trovate da
+     * searchMusic, senza paginazione.
+     */
+    List<Integer> searchMusicIds(String searchTerm);
+
+    /**
+     * Le righe di searchMusic delle sole canzoni indicate.
+     */
+    List<MusicStrings> searchMusicByIds(String searchTerm, List<Integer> musicIds);
+
     List<Music> getMusicByAlbum(int albumId, int page);
 
+    List<Music> getMusicByAlbum(int albumId, int page, int pageSize);
+
     List<Music> getMusicByGenre(int genreId, int page);
 
+    List<Music> getMusicByGenre(int genreId, int page, int pageSize);
+
     List<Music> getMusicByGroup(int groupId, int page);
 
+    List<Music> getMusicByGroup(int groupId, int page, int pageSize);
+
     List<Music> getMusicByArtist(int artistId, int page);
 
+    List<Music> getMusicByArtist(int artistId, int page, int pageSize);
+
+    MusicPage getMusicPageByAlbum(int albumId, int page);
+
+    MusicPage getMusicPageByAlbum(int albumId, int page, int pageSize);
+
+    MusicPage getMusicPageByGenre(int genreId, int page);
+
+    MusicPage getMusicPageByGenre(int genreId, int page, int pageSize);
+
+    MusicPage getMusicPageByGroup(int groupId, int page);
+
+    MusicPage getMusicPageByGroup(int groupId, int page, int pageSize);
+
+    MusicPage getMusicPageByArtist(int artistId, int page);
+
+    MusicPage getMusicPageByArtist(int artistId, int page, int pageSize);
+
+    /**
+     * Una pagina di canzoni con tutti i filtri della query, nell'ordine
+     * scelto e a partire dal suo cursore, con una sola query.
+     * @return Al più query.getLimit() canzoni; la pagina successiva si
+     *         ottiene con query.cursorAfter(ultima canzone). Null in caso
+     *         di errore
+     */
+    List<MusicDetails> findMusic(MusicQuery query);
+
+    MusicWithLinks getMusicWithLinks(int musicId);
+
 }
@@ -0,0 +1,358 @@
+package com.gb.dao;
+
+import com.gb.modelObject.Music;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+import static com.gb.Constants.PAGE_SIZE;
+
+/**
+ * Una ricerca di canzoni con qualsiasi combinazione di filtri (album,
+ * genere, gruppo, artista, intervallo di anni, inizio del titolo),
+ * un ordinamento e la paginazione per chiave (keyset): invece di un
+ * numero di pagina la query riceve il cursore dell'ultima canzone della
+ * pagina precedente, per cui ogni pagina costa come la prima. <br>
+ * Gli oggetti sono immutabili e vengono creati con il Builder; due query
+ * con gli stessi valori sono uguali, così i decoratori di Database
+ * possono usarle come chiave (vedi toString).
+ */
+public final class MusicQuery {
+
+    /**
+     * Ordinamenti disponibili. A parità di valore le canzoni sono sempre
+     * ordinate per id, in modo che il cursore sia univoco.
+     */
+    public enum Sort { ID, TITLE, YEAR }
+
+    private final Integer albumId;
+    private final Integer genreId;
+    private final Integer groupId;
+    private final Integer artistId;
+    private final Integer yearFrom;
+    private final Integer yearTo;
+    private final String titlePrefix;
+    private final Sort sort;
+    private final boolean descending;
+    private final Cursor after;
+    private final int limit;
+
+    private MusicQuery(Builder builder) {
+        this.albumId = builder.albumId;
+        this.genreId = builder.genreId;
+        this.groupId = builder.groupId;
+        this.artistId = builder.artistId;
+        this.yearFrom = builder.yearFrom;
+        this.yearTo = builder.yearTo;
+        this.titlePrefix = builder.titlePrefix;
+        this.sort = builder.sort;
+        this.descending = builder.descending;
+        this.after = builder.after;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Integer getAlbumId() {
+        return albumId;
+    }
+
+    public Integer getGenreId() {
+        return genreId;
+    }
+
+    public Integer getGroupId() {
+        return groupId;
+    }
+
+    public Integer getArtistId() {
+        return artistId;
+    }
+
+    public Integer getYearFrom() {
+        return yearFrom;
+    }
+
+    public Integer getYearTo() {
+        return yearTo;
+    }
+
+    public String getTitlePrefix() {
+        return titlePrefix;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Il cursore da cui partire, oppure null per la prima pagina.
+     */
+    public Cursor getAfter() {
+        return after;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Il cursore da passare alla query della pagina successiva.
+     * @param last L'ultima canzone della pagina restituita
+     */
+    public Cursor cursorAfter(Music last) {
+        switch (sort) {
+            case TITLE:
+                return new Cursor(last.getTitle(), last.getMusicId());
+            case YEAR:
+                return new Cursor(last.getYear(), last.getMusicId());
+            default:
+                return new Cursor(null, last.getMusicId());
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof MusicQuery)) {
+            return false;
+        }
+        MusicQuery other = (MusicQuery) o;
+        return descending == other.descending && limit == other.limit
+                && Objects.equals(albumId, other.albumId) && Objects.equals(genreId, other.genreId)
+                && Objects.equals(groupId, other.groupId) && Objects.equals(artistId, other.artistId)
+                && Objects.equals(yearFrom, other.yearFrom) && Objects.equals(yearTo, other.yearTo)
+                && Objects.equals(titlePrefix, other.titlePrefix) && sort == other.sort
+                && Objects.equals(after, other.after);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(albumId, genreId, groupId, artistId, yearFrom, yearTo,
+                titlePrefix, sort, descending, after, limit);
+    }
+
+    /**
+     * Contiene tutti i valori della query: è la chiave usata da
+     * ForwardingDatabase.
+     */
+    @Override
+    public String toString() {
+        return "MusicQuery{" +
+                "albumId=" + albumId +
+                ", genreId=" + genreId +
+                ", groupId=" + groupId +
+                ", artistId=" + artistId +
+                ", yearFrom=" + yearFrom +
+                ", yearTo=" + yearTo +
+                ", titlePrefix=" + (titlePrefix == null ? null : '\'' + titlePrefix + '\'') +
+                ", sort=" + sort +
+                ", descending=" + descending +
+                ", after=" + after +
+                ", limit=" + limit +
+                '}';
+    }
+
+    /**
+     * La posizione dell'ultima canzone letta: il valore dell'ordinamento
+     * (null per Sort.ID) e l'id. Viene passato ai client come stringa
+     * opaca (encode/decode).
+     */
+    public static final class Cursor {
+
+        private final Object value;
+        private final int musicId;
+
+        public Cursor(Object value, int musicId) {
+            this.value = value;
+            this.musicId = musicId;
+        }
+
+        /**
+         * Il titolo (String) o l'anno (Integer) dell'ultima canzone,
+         * oppure null se la query è ordinata per id.
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        public int getMusicId() {
+            return musicId;
+        }
+
+        public String encode() {
+            String text = (value == null ? "" : value.toString()) + '\n' + musicId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Legge un cursore restituito da encode.
+         * @param sort L'ordinamento della query a cui il cursore si riferisce
+         * @return Il cursore, oppure null se il testo non è un cursore
+         *         valido per l'ordinamento
+         */
+        public static Cursor decode(String encoded, Sort sort) {
+            String text;
+            try {
+                text = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            int separator = text.lastIndexOf('\n');
+            if(separator < 0) {
+                return null;
+            }
+            String value = text.substring(0, separator);
+            try {
+                int musicId = Integer.parseInt(text.substring(separator + 1));
+                switch (sort) {
+                    case TITLE:
+                        return new Cursor(value, musicId);
+                    case YEAR:
+                        return new Cursor(Integer.parseInt(value), musicId);
+                    default:
+                        return value.isEmpty() ? new Cursor(null, musicId) : null;
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(!(o instanceof Cursor)) {
+                return false;
+            }
+            Cursor other = (Cursor) o;
+            return musicId == other.musicId && Objects.equals(value, other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(value, musicId);
+        }
+
+        @Override
+        public String toString() {
+            return encode();
+        }
+
+    }
+
+    public static final class Builder {
+
+        private Integer albumId;
+        private Integer genreId;
+        private Integer groupId;
+        private Integer artistId;
+        private Integer yearFrom;
+        private Integer yearTo;
+        private String titlePrefix;
+        private Sort sort = Sort.ID;
+        private boolean descending = false;
+        private Cursor after;
+        private int limit = PAGE_SIZE;
+
+        private Builder() { }
+
+        public Builder album(int albumId) {
+            this.albumId = albumId;
+            return this;
+        }
+
+        public Builder genre(int genreId) {
+            this.genreId = genreId;
+            return this;
+        }
+
+        public Builder group(int groupId) {
+            this.groupId = groupId;
+            return this;
+        }
+
+        /**
+         * Le canzoni del gruppo dell'artista.
+         */
+        public Builder artist(int artistId) {
+            this.artistId = artistId;
+            return this;
+        }
+
+        /**
+         * Anni compresi tra from e to, estremi inclusi; null per non
+         * limitare un estremo.
+         */
+        public Builder years(Integer from, Integer to) {
+            this.yearFrom = from;
+            this.yearTo = to;
+            return this;
+        }
+
+        /**
+         * Titoli che iniziano con prefix, senza distinguere maiuscole e minuscole.
+         */
+        public Builder titlePrefix(String prefix) {
+            this.titlePrefix = prefix == null || prefix.isEmpty() ? null : prefix;
+            return this;
+        }
+
+        public Builder sort(Sort sort, boolean descending) {
+            this.sort = Objects.requireNonNull(sort);
+            this.descending = descending;
+            return this;
+        }
+
+        public Builder after(Cursor after) {
+            this.after = after;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException Se limit non è positivo, se
+         *         l'intervallo di anni è vuoto o se il cursore non è
+         *         dell'ordinamento scelto
+         */
+        public MusicQuery build() {
+            if(limit <= 0) {
+                throw new IllegalArgumentException("Il numero di canzoni per pagina deve essere positivo.");
+            }
+            if(yearFrom != null && yearTo != null && yearFrom > yearTo) {
+                throw new IllegalArgumentException("L'anno iniziale deve precedere quello finale.");
+            }
+            if(after != null && !cursorMatchesSort()) {
+                throw new IllegalArgumentException("Cursore non valido per l'ordinamento " + sort + ".");
+            }
+            return new MusicQuery(this);
+        }
+
+        private boolean cursorMatchesSort() {
+            switch (sort) {
+                case TITLE:
+                    return after.value instanceof String;
+                case YEAR:
+                    return after.value instanceof Integer;
+                default:
+                    return after.value == null;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.gb.dao;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Letture di un sottoinsieme delle colonne di una tabella, per i client
+ * che non hanno bisogno delle righe complete (parametro fields delle
+ * liste). Solo le colonne richieste vengono lette dal database.
+ */
+public interface ProjectionDAO {
+
+    /**
+     * Una pagina della tabella, in ordine di chiave primaria (musicid e
+     * link per i link).
+     * @param table Una delle tabelle di TableColumns
+     * @param fields Le colonne da leggere, vedi TableColumns.areValid
+     * @return Una mappa colonna -> valore per ogni riga, con le colonne
+     *         nell'ordine di fields, oppure null in caso di errore (anche
+     *         per una tabella o delle colonne non valide)
+     */
+    List<Map<String, Object>> getFields(String table, List<String> fields, int page, int pageSize);
+
+}
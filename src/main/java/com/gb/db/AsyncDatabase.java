@@ -0,0 +1,93 @@
+package com.gb.db;
+
+import com.gb.db.postgreSQLImpl.PostgreSQLImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.gb.Constants.*;
+
+/**
+ * Questa classe permette di eseguire le query dei DAO in modo asincrono,
+ * in modo che le query indipendenti necessarie ad una stessa pagina
+ * vengano eseguite in parallelo: il tempo di risposta diventa quello
+ * della query più lenta, invece della somma dei tempi. <br>
+ * Le query vengono eseguite da un pool di ASYNC_POOL_SIZE thread. Con
+ * PostgreSQLImpl ogni thread del pool usa una propria istanza, e quindi
+ * una propria connessione: le query non si accodano sulla connessione
+ * condivisa. Le altre implementazioni vengono condivise fra i thread. <br>
+ * La coda del pool è limitata: se è piena la query viene eseguita dal
+ * thread chiamante, con il Database condiviso, rallentando chi la invia
+ * invece di accumulare lavoro senza limite.
+ */
+public class AsyncDatabase {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncDatabase.class);
+
+    private static AsyncDatabase asyncInstance = null;
+
+    private static final ThreadLocal<Database> workerDatabase = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor executor;
+
+    public static synchronized AsyncDatabase getInstance() {
+        if(asyncInstance == null) {
+            Supplier<Database> factory;
+            if(DB_IMPL_POSTGRES.equals(System.getProperty(DB_IMPL_PROPERTY, DB_IMPL_POSTGRES))) {
+                factory = PostgreSQLImpl::new;
+            } else {
+                factory = Database::getDatabase;
+            }
+            asyncInstance = new AsyncDatabase(factory, ASYNC_POOL_SIZE, ASYNC_QUEUE_SIZE);
+        }
+        return asyncInstance;
+    }
+
+    /**
+     * @param factory Crea il Database usato da ciascun thread del pool
+     * @param poolSize Numero di thread (e quindi di connessioni)
+     * @param queueSize Numero massimo di query in attesa
+     */
+    public AsyncDatabase(Supplier<Database> factory, int poolSize, int queueSize) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(() -> {
+                workerDatabase.set(factory.get());
+                runnable.run();
+            }, "db-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Esegue la query in modo asincrono. Il risultato segue la semantica
+     * dei DAO: null se la query è fallita, oppure se non è stato possibile
+     * ottenere un Database.
+     * Esempio: supply(Database::getGroupMap), supply(db -&gt; db.getMusicById(id))
+     */
+    public <T> CompletableFuture<T> supply(Function<Database, T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            Database db = workerDatabase.get();
+            if(db == null) {
+                db = Database.getDatabase();
+            }
+            if(db == null) {
+                logger.error("Error in AsyncDatabase.supply: database non disponibile");
+                return null;
+            }
+            return query.apply(db);
+        }, executor);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+}
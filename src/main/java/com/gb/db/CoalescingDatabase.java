@@ -0,0 +1,134 @@
+package com.gb.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Questa classe unisce le letture identiche concorrenti ("single flight"):
+ * se arriva una lettura con lo stesso metodo e gli stessi argomenti di
+ * una lettura ancora in corso, invece di eseguire un'altra query si
+ * attende il risultato di quella in corso. Durante i picchi di traffico,
+ * quando molte richieste chiedono la stessa pagina nello stesso istante,
+ * il database riceve una sola query. <br>
+ * Non è una cache: una lettura che arriva dopo la fine della query
+ * precedente esegue una nuova query, per cui non vengono mai restituiti
+ * dati più vecchi di quelli che si otterrebbero senza questa classe.
+ * Le scritture vengono inoltrate senza modifiche. <br>
+ * Nota: i chiamanti uniti ricevono lo stesso oggetto, che quindi non
+ * deve essere modificato. <br>
+ * Il numero di letture ricevute e di quelle unite viene scritto nel log
+ * ogni LOG_INTERVAL letture.
+ */
+public class CoalescingDatabase extends ForwardingDatabase {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingDatabase.class);
+
+    /*
+     * Ogni LOG_INTERVAL letture viene scritto nel log quante sono state
+     * unite.
+     */
+    private static final long LOG_INTERVAL = 10_000;
+
+    private static CoalescingDatabase coalescingInstance = null;
+
+    private final Database delegate;
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong reads = new AtomicLong();
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Restituisce l'istanza che avvolge il Database passato, creandola
+     * se il Database è cambiato. Con null restituisce null.
+     */
+    public static synchronized CoalescingDatabase wrap(Database delegate) {
+        if(delegate == null) {
+            return null;
+        }
+        if(coalescingInstance == null || coalescingInstance.delegate != delegate) {
+            coalescingInstance = new CoalescingDatabase(delegate);
+        }
+        return coalescingInstance;
+    }
+
+    public CoalescingDatabase(Database delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    protected Database readDelegate() {
+        return delegate;
+    }
+
+    @Override
+    protected Database writeDelegate() {
+        return delegate;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <T> T onRead(String key, Supplier<T> query) {
+        long read = reads.incrementAndGet();
+        if(read % LOG_INTERVAL == 0) {
+            logger.info("Letture ricevute: {}, unite ad una query in corso: {}.", read, collapsed.sum());
+        }
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if(running != null) {
+            collapsed.increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw rethrow(e);
+            }
+        }
+
+        /* Anche un Error deve completare il future, altrimenti le letture
+           unite resterebbero in attesa per sempre. */
+        try {
+            T result = query.get();
+            mine.complete(result);
+            return result;
+        } catch (Throwable t) {
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /*
+     * L'eccezione della query in corso, come l'ha ricevuta chi la
+     * eseguiva. Supplier non lancia eccezioni controllate, per cui la
+     * causa è sempre una RuntimeException o un Error.
+     */
+    private static RuntimeException rethrow(CompletionException e) {
+        Throwable cause = e.getCause();
+        if(cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : e;
+    }
+
+    /**
+     * Numero totale di letture ricevute.
+     */
+    public long getReadCount() {
+        return reads.get();
+    }
+
+    /**
+     * Numero di letture che hanno atteso una query già in corso,
+     * invece di eseguirne una propria.
+     */
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+}
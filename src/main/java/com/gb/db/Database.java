@@ -1,9 +1,15 @@
 package com.gb.db;
 
 import com.gb.dao.*;
+import com.gb.db.inMemoryImpl.InMemoryDatabase;
 import com.gb.db.postgreSQLImpl.PostgreSQLImpl;
+import com.gb.db.routingImpl.RoutingDatabase;
+import com.gb.modelObject.*;
 
 import java.sql.Connection;
+import java.util.List;
+
+import static com.gb.Constants.*;
 
 /**
  * "Simile" (fra virgolette) allo strategy pattern.
@@ -13,16 +19,136 @@ import java.sql.Connection;
  * getDatabase di questa classe, in modo che restituisca
  * un' istanza della classe desiderata. I metodi che interrogano
  * il DB non dovranno cambiare, poiché questa classe (Database)
- * fornisce un livello di astrazione.
+ * fornisce un livello di astrazione. <br>
+ * L'implementazione può essere scelta all'avvio con la proprietà
+ * di sistema DB_IMPL_PROPERTY (es. -Ddb.impl=routing oppure -Ddb.impl=memory); se assente
+ * viene usato PostgreSQLImpl. Con -Ddb.coalesce=true le letture
+ * identiche concorrenti vengono unite (vedi CoalescingDatabase); con
+ * -Ddb.searchCache=true i risultati delle ricerche vengono messi in cache
+ * (vedi SearchCacheDatabase).
  */
-public abstract class Database implements MusicDAO, AlbumDAO, ArtistDAO, GroupDAO, GenreDAO, LinkDAO {
+public abstract class Database implements MusicDAO, AlbumDAO, ArtistDAO, GroupDAO, GenreDAO, LinkDAO, ExportDAO, CountDAO, ProjectionDAO {
 
     public static synchronized Database getDatabase() {
-        return PostgreSQLImpl.getInstance();
+        Database db;
+        switch (System.getProperty(DB_IMPL_PROPERTY, DB_IMPL_POSTGRES)) {
+            case DB_IMPL_ROUTING:
+                db = RoutingDatabase.getInstance();
+                break;
+            case DB_IMPL_MEMORY:
+                db = InMemoryDatabase.getInstance();
+                break;
+            default:
+                db = PostgreSQLImpl.getInstance();
+                break;
+        }
+        if(Boolean.getBoolean(DB_COALESCE_PROPERTY)) {
+            db = CoalescingDatabase.wrap(db);
+        }
+        if(Boolean.getBoolean(DB_SEARCH_CACHE_PROPERTY)) {
+            db = SearchCacheDatabase.wrap(db);
+        }
+        return db;
     }
 
     public static Connection getConnection() {
         return PostgreSQLImpl.getConnection();
     }
 
+    /*
+     * Letture paginate con la dimensione di pagina predefinita
+     * (PAGE_SIZE): le implementazioni definiscono solamente le versioni
+     * con pageSize.
+     */
+
+    @Override
+    public List<Music> getAllMusic(int page) {
+        return getAllMusic(page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<MusicDetails> getAllMusicDetails(int page) {
+        return getAllMusicDetails(page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<JoinAll> joinAll(int page) {
+        return joinAll(page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<MusicJoinLink> musicJoinLink(int page) {
+        return musicJoinLink(page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<Music> getMusicByAlbum(int albumId, int page) {
+        return getMusicByAlbum(albumId, page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<Music> getMusicByGenre(int genreId, int page) {
+        return getMusicByGenre(genreId, page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<Music> getMusicByGroup(int groupId, int page) {
+        return getMusicByGroup(groupId, page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<Music> getMusicByArtist(int artistId, int page) {
+        return getMusicByArtist(artistId, page, PAGE_SIZE);
+    }
+
+    @Override
+    public MusicPage getMusicPageByAlbum(int albumId, int page) {
+        return getMusicPageByAlbum(albumId, page, PAGE_SIZE);
+    }
+
+    @Override
+    public MusicPage getMusicPageByGenre(int genreId, int page) {
+        return getMusicPageByGenre(genreId, page, PAGE_SIZE);
+    }
+
+    @Override
+    public MusicPage getMusicPageByGroup(int groupId, int page) {
+        return getMusicPageByGroup(groupId, page, PAGE_SIZE);
+    }
+
+    @Override
+    public MusicPage getMusicPageByArtist(int artistId, int page) {
+        return getMusicPageByArtist(artistId, page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<Album> getAllAlbums(int page) {
+        return getAllAlbums(page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<Artist> getAllArtists(int page) {
+        return getAllArtists(page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<ArtistJoinGroup> artistJoinGroup(int page) {
+        return artistJoinGroup(page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<Group> getAllGroups(int page) {
+        return getAllGroups(page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<Genre> getAllGenres(int page) {
+        return getAllGenres(page, PAGE_SIZE);
+    }
+
+    @Override
+    public List<Link> getAllLinks(int page) {
+        return getAllLinks(page, PAGE_SIZE);
+    }
+
 }
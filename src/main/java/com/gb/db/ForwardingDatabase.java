@@ -0,0 +1,454 @@
+package com.gb.db;
+
+import com.gb.dao.MusicQuery;
+import com.gb.modelObject.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Database che inoltra ogni chiamata ad un altro Database.
+ * Le letture vengono inoltrate al Database restituito da readDelegate(),
+ * le scritture (insert, update e delete) a quello restituito da
+ * writeDelegate(). Ogni lettura passa per onRead() e il risultato di
+ * ogni scrittura passa per onWrite(), in modo che le sottoclassi possano
+ * intervenire senza dover ridefinire ogni metodo dei DAO. <br>
+ * Le esportazioni (ExportDAO) vengono inoltrate a readDelegate() senza
+ * passare per onRead(): non restituiscono un risultato da condividere,
+ * ma passano le righe al consumer del chiamante.
+ */
+public abstract class ForwardingDatabase extends Database {
+
+    protected abstract Database readDelegate();
+
+    protected abstract Database writeDelegate();
+
+    /**
+     * Esegue una lettura. La chiave identifica metodo e argomenti
+     * (ad esempio "getAllMusic:0:10"): letture con la stessa chiave
+     * restituiscono lo stesso risultato.
+     */
+    protected <T> T onRead(String key, Supplier<T> query) {
+        return query.get();
+    }
+
+    /**
+     * Chiamato dopo ogni scrittura con il suo risultato
+     * ("0" = OK, "-1" = Operazione non fattibile, "-2" = Errore grave).
+     * @return Il risultato da restituire al chiamante
+     */
+    protected int onWrite(int result) {
+        return result;
+    }
+
+    /*
+     * Le stringhe (ad esempio il termine di una ricerca) possono contenere
+     * ':' e ',', per cui vengono precedute dalla loro lunghezza: due
+     * letture diverse non hanno mai la stessa chiave.
+     */
+    private static String key(String method, Object... args) {
+        StringBuilder sb = new StringBuilder(method);
+        for(Object arg : args) {
+            sb.append(':');
+            appendKey(sb, arg);
+        }
+        return sb.toString();
+    }
+
+    private static void appendKey(StringBuilder sb, Object arg) {
+        if(arg instanceof String) {
+            sb.append(((String) arg).length()).append('#').append(arg);
+        } else if(arg instanceof Collection) {
+            sb.append('[');
+            for(Object element : (Collection<?>) arg) {
+                appendKey(sb, element);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else {
+            sb.append(arg);
+        }
+    }
+
+    /*
+     * MusicDAO
+     */
+
+    @Override
+    public List<Music> getAllMusic(int page, int pageSize) {
+        return onRead(key("getAllMusic", page, pageSize), () -> readDelegate().getAllMusic(page, pageSize));
+    }
+
+    @Override
+    public List<Music> getMusicById(int musicId) {
+        return onRead(key("getMusicById", musicId), () -> readDelegate().getMusicById(musicId));
+    }
+
+    @Override
+    public List<MusicDetails> getAllMusicDetails(int page, int pageSize) {
+        return onRead(key("getAllMusicDetails", page, pageSize), () -> readDelegate().getAllMusicDetails(page, pageSize));
+    }
+
+    @Override
+    public List<MusicDetails> getMusicDetailsById(int musicId) {
+        return onRead(key("getMusicDetailsById", musicId), () -> readDelegate().getMusicDetailsById(musicId));
+    }
+
+    @Override
+    public List<MusicDetails> getMusicDetailsByIds(List<Integer> musicIds) {
+        return onRead(key("getMusicDetailsByIds", musicIds), () -> readDelegate().getMusicDetailsByIds(musicIds));
+    }
+
+    @Override
+    public int updateMusic(Music music) {
+        return onWrite(writeDelegate().updateMusic(music));
+    }
+
+    @Override
+    public int insertMusic(Music music) {
+        return onWrite(writeDelegate().insertMusic(music));
+    }
+
+    @Override
+    public int deleteMusic(int id) {
+        return onWrite(writeDelegate().deleteMusic(id));
+    }
+
+    @Override
+    public List<JoinAll> joinAll(int page, int pageSize) {
+        return onRead(key("joinAll", page, pageSize), () -> readDelegate().joinAll(page, pageSize));
+    }
+
+    @Override
+    public List<MusicJoinLink> musicJoinLink(int page, int pageSize) {
+        return onRead(key("musicJoinLink", page, pageSize), () -> readDelegate().musicJoinLink(page, pageSize));
+    }
+
+    @Override
+    public List<MusicStrings> searchMusic(String searchTerm, int page) {
+        return onRead(key("searchMusicPage", searchTerm, page), () -> readDelegate().searchMusic(searchTerm, page));
+    }
+
+    @Override
+    public List<MusicStrings> searchMusic(String searchTerm, int offset, int limit) {
+        return onRead(key("searchMusicRange", searchTerm, offset, limit),
+                () -> readDelegate().searchMusic(searchTerm, offset, limit));
+    }
+
+    @Override
+    public List<Integer> searchMusicIds(String searchTerm) {
+        return onRead(key("searchMusicIds", searchTerm), () -> readDelegate().searchMusicIds(searchTerm));
+    }
+
+    @Override
+    public List<MusicStrings> searchMusicByIds(String searchTerm, List<Integer> musicIds) {
+        return onRead(key("searchMusicByIds", searchTerm, musicIds),
+                () -> readDelegate().searchMusicByIds(searchTerm, musicIds));
+    }
+
+    @Override
+    public List<Music> getMusicByAlbum(int albumId, int page, int pageSize) {
+        return onRead(key("getMusicByAlbum", albumId, page, pageSize), () -> readDelegate().getMusicByAlbum(albumId, page, pageSize));
+    }
+
+    @Override
+    public List<Music> getMusicByGenre(int genreId, int page, int pageSize) {
+        return onRead(key("getMusicByGenre", genreId, page, pageSize), () -> readDelegate().getMusicByGenre(genreId, page, pageSize));
+    }
+
+    @Override
+    public List<Music> getMusicByGroup(int groupId, int page, int pageSize) {
+        return onRead(key("getMusicByGroup", groupId, page, pageSize), () -> readDelegate().getMusicByGroup(groupId, page, pageSize));
+    }
+
+    @Override
+    public List<Music> getMusicByArtist(int artistId, int page, int pageSize) {
+        return onRead(key("getMusicByArtist", artistId, page, pageSize), () -> readDelegate().getMusicByArtist(artistId, page, pageSize));
+    }
+
+    @Override
+    public MusicPage getMusicPageByAlbum(int albumId, int page, int pageSize) {
+        return onRead(key("getMusicPageByAlbum", albumId, page, pageSize), () -> readDelegate().getMusicPageByAlbum(albumId, page, pageSize));
+    }
+
+    @Override
+    public MusicPage getMusicPageByGenre(int genreId, int page, int pageSize) {
+        return onRead(key("getMusicPageByGenre", genreId, page, pageSize), () -> readDelegate().getMusicPageByGenre(genreId, page, pageSize));
+    }
+
+    @Override
+    public MusicPage getMusicPageByGroup(int groupId, int page, int pageSize) {
+        return onRead(key("getMusicPageByGroup", groupId, page, pageSize), () -> readDelegate().getMusicPageByGroup(groupId, page, pageSize));
+    }
+
+    @Override
+    public MusicPage getMusicPageByArtist(int artistId, int page, int pageSize) {
+        return onRead(key("getMusicPageByArtist", artistId, page, pageSize), () -> readDelegate().getMusicPageByArtist(artistId, page, pageSize));
+    }
+
+    @Override
+    public List<MusicDetails> findMusic(MusicQuery query) {
+        return onRead(key("findMusic", query), () -> readDelegate().findMusic(query));
+    }
+
+    @Override
+    public MusicWithLinks getMusicWithLinks(int musicId) {
+        return onRead(key("getMusicWithLinks", musicId), () -> readDelegate().getMusicWithLinks(musicId));
+    }
+
+    /*
+     * AlbumDAO
+     */
+
+    @Override
+    public List<Album> getAllAlbums(int page, int pageSize) {
+        return onRead(key("getAllAlbums", page, pageSize), () -> readDelegate().getAllAlbums(page, pageSize));
+    }
+
+    @Override
+    public List<Album> getAlbumById(int albumId) {
+        return onRead(key("getAlbumById", albumId), () -> readDelegate().getAlbumById(albumId));
+    }
+
+    @Override
+    public List<Album> getAlbumsByIds(List<Integer> ids) {
+        return onRead(key("getAlbumsByIds", ids), () -> readDelegate().getAlbumsByIds(ids));
+    }
+
+    @Override
+    public int deleteAlbum(int albumId) {
+        return onWrite(writeDelegate().deleteAlbum(albumId));
+    }
+
+    @Override
+    public DeleteSummary deleteAlbumCascade(int albumId) {
+        DeleteSummary summary = writeDelegate().deleteAlbumCascade(albumId);
+        onWrite(summary != null && summary.isFound() ? 0 : -1);
+        return summary;
+    }
+
+    @Override
+    public int insertAlbum(Album album) {
+        return onWrite(writeDelegate().insertAlbum(album));
+    }
+
+    @Override
+    public int updateAlbum(Album album) {
+        return onWrite(writeDelegate().updateAlbum(album));
+    }
+
+    @Override
+    public Map<Integer, String> getAlbumMap() {
+        return onRead(key("getAlbumMap"), () -> readDelegate().getAlbumMap());
+    }
+
+    /*
+     * ArtistDAO
+     */
+
+    @Override
+    public List<Artist> getAllArtists(int page, int pageSize) {
+        return onRead(key("getAllArtists", page, pageSize), () -> readDelegate().getAllArtists(page, pageSize));
+    }
+
+    @Override
+    public List<ArtistJoinGroup> artistJoinGroup(int page, int pageSize) {
+        return onRead(key("artistJoinGroup", page, pageSize), () -> readDelegate().artistJoinGroup(page, pageSize));
+    }
+
+    @Override
+    public int updateArtist(Artist artist) {
+        return onWrite(writeDelegate().updateArtist(artist));
+    }
+
+    @Override
+    public int insertArtist(Artist artist) {
+        return onWrite(writeDelegate().insertArtist(artist));
+    }
+
+    @Override
+    public int deleteArtist(int artistId) {
+        return onWrite(writeDelegate().deleteArtist(artistId));
+    }
+
+    @Override
+    public List<Artist> getArtistById(int artistId) {
+        return onRead(key("getArtistById", artistId), () -> readDelegate().getArtistById(artistId));
+    }
+
+    @Override
+    public List<Artist> getArtistsByIds(List<Integer> ids) {
+        return onRead(key("getArtistsByIds", ids), () -> readDelegate().getArtistsByIds(ids));
+    }
+
+    /*
+     * GroupDAO
+     */
+
+    @Override
+    public List<Group> getAllGroups(int page, int pageSize) {
+        return onRead(key("getAllGroups", page, pageSize), () -> readDelegate().getAllGroups(page, pageSize));
+    }
+
+    @Override
+    public List<Group> getGroupById(int groupId) {
+        return onRead(key("getGroupById", groupId), () -> readDelegate().getGroupById(groupId));
+    }
+
+    @Override
+    public List<Group> getGroupsByIds(List<Integer> ids) {
+        return onRead(key("getGroupsByIds", ids), () -> readDelegate().getGroupsByIds(ids));
+    }
+
+    @Override
+    public int insertGroup(Group group) {
+        return onWrite(writeDelegate().insertGroup(group));
+    }
+
+    @Override
+    public int updateGroup(Group group) {
+        return onWrite(writeDelegate().updateGroup(group));
+    }
+
+    @Override
+    public int deleteGroup(int groupId) {
+        return onWrite(writeDelegate().deleteGroup(groupId));
+    }
+
+    @Override
+    public DeleteSummary deleteGroupCascade(int groupId) {
+        DeleteSummary summary = writeDelegate().deleteGroupCascade(groupId);
+        onWrite(summary != null && summary.isFound() ? 0 : -1);
+        return summary;
+    }
+
+    @Override
+    public Map<Integer, String> getGroupMap() {
+        return onRead(key("getGroupMap"), () -> readDelegate().getGroupMap());
+    }
+
+    /*
+     * GenreDAO
+     */
+
+    @Override
+    public List<Genre> getAllGenres(int page, int pageSize) {
+        return onRead(key("getAllGenres", page, pageSize), () -> readDelegate().getAllGenres(page, pageSize));
+    }
+
+    @Override
+    public List<Genre> getGenreById(int genreId) {
+        return onRead(key("getGenreById", genreId), () -> readDelegate().getGenreById(genreId));
+    }
+
+    @Override
+    public List<Genre> getGenresByIds(List<Integer> ids) {
+        return onRead(key("getGenresByIds", ids), () -> readDelegate().getGenresByIds(ids));
+    }
+
+    @Override
+    public int insertGenre(Genre genre) {
+        return onWrite(writeDelegate().insertGenre(genre));
+    }
+
+    @Override
+    public int updateGenre(Genre genre) {
+        return onWrite(writeDelegate().updateGenre(genre));
+    }
+
+    @Override
+    public int deleteGenre(int genreId) {
+        return onWrite(writeDelegate().deleteGenre(genreId));
+    }
+
+    @Override
+    public Map<Integer, String> getGenreMap() {
+        return onRead(key("getGenreMap"), () -> readDelegate().getGenreMap());
+    }
+
+    /*
+     * LinkDAO
+     */
+
+    @Override
+    public List<Link> getAllLinks(int page, int pageSize) {
+        return onRead(key("getAllLinks", page, pageSize), () -> readDelegate().getAllLinks(page, pageSize));
+    }
+
+    @Override
+    public List<Link> getLinksForMusic(int musicId) {
+        return onRead(key("getLinksForMusic", musicId), () -> readDelegate().getLinksForMusic(musicId));
+    }
+
+    @Override
+    public int insertLink(Link link) {
+        return onWrite(writeDelegate().insertLink(link));
+    }
+
+    /*
+     * CountDAO
+     */
+
+    @Override
+    public long countRows(String table) {
+        return onRead(key("countRows", table), () -> readDelegate().countRows(table));
+    }
+
+    @Override
+    public long countMusicBy(String filter, int id) {
+        return onRead(key("countMusicBy", filter, id), () -> readDelegate().countMusicBy(filter, id));
+    }
+
+    /*
+     * ProjectionDAO
+     */
+
+    @Override
+    public List<Map<String, Object>> getFields(String table, List<String> fields, int page, int pageSize) {
+        return onRead(key("getFields", table, fields, page, pageSize),
+                () -> readDelegate().getFields(table, fields, page, pageSize));
+    }
+
+    /*
+     * ExportDAO
+     */
+
+    @Override
+    public int exportMusic(int fromId, Consumer<Music> consumer) {
+        return readDelegate().exportMusic(fromId, consumer);
+    }
+
+    @Override
+    public int exportAlbums(int fromId, Consumer<Album> consumer) {
+        return readDelegate().exportAlbums(fromId, consumer);
+    }
+
+    @Override
+    public int exportArtists(int fromId, Consumer<Artist> consumer) {
+        return readDelegate().exportArtists(fromId, consumer);
+    }
+
+    @Override
+    public int exportGroups(int fromId, Consumer<Group> consumer) {
+        return readDelegate().exportGroups(fromId, consumer);
+    }
+
+    @Override
+    public int exportGenres(int fromId, Consumer<Genre> consumer) {
+        return readDelegate().exportGenres(fromId, consumer);
+    }
+
+    @Override
+    public int exportLinks(int fromMusicId, Consumer<Link> consumer) {
+        return readDelegate().exportLinks(fromMusicId, consumer);
+    }
+
+    @Override
+    public int exportJoinAll(int fromMusicId, Consumer<JoinAll> consumer) {
+        return readDelegate().exportJoinAll(fromMusicId, consumer);
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.gb.db;
+
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeFeed;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static com.gb.Constants.*;
+
+/**
+ * Cache dei conteggi di CountDAO usati per la paginazione, in modo che
+ * mostrare il numero di pagine non costi una query ad ogni richiesta. <br>
+ * - Un conteggio viene eliminato quando il ChangeFeed pubblica una
+ *   modifica della sua tabella (le canzoni filtrate per artista anche
+ *   con le modifiche degli artisti) e ad ogni RESET. <br>
+ * - In ogni caso un conteggio scade dopo ttlMillis, perché le stime di
+ *   PostgreSQLImpl cambiano senza alcun evento. <br>
+ * Gli errori ("-1") non vengono salvati, come i conteggi iniziati prima
+ * di una modifica.
+ */
+public class RowCountCache {
+
+    private static RowCountCache cacheInstance = null;
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final long ttlNanos;
+
+    public static synchronized RowCountCache getInstance() {
+        if(cacheInstance == null) {
+            cacheInstance = new RowCountCache(ChangeFeed.getInstance(), COUNT_TTL_MILLIS);
+        }
+        return cacheInstance;
+    }
+
+    public RowCountCache(ChangeFeed feed, long ttlMillis) {
+        this.ttlNanos = ttlMillis * 1_000_000;
+        feed.subscribe(this::onChange);
+    }
+
+    /**
+     * Numero di righe della tabella, vedi CountDAO.countRows.
+     */
+    public long countRows(Database db, String table) {
+        return count(table, () -> db.countRows(table));
+    }
+
+    /**
+     * Numero di canzoni con il valore indicato, vedi CountDAO.countMusicBy.
+     */
+    public long countMusicBy(Database db, String filter, int id) {
+        return count(MUSIC_TABLE + ':' + filter + ':' + id, () -> db.countMusicBy(filter, id));
+    }
+
+    public int size() {
+        return counts.size();
+    }
+
+    private long count(String key, LongSupplier counter) {
+        long now = System.nanoTime();
+        CachedCount cached = counts.get(key);
+        if(cached != null && now - cached.time < ttlNanos) {
+            return cached.rows;
+        }
+        long startGeneration = generation.get();
+        long rows = counter.getAsLong();
+        if(rows >= 0 && generation.get() == startGeneration) {
+            counts.put(key, new CachedCount(rows, now));
+        }
+        return rows;
+    }
+
+    private void onChange(ChangeEvent event) {
+        generation.incrementAndGet();
+        if(event.getOperation() == ChangeEvent.Operation.RESET) {
+            counts.clear();
+            return;
+        }
+        String table = event.getTable();
+        counts.keySet().removeIf(key -> key.equals(table) || key.startsWith(table + ':')
+                || (table.equals(ARTIST_TABLE) && key.startsWith(MUSIC_TABLE + ':' + ARTISTID + ':')));
+    }
+
+    private static final class CachedCount {
+
+        private final long rows;
+        private final long time;
+
+        private CachedCount(long rows, long time) {
+            this.rows = rows;
+            this.time = time;
+        }
+
+    }
+
+}
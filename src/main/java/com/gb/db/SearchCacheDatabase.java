@@ -0,0 +1,218 @@
+package com.gb.db;
+
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.modelObject.MusicStrings;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.gb.Constants.*;
+
+/**
+ * Cache dei risultati di searchMusic e searchMusicIds. Per ogni termine (senza distinguere
+ * maiuscole e minuscole, come la ricerca) vengono lette con una sola
+ * query le prime SEARCH_CACHE_ENTRY_ROWS righe del risultato, già
+ * ordinate: sfogliare le pagine successive non interroga più il
+ * database. Le pagine oltre queste righe vengono lette dal database. <br>
+ * - La memoria occupata è limitata dal numero totale di righe salvate
+ *   (SEARCH_CACHE_MAX_ROWS): superato il limite vengono eliminati i
+ *   termini usati meno di recente (LRU). <br>
+ * - La cache viene svuotata ad ogni modifica delle tabelle music, album,
+ *   grouptable, artist e genre pubblicata sul ChangeFeed (anche da altri
+ *   nodi, tramite LISTEN/NOTIFY) e ad ogni RESET. Una lettura iniziata
+ *   prima di una modifica non viene salvata. <br>
+ * Le altre letture e le scritture vengono inoltrate senza modifiche.
+ * Come per CoalescingDatabase, le righe restituite sono condivise e non
+ * devono essere modificate.
+ */
+public class SearchCacheDatabase extends ForwardingDatabase {
+
+    private static final Set<String> SEARCHED_TABLES = new HashSet<>(
+            Arrays.asList(MUSIC_TABLE, ALBUM_TABLE, GROUP_TABLE, ARTIST_TABLE, GENRE_TABLE));
+
+    private static final String ROWS_PREFIX = "rows:";
+    private static final String IDS_PREFIX = "ids:";
+
+    private static SearchCacheDatabase cacheInstance = null;
+
+    private final Database delegate;
+    private final LinkedHashMap<String, CachedSearch> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Runnable unsubscribe;
+    private long cachedRows = 0;
+
+    /**
+     * Restituisce l'istanza che avvolge il Database passato, creandola
+     * se il Database è cambiato. Con null restituisce null.
+     */
+    public static synchronized SearchCacheDatabase wrap(Database delegate) {
+        if(delegate == null) {
+            return null;
+        }
+        if(cacheInstance == null || cacheInstance.delegate != delegate) {
+            if(cacheInstance != null) {
+                cacheInstance.unsubscribe.run();
+            }
+            cacheInstance = new SearchCacheDatabase(delegate, ChangeFeed.getInstance());
+        }
+        return cacheInstance;
+    }
+
+    public SearchCacheDatabase(Database delegate, ChangeFeed feed) {
+        this.delegate = delegate;
+        this.unsubscribe = feed.subscribe(this::onChange);
+    }
+
+    @Override
+    protected Database readDelegate() {
+        return delegate;
+    }
+
+    @Override
+    protected Database writeDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public List<MusicStrings> searchMusic(String searchTerm, int page) {
+        if(page < 0) {
+            return delegate.searchMusic(searchTerm, page);
+        }
+        return searchMusic(searchTerm, page*PAGE_SIZE, PAGE_SIZE);
+    }
+
+    @Override
+    public List<MusicStrings> searchMusic(String searchTerm, int offset, int limit) {
+        if(offset < 0 || limit < 0) {
+            return delegate.searchMusic(searchTerm, offset, limit);
+        }
+        CachedSearch cached = lookup(ROWS_PREFIX + searchTerm.toLowerCase(Locale.ROOT), () -> {
+            List<MusicStrings> rows = delegate.searchMusic(searchTerm, 0, SEARCH_CACHE_ENTRY_ROWS + 1);
+            if(rows == null) {
+                return null;
+            }
+            boolean complete = rows.size() <= SEARCH_CACHE_ENTRY_ROWS;
+            return new CachedSearch(complete ? rows : new ArrayList<>(rows.subList(0, SEARCH_CACHE_ENTRY_ROWS)),
+                    complete);
+        });
+        if(cached == null) {
+            return null;
+        }
+
+        if(!cached.complete && (long) offset + limit > cached.rows.size()) {
+            return delegate.searchMusic(searchTerm, offset, limit);
+        }
+        int from = Math.min(offset, cached.rows.size());
+        int to = (int) Math.min((long) offset + limit, cached.rows.size());
+        return new ArrayList<>(cached.<MusicStrings>rows().subList(from, to));
+    }
+
+    /**
+     * Anche gli id dei risultati, usati per le faccette, restano in cache
+     * fino alla prossima modifica.
+     */
+    @Override
+    public List<Integer> searchMusicIds(String searchTerm) {
+        CachedSearch cached = lookup(IDS_PREFIX + searchTerm.toLowerCase(Locale.ROOT), () -> {
+            List<Integer> ids = delegate.searchMusicIds(searchTerm);
+            return ids == null ? null : new CachedSearch(ids, true);
+        });
+        return cached == null ? null : new ArrayList<>(cached.<Integer>rows());
+    }
+
+    private CachedSearch lookup(String key, Supplier<CachedSearch> loader) {
+        CachedSearch cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if(cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        long startGeneration = generation.get();
+        CachedSearch loaded = loader.get();
+        if(loaded == null) {
+            return null;
+        }
+        synchronized (cache) {
+            if(generation.get() == startGeneration) {
+                CachedSearch old = cache.put(key, loaded);
+                if(old != null) {
+                    cachedRows -= old.weight();
+                }
+                cachedRows += loaded.weight();
+                Iterator<CachedSearch> eldest = cache.values().iterator();
+                while(cachedRows > SEARCH_CACHE_MAX_ROWS && eldest.hasNext()) {
+                    cachedRows -= eldest.next().weight();
+                    eldest.remove();
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private void onChange(ChangeEvent event) {
+        if(event.getOperation() == ChangeEvent.Operation.RESET || SEARCHED_TABLES.contains(event.getTable())) {
+            synchronized (cache) {
+                generation.incrementAndGet();
+                cache.clear();
+                cachedRows = 0;
+            }
+        }
+    }
+
+    /**
+     * Numero di risultati (righe o id di un termine) attualmente in cache.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Numero di ricerche servite dalla cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Numero di ricerche che hanno dovuto interrogare il database.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private static final class CachedSearch {
+
+        private final List<?> rows;
+        private final boolean complete;
+
+        private CachedSearch(List<?> rows, boolean complete) {
+            this.rows = rows;
+            this.complete = complete;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> List<T> rows() {
+            return (List<T>) rows;
+        }
+
+        /*
+         * Anche un risultato vuoto occupa un posto nella cache.
+         */
+        private int weight() {
+            return rows.size() + 1;
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.gb.db;
+
+import java.util.*;
+
+import static com.gb.Constants.*;
+
+/**
+ * Le colonne di ogni tabella, nell'ordine del modello. Sono usate da
+ * PostgreSQLImpl al posto di SELECT * e per controllare le colonne
+ * chieste con il parametro fields delle liste (vedi ProjectionDAO).
+ */
+public final class TableColumns {
+
+    private static final Map<String, List<String>> COLUMNS = new HashMap<>();
+
+    static {
+        COLUMNS.put(MUSIC_TABLE, Collections.unmodifiableList(Arrays.asList(MUSICID, TITLE, AUTHORID, ALBUMID, YEAR, GENREID)));
+        COLUMNS.put(ALBUM_TABLE, Collections.unmodifiableList(Arrays.asList(ALBUMID, TITLE, YEAR, GROUPID)));
+        COLUMNS.put(ARTIST_TABLE, Collections.unmodifiableList(Arrays.asList(ARTISTID, NAME, GROUPID)));
+        COLUMNS.put(GROUP_TABLE, Collections.unmodifiableList(Arrays.asList(GROUPID, NAME)));
+        COLUMNS.put(GENRE_TABLE, Collections.unmodifiableList(Arrays.asList(GENREID, NAME)));
+        COLUMNS.put(LINK_TABLE, Collections.unmodifiableList(Arrays.asList(MUSICID, LINK)));
+    }
+
+    private TableColumns() { }
+
+    /**
+     * Le colonne della tabella, oppure null se la tabella non esiste.
+     */
+    public static List<String> of(String table) {
+        return COLUMNS.get(table);
+    }
+
+    /**
+     * Le colonne separate da virgole, per la clausola SELECT.
+     */
+    public static String select(String table) {
+        return " " + String.join(", ", COLUMNS.get(table)) + " ";
+    }
+
+    /**
+     * Come select, con le colonne qualificate dall'alias della tabella
+     * (ad esempio M.musicid), per le query con JOIN.
+     */
+    public static String select(String table, String alias) {
+        StringJoiner columns = new StringJoiner(", ", " ", " ");
+        COLUMNS.get(table).forEach(column -> columns.add(alias + '.' + column));
+        return columns.toString();
+    }
+
+    /**
+     * Le colonne con cui ordinare le righe: la chiave primaria, oppure
+     * (musicid, link) per i link, che non ne hanno una.
+     */
+    public static String key(String table) {
+        List<String> columns = COLUMNS.get(table);
+        return table.equals(LINK_TABLE) ? String.join(", ", columns) : columns.get(0);
+    }
+
+    /**
+     * True se fields è una lista non vuota di colonne della tabella, senza ripetizioni.
+     */
+    public static boolean areValid(String table, List<String> fields) {
+        List<String> columns = COLUMNS.get(table);
+        return columns != null && !fields.isEmpty() && columns.containsAll(fields)
+                && new HashSet<>(fields).size() == fields.size();
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.gb.db.cdc;
+
+import static com.gb.utils.UtilFunctions.jsonValue;
+
+/**
+ * Una modifica del catalogo: tabella, chiave primaria della riga
+ * modificata (musicid per i link), tipo di operazione e versione.
+ * La versione cresce con le modifiche: con PostgreSQL è l'id della
+ * transazione che ha pubblicato l'evento, con InMemoryDatabase un
+ * contatore locale. <br>
+ * Un evento RESET indica che alcuni eventi potrebbero essere andati
+ * persi (ad esempio dopo una riconnessione): chi mantiene una cache
+ * deve scartarla per intero.
+ */
+public final class ChangeEvent {
+
+    public enum Operation {
+        INSERT('I'), UPDATE('U'), DELETE('D'), RESET('R');
+
+        private final char code;
+
+        Operation(char code) {
+            this.code = code;
+        }
+
+        public char getCode() {
+            return code;
+        }
+
+        public static Operation fromCode(char code) {
+            for(Operation operation : values()) {
+                if(operation.code == code) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Operazione '" + code + "' sconosciuta.");
+        }
+    }
+
+    public static final String ALL_TABLES = "*";
+
+    private final String table;
+    private final int id;
+    private final Operation operation;
+    private final long version;
+
+    public ChangeEvent(String table, int id, Operation operation, long version) {
+        this.table = table;
+        this.id = id;
+        this.operation = operation;
+        this.version = version;
+    }
+
+    public static ChangeEvent reset(long version) {
+        return new ChangeEvent(ALL_TABLES, 0, Operation.RESET, version);
+    }
+
+    /**
+     * Restituisce la parte del payload che precede la versione
+     * ("tabella:id:operazione"), usata da chi pubblica l'evento quando la
+     * versione viene assegnata dal database.
+     */
+    public static String payloadPrefix(String table, int id, Operation operation) {
+        return table + ":" + id + ":" + operation.getCode();
+    }
+
+    /**
+     * Interpreta un payload nel formato "tabella:id:operazione:versione".
+     * @throws IllegalArgumentException Se il payload non è nel formato atteso
+     */
+    public static ChangeEvent fromPayload(String payload) {
+        String[] parts = payload == null ? new String[0] : payload.split(":");
+        if(parts.length != 4 || parts[2].length() != 1) {
+            throw new IllegalArgumentException("Payload '" + payload + "' non valido.");
+        }
+        return new ChangeEvent(parts[0], Integer.parseInt(parts[1]),
+                Operation.fromCode(parts[2].charAt(0)), Long.parseLong(parts[3]));
+    }
+
+    public String toPayload() {
+        return payloadPrefix(table, id, operation) + ":" + version;
+    }
+
+    /**
+     * Restituisce l'evento come oggetto JSON, ad esempio
+     * {"table":"music","id":42,"op":"UPDATE","version":1234}
+     */
+    public String toJson() {
+        return "{\"table\":" + jsonValue(table) + ",\"id\":" + id
+                + ",\"op\":" + jsonValue(operation.name()) + ",\"version\":" + version + "}";
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return toPayload();
+    }
+}
@@ -0,0 +1,65 @@
+package com.gb.db.cdc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Distribuisce ai subscriber del nodo le modifiche del catalogo.
+ * Gli eventi arrivano da ChangeListener, che riceve quelli pubblicati
+ * da PostgreSQLImpl su tutti i nodi (LISTEN/NOTIFY), oppure direttamente
+ * da InMemoryDatabase, le cui modifiche restano locali. <br>
+ * I subscriber vengono chiamati in ordine, sul thread che pubblica
+ * l'evento: devono quindi essere veloci (ad esempio invalidare una voce
+ * di cache, o accodare l'evento). Un'eccezione di un subscriber viene
+ * registrata nel log e non impedisce la consegna agli altri.
+ */
+public class ChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private static final ChangeFeed feedInstance = new ChangeFeed();
+
+    private final List<Consumer<ChangeEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong localVersion = new AtomicLong();
+
+    public static ChangeFeed getInstance() {
+        return feedInstance;
+    }
+
+    /**
+     * Registra un subscriber.
+     * @return L'azione che annulla la registrazione
+     */
+    public Runnable subscribe(Consumer<ChangeEvent> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public void publish(ChangeEvent event) {
+        for(Consumer<ChangeEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                logger.error("Error in ChangeFeed.publish ({}): {}", event, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Pubblica una modifica fatta localmente, assegnandole
+     * la versione successiva del contatore del nodo.
+     */
+    public void publishLocal(String table, int id, ChangeEvent.Operation operation) {
+        publish(new ChangeEvent(table, id, operation, localVersion.incrementAndGet()));
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.gb.db.cdc;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Iscrizione al ChangeFeed con un buffer limitato, per i consumatori che
+ * leggono gli eventi da un altro thread (ad esempio lo stream /events). <br>
+ * - Filtro: vengono accodati solo gli eventi delle tabelle e degli id
+ *   richiesti (un insieme vuoto non filtra). Gli eventi RESET passano sempre. <br>
+ * - Backpressure: il thread che pubblica non si blocca mai. Se il buffer
+ *   è pieno perché il consumatore è lento, gli eventi vengono scartati e
+ *   il consumatore riceve, al posto degli eventi persi, un unico RESET,
+ *   in modo che sappia di dover rileggere i dati invece di ricevere un
+ *   flusso incompleto senza accorgersene.
+ */
+public class ChangeSubscription implements AutoCloseable {
+
+    private final Set<String> tables;
+    private final Set<Integer> ids;
+    private final BlockingQueue<ChangeEvent> queue;
+    private final AtomicBoolean overflowed = new AtomicBoolean(false);
+    private final LongAdder dropped = new LongAdder();
+    private final Runnable unsubscribe;
+
+    /**
+     * @param feed Il feed a cui iscriversi
+     * @param tables Le tabelle di interesse (vuoto = tutte)
+     * @param ids Gli id di interesse (vuoto = tutti)
+     * @param capacity Numero massimo di eventi in attesa
+     */
+    public ChangeSubscription(ChangeFeed feed, Set<String> tables, Set<Integer> ids, int capacity) {
+        this.tables = Collections.unmodifiableSet(tables);
+        this.ids = Collections.unmodifiableSet(ids);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.unsubscribe = feed.subscribe(this::offer);
+    }
+
+    private void offer(ChangeEvent event) {
+        if(event.getOperation() != ChangeEvent.Operation.RESET) {
+            if(!tables.isEmpty() && !tables.contains(event.getTable())) {
+                return;
+            }
+            if(!ids.isEmpty() && !ids.contains(event.getId())) {
+                return;
+            }
+        }
+        if(!queue.offer(event)) {
+            overflowed.set(true);
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Attende il prossimo evento.
+     * @return L'evento, un RESET se degli eventi sono stati scartati,
+     *         oppure null se non arriva nulla entro il timeout
+     */
+    public ChangeEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if(overflowed.getAndSet(false)) {
+            queue.clear();
+            return ChangeEvent.reset(0);
+        }
+        return queue.poll(timeout, unit);
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        unsubscribe.run();
+    }
+
+}
@@ -0,0 +1,394 @@
+package com.gb.db.inMemoryImpl;
+
+import com.gb.db.TableColumns;
+import com.gb.db.mapper.RowMapper;
+import com.gb.db.mapper.RowMapperFactory;
+import com.gb.db.mapper.RowMappers;
+import com.gb.db.postgreSQLImpl.ConnectionManager;
+import com.gb.modelObject.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+import static com.gb.Constants.*;
+
+/**
+ * Questa classe carica il catalogo in un InMemoryDatabase, da PostgreSQL
+ * oppure da un dump prodotto da pg_dump (blocchi COPY ... FROM stdin).
+ * Le tabelle vengono caricate in un ordine che rispetta le chiavi esterne
+ * (gruppi e generi, poi album e artisti, poi canzoni e link). <br>
+ * Le tabelle non hanno colonne con la data di modifica, per cui le
+ * modifiche successive ad uno snapshot vengono individuate tramite delle
+ * impronte (fingerprint): le righe di ogni tabella sono divise in bucket
+ * per intervalli di chiave di BUCKET_SIZE, e per ogni bucket PostgreSQL
+ * calcola numero di righe e somma degli hash delle righe. Vengono
+ * riletti solo i bucket la cui impronta è cambiata.
+ */
+public final class CatalogLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogLoader.class);
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int BUCKET_SIZE = 1024;
+
+    /*
+     * Tabelle del catalogo, con la colonna usata per dividerle in bucket.
+     */
+    private static final String[][] TABLE_KEYS = {
+            { GROUP_TABLE, GROUPID },
+            { GENRE_TABLE, GENREID },
+            { ALBUM_TABLE, ALBUMID },
+            { ARTIST_TABLE, ARTISTID },
+            { MUSIC_TABLE, MUSICID },
+            { LINK_TABLE, MUSICID },
+    };
+
+    private CatalogLoader() { }
+
+    /**
+     * Carica le tabelle con una connessione dedicata, in un'unica
+     * transazione di sola lettura REPEATABLE READ: le tabelle vengono
+     * lette tutte dalla stessa fotografia del database. Il driver legge
+     * le righe a blocchi di FETCH_SIZE, senza tenere in memoria l'intero
+     * risultato di ogni query.
+     * @return Le impronte delle tabelle lette, da salvare nello snapshot
+     */
+    public static Map<String, Map<Integer, Long>> loadFromPostgres(ConnectionManager connectionManager,
+                                                                   InMemoryDatabase target) throws SQLException {
+        try (Connection conn = openSnapshotTransaction(connectionManager)) {
+            try {
+                scan(conn, GROUP_TABLE, RowMappers::group, target::putGroup);
+                scan(conn, GENRE_TABLE, RowMappers::genre, target::putGenre);
+                scan(conn, ALBUM_TABLE, RowMappers::album, target::putAlbum);
+                scan(conn, ARTIST_TABLE, RowMappers::artist, target::putArtist);
+                scan(conn, MUSIC_TABLE, RowMappers::music, target::putMusic);
+                scan(conn, LINK_TABLE, RowMappers::link, target::putLink);
+                return fingerprints(conn);
+            } finally {
+                conn.rollback();
+            }
+        }
+    }
+
+    /**
+     * Aggiorna un catalogo caricato da uno snapshot: rilegge da PostgreSQL
+     * solo i bucket la cui impronta è diversa da quella salvata nello
+     * snapshot, e applica inserimenti, modifiche ed eliminazioni.
+     * @return Le impronte attuali delle tabelle
+     */
+    public static Map<String, Map<Integer, Long>> catchUp(ConnectionManager connectionManager,
+                                                          InMemoryDatabase target,
+                                                          Map<String, Map<Integer, Long>> snapshotFingerprints)
+            throws SQLException {
+        try (Connection conn = openSnapshotTransaction(connectionManager)) {
+            try {
+                Map<String, Map<Integer, Long>> current = fingerprints(conn);
+
+                Map<String, Set<Integer>> changed = new HashMap<>();
+                int changedBuckets = 0;
+                for(String[] tableKey : TABLE_KEYS) {
+                    Set<Integer> buckets = changedBuckets(
+                            snapshotFingerprints.getOrDefault(tableKey[0], Collections.emptyMap()),
+                            current.getOrDefault(tableKey[0], Collections.emptyMap()));
+                    changed.put(tableKey[0], buckets);
+                    changedBuckets += buckets.size();
+                }
+                if(changedBuckets == 0) {
+                    logger.info("Lo snapshot e' aggiornato, nessuna modifica da applicare.");
+                    return current;
+                }
+
+                List<Group> groups = fetchBuckets(conn, GROUP_TABLE, GROUPID, changed, RowMappers::group);
+                List<Genre> genres = fetchBuckets(conn, GENRE_TABLE, GENREID, changed, RowMappers::genre);
+                List<Album> albums = fetchBuckets(conn, ALBUM_TABLE, ALBUMID, changed, RowMappers::album);
+                List<Artist> artists = fetchBuckets(conn, ARTIST_TABLE, ARTISTID, changed, RowMappers::artist);
+                List<Music> music = fetchBuckets(conn, MUSIC_TABLE, MUSICID, changed, RowMappers::music);
+                List<Link> links = fetchBuckets(conn, LINK_TABLE, MUSICID, changed, RowMappers::link);
+
+                /*
+                  Inserimenti e modifiche partono dalle tabelle referenziate,
+                  le eliminazioni da quelle che le referenziano, in modo
+                  da non violare le chiavi esterne.
+                 */
+                groups.forEach(target::putGroup);
+                genres.forEach(target::putGenre);
+                albums.forEach(target::putAlbum);
+                artists.forEach(target::putArtist);
+                music.forEach(target::putMusic);
+
+                Map<Integer, List<Link>> linksByMusic = new HashMap<>();
+                for(Integer musicId : removedIds(changed.get(LINK_TABLE), target.linksByMusic, links, Link::getMusicId)) {
+                    linksByMusic.put(musicId, new ArrayList<>());
+                }
+                for(Link link : links) {
+                    linksByMusic.computeIfAbsent(link.getMusicId(), k -> new ArrayList<>()).add(link);
+                }
+                linksByMusic.forEach(target::replaceLinks);
+
+                removedIds(changed.get(MUSIC_TABLE), target.musicTable, music, Music::getMusicId)
+                        .forEach(target::removeMusic);
+                removedIds(changed.get(ARTIST_TABLE), target.artistTable, artists, Artist::getArtistId)
+                        .forEach(target::removeArtist);
+                removedIds(changed.get(ALBUM_TABLE), target.albumTable, albums, Album::getAlbumId)
+                        .forEach(target::removeAlbum);
+                removedIds(changed.get(GENRE_TABLE), target.genreTable, genres, Genre::getGenreId)
+                        .forEach(target::removeGenre);
+                removedIds(changed.get(GROUP_TABLE), target.groupTable, groups, Group::getGroupId)
+                        .forEach(target::removeGroup);
+
+                logger.info("Snapshot aggiornato: riletti {} bucket modificati.", changedBuckets);
+                return current;
+            } finally {
+                conn.rollback();
+            }
+        }
+    }
+
+    private static Connection openSnapshotTransaction(ConnectionManager connectionManager) throws SQLException {
+        Connection conn = connectionManager.openConnection();
+        try {
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setReadOnly(true);
+            return conn;
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Calcola, per ogni tabella, l'impronta di ogni bucket:
+     * 31 * numero di righe + somma degli hash delle righe.
+     */
+    static Map<String, Map<Integer, Long>> fingerprints(Connection conn) throws SQLException {
+        Map<String, Map<Integer, Long>> fingerprints = new HashMap<>();
+        for(String[] tableKey : TABLE_KEYS) {
+            String sql =
+                    " SELECT T." + tableKey[1] + " / ? AS bucket, " +
+                    " 31 * COUNT(*) + SUM(hashtext(T::text)) AS fingerprint " +
+                    " FROM " + tableKey[0] + " AS T " +
+                    " GROUP BY bucket ";
+
+            Map<Integer, Long> buckets = new HashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, BUCKET_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while(rs.next()) {
+                        buckets.put(rs.getInt(1), rs.getLong(2));
+                    }
+                }
+            }
+            fingerprints.put(tableKey[0], buckets);
+        }
+        return fingerprints;
+    }
+
+    private static Set<Integer> changedBuckets(Map<Integer, Long> before, Map<Integer, Long> after) {
+        Set<Integer> changed = new HashSet<>();
+        for(Map.Entry<Integer, Long> entry : after.entrySet()) {
+            if(!entry.getValue().equals(before.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for(Integer bucket : before.keySet()) {
+            if(!after.containsKey(bucket)) {
+                changed.add(bucket);
+            }
+        }
+        return changed;
+    }
+
+    private static <T> List<T> fetchBuckets(Connection conn, String table, String keyColumn,
+                                            Map<String, Set<Integer>> changed, RowMapperFactory<T> factory)
+            throws SQLException {
+        List<T> rows = new ArrayList<>();
+        Set<Integer> buckets = changed.get(table);
+        if(buckets.isEmpty()) {
+            return rows;
+        }
+
+        String sql =
+                " SELECT " + TableColumns.select(table) +
+                " FROM " + table +
+                " WHERE " + keyColumn + " / ? = ANY(?) ";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, BUCKET_SIZE);
+            ps.setArray(2, conn.createArrayOf("integer", buckets.toArray()));
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<T> mapper = factory.create(rs);
+                while(rs.next()) {
+                    rows.add(mapper.mapRow(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Restituisce le chiavi presenti in memoria, in uno dei bucket
+     * modificati, che non compaiono più fra le righe lette da PostgreSQL.
+     */
+    private static <T> List<Integer> removedIds(Set<Integer> buckets, Map<Integer, ?> memory,
+                                                List<T> rows, ToIntFunction<T> id) {
+        List<Integer> removed = new ArrayList<>();
+        if(buckets.isEmpty()) {
+            return removed;
+        }
+        Set<Integer> present = new HashSet<>();
+        for(T row : rows) {
+            present.add(id.applyAsInt(row));
+        }
+        for(Integer key : memory.keySet()) {
+            if(buckets.contains(key / BUCKET_SIZE) && !present.contains(key)) {
+                removed.add(key);
+            }
+        }
+        return removed;
+    }
+
+    private static <T> void scan(Connection conn, String table, RowMapperFactory<T> factory,
+                                 ToIntFunction<T> sink) throws SQLException {
+        String sql =
+                " SELECT " + TableColumns.select(table) +
+                " FROM " + table;
+
+        int rows = 0;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<T> mapper = factory.create(rs);
+                while(rs.next()) {
+                    if(sink.applyAsInt(mapper.mapRow(rs)) == 0) {
+                        rows++;
+                    }
+                }
+            }
+        }
+        logger.info("Caricate {} righe dalla tabella {}.", rows, table);
+    }
+
+    /**
+     * Carica le tabelle da un dump SQL testuale prodotto da pg_dump.
+     * Vengono letti solo i blocchi COPY delle tabelle del catalogo.
+     */
+    public static void loadFromDump(String path, InMemoryDatabase target) throws IOException {
+        Map<String, List<Map<String, String>>> tables = readCopyBlocks(path);
+
+        for(Map<String, String> row : rows(tables, GROUP_TABLE)) {
+            target.putGroup(new Group(toInt(row.get(GROUPID)), row.get(NAME)));
+        }
+        for(Map<String, String> row : rows(tables, GENRE_TABLE)) {
+            target.putGenre(new Genre(toInt(row.get(GENREID)), row.get(NAME)));
+        }
+        for(Map<String, String> row : rows(tables, ALBUM_TABLE)) {
+            target.putAlbum(new Album(toInt(row.get(ALBUMID)), row.get(TITLE),
+                    toInt(row.get(YEAR)), toInt(row.get(GROUPID))));
+        }
+        for(Map<String, String> row : rows(tables, ARTIST_TABLE)) {
+            target.putArtist(new Artist(toInt(row.get(ARTISTID)), row.get(NAME), toInt(row.get(GROUPID))));
+        }
+        for(Map<String, String> row : rows(tables, MUSIC_TABLE)) {
+            String albumId = row.get(ALBUMID);
+            target.putMusic(new Music(toInt(row.get(MUSICID)), row.get(TITLE), toInt(row.get(AUTHORID)),
+                    albumId == null ? null : toInt(albumId), toInt(row.get(YEAR)), toInt(row.get(GENREID))));
+        }
+        for(Map<String, String> row : rows(tables, LINK_TABLE)) {
+            target.putLink(new Link(toInt(row.get(MUSICID)), row.get(LINK)));
+        }
+        logger.info("Catalogo caricato dal dump {}.", path);
+    }
+
+    private static List<Map<String, String>> rows(Map<String, List<Map<String, String>>> tables, String table) {
+        List<Map<String, String>> rows = tables.get(table);
+        return rows == null ? new ArrayList<>() : rows;
+    }
+
+    private static int toInt(String value) {
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Legge i blocchi del tipo: <br>
+     * COPY "MusicDB".music (year, title, musicid, ...) FROM stdin; <br>
+     * una riga per record, campi separati da tab, \N per NULL <br>
+     * \. <br>
+     * Restituisce, per ogni tabella, le righe come mappe colonna -&gt; valore.
+     */
+    private static Map<String, List<Map<String, String>>> readCopyBlocks(String path) throws IOException {
+        Map<String, List<Map<String, String>>> tables = new HashMap<>();
+
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = br.readLine()) != null) {
+                if(!line.startsWith("COPY ")) {
+                    continue;
+                }
+                int open = line.indexOf('(');
+                int close = line.indexOf(')');
+                String qualifiedName = line.substring("COPY ".length(), open).trim();
+                String table = qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1).replace("\"", "");
+                String[] columns = line.substring(open + 1, close).split(",");
+
+                List<Map<String, String>> rows = new ArrayList<>();
+                while((line = br.readLine()) != null && !line.equals("\\.")) {
+                    String[] values = line.split("\t", -1);
+                    Map<String, String> row = new HashMap<>();
+                    for(int i = 0; i < columns.length && i < values.length; i++) {
+                        row.put(columns[i].trim().replace("\"", ""), unescape(values[i]));
+                    }
+                    rows.add(row);
+                }
+                tables.put(table, rows);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Converte un campo del formato testuale di COPY: \N è NULL,
+     * le sequenze con backslash rappresentano caratteri speciali.
+     */
+    private static String unescape(String value) {
+        if(value.equals("\\N")) {
+            return null;
+        }
+        if(value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c != '\\' || i + 1 == value.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = value.charAt(++i);
+            switch (next) {
+                case 't': sb.append('\t'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'v': sb.append('\u000B'); break;
+                default: sb.append(next); break;
+            }
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.gb.db.inMemoryImpl;
+
+import com.gb.modelObject.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Questa classe salva il catalogo di un InMemoryDatabase in un file
+ * binario e lo ricarica all'avvio, evitando di rileggere tutte le
+ * tabelle da PostgreSQL. Il file viene letto con FileChannel.map, senza
+ * copiarlo in un buffer intermedio. <br>
+ * Formato (tutti i numeri sono big-endian): <br>
+ * - intestazione: MAGIC, VERSION, data di creazione (long) <br>
+ * - dizionario: numero di stringhe, poi per ogni stringa lunghezza in
+ *   byte e byte UTF-8. Nomi, titoli e link sono salvati una sola volta
+ *   e le righe li referenziano tramite la loro posizione. <br>
+ * - tabelle, nell'ordine delle chiavi esterne (gruppi, generi, album,
+ *   artisti, canzoni, link): numero di righe, poi le colonne di ogni riga
+ *   (albumid = 0 indica una canzone senza album) <br>
+ * - impronte delle tabelle (vedi CatalogLoader), usate all'avvio per
+ *   rileggere solo le righe modificate dopo la creazione dello snapshot. <br>
+ * Un file con MAGIC o VERSION diversi viene scartato.
+ */
+public final class CatalogSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    private static final int MAGIC = 0x4D444253;
+    private static final int VERSION = 1;
+
+    private CatalogSnapshot() { }
+
+    /**
+     * Scrive lo snapshot in un file temporaneo e lo rinomina solo alla
+     * fine, in modo che un nodo che si avvia non legga mai un file a metà.
+     */
+    public static void write(InMemoryDatabase db, Map<String, Map<Integer, Long>> fingerprints, String path)
+            throws IOException {
+        Path target = Paths.get(path).toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        List<Group> groups = new ArrayList<>(db.groupTable.values());
+        List<Genre> genres = new ArrayList<>(db.genreTable.values());
+        List<Album> albums = new ArrayList<>(db.albumTable.values());
+        List<Artist> artists = new ArrayList<>(db.artistTable.values());
+        List<Music> music = new ArrayList<>(db.musicTable.values());
+        List<Link> links = new ArrayList<>();
+        db.linksByMusic.values().forEach(links::addAll);
+
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        groups.forEach(group -> intern(dictionary, group.getName()));
+        genres.forEach(genre -> intern(dictionary, genre.getName()));
+        albums.forEach(album -> intern(dictionary, album.getTitle()));
+        artists.forEach(artist -> intern(dictionary, artist.getName()));
+        music.forEach(m -> intern(dictionary, m.getTitle()));
+        links.forEach(link -> intern(dictionary, link.getLink()));
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+
+            out.writeInt(dictionary.size());
+            for(String value : dictionary.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(groups.size());
+            for(Group group : groups) {
+                out.writeInt(group.getGroupId());
+                out.writeInt(dictionary.get(group.getName()));
+            }
+            out.writeInt(genres.size());
+            for(Genre genre : genres) {
+                out.writeInt(genre.getGenreId());
+                out.writeInt(dictionary.get(genre.getName()));
+            }
+            out.writeInt(albums.size());
+            for(Album album : albums) {
+                out.writeInt(album.getAlbumId());
+                out.writeInt(dictionary.get(album.getTitle()));
+                out.writeShort(album.getYear());
+                out.writeInt(album.getGroupId());
+            }
+            out.writeInt(artists.size());
+            for(Artist artist : artists) {
+                out.writeInt(artist.getArtistId());
+                out.writeInt(dictionary.get(artist.getName()));
+                out.writeInt(artist.getGroupId());
+            }
+            out.writeInt(music.size());
+            for(Music m : music) {
+                out.writeInt(m.getMusicId());
+                out.writeInt(dictionary.get(m.getTitle()));
+                out.writeInt(m.getAuthorId());
+                out.writeInt(m.getAlbumIdValue());
+                out.writeShort(m.getYear());
+                out.writeInt(m.getGenreId());
+            }
+            out.writeInt(links.size());
+            for(Link link : links) {
+                out.writeInt(link.getMusicId());
+                out.writeInt(dictionary.get(link.getLink()));
+            }
+
+            out.writeInt(fingerprints.size());
+            for(Map.Entry<String, Map<Integer, Long>> table : fingerprints.entrySet()) {
+                out.writeUTF(table.getKey());
+                out.writeInt(table.getValue().size());
+                for(Map.Entry<Integer, Long> bucket : table.getValue().entrySet()) {
+                    out.writeInt(bucket.getKey());
+                    out.writeLong(bucket.getValue());
+                }
+            }
+        }
+
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Snapshot del catalogo scritto in {} ({} canzoni, {} stringhe).",
+                path, music.size(), dictionary.size());
+    }
+
+    /**
+     * Carica lo snapshot nel database passato, che deve essere vuoto.
+     * @return Le impronte delle tabelle al momento della creazione dello snapshot
+     * @throws IOException Se il file non esiste, è di una versione diversa o è troncato
+     */
+    public static Map<String, Map<Integer, Long>> read(String path, InMemoryDatabase db) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if(buffer.getInt() != MAGIC) {
+                throw new IOException("il file " + path + " non e' uno snapshot del catalogo");
+            }
+            int version = buffer.getInt();
+            if(version != VERSION) {
+                throw new IOException("versione dello snapshot " + version + " non supportata");
+            }
+            long createdAt = buffer.getLong();
+
+            String[] dictionary = new String[buffer.getInt()];
+            for(int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(buffer, buffer.getInt());
+            }
+
+            for(int i = buffer.getInt(); i > 0; i--) {
+                db.putGroup(new Group(buffer.getInt(), dictionary[buffer.getInt()]));
+            }
+            for(int i = buffer.getInt(); i > 0; i--) {
+                db.putGenre(new Genre(buffer.getInt(), dictionary[buffer.getInt()]));
+            }
+            for(int i = buffer.getInt(); i > 0; i--) {
+                int albumId = buffer.getInt();
+                String title = dictionary[buffer.getInt()];
+                short year = buffer.getShort();
+                db.putAlbum(new Album(albumId, title, year, buffer.getInt()));
+            }
+            for(int i = buffer.getInt(); i > 0; i--) {
+                int artistId = buffer.getInt();
+                String name = dictionary[buffer.getInt()];
+                db.putArtist(new Artist(artistId, name, buffer.getInt()));
+            }
+            for(int i = buffer.getInt(); i > 0; i--) {
+                int musicId = buffer.getInt();
+                String title = dictionary[buffer.getInt()];
+                int authorId = buffer.getInt();
+                int albumId = buffer.getInt();
+                short year = buffer.getShort();
+                int genreId = buffer.getInt();
+                db.putMusic(new Music(musicId, title, authorId, albumId == 0 ? null : albumId, year, genreId));
+            }
+            for(int i = buffer.getInt(); i > 0; i--) {
+                db.putLink(new Link(buffer.getInt(), dictionary[buffer.getInt()]));
+            }
+
+            Map<String, Map<Integer, Long>> fingerprints = new HashMap<>();
+            for(int i = buffer.getInt(); i > 0; i--) {
+                String table = readString(buffer, buffer.getShort() & 0xFFFF);
+                Map<Integer, Long> buckets = new HashMap<>();
+                for(int j = buffer.getInt(); j > 0; j--) {
+                    buckets.put(buffer.getInt(), buffer.getLong());
+                }
+                fingerprints.put(table, buckets);
+            }
+
+            logger.info("Snapshot del catalogo {} caricato (creato il {}).", path, new Date(createdAt));
+            return fingerprints;
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("snapshot " + path + " troncato o corrotto");
+        }
+    }
+
+    private static void intern(Map<String, Integer> dictionary, String value) {
+        dictionary.putIfAbsent(value, dictionary.size());
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,1391 @@
+package com.gb.db.inMemoryImpl;
+
+import com.gb.dao.MusicQuery;
+import com.gb.db.Database;
+import com.gb.db.TableColumns;
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeEvent.Operation;
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.db.postgreSQLImpl.ConnectionManager;
+import com.gb.modelObject.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.gb.Constants.*;
+
+/**
+ * Questa classe implementa i DAO mantenendo l'intero catalogo in memoria,
+ * senza alcuna query verso il database durante le richieste. Il catalogo
+ * viene caricato all'avvio da PostgreSQL o, se il server non è
+ * raggiungibile, dal dump DUMP_FILE (vedi CatalogLoader). Le modifiche
+ * restano in memoria e non vengono propagate a PostgreSQL. <br>
+ * - Ogni tabella è una mappa concorrente ordinata per chiave primaria, per
+ *   cui la paginazione restituisce sempre lo stesso ordine. <br>
+ * - Gli indici secondari (canzoni per album, genere, gruppo e anno, album
+ *   e artisti per gruppo, link per canzone) evitano di scorrere tutta la
+ *   tabella music per le pagine filtrate. <br>
+ * - Le scritture sono serializzate da un unico lock, le letture non usano
+ *   lock: le righe salvate non vengono mai modificate, ma sostituite, per
+ *   cui una lettura vede la riga vecchia o quella nuova, mai una via di
+ *   mezzo. Gli oggetti restituiti sono copie, modificarli non altera il
+ *   catalogo. <br>
+ * I codici di ritorno e i vincoli (chiavi primarie ed esterne) sono gli
+ * stessi di PostgreSQLImpl: una scrittura che violerebbe una chiave
+ * esterna restituisce "-2", come farebbe PostgreSQL. <br>
+ * Ogni scrittura riuscita viene pubblicata sul ChangeFeed del nodo,
+ * ancora dentro il lock, per cui le versioni seguono l'ordine delle
+ * scritture. CatalogLoader e CatalogSnapshot caricano invece il catalogo
+ * con i metodi put/remove del package, che non pubblicano nulla: il
+ * catalogo caricato viene annunciato con un unico evento RESET quando
+ * l'istanza condivisa è pronta.
+ */
+public class InMemoryDatabase extends Database {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryDatabase.class);
+
+    private static InMemoryDatabase memoryInstance = null;
+
+    /*
+     * Le tabelle sono visibili nel package per CatalogLoader e
+     * CatalogSnapshot, che le leggono senza copiarle. Le modifiche
+     * passano comunque dai metodi dei DAO, o da quelli put/remove.
+     */
+    final ConcurrentSkipListMap<Integer, Music> musicTable = new ConcurrentSkipListMap<>();
+    final ConcurrentSkipListMap<Integer, Album> albumTable = new ConcurrentSkipListMap<>();
+    final ConcurrentSkipListMap<Integer, Artist> artistTable = new ConcurrentSkipListMap<>();
+    final ConcurrentSkipListMap<Integer, Group> groupTable = new ConcurrentSkipListMap<>();
+    final ConcurrentSkipListMap<Integer, Genre> genreTable = new ConcurrentSkipListMap<>();
+    final ConcurrentSkipListMap<Integer, List<Link>> linksByMusic = new ConcurrentSkipListMap<>();
+
+    private final Map<Integer, Set<Integer>> musicByAlbum = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> musicByGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> musicByGroup = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Set<Integer>> musicByYear = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Set<Integer>> albumsByGroup = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> artistsByGroup = new ConcurrentHashMap<>();
+
+    private final Object writeLock = new Object();
+
+    private final ChangeFeed changeFeed = ChangeFeed.getInstance();
+
+    /**
+     * Restituisce l'istanza condivisa, caricandola al primo utilizzo; a
+     * caricamento finito viene pubblicato un evento RESET. Restituisce
+     * null se il catalogo non può essere caricato né da PostgreSQL né dal
+     * dump.
+     */
+    public static synchronized InMemoryDatabase getInstance() {
+        if(memoryInstance == null) {
+            memoryInstance = loadCatalog(
+                    new ConnectionManager(DB_SERVER, DB_PORT, DB_DATABASE, CREDENTIALS_FILE));
+            if(memoryInstance != null) {
+                ChangeFeed.getInstance().publish(ChangeEvent.reset(0));
+            }
+        }
+        return memoryInstance;
+    }
+
+    /**
+     * Se esiste lo snapshot SNAPSHOT_FILE, il catalogo viene letto da
+     * questo e aggiornato con le sole modifiche fatte su PostgreSQL dopo
+     * la sua creazione (vedi CatalogLoader.catchUp); altrimenti viene
+     * letto per intero da PostgreSQL. In entrambi i casi lo snapshot viene
+     * poi riscritto, se il catalogo è cambiato. Se PostgreSQL non è
+     * raggiungibile si usa lo snapshot così com'è, oppure il dump.
+     */
+    private static InMemoryDatabase loadCatalog(ConnectionManager connectionManager) {
+        InMemoryDatabase db = new InMemoryDatabase();
+        Map<String, Map<Integer, Long>> snapshotFingerprints = null;
+
+        if(new File(SNAPSHOT_FILE).exists()) {
+            try {
+                snapshotFingerprints = CatalogSnapshot.read(SNAPSHOT_FILE, db);
+            } catch (IOException e) {
+                logger.warn("Snapshot {} non utilizzabile ({}), il catalogo viene ricaricato.",
+                        SNAPSHOT_FILE, e.getMessage());
+                db = new InMemoryDatabase();
+            }
+        }
+
+        Map<String, Map<Integer, Long>> fingerprints;
+        try {
+            if(snapshotFingerprints == null) {
+                fingerprints = CatalogLoader.loadFromPostgres(connectionManager, db);
+            } else {
+                fingerprints = CatalogLoader.catchUp(connectionManager, db, snapshotFingerprints);
+            }
+        } catch (SQLException e) {
+            if(snapshotFingerprints != null) {
+                logger.warn("PostgreSQL non raggiungibile ({}), viene usato lo snapshot senza aggiornarlo.",
+                        e.getMessage());
+                return db;
+            }
+            logger.warn("Impossibile caricare il catalogo da PostgreSQL ({}), viene usato {}.",
+                    e.getMessage(), DUMP_FILE);
+            db = new InMemoryDatabase();
+            try {
+                CatalogLoader.loadFromDump(DUMP_FILE, db);
+            } catch (IOException ex) {
+                logger.error("Error in InMemoryDatabase.getInstance: {}", ex.getMessage());
+                return null;
+            }
+            return db;
+        }
+
+        if(!fingerprints.equals(snapshotFingerprints)) {
+            try {
+                CatalogSnapshot.write(db, fingerprints, SNAPSHOT_FILE);
+            } catch (IOException e) {
+                logger.error("Error in CatalogSnapshot.write: {}", e.getMessage());
+            }
+        }
+        return db;
+    }
+
+    /*
+     * Utility
+     */
+
+    private static <T> List<T> page(Stream<T> rows, int page, int pageSize, String methodName) {
+        return slice(rows, (long) page * pageSize, pageSize, methodName);
+    }
+
+    private static <T, R> List<R> byIds(List<Integer> ids, Map<Integer, T> table, Function<T, R> copy) {
+        return ids.stream()
+                .distinct()
+                .sorted()
+                .map(table::get)
+                .filter(Objects::nonNull)
+                .map(copy)
+                .collect(Collectors.toList());
+    }
+
+    private static <T> List<T> slice(Stream<T> rows, long offset, int limit, String methodName) {
+        if(offset < 0) {
+            logger.error("Error in {}: OFFSET must not be negative", methodName);
+            return null;
+        }
+        if(limit < 0) {
+            logger.error("Error in {}: LIMIT must not be negative", methodName);
+            return null;
+        }
+        return rows.skip(offset).limit(limit).collect(Collectors.toList());
+    }
+
+    private static <T> List<T> single(T row) {
+        List<T> list = new ArrayList<>();
+        if(row != null) {
+            list.add(row);
+        }
+        return list;
+    }
+
+    private static void index(Map<Integer, Set<Integer>> index, int key, int id) {
+        index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).add(id);
+    }
+
+    private static void unindex(Map<Integer, Set<Integer>> index, int key, int id) {
+        Set<Integer> ids = index.get(key);
+        if(ids != null) {
+            ids.remove(id);
+            if(ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static boolean isReferenced(Map<Integer, Set<Integer>> index, int key) {
+        Set<Integer> ids = index.get(key);
+        return ids != null && !ids.isEmpty();
+    }
+
+    private static int foreignKeyViolation(String methodName, String constraint) {
+        logger.error("Exception in {}: violazione della chiave esterna {}", methodName, constraint);
+        return -2;
+    }
+
+    private static Music copy(Music music) {
+        return new Music(music.getMusicId(), music.getTitle(), music.getAuthorId(),
+                music.getAlbumId(), music.getYear(), music.getGenreId());
+    }
+
+    private static Album copy(Album album) {
+        return new Album(album.getAlbumId(), album.getTitle(), album.getYear(), album.getGroupId());
+    }
+
+    private static Artist copy(Artist artist) {
+        return new Artist(artist.getArtistId(), artist.getName(), artist.getGroupId());
+    }
+
+    private static Group copy(Group group) {
+        return new Group(group.getGroupId(), group.getName());
+    }
+
+    private static Genre copy(Genre genre) {
+        return new Genre(genre.getGenreId(), genre.getName());
+    }
+
+    private static Link copy(Link link) {
+        return new Link(link.getMusicId(), link.getLink());
+    }
+
+    private Stream<Music> musicStream(Set<Integer> ids) {
+        if(ids == null) {
+            return Stream.empty();
+        }
+        return ids.stream().map(musicTable::get).filter(Objects::nonNull);
+    }
+
+    /**
+     * Equivalente del join usato da PostgreSQLImpl per MusicDetails:
+     * restituisce null se il gruppo o il genere non esistono (inner join).
+     */
+    private MusicDetails toDetails(Music music) {
+        Group group = groupTable.get(music.getAuthorId());
+        Genre genre = genreTable.get(music.getGenreId());
+        if(group == null || genre == null) {
+            return null;
+        }
+        MusicDetails details = new MusicDetails();
+        details.setMusicId(music.getMusicId());
+        details.setTitle(music.getTitle());
+        details.setAuthorId(music.getAuthorId());
+        details.setAlbumId(music.getAlbumId());
+        details.setYear(music.getYear());
+        details.setGenreId(music.getGenreId());
+        details.setAuthorName(group.getName());
+        Album album = music.hasAlbum() ? albumTable.get(music.getAlbumIdValue()) : null;
+        details.setAlbumTitle(album == null ? null : album.getTitle());
+        details.setGenreName(genre.getName());
+        return details;
+    }
+
+    private Stream<MusicDetails> detailsStream(Stream<Music> music) {
+        return music.map(this::toDetails).filter(Objects::nonNull);
+    }
+
+    private MusicPage musicPage(String headerName, Set<Integer> musicIds, int page, int pageSize, String methodName) {
+        if(headerName == null) {
+            return new MusicPage(null, new ArrayList<>());
+        }
+        List<MusicDetails> musicList = page(detailsStream(musicStream(musicIds)), page, pageSize, methodName);
+        return musicList == null ? null : new MusicPage(headerName, musicList);
+    }
+
+    private boolean musicReferencesExist(Music music, String methodName) {
+        if(!groupTable.containsKey(music.getAuthorId())) {
+            foreignKeyViolation(methodName, "Music_AuthorId_fkey");
+            return false;
+        }
+        if(music.hasAlbum() && !albumTable.containsKey(music.getAlbumIdValue())) {
+            foreignKeyViolation(methodName, "Music_AlbumId_fkey");
+            return false;
+        }
+        if(!genreTable.containsKey(music.getGenreId())) {
+            foreignKeyViolation(methodName, "Music_GenreId_fkey");
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Pubblica la scrittura sul ChangeFeed se è riuscita; va chiamato con
+     * writeLock. Restituisce il risultato della scrittura.
+     */
+    private int published(int result, String table, int id, Operation operation) {
+        if(result == 0) {
+            changeFeed.publishLocal(table, id, operation);
+        }
+        return result;
+    }
+
+    private void indexMusic(Music music) {
+        if(music.hasAlbum()) {
+            index(musicByAlbum, music.getAlbumIdValue(), music.getMusicId());
+        }
+        index(musicByGenre, music.getGenreId(), music.getMusicId());
+        index(musicByGroup, music.getAuthorId(), music.getMusicId());
+        index(musicByYear, music.getYear(), music.getMusicId());
+    }
+
+    private void unindexMusic(Music music) {
+        if(music.hasAlbum()) {
+            unindex(musicByAlbum, music.getAlbumIdValue(), music.getMusicId());
+        }
+        unindex(musicByGenre, music.getGenreId(), music.getMusicId());
+        unindex(musicByGroup, music.getAuthorId(), music.getMusicId());
+        unindex(musicByYear, music.getYear(), music.getMusicId());
+    }
+
+    /*
+     * MusicDAO
+     */
+
+    @Override
+    public List<Music> getAllMusic(int page, int pageSize) {
+        return page(musicTable.values().stream().map(InMemoryDatabase::copy), page, pageSize, "getAllMusic");
+    }
+
+    @Override
+    public List<Music> getMusicById(int musicId) {
+        Music music = musicTable.get(musicId);
+        return single(music == null ? null : copy(music));
+    }
+
+    @Override
+    public List<MusicDetails> getAllMusicDetails(int page, int pageSize) {
+        return page(detailsStream(musicTable.values().stream()), page, pageSize, "getAllMusicDetails");
+    }
+
+    @Override
+    public List<MusicDetails> getMusicDetailsById(int musicId) {
+        Music music = musicTable.get(musicId);
+        return single(music == null ? null : toDetails(music));
+    }
+
+    @Override
+    public List<MusicDetails> getMusicDetailsByIds(List<Integer> musicIds) {
+        return byIds(musicIds, musicTable, this::toDetails);
+    }
+
+    @Override
+    public int updateMusic(Music music) {
+        synchronized (writeLock) {
+            if(!musicTable.containsKey(music.getMusicId())) {
+                logger.warn("La canzone con id {} non esiste, impossibile aggiornarla.", music.getMusicId());
+                return -1;
+            }
+            return published(putMusic(music, "updateMusic"), MUSIC_TABLE, music.getMusicId(), Operation.UPDATE);
+        }
+    }
+
+    @Override
+    public int insertMusic(Music music) {
+        synchronized (writeLock) {
+            if(musicTable.containsKey(music.getMusicId())) {
+                logger.warn("Esiste gia' una canzone con id {}, impossibile crearne una nuova.", music.getMusicId());
+                return -1;
+            }
+            return published(putMusic(music, "insertMusic"), MUSIC_TABLE, music.getMusicId(), Operation.INSERT);
+        }
+    }
+
+    /**
+     * Inserisce la canzone, o sostituisce quella con lo stesso id, senza
+     * pubblicare la modifica. Restituisce -2 se una chiave esterna non
+     * esiste.
+     */
+    int putMusic(Music music) {
+        return putMusic(music, "putMusic");
+    }
+
+    private int putMusic(Music music, String methodName) {
+        synchronized (writeLock) {
+            if(!musicReferencesExist(music, methodName)) {
+                return -2;
+            }
+            Music row = copy(music);
+            indexMusic(row);
+            Music old = musicTable.put(row.getMusicId(), row);
+            if(old == null) {
+                return 0;
+            }
+            if(old.getAlbumIdValue() != row.getAlbumIdValue()) {
+                unindex(musicByAlbum, old.getAlbumIdValue(), old.getMusicId());
+            }
+            if(old.getGenreId() != row.getGenreId()) {
+                unindex(musicByGenre, old.getGenreId(), old.getMusicId());
+            }
+            if(old.getAuthorId() != row.getAuthorId()) {
+                unindex(musicByGroup, old.getAuthorId(), old.getMusicId());
+            }
+            if(old.getYear() != row.getYear()) {
+                unindex(musicByYear, old.getYear(), old.getMusicId());
+            }
+            return 0;
+        }
+    }
+
+    @Override
+    public int deleteMusic(int musicId) {
+        synchronized (writeLock) {
+            return published(removeMusic(musicId), MUSIC_TABLE, musicId, Operation.DELETE);
+        }
+    }
+
+    /**
+     * Elimina la canzone senza pubblicare la modifica.
+     */
+    int removeMusic(int musicId) {
+        synchronized (writeLock) {
+            Music old = musicTable.get(musicId);
+            if(old == null) {
+                logger.warn("La canzone con id {} non esiste, impossibile eliminarla.", musicId);
+                return -1;
+            }
+            if(linksByMusic.containsKey(musicId)) {
+                return foreignKeyViolation("deleteMusic", "Link_MusicId_fkey");
+            }
+            musicTable.remove(musicId);
+            unindexMusic(old);
+            return 0;
+        }
+    }
+
+    @Override
+    public List<JoinAll> joinAll(int page, int pageSize) {
+        Stream<JoinAll> rows = musicTable.values().stream()
+                .filter(music -> genreTable.containsKey(music.getGenreId()))
+                .map(this::toJoinAll);
+        return page(rows, page, pageSize, "joinAll");
+    }
+
+    private JoinAll toJoinAll(Music music) {
+        Group group = groupTable.get(music.getAuthorId());
+        Set<Integer> artists = group == null ? null : artistsByGroup.get(group.getGroupId());
+        Album album = music.hasAlbum() ? albumTable.get(music.getAlbumIdValue()) : null;
+        List<Link> links = linksByMusic.get(music.getMusicId());
+        return new JoinAll(
+                music.getMusicId(),
+                music.getTitle(),
+                group == null ? null : group.getName(),
+                artists == null ? 0 : artists.size(),
+                album == null ? null : album.getTitle(),
+                music.getYear(),
+                genreTable.get(music.getGenreId()).getName(),
+                links == null ? 0 : links.size());
+    }
+
+    @Override
+    public List<MusicJoinLink> musicJoinLink(int page, int pageSize) {
+        Stream<MusicJoinLink> rows = linksByMusic.values().stream()
+                .flatMap(List::stream)
+                .map(link -> new MusicJoinLink(copy(musicTable.get(link.getMusicId())), copy(link)));
+        return page(rows, page, pageSize, "musicJoinLink");
+    }
+
+    /**
+     * Stessa semantica della query di PostgreSQLImpl.searchMusic: la
+     * ricerca non distingue maiuscole e minuscole; una canzone compare
+     * una volta per ogni artista del gruppo autore il cui nome contiene
+     * il termine cercato, altrimenti una sola volta (con "Vari artisti")
+     * se il termine è contenuto nel titolo o nei nomi di gruppo, album
+     * o genere.
+     */
+    @Override
+    public List<MusicStrings> searchMusic(String searchTerm, int page) {
+        return slice(searchRows(searchTerm), (long) page * PAGE_SIZE, PAGE_SIZE, "searchMusic");
+    }
+
+    @Override
+    public List<MusicStrings> searchMusic(String searchTerm, int offset, int limit) {
+        return slice(searchRows(searchTerm), offset, limit, "searchMusic");
+    }
+
+    @Override
+    public List<Integer> searchMusicIds(String searchTerm) {
+        return searchRows(searchTerm).map(MusicStrings::getMusicId).distinct().collect(Collectors.toList());
+    }
+
+    @Override
+    public List<MusicStrings> searchMusicByIds(String searchTerm, List<Integer> musicIds) {
+        Stream<Music> music = new TreeSet<>(musicIds).stream().map(musicTable::get).filter(Objects::nonNull);
+        return searchRows(searchTerm, music).collect(Collectors.toList());
+    }
+
+    private Stream<MusicStrings> searchRows(String searchTerm) {
+        return searchRows(searchTerm, musicTable.values().stream());
+    }
+
+    private Stream<MusicStrings> searchRows(String searchTerm, Stream<Music> candidates) {
+        String term = searchTerm.toLowerCase();
+        Stream<MusicStrings> rows = candidates.flatMap(music -> {
+            Group group = groupTable.get(music.getAuthorId());
+            Genre genre = genreTable.get(music.getGenreId());
+            if(group == null || genre == null) {
+                return Stream.empty();
+            }
+            Album album = music.hasAlbum() ? albumTable.get(music.getAlbumIdValue()) : null;
+            String albumTitle = album == null ? null : album.getTitle();
+
+            Set<String> artistNames = new TreeSet<>();
+            for(Artist artist : artistsOf(group.getGroupId())) {
+                if(artist.getName().toLowerCase().contains(term)) {
+                    artistNames.add(artist.getName());
+                }
+            }
+            if(artistNames.isEmpty()) {
+                boolean matches = music.getTitle().toLowerCase().contains(term)
+                        || group.getName().toLowerCase().contains(term)
+                        || (albumTitle != null && albumTitle.toLowerCase().contains(term))
+                        || genre.getName().toLowerCase().contains(term);
+                if(matches) {
+                    artistNames.add("Vari artisti");
+                }
+            }
+            return artistNames.stream().map(artistName -> {
+                MusicStrings row = new MusicStrings();
+                row.setMusicId(music.getMusicId());
+                row.setTitle(music.getTitle());
+                row.setAuthor(group.getName());
+                row.setArtist(artistName);
+                row.setAlbum(albumTitle);
+                row.setYear(music.getYear());
+                row.setGenre(genre.getName());
+                return row;
+            });
+        });
+        return rows;
+    }
+
+    private List<Artist> artistsOf(int groupId) {
+        Set<Integer> ids = artistsByGroup.get(groupId);
+        if(ids == null) {
+            return Collections.emptyList();
+        }
+        return ids.stream().map(artistTable::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Music> getMusicByAlbum(int albumId, int page, int pageSize) {
+        return page(musicStream(musicByAlbum.get(albumId)).map(InMemoryDatabase::copy), page, pageSize, "getMusicByAlbum");
+    }
+
+    @Override
+    public List<Music> getMusicByGenre(int genreId, int page, int pageSize) {
+        return page(musicStream(musicByGenre.get(genreId)).map(InMemoryDatabase::copy), page, pageSize, "getMusicByGenre");
+    }
+
+    @Override
+    public List<Music> getMusicByGroup(int groupId, int page, int pageSize) {
+        return page(musicStream(musicByGroup.get(groupId)).map(InMemoryDatabase::copy), page, pageSize, "getMusicByGroup");
+    }
+
+    /**
+     * Come in PostgreSQLImpl, il campo authorId delle canzoni
+     * restituite contiene l'id dell'artista.
+     */
+    @Override
+    public List<Music> getMusicByArtist(int artistId, int page, int pageSize) {
+        Artist artist = artistTable.get(artistId);
+        if(artist == null) {
+            return page(Stream.empty(), page, pageSize, "getMusicByArtist");
+        }
+        Stream<Music> rows = musicStream(musicByGroup.get(artist.getGroupId())).map(music -> {
+            Music row = copy(music);
+            row.setAuthorId(artistId);
+            return row;
+        });
+        return page(rows, page, pageSize, "getMusicByArtist");
+    }
+
+    @Override
+    public MusicPage getMusicPageByAlbum(int albumId, int page, int pageSize) {
+        Album album = albumTable.get(albumId);
+        return musicPage(album == null ? null : album.getTitle(),
+                musicByAlbum.get(albumId), page, pageSize, "getMusicPageByAlbum");
+    }
+
+    @Override
+    public MusicPage getMusicPageByGenre(int genreId, int page, int pageSize) {
+        Genre genre = genreTable.get(genreId);
+        return musicPage(genre == null ? null : genre.getName(),
+                musicByGenre.get(genreId), page, pageSize, "getMusicPageByGenre");
+    }
+
+    @Override
+    public MusicPage getMusicPageByGroup(int groupId, int page, int pageSize) {
+        Group group = groupTable.get(groupId);
+        return musicPage(group == null ? null : group.getName(),
+                musicByGroup.get(groupId), page, pageSize, "getMusicPageByGroup");
+    }
+
+    @Override
+    public MusicPage getMusicPageByArtist(int artistId, int page, int pageSize) {
+        Artist artist = artistTable.get(artistId);
+        return musicPage(artist == null ? null : artist.getName(),
+                artist == null ? null : musicByGroup.get(artist.getGroupId()), page, pageSize, "getMusicPageByArtist");
+    }
+
+    /**
+     * Parte dal più piccolo degli indici secondari dei filtri presenti
+     * (album, genere, gruppo o gruppo dell'artista, anni), oppure
+     * dall'intera tabella, e controlla gli altri filtri riga per riga. <br>
+     * Gli anni sono letti da musicByYear, ordinato per anno, come le
+     * partizioni di una tabella partizionata: un intervallo di anni
+     * recenti visita solo quegli anni. Se l'ordine della scansione è già
+     * quello richiesto (per anno da musicByYear, per id dalla tabella) le
+     * canzoni non vengono ordinate e la lettura si ferma dopo limit righe.
+     */
+    @Override
+    public List<MusicDetails> findMusic(MusicQuery query) {
+        List<Set<Integer>> indexes = new ArrayList<>();
+        if(query.getAlbumId() != null) {
+            indexes.add(musicByAlbum.getOrDefault(query.getAlbumId(), Collections.emptySet()));
+        }
+        if(query.getGenreId() != null) {
+            indexes.add(musicByGenre.getOrDefault(query.getGenreId(), Collections.emptySet()));
+        }
+        if(query.getGroupId() != null) {
+            indexes.add(musicByGroup.getOrDefault(query.getGroupId(), Collections.emptySet()));
+        }
+        Integer artistGroupId = null;
+        if(query.getArtistId() != null) {
+            Artist artist = artistTable.get(query.getArtistId());
+            if(artist == null) {
+                return new ArrayList<>();
+            }
+            artistGroupId = artist.getGroupId();
+            indexes.add(musicByGroup.getOrDefault(artistGroupId, Collections.emptySet()));
+        }
+        Set<Integer> smallest = indexes.stream().min(Comparator.comparingInt(Set::size)).orElse(null);
+        boolean yearFilter = query.getYearFrom() != null || query.getYearTo() != null;
+        boolean descending = query.isDescending();
+        int fromYear = query.getYearFrom() == null ? Integer.MIN_VALUE : query.getYearFrom();
+        int toYear = query.getYearTo() == null ? Integer.MAX_VALUE : query.getYearTo();
+        if(query.getSort() == MusicQuery.Sort.YEAR && query.getAfter() != null) {
+            //Gli anni già superati dal cursore non vengono visitati
+            int cursorYear = (Integer) query.getAfter().getValue();
+            if(descending) {
+                toYear = Math.min(toYear, cursorYear);
+            } else {
+                fromYear = Math.max(fromYear, cursorYear);
+            }
+        }
+        NavigableMap<Integer, Set<Integer>> years = fromYear > toYear
+                ? Collections.emptyNavigableMap() : musicByYear.subMap(fromYear, true, toYear, true);
+
+        Stream<Integer> ids;
+        boolean ordered;
+        if(smallest != null && (!yearFilter || smallest.size() <= years.values().stream().mapToLong(Set::size).sum())) {
+            ids = smallest.stream();
+            ordered = false;
+        } else if(yearFilter || query.getSort() == MusicQuery.Sort.YEAR) {
+            ids = (descending ? years.descendingMap() : years).values().stream()
+                    .flatMap(yearIds -> descending ? ((NavigableSet<Integer>) yearIds).descendingSet().stream() : yearIds.stream());
+            ordered = query.getSort() == MusicQuery.Sort.YEAR;
+        } else {
+            ids = (descending ? musicTable.descendingKeySet() : musicTable.keySet()).stream();
+            ordered = query.getSort() == MusicQuery.Sort.ID;
+        }
+        Stream<Music> candidates = ids.map(musicTable::get).filter(Objects::nonNull);
+        if(!ordered) {
+            candidates = candidates.sorted((a, b) -> compare(a, query.cursorAfter(b), query));
+        }
+
+        Integer groupId = artistGroupId;
+        String prefix = query.getTitlePrefix() == null ? null : query.getTitlePrefix().toLowerCase(Locale.ROOT);
+        return candidates
+                .filter(music -> query.getAlbumId() == null || query.getAlbumId().equals(music.getAlbumId()))
+                .filter(music -> query.getGenreId() == null || query.getGenreId() == music.getGenreId())
+                .filter(music -> query.getGroupId() == null || query.getGroupId() == music.getAuthorId())
+                .filter(music -> groupId == null || groupId == music.getAuthorId())
+                .filter(music -> query.getYearFrom() == null || music.getYear() >= query.getYearFrom())
+                .filter(music -> query.getYearTo() == null || music.getYear() <= query.getYearTo())
+                .filter(music -> prefix == null || music.getTitle().toLowerCase(Locale.ROOT).startsWith(prefix))
+                .filter(music -> query.getAfter() == null || compare(music, query.getAfter(), query) > 0)
+                .map(this::toDetails)
+                .filter(Objects::nonNull)
+                .limit(query.getLimit())
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * Confronta la canzone con la posizione del cursore nell'ordine della
+     * query: prima il valore dell'ordinamento, poi l'id.
+     */
+    private static int compare(Music music, MusicQuery.Cursor cursor, MusicQuery query) {
+        int result;
+        switch (query.getSort()) {
+            case TITLE:
+                result = music.getTitle().compareTo((String) cursor.getValue());
+                break;
+            case YEAR:
+                result = Integer.compare(music.getYear(), (Integer) cursor.getValue());
+                break;
+            default:
+                result = 0;
+                break;
+        }
+        if(result == 0) {
+            result = Integer.compare(music.getMusicId(), cursor.getMusicId());
+        }
+        return query.isDescending() ? -result : result;
+    }
+
+    @Override
+    public MusicWithLinks getMusicWithLinks(int musicId) {
+        Music music = musicTable.get(musicId);
+        if(music == null) {
+            return new MusicWithLinks(null, new ArrayList<>());
+        }
+        return new MusicWithLinks(copy(music), getLinksForMusic(musicId));
+    }
+
+    /*
+     * AlbumDAO
+     */
+
+    @Override
+    public List<Album> getAllAlbums(int page, int pageSize) {
+        return page(albumTable.values().stream().map(InMemoryDatabase::copy), page, pageSize, "getAllAlbums");
+    }
+
+    @Override
+    public List<Album> getAlbumById(int albumId) {
+        Album album = albumTable.get(albumId);
+        return single(album == null ? null : copy(album));
+    }
+
+    @Override
+    public List<Album> getAlbumsByIds(List<Integer> ids) {
+        return byIds(ids, albumTable, InMemoryDatabase::copy);
+    }
+
+    @Override
+    public int deleteAlbum(int albumId) {
+        synchronized (writeLock) {
+            return published(removeAlbum(albumId), ALBUM_TABLE, albumId, Operation.DELETE);
+        }
+    }
+
+    /**
+     * Elimina l'album senza pubblicare la modifica.
+     */
+    int removeAlbum(int albumId) {
+        synchronized (writeLock) {
+            Album old = albumTable.get(albumId);
+            if(old == null) {
+                logger.warn("L'album con id {} non esiste, impossibile eliminarlo.", albumId);
+                return -1;
+            }
+            if(isReferenced(musicByAlbum, albumId)) {
+                return foreignKeyViolation("deleteAlbum", "Music_AlbumId_fkey");
+            }
+            albumTable.remove(albumId);
+            unindex(albumsByGroup, old.getGroupId(), albumId);
+            return 0;
+        }
+    }
+
+    @Override
+    public DeleteSummary deleteAlbumCascade(int albumId) {
+        synchronized (writeLock) {
+            Album old = albumTable.get(albumId);
+            if(old == null) {
+                logger.warn("L'album con id {} non esiste, impossibile eliminarlo.", albumId);
+                return DeleteSummary.notFound();
+            }
+            Set<Integer> musicIds = new TreeSet<>(musicByAlbum.getOrDefault(albumId, Collections.emptySet()));
+            int links = deleteMusicWithLinks(musicIds);
+            albumTable.remove(albumId);
+            unindex(albumsByGroup, old.getGroupId(), albumId);
+            changeFeed.publishLocal(ALBUM_TABLE, albumId, Operation.DELETE);
+            return new DeleteSummary(musicIds.size(), links, 0, 0);
+        }
+    }
+
+    @Override
+    public int insertAlbum(Album album) {
+        synchronized (writeLock) {
+            if(albumTable.containsKey(album.getAlbumId())) {
+                logger.warn("Esiste gia' un album con id {}, impossibile crearne uno nuovo.", album.getAlbumId());
+                return -1;
+            }
+            return published(putAlbum(album, "insertAlbum"), ALBUM_TABLE, album.getAlbumId(), Operation.INSERT);
+        }
+    }
+
+    @Override
+    public int updateAlbum(Album album) {
+        synchronized (writeLock) {
+            if(!albumTable.containsKey(album.getAlbumId())) {
+                logger.warn("L'album con id {} non esiste, impossibile aggiornarlo.", album.getAlbumId());
+                return -1;
+            }
+            return published(putAlbum(album, "updateAlbum"), ALBUM_TABLE, album.getAlbumId(), Operation.UPDATE);
+        }
+    }
+
+    /**
+     * Inserisce o sostituisce l'album senza pubblicare la modifica.
+     */
+    int putAlbum(Album album) {
+        return putAlbum(album, "putAlbum");
+    }
+
+    private int putAlbum(Album album, String methodName) {
+        synchronized (writeLock) {
+            if(!groupTable.containsKey(album.getGroupId())) {
+                return foreignKeyViolation(methodName, "Album_GroupId_fkey");
+            }
+            Album row = copy(album);
+            index(albumsByGroup, row.getGroupId(), row.getAlbumId());
+            Album old = albumTable.put(row.getAlbumId(), row);
+            if(old != null && old.getGroupId() != row.getGroupId()) {
+                unindex(albumsByGroup, old.getGroupId(), old.getAlbumId());
+            }
+            return 0;
+        }
+    }
+
+    @Override
+    public Map<Integer, String> getAlbumMap() {
+        Map<Integer, String> albumMap = new HashMap<>();
+        albumTable.values().forEach(album -> albumMap.put(album.getAlbumId(), album.getTitle()));
+        return albumMap;
+    }
+
+    /*
+     * ArtistDAO
+     */
+
+    @Override
+    public List<Artist> getAllArtists(int page, int pageSize) {
+        return page(artistTable.values().stream().map(InMemoryDatabase::copy), page, pageSize, "getAllArtists");
+    }
+
+    @Override
+    public List<ArtistJoinGroup> artistJoinGroup(int page, int pageSize) {
+        Stream<ArtistJoinGroup> rows = artistTable.values().stream().map(artist -> {
+            Group group = groupTable.get(artist.getGroupId());
+            return new ArtistJoinGroup(copy(artist), group == null ? null : copy(group));
+        });
+        return page(rows, page, pageSize, "artistJoinGroup");
+    }
+
+    @Override
+    public int updateArtist(Artist artist) {
+        synchronized (writeLock) {
+            if(!artistTable.containsKey(artist.getArtistId())) {
+                logger.warn("L'artista con id {} non esiste, impossibile aggiornarlo.", artist.getArtistId());
+                return -1;
+            }
+            return published(putArtist(artist, "updateArtist"), ARTIST_TABLE, artist.getArtistId(), Operation.UPDATE);
+        }
+    }
+
+    @Override
+    public int insertArtist(Artist artist) {
+        synchronized (writeLock) {
+            if(artistTable.containsKey(artist.getArtistId())) {
+                logger.warn("Esiste gia' un artista con id {}, impossibile crearne uno nuovo.", artist.getArtistId());
+                return -1;
+            }
+            return published(putArtist(artist, "insertArtist"), ARTIST_TABLE, artist.getArtistId(), Operation.INSERT);
+        }
+    }
+
+    /**
+     * Inserisce o sostituisce l'artista senza pubblicare la modifica.
+     */
+    int putArtist(Artist artist) {
+        return putArtist(artist, "putArtist");
+    }
+
+    private int putArtist(Artist artist, String methodName) {
+        synchronized (writeLock) {
+            if(!groupTable.containsKey(artist.getGroupId())) {
+                return foreignKeyViolation(methodName, "Artist_GroupId_fkey");
+            }
+            Artist row = copy(artist);
+            index(artistsByGroup, row.getGroupId(), row.getArtistId());
+            Artist old = artistTable.put(row.getArtistId(), row);
+            if(old != null && old.getGroupId() != row.getGroupId()) {
+                unindex(artistsByGroup, old.getGroupId(), old.getArtistId());
+            }
+            return 0;
+        }
+    }
+
+    @Override
+    public int deleteArtist(int artistId) {
+        synchronized (writeLock) {
+            return published(removeArtist(artistId), ARTIST_TABLE, artistId, Operation.DELETE);
+        }
+    }
+
+    /**
+     * Elimina l'artista senza pubblicare la modifica.
+     */
+    int removeArtist(int artistId) {
+        synchronized (writeLock) {
+            Artist old = artistTable.remove(artistId);
+            if(old == null) {
+                logger.warn("L'artista con id {} non esiste, impossibile eliminarlo.", artistId);
+                return -1;
+            }
+            unindex(artistsByGroup, old.getGroupId(), artistId);
+            return 0;
+        }
+    }
+
+    @Override
+    public List<Artist> getArtistById(int artistId) {
+        Artist artist = artistTable.get(artistId);
+        return single(artist == null ? null : copy(artist));
+    }
+
+    @Override
+    public List<Artist> getArtistsByIds(List<Integer> ids) {
+        return byIds(ids, artistTable, InMemoryDatabase::copy);
+    }
+
+    /*
+     * GroupDAO
+     */
+
+    @Override
+    public List<Group> getAllGroups(int page, int pageSize) {
+        return page(groupTable.values().stream().map(InMemoryDatabase::copy), page, pageSize, "getAllGroups");
+    }
+
+    @Override
+    public List<Group> getGroupById(int groupId) {
+        Group group = groupTable.get(groupId);
+        return single(group == null ? null : copy(group));
+    }
+
+    @Override
+    public List<Group> getGroupsByIds(List<Integer> ids) {
+        return byIds(ids, groupTable, InMemoryDatabase::copy);
+    }
+
+    @Override
+    public int insertGroup(Group group) {
+        synchronized (writeLock) {
+            if(groupTable.containsKey(group.getGroupId())) {
+                logger.warn("Esiste gia' un gruppo con id {}, impossibile crearne uno nuovo.", group.getGroupId());
+                return -1;
+            }
+            return published(putGroup(group), GROUP_TABLE, group.getGroupId(), Operation.INSERT);
+        }
+    }
+
+    @Override
+    public int updateGroup(Group group) {
+        synchronized (writeLock) {
+            if(!groupTable.containsKey(group.getGroupId())) {
+                logger.warn("Il gruppo con id {} non esiste, impossibile aggiornarlo.", group.getGroupId());
+                return -1;
+            }
+            return published(putGroup(group), GROUP_TABLE, group.getGroupId(), Operation.UPDATE);
+        }
+    }
+
+    /**
+     * Inserisce o sostituisce il gruppo senza pubblicare la modifica.
+     */
+    int putGroup(Group group) {
+        synchronized (writeLock) {
+            Group row = copy(group);
+            groupTable.put(row.getGroupId(), row);
+            return 0;
+        }
+    }
+
+    @Override
+    public int deleteGroup(int groupId) {
+        synchronized (writeLock) {
+            return published(removeGroup(groupId), GROUP_TABLE, groupId, Operation.DELETE);
+        }
+    }
+
+    /**
+     * Elimina il gruppo senza pubblicare la modifica.
+     */
+    int removeGroup(int groupId) {
+        synchronized (writeLock) {
+            if(!groupTable.containsKey(groupId)) {
+                logger.warn("Il gruppo con id {} non esiste, impossibile eliminarlo.", groupId);
+                return -1;
+            }
+            if(isReferenced(musicByGroup, groupId)) {
+                return foreignKeyViolation("deleteGroup", "Music_AuthorId_fkey");
+            }
+            if(isReferenced(albumsByGroup, groupId)) {
+                return foreignKeyViolation("deleteGroup", "Album_GroupId_fkey");
+            }
+            if(isReferenced(artistsByGroup, groupId)) {
+                return foreignKeyViolation("deleteGroup", "Artist_GroupId_fkey");
+            }
+            groupTable.remove(groupId);
+            return 0;
+        }
+    }
+
+    @Override
+    public DeleteSummary deleteGroupCascade(int groupId) {
+        synchronized (writeLock) {
+            if(!groupTable.containsKey(groupId)) {
+                logger.warn("Il gruppo con id {} non esiste, impossibile eliminarlo.", groupId);
+                return DeleteSummary.notFound();
+            }
+            Set<Integer> albumIds = new TreeSet<>(albumsByGroup.getOrDefault(groupId, Collections.emptySet()));
+            Set<Integer> artistIds = new TreeSet<>(artistsByGroup.getOrDefault(groupId, Collections.emptySet()));
+            Set<Integer> musicIds = new TreeSet<>(musicByGroup.getOrDefault(groupId, Collections.emptySet()));
+            albumIds.forEach(albumId -> musicIds.addAll(musicByAlbum.getOrDefault(albumId, Collections.emptySet())));
+
+            int links = deleteMusicWithLinks(musicIds);
+            for(int artistId : artistIds) {
+                artistTable.remove(artistId);
+                changeFeed.publishLocal(ARTIST_TABLE, artistId, Operation.DELETE);
+            }
+            artistsByGroup.remove(groupId);
+            for(int albumId : albumIds) {
+                albumTable.remove(albumId);
+                changeFeed.publishLocal(ALBUM_TABLE, albumId, Operation.DELETE);
+            }
+            albumsByGroup.remove(groupId);
+            groupTable.remove(groupId);
+            changeFeed.publishLocal(GROUP_TABLE, groupId, Operation.DELETE);
+            return new DeleteSummary(musicIds.size(), links, artistIds.size(), albumIds.size());
+        }
+    }
+
+    /*
+     * Elimina le canzoni e i loro link per le eliminazioni a cascata;
+     * va chiamato con writeLock. Restituisce il numero di link eliminati.
+     */
+    private int deleteMusicWithLinks(Set<Integer> musicIds) {
+        int links = 0;
+        for(int musicId : musicIds) {
+            List<Link> removed = linksByMusic.remove(musicId);
+            if(removed != null) {
+                links += removed.size();
+                changeFeed.publishLocal(LINK_TABLE, musicId, Operation.DELETE);
+            }
+        }
+        for(int musicId : musicIds) {
+            Music old = musicTable.remove(musicId);
+            if(old != null) {
+                unindexMusic(old);
+                changeFeed.publishLocal(MUSIC_TABLE, musicId, Operation.DELETE);
+            }
+        }
+        return links;
+    }
+
+    @Override
+    public Map<Integer, String> getGroupMap() {
+        Map<Integer, String> groupMap = new HashMap<>();
+        groupTable.values().forEach(group -> groupMap.put(group.getGroupId(), group.getName()));
+        return groupMap;
+    }
+
+    /*
+     * GenreDAO
+     */
+
+    @Override
+    public List<Genre> getAllGenres(int page, int pageSize) {
+        return page(genreTable.values().stream().map(InMemoryDatabase::copy), page, pageSize, "getAllGenres");
+    }
+
+    @Override
+    public List<Genre> getGenreById(int genreId) {
+        Genre genre = genreTable.get(genreId);
+        return single(genre == null ? null : copy(genre));
+    }
+
+    @Override
+    public List<Genre> getGenresByIds(List<Integer> ids) {
+        return byIds(ids, genreTable, InMemoryDatabase::copy);
+    }
+
+    @Override
+    public int insertGenre(Genre genre) {
+        synchronized (writeLock) {
+            if(genreTable.containsKey(genre.getGenreId())) {
+                logger.warn("Esiste gia' un genere con id {}, impossibile crearne uno nuovo.", genre.getGenreId());
+                return -1;
+            }
+            return published(putGenre(genre), GENRE_TABLE, genre.getGenreId(), Operation.INSERT);
+        }
+    }
+
+    @Override
+    public int updateGenre(Genre genre) {
+        synchronized (writeLock) {
+            if(!genreTable.containsKey(genre.getGenreId())) {
+                logger.warn("Il genere con id {} non esiste, impossibile aggiornarlo.", genre.getGenreId());
+                return -1;
+            }
+            return published(putGenre(genre), GENRE_TABLE, genre.getGenreId(), Operation.UPDATE);
+        }
+    }
+
+    /**
+     * Inserisce o sostituisce il genere senza pubblicare la modifica.
+     */
+    int putGenre(Genre genre) {
+        synchronized (writeLock) {
+            Genre row = copy(genre);
+            genreTable.put(row.getGenreId(), row);
+            return 0;
+        }
+    }
+
+    @Override
+    public int deleteGenre(int genreId) {
+        synchronized (writeLock) {
+            return published(removeGenre(genreId), GENRE_TABLE, genreId, Operation.DELETE);
+        }
+    }
+
+    /**
+     * Elimina il genere senza pubblicare la modifica.
+     */
+    int removeGenre(int genreId) {
+        synchronized (writeLock) {
+            if(!genreTable.containsKey(genreId)) {
+                logger.warn("Il genere con id {} non esiste, impossibile eliminarlo.", genreId);
+                return -1;
+            }
+            if(isReferenced(musicByGenre, genreId)) {
+                return foreignKeyViolation("deleteGenre", "Music_GenreId_fkey");
+            }
+            genreTable.remove(genreId);
+            return 0;
+        }
+    }
+
+    @Override
+    public Map<Integer, String> getGenreMap() {
+        Map<Integer, String> genreMap = new HashMap<>();
+        genreTable.values().forEach(genre -> genreMap.put(genre.getGenreId(), genre.getName()));
+        return genreMap;
+    }
+
+    /*
+     * LinkDAO
+     */
+
+    @Override
+    public List<Link> getAllLinks(int page, int pageSize) {
+        return page(linksByMusic.values().stream().flatMap(List::stream).map(InMemoryDatabase::copy),
+                page, pageSize, "getAllLinks");
+    }
+
+    @Override
+    public List<Link> getLinksForMusic(int musicId) {
+        List<Link> links = linksByMusic.get(musicId);
+        if(links == null) {
+            return new ArrayList<>();
+        }
+        return links.stream().map(InMemoryDatabase::copy).collect(Collectors.toList());
+    }
+
+    /**
+     * Sostituisce tutti i link di una canzone (usato per applicare le
+     * modifiche lette da PostgreSQL, dove i link non hanno una chiave
+     * primaria). Restituisce -2 se la canzone non esiste.
+     */
+    int replaceLinks(int musicId, List<Link> links) {
+        synchronized (writeLock) {
+            if(links.isEmpty()) {
+                linksByMusic.remove(musicId);
+                return 0;
+            }
+            if(!musicTable.containsKey(musicId)) {
+                return foreignKeyViolation("replaceLinks", "Link_MusicId_fkey");
+            }
+            List<Link> copies = links.stream().map(InMemoryDatabase::copy).collect(Collectors.toList());
+            linksByMusic.put(musicId, Collections.unmodifiableList(copies));
+            return 0;
+        }
+    }
+
+    /**
+     * La lista dei link di una canzone viene sostituita, non modificata
+     * (copy-on-write), in modo che le letture concorrenti non la vedano
+     * mai a metà.
+     */
+    @Override
+    public int insertLink(Link link) {
+        synchronized (writeLock) {
+            return published(putLink(link, "insertLink"), LINK_TABLE, link.getMusicId(), Operation.INSERT);
+        }
+    }
+
+    /**
+     * Aggiunge il link senza pubblicare la modifica.
+     */
+    int putLink(Link link) {
+        return putLink(link, "putLink");
+    }
+
+    private int putLink(Link link, String methodName) {
+        synchronized (writeLock) {
+            if(!musicTable.containsKey(link.getMusicId())) {
+                return foreignKeyViolation(methodName, "Link_MusicId_fkey");
+            }
+            List<Link> links = new ArrayList<>(linksByMusic.getOrDefault(link.getMusicId(), Collections.emptyList()));
+            links.add(copy(link));
+            linksByMusic.put(link.getMusicId(), Collections.unmodifiableList(links));
+            return 0;
+        }
+    }
+
+    /*
+     * CountDAO: i conteggi sono sempre esatti, letti dalle tabelle e
+     * dagli indici secondari.
+     */
+
+    @Override
+    public long countRows(String table) {
+        switch (table) {
+            case MUSIC_TABLE:
+                return musicTable.size();
+            case ALBUM_TABLE:
+                return albumTable.size();
+            case ARTIST_TABLE:
+                return artistTable.size();
+            case GROUP_TABLE:
+                return groupTable.size();
+            case GENRE_TABLE:
+                return genreTable.size();
+            case LINK_TABLE:
+                return linksByMusic.values().stream().mapToLong(List::size).sum();
+            default:
+                logger.warn("Conteggio richiesto per una tabella non prevista: {}", table);
+                return -1;
+        }
+    }
+
+    @Override
+    public long countMusicBy(String filter, int id) {
+        Set<Integer> music;
+        switch (filter) {
+            case ALBUMID:
+                music = musicByAlbum.get(id);
+                break;
+            case GENREID:
+                music = musicByGenre.get(id);
+                break;
+            case GROUPID:
+                music = musicByGroup.get(id);
+                break;
+            case ARTISTID: {
+                Artist artist = artistTable.get(id);
+                music = artist == null ? null : musicByGroup.get(artist.getGroupId());
+                break;
+            }
+            default:
+                logger.warn("Conteggio richiesto per un filtro non previsto: {}", filter);
+                return -1;
+        }
+        return music == null ? 0 : music.size();
+    }
+
+    /*
+     * ProjectionDAO: ogni riga viene scritta come array di valori
+     * nell'ordine di TableColumns, da cui si prendono le colonne richieste.
+     */
+
+    @Override
+    public List<Map<String, Object>> getFields(String table, List<String> fields, int page, int pageSize) {
+        if(!TableColumns.areValid(table, fields)) {
+            logger.warn("Colonne non valide per la tabella {}: {}", table, fields);
+            return null;
+        }
+        Stream<Object[]> rows;
+        switch (table) {
+            case MUSIC_TABLE:
+                rows = musicTable.values().stream().map(music -> new Object[]{music.getMusicId(), music.getTitle(),
+                        music.getAuthorId(), music.getAlbumId(), music.getYear(), music.getGenreId()});
+                break;
+            case ALBUM_TABLE:
+                rows = albumTable.values().stream().map(album -> new Object[]{album.getAlbumId(), album.getTitle(),
+                        album.getYear(), album.getGroupId()});
+                break;
+            case ARTIST_TABLE:
+                rows = artistTable.values().stream().map(artist -> new Object[]{artist.getArtistId(),
+                        artist.getName(), artist.getGroupId()});
+                break;
+            case GROUP_TABLE:
+                rows = groupTable.values().stream().map(group -> new Object[]{group.getGroupId(), group.getName()});
+                break;
+            case GENRE_TABLE:
+                rows = genreTable.values().stream().map(genre -> new Object[]{genre.getGenreId(), genre.getName()});
+                break;
+            default:
+                rows = linksByMusic.values().stream()
+                        .flatMap(links -> links.stream().sorted(Comparator.comparing(Link::getLink)))
+                        .map(link -> new Object[]{link.getMusicId(), link.getLink()});
+                break;
+        }
+        List<String> columns = TableColumns.of(table);
+        int[] indexes = fields.stream().mapToInt(columns::indexOf).toArray();
+        return page(rows.map(values -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for(int i = 0; i < indexes.length; i++) {
+                row.put(fields.get(i), values[indexes[i]]);
+            }
+            return row;
+        }), page, pageSize, "getFields");
+    }
+
+    /*
+     * ExportDAO: le tabelle sono già ordinate per chiave, per cui
+     * l'esportazione scorre la vista tailMap(fromId) senza copiarla.
+     */
+
+    @Override
+    public int exportMusic(int fromId, Consumer<Music> consumer) {
+        musicTable.tailMap(fromId).values().forEach(music -> consumer.accept(copy(music)));
+        return 0;
+    }
+
+    @Override
+    public int exportAlbums(int fromId, Consumer<Album> consumer) {
+        albumTable.tailMap(fromId).values().forEach(album -> consumer.accept(copy(album)));
+        return 0;
+    }
+
+    @Override
+    public int exportArtists(int fromId, Consumer<Artist> consumer) {
+        artistTable.tailMap(fromId).values().forEach(artist -> consumer.accept(copy(artist)));
+        return 0;
+    }
+
+    @Override
+    public int exportGroups(int fromId, Consumer<Group> consumer) {
+        groupTable.tailMap(fromId).values().forEach(group -> consumer.accept(copy(group)));
+        return 0;
+    }
+
+    @Override
+    public int exportGenres(int fromId, Consumer<Genre> consumer) {
+        genreTable.tailMap(fromId).values().forEach(genre -> consumer.accept(copy(genre)));
+        return 0;
+    }
+
+    @Override
+    public int exportLinks(int fromMusicId, Consumer<Link> consumer) {
+        linksByMusic.tailMap(fromMusicId).values()
+                .forEach(links -> links.forEach(link -> consumer.accept(copy(link))));
+        return 0;
+    }
+
+    @Override
+    public int exportJoinAll(int fromMusicId, Consumer<JoinAll> consumer) {
+        musicTable.tailMap(fromMusicId).values().stream()
+                .filter(music -> genreTable.containsKey(music.getGenreId()))
+                .forEach(music -> consumer.accept(toJoinAll(music)));
+        return 0;
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.gb.db.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Trasforma la riga corrente di un ResultSet in un oggetto del modello.
+ * Le implementazioni vengono create da RowMappers una volta per ogni
+ * ResultSet, dopo aver risolto gli indici delle colonne, in modo che
+ * la lettura di ogni riga avvenga per indice e non per nome.
+ * @param <T> Il tipo dell'oggetto restituito
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T mapRow(ResultSet rs) throws SQLException;
+
+}
@@ -0,0 +1,17 @@
+package com.gb.db.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Crea il RowMapper per un ResultSet (ad esempio RowMappers::music).
+ * Utile ai metodi generici che eseguono la query e leggono le righe
+ * senza conoscerne il tipo.
+ * @param <T> Il tipo degli oggetti restituiti dal mapper
+ */
+@FunctionalInterface
+public interface RowMapperFactory<T> {
+
+    RowMapper<T> create(ResultSet rs) throws SQLException;
+
+}
@@ -0,0 +1,217 @@
+package com.gb.db.mapper;
+
+import com.gb.modelObject.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static com.gb.Constants.*;
+
+/**
+ * Questa classe fornisce i RowMapper per gli oggetti del modello.
+ * Leggere una colonna per nome (rs.getInt("musicid")) obbliga il driver
+ * a cercare il nome fra le colonne, senza distinzione fra maiuscole e
+ * minuscole, per ogni colonna di ogni riga. I metodi di questa classe
+ * risolvono gli indici una sola volta, quando viene creato il mapper,
+ * e il mapper restituito legge le colonne per indice. Le colonne che
+ * possono essere NULL vengono controllate con wasNull(), senza leggere
+ * due volte lo stesso valore.
+ */
+public final class RowMappers {
+
+    private RowMappers() { }
+
+    public static RowMapper<Music> music(ResultSet rs) throws SQLException {
+        final MusicColumns columns = new MusicColumns(rs);
+        return row -> {
+            Music music = new Music();
+            columns.fill(music, row);
+            return music;
+        };
+    }
+
+    public static RowMapper<MusicDetails> musicDetails(ResultSet rs) throws SQLException {
+        final MusicColumns columns = new MusicColumns(rs);
+        final int authorName = rs.findColumn("authorname");
+        final int albumTitle = rs.findColumn("albumtitle");
+        final int genreName = rs.findColumn("genrename");
+        return row -> {
+            MusicDetails music = new MusicDetails();
+            columns.fill(music, row);
+            music.setAuthorName(row.getString(authorName));
+            music.setAlbumTitle(row.getString(albumTitle));
+            music.setGenreName(row.getString(genreName));
+            return music;
+        };
+    }
+
+    public static RowMapper<Album> album(ResultSet rs) throws SQLException {
+        final int albumId = rs.findColumn(ALBUMID);
+        final int title = rs.findColumn(TITLE);
+        final int year = rs.findColumn(YEAR);
+        final int groupId = rs.findColumn(GROUPID);
+        return row -> {
+            Album album = new Album();
+            album.setAlbumId(row.getInt(albumId));
+            album.setTitle(row.getString(title));
+            album.setYear(row.getInt(year));
+            album.setGroupId(row.getInt(groupId));
+            return album;
+        };
+    }
+
+    public static RowMapper<Artist> artist(ResultSet rs) throws SQLException {
+        final int artistId = rs.findColumn(ARTISTID);
+        final int name = rs.findColumn(NAME);
+        final int groupId = rs.findColumn(GROUPID);
+        return row -> {
+            Artist artist = new Artist();
+            artist.setArtistId(row.getInt(artistId));
+            artist.setName(row.getString(name));
+            artist.setGroupId(row.getInt(groupId));
+            return artist;
+        };
+    }
+
+    public static RowMapper<Group> group(ResultSet rs) throws SQLException {
+        final int groupId = rs.findColumn(GROUPID);
+        final int name = rs.findColumn(NAME);
+        return row -> {
+            Group group = new Group();
+            group.setGroupId(row.getInt(groupId));
+            group.setName(row.getString(name));
+            return group;
+        };
+    }
+
+    public static RowMapper<Genre> genre(ResultSet rs) throws SQLException {
+        final int genreId = rs.findColumn(GENREID);
+        final int name = rs.findColumn(NAME);
+        return row -> {
+            Genre genre = new Genre();
+            genre.setGenreId(row.getInt(genreId));
+            genre.setName(row.getString(name));
+            return genre;
+        };
+    }
+
+    public static RowMapper<Link> link(ResultSet rs) throws SQLException {
+        final int musicId = rs.findColumn(MUSICID);
+        final int link = rs.findColumn(LINK);
+        return row -> {
+            Link result = new Link();
+            result.setMusicId(row.getInt(musicId));
+            result.setLink(row.getString(link));
+            return result;
+        };
+    }
+
+    public static RowMapper<JoinAll> joinAll(ResultSet rs) throws SQLException {
+        final int musicId = rs.findColumn(MUSICID);
+        final int musicTitle = rs.findColumn("musictitle");
+        final int groupName = rs.findColumn("groupname");
+        final int numArtists = rs.findColumn("numartisti");
+        final int albumTitle = rs.findColumn("albumtitle");
+        final int year = rs.findColumn(YEAR);
+        final int genreName = rs.findColumn("genrename");
+        final int numLinks = rs.findColumn("numlink");
+        return row -> new JoinAll(
+                row.getInt(musicId),
+                row.getString(musicTitle),
+                row.getString(groupName),
+                row.getInt(numArtists),
+                row.getString(albumTitle),
+                row.getInt(year),
+                row.getString(genreName),
+                row.getInt(numLinks));
+    }
+
+    public static RowMapper<MusicStrings> musicStrings(ResultSet rs) throws SQLException {
+        final int musicId = rs.findColumn(MUSICID);
+        final int musicTitle = rs.findColumn("musictitle");
+        final int groupName = rs.findColumn("groupname");
+        final int artistName = rs.findColumn("artistname");
+        final int albumTitle = rs.findColumn("albumtitle");
+        final int year = rs.findColumn(YEAR);
+        final int genreName = rs.findColumn("genrename");
+        return row -> {
+            MusicStrings music = new MusicStrings();
+            music.setMusicId(row.getInt(musicId));
+            music.setTitle(row.getString(musicTitle));
+            music.setAuthor(row.getString(groupName));
+            music.setArtist(row.getString(artistName));
+            music.setAlbum(row.getString(albumTitle));
+            music.setYear(row.getInt(year));
+            music.setGenre(row.getString(genreName));
+            return music;
+        };
+    }
+
+    /**
+     * La query artistJoinGroup restituisce due colonne "name" (artista e
+     * gruppo), per cui le colonne vengono lette per posizione, come
+     * nel costruttore ArtistJoinGroup(ResultSet).
+     */
+    public static RowMapper<ArtistJoinGroup> artistJoinGroup(ResultSet rs) {
+        return row -> {
+            Artist artist = new Artist();
+            artist.setArtistId(row.getInt(1));
+            artist.setName(row.getString(2));
+            artist.setGroupId(row.getInt(3));
+            Group group = new Group();
+            group.setGroupId(row.getInt(3));
+            group.setName(row.getString(4));
+            return new ArtistJoinGroup(artist, group);
+        };
+    }
+
+    public static RowMapper<MusicJoinLink> musicJoinLink(ResultSet rs) throws SQLException {
+        final MusicColumns columns = new MusicColumns(rs);
+        final int link = rs.findColumn(LINK);
+        return row -> {
+            Music music = new Music();
+            columns.fill(music, row);
+            Link result = new Link();
+            result.setMusicId(music.getMusicId());
+            result.setLink(row.getString(link));
+            return new MusicJoinLink(music, result);
+        };
+    }
+
+    /**
+     * Indici delle colonne della tabella music, condivisi dai mapper
+     * che restituiscono una canzone (Music, MusicDetails, MusicJoinLink).
+     */
+    private static final class MusicColumns {
+
+        private final int musicId;
+        private final int title;
+        private final int authorId;
+        private final int albumId;
+        private final int year;
+        private final int genreId;
+
+        private MusicColumns(ResultSet rs) throws SQLException {
+            musicId = rs.findColumn(MUSICID);
+            title = rs.findColumn(TITLE);
+            authorId = rs.findColumn(AUTHORID);
+            albumId = rs.findColumn(ALBUMID);
+            year = rs.findColumn(YEAR);
+            genreId = rs.findColumn(GENREID);
+        }
+
+        private void fill(Music music, ResultSet row) throws SQLException {
+            music.setMusicId(row.getInt(musicId));
+            music.setTitle(row.getString(title));
+            music.setAuthorId(row.getInt(authorId));
+            int album = row.getInt(albumId);
+            if(!row.wasNull()) {
+                music.setAlbumId(album);
+            }
+            music.setYear(row.getInt(year));
+            music.setGenreId(row.getInt(genreId));
+        }
+
+    }
+
+}
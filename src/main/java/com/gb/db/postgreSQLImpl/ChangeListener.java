@@ -0,0 +1,114 @@
+package com.gb.db.postgreSQLImpl;
+
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeFeed;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static com.gb.Constants.*;
+
+/**
+ * Thread che riceve le modifiche pubblicate da PostgreSQLImpl sul canale
+ * CHANGE_CHANNEL (NOTIFY), anche da altri nodi, e le inoltra al
+ * ChangeFeed locale. Usa una connessione dedicata, aperta tramite il
+ * ConnectionManager: se questa cade viene riaperta con un'attesa che
+ * raddoppia ad ogni fallimento. Le notifiche inviate mentre il listener
+ * era disconnesso sono perse, per cui dopo ogni riconnessione, e alla
+ * prima connessione se i tentativi precedenti sono falliti, viene
+ * pubblicato un evento RESET.
+ */
+public class ChangeListener implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeListener.class);
+
+    private static final int POLL_TIMEOUT_MILLIS = 1_000;
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static ChangeListener listenerInstance = null;
+
+    private final ConnectionManager connectionManager;
+    private final ChangeFeed feed;
+    private volatile boolean running = true;
+
+    public ChangeListener(ConnectionManager connectionManager, ChangeFeed feed) {
+        this.connectionManager = connectionManager;
+        this.feed = feed;
+    }
+
+    /**
+     * Avvia il listener condiviso, collegato al server primario, se non
+     * è già stato avviato. Con -Ddb.impl=memory non viene avviato: le
+     * modifiche del catalogo in memoria vengono pubblicate direttamente
+     * sul ChangeFeed.
+     */
+    public static synchronized void start() {
+        if(listenerInstance != null
+                || DB_IMPL_MEMORY.equals(System.getProperty(DB_IMPL_PROPERTY, DB_IMPL_POSTGRES))) {
+            return;
+        }
+        listenerInstance = new ChangeListener(
+                new ConnectionManager(DB_SERVER, DB_PORT, DB_DATABASE, CREDENTIALS_FILE), ChangeFeed.getInstance());
+        Thread thread = new Thread(listenerInstance, "change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        boolean missedChanges = false;
+        while(running) {
+            try (Connection conn = connectionManager.openConnection()) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANGE_CHANNEL);
+                }
+                logger.info("In ascolto delle modifiche sul canale {}.", CHANGE_CHANNEL);
+                if(missedChanges) {
+                    feed.publish(ChangeEvent.reset(0));
+                    missedChanges = false;
+                }
+                backoff = INITIAL_BACKOFF_MILLIS;
+                listen(conn.unwrap(PGConnection.class));
+            } catch (SQLException e) {
+                missedChanges = true;
+                logger.warn("Listener delle modifiche disconnesso, nuovo tentativo fra {} ms: {}",
+                        backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+            }
+        }
+    }
+
+    private void listen(PGConnection conn) throws SQLException {
+        while(running) {
+            PGNotification[] notifications = conn.getNotifications(POLL_TIMEOUT_MILLIS);
+            if(notifications == null) {
+                continue;
+            }
+            for(PGNotification notification : notifications) {
+                try {
+                    feed.publish(ChangeEvent.fromPayload(notification.getParameter()));
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Notifica ignorata: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+}
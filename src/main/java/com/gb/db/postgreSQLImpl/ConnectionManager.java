@@ -0,0 +1,219 @@
+package com.gb.db.postgreSQLImpl;
+
+import org.postgresql.ds.PGSimpleDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static com.gb.Constants.*;
+
+/**
+ * Questa classe gestisce la connessione verso un server PostgreSQL,
+ * in modo che l'applicazione possa riprendersi da un riavvio del
+ * database senza dover riavviare la JVM. <br>
+ * - Health check: ad ogni richiesta si controlla che la connessione non
+ *   sia stata chiusa dal driver; ogni HEALTH_CHECK_INTERVAL_MILLIS si
+ *   verifica inoltre con isValid() che il server risponda. <br>
+ * - Riconnessione: se la connessione non è utilizzabile se ne apre una
+ *   nuova; se il tentativo fallisce, il tentativo successivo viene fatto
+ *   solo dopo un'attesa che raddoppia ad ogni fallimento (fino a
+ *   MAX_BACKOFF_MILLIS). <br>
+ * - Circuit breaker: durante l'attesa la connessione non viene nemmeno
+ *   tentata e getConnection() fallisce subito, così le richieste non
+ *   restano bloccate mentre il database è irraggiungibile. <br>
+ * - Credenziali: se il file delle credenziali viene modificato, le nuove
+ *   credenziali vengono lette e la connessione viene riaperta.
+ */
+public class ConnectionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionManager.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HEALTH_CHECK_INTERVAL_MILLIS = 5_000;
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final String serverName;
+    private final int portNumber;
+    private final String databaseName;
+    private final File credentialsFile;
+
+    private Connection conn = null;
+    private String user = null;
+    private String password = null;
+    private long credentialsLastModified = -1;
+    private long lastHealthCheck = 0;
+
+    private int consecutiveFailures = 0;
+    private long retryAt = 0;
+
+    public ConnectionManager(String serverName, int portNumber, String databaseName, String credentialsFile) {
+        this.serverName = serverName;
+        this.portNumber = portNumber;
+        this.databaseName = databaseName;
+        this.credentialsFile = new File(credentialsFile);
+    }
+
+    /**
+     * Restituisce una connessione funzionante, riaprendola se necessario.
+     * @return La connessione al database
+     * @throws SQLException Se la connessione non può essere aperta, oppure
+     *                      se il circuit breaker è aperto
+     */
+    public synchronized Connection getConnection() throws SQLException {
+        long now = System.currentTimeMillis();
+
+        if (conn != null) {
+            boolean checkNow = now - lastHealthCheck >= HEALTH_CHECK_INTERVAL_MILLIS;
+            if (checkNow && credentialsChanged()) {
+                logger.info("Credenziali modificate, la connessione verso {} viene riaperta.", serverName);
+                closeQuietly();
+            } else if (conn.isClosed()) {
+                logger.warn("La connessione verso {} e' stata chiusa.", serverName);
+                closeQuietly();
+            } else if (!checkNow) {
+                return conn;
+            } else if (isHealthy()) {
+                lastHealthCheck = now;
+                return conn;
+            } else {
+                logger.warn("La connessione verso {} non risponde.", serverName);
+                closeQuietly();
+            }
+        }
+
+        if (now < retryAt) {
+            throw new SQLException("Database " + serverName + " non disponibile, nuovo tentativo fra "
+                    + (retryAt - now) + " ms.");
+        }
+
+        try {
+            conn = connect();
+            consecutiveFailures = 0;
+            retryAt = 0;
+            lastHealthCheck = now;
+            return conn;
+        } catch (SQLException | IOException e) {
+            consecutiveFailures++;
+            long backoff = Math.min(MAX_BACKOFF_MILLIS,
+                    INITIAL_BACKOFF_MILLIS << Math.min(consecutiveFailures - 1, 16));
+            retryAt = now + backoff;
+            logger.error("Connessione verso {} fallita ({} tentativi consecutivi), nuovo tentativo fra {} ms: {}",
+                    serverName, consecutiveFailures, backoff, e.getMessage());
+            throw e instanceof SQLException ? (SQLException) e : new SQLException(e);
+        }
+    }
+
+    /**
+     * Restituisce true se è possibile ottenere una connessione funzionante.
+     * Se il circuit breaker è aperto restituisce false senza contattare il server.
+     */
+    public synchronized boolean isAvailable() {
+        try {
+            getConnection();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Restituisce la connessione attuale senza controllarla
+     * né riaprirla (può essere null).
+     */
+    public synchronized Connection currentConnection() {
+        return conn;
+    }
+
+    /**
+     * Apre una nuova connessione, indipendente da quella condivisa.
+     * Utile per operazioni lunghe o transazionali che non devono
+     * interferire con le altre richieste. Va chiusa dal chiamante.
+     */
+    public Connection openConnection() throws SQLException {
+        try {
+            synchronized (this) {
+                if (credentialsChanged() || user == null) {
+                    readCredentials();
+                }
+            }
+            return createConnection();
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public int getPortNumber() {
+        return portNumber;
+    }
+
+    private Connection connect() throws SQLException, IOException {
+        readCredentials();
+        Connection connection = createConnection();
+        logger.info("Database connection to {}:{} created successfully.", serverName, portNumber);
+        return connection;
+    }
+
+    private Connection createConnection() throws SQLException {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setServerNames(new String[]{serverName});
+        dataSource.setDatabaseName(databaseName);
+        dataSource.setPortNumbers(new int[]{portNumber});
+        dataSource.setUser(user);
+        dataSource.setPassword(password);
+        dataSource.setCurrentSchema(DB_NAME);
+        Connection connection = dataSource.getConnection();
+
+        String sql = "SET SCHEMA '"+DB_NAME+"'";
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private void readCredentials() throws IOException {
+        long lastModified = credentialsFile.lastModified();
+        try (BufferedReader br = new BufferedReader(new FileReader(credentialsFile))) {
+            user = br.readLine();
+            password = br.readLine();
+        }
+        credentialsLastModified = lastModified;
+    }
+
+    private boolean credentialsChanged() {
+        return credentialsFile.lastModified() != credentialsLastModified;
+    }
+
+    private boolean isHealthy() {
+        try {
+            return conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            logger.warn("Errore durante la chiusura della connessione: {}", e.getMessage());
+        }
+        conn = null;
+    }
+
+}
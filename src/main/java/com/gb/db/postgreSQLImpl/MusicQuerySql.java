@@ -0,0 +1,157 @@
+package com.gb.db.postgreSQLImpl;
+
+import com.gb.dao.MusicQuery;
+import com.gb.dao.MusicQuery.Cursor;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.gb.Constants.*;
+
+/**
+ * Traduce una MusicQuery in una query SQL parametrizzata. <br>
+ * - Il testo SQL dipende solo dalla forma della query (quali filtri sono
+ *   presenti, l'ordinamento, se c'è un cursore), non dai valori: viene
+ *   costruito una volta per forma e salvato in SHAPES. <br>
+ * - Poiché lo stesso testo viene riusato, il driver JDBC lo trova nella
+ *   sua cache di statement della connessione e dopo qualche esecuzione
+ *   lo esegue come prepared statement lato server, senza ripetere il
+ *   parsing e la pianificazione. <br>
+ * - La paginazione confronta (valore, musicid) con il cursore invece di
+ *   usare OFFSET, per cui con gli indici di migrations/002 ogni pagina
+ *   legge solo le righe che restituisce.
+ */
+final class MusicQuerySql {
+
+    private static final Map<Integer, String> SHAPES = new ConcurrentHashMap<>();
+
+    private MusicQuerySql() { }
+
+    /**
+     * Il testo SQL della query, dalla cache delle forme.
+     */
+    static String sql(MusicQuery query) {
+        return SHAPES.computeIfAbsent(shape(query), shape -> build(query));
+    }
+
+    /**
+     * Assegna i valori della query ai parametri del testo restituito da sql.
+     */
+    static void bind(PreparedStatement ps, MusicQuery query) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        addIfPresent(params, query.getAlbumId());
+        addIfPresent(params, query.getGenreId());
+        addIfPresent(params, query.getGroupId());
+        addIfPresent(params, query.getArtistId());
+        addIfPresent(params, query.getYearFrom());
+        addIfPresent(params, query.getYearTo());
+        if(query.getTitlePrefix() != null) {
+            params.add(escapeLike(query.getTitlePrefix().toLowerCase(Locale.ROOT)) + '%');
+        }
+        Cursor after = query.getAfter();
+        if(after != null) {
+            if(after.getValue() != null) {
+                params.add(after.getValue());
+            }
+            params.add(after.getMusicId());
+        }
+        params.add(query.getLimit());
+        for(int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+
+    /*
+     * Un bit per ogni filtro presente, per il cursore e per la direzione,
+     * poi l'ordinamento.
+     */
+    private static int shape(MusicQuery query) {
+        int shape = 0;
+        shape |= query.getAlbumId() != null ? 1 : 0;
+        shape |= query.getGenreId() != null ? 1 << 1 : 0;
+        shape |= query.getGroupId() != null ? 1 << 2 : 0;
+        shape |= query.getArtistId() != null ? 1 << 3 : 0;
+        shape |= query.getYearFrom() != null ? 1 << 4 : 0;
+        shape |= query.getYearTo() != null ? 1 << 5 : 0;
+        shape |= query.getTitlePrefix() != null ? 1 << 6 : 0;
+        shape |= query.getAfter() != null ? 1 << 7 : 0;
+        shape |= query.isDescending() ? 1 << 8 : 0;
+        return shape | query.getSort().ordinal() << 9;
+    }
+
+    private static String build(MusicQuery query) {
+        List<String> conditions = new ArrayList<>();
+        if(query.getAlbumId() != null) {
+            conditions.add("M." + ALBUMID + " = ?");
+        }
+        if(query.getGenreId() != null) {
+            conditions.add("M." + GENREID + " = ?");
+        }
+        if(query.getGroupId() != null) {
+            conditions.add("M." + AUTHORID + " = ?");
+        }
+        if(query.getArtistId() != null) {
+            conditions.add("M." + AUTHORID + " = (SELECT " + GROUPID + " FROM " + ARTIST_TABLE +
+                    " WHERE " + ARTISTID + " = ?)");
+        }
+        if(query.getYearFrom() != null) {
+            conditions.add("M." + YEAR + " >= ?");
+        }
+        if(query.getYearTo() != null) {
+            conditions.add("M." + YEAR + " <= ?");
+        }
+        if(query.getTitlePrefix() != null) {
+            conditions.add("lower(M." + TITLE + ") LIKE ? ESCAPE '\\'");
+        }
+
+        String sortColumn = sortColumn(query.getSort());
+        String direction = query.isDescending() ? " DESC" : "";
+        if(query.getAfter() != null) {
+            String comparison = query.isDescending() ? " < " : " > ";
+            conditions.add(sortColumn == null
+                    ? "M." + MUSICID + comparison + "?"
+                    : "(" + sortColumn + ", M." + MUSICID + ")" + comparison + "(?, ?)");
+        }
+
+        StringBuilder sql = new StringBuilder()
+                .append(" SELECT ").append(PostgreSQLImpl.MUSIC_DETAILS_COLUMNS)
+                .append(" FROM ").append(PostgreSQLImpl.MUSIC_DETAILS_JOINS);
+        if(!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ");
+        if(sortColumn != null) {
+            sql.append(sortColumn).append(direction).append(", ");
+        }
+        sql.append("M.").append(MUSICID).append(direction)
+                .append(" LIMIT ? ");
+        return sql.toString();
+    }
+
+    private static String sortColumn(MusicQuery.Sort sort) {
+        switch (sort) {
+            case TITLE:
+                return "M." + TITLE;
+            case YEAR:
+                return "M." + YEAR;
+            default:
+                return null;
+        }
+    }
+
+    private static void addIfPresent(List<Object> params, Integer value) {
+        if(value != null) {
+            params.add(value);
+        }
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+}
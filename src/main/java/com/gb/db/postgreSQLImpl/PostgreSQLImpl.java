@@ -1,17 +1,24 @@
 package com.gb.db.postgreSQLImpl;
 
+import com.gb.dao.MusicQuery;
+import com.gb.db.TableColumns;
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeEvent.Operation;
+import com.gb.db.mapper.RowMapper;
+import com.gb.db.mapper.RowMapperFactory;
+import com.gb.db.mapper.RowMappers;
 import com.gb.modelObject.*;
-import org.postgresql.ds.PGSimpleDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import static com.gb.Constants.*;
 
@@ -29,70 +36,199 @@ import static com.gb.Constants.*;
  */
 public class PostgreSQLImpl extends com.gb.db.Database {
 
-    private static Connection conn = null;
+    /*
+     * Colonne e join comuni alle query che restituiscono MusicDetails,
+     * cioè le canzoni insieme ai nomi associati alle chiavi esterne.
+     */
+    static final String MUSIC_DETAILS_COLUMNS =
+            TableColumns.select(MUSIC_TABLE, "M") + ", " +
+            " GR.name AS authorname, AL.title AS albumtitle, GE.name AS genrename ";
+    static final String MUSIC_DETAILS_JOINS =
+            MUSIC_TABLE + " AS M JOIN " + GROUP_TABLE + " AS GR ON M.authorid = GR.groupid " +
+            " LEFT JOIN " + ALBUM_TABLE + " AS AL ON M.albumid = AL.albumid " +
+            " JOIN " + GENRE_TABLE + " AS GE ON M.genreid = GE.genreid ";
+
+    /*
+     * Colonne, join e raggruppamento della query joinAll, condivisi
+     * con l'esportazione (exportJoinAll).
+     */
+    private static final String JOIN_ALL_COLUMNS =
+            " M.musicid, M.title AS musictitle, groupname, tmptable.numartisti, Al.title AS albumtitle, " +
+            " M.year, Ge.name AS genrename, COUNT(L.link) AS numlink ";
+    private static final String JOIN_ALL_JOINS =
+            " music AS M LEFT JOIN album AS Al ON (M.albumid = Al.albumid) " +
+            " LEFT JOIN " +
+            " ( " +
+                " SELECT COUNT(Ar.artistid) AS numartisti, Gr.name AS groupname, Gr.groupid AS tmpgrid " +
+                " FROM grouptable AS Gr LEFT JOIN artist AS Ar ON (Ar.groupid = Gr.groupid) " +
+                " GROUP BY tmpgrid, groupname " +
+            " ) as tmptable ON (M.authorid = tmpgrid) " +
+            " INNER JOIN genre AS Ge ON (M.genreid = Ge.genreid) " +
+            " LEFT JOIN link AS L on (M.musicid = L.musicid) ";
+    private static final String JOIN_ALL_GROUP_BY =
+            " GROUP BY M.musicid, tmptable.groupname, Al.title, Ge.name, tmptable.numartisti ";
+
+    /*
+     * Righe della ricerca (searchMusic), senza ordinamento né paginazione.
+     * Una canzone compare una volta per ogni artista del gruppo il cui
+     * nome corrisponde al termine, altrimenti una sola volta con
+     * "Vari artisti". Richiede il termine cercato nei 6 parametri.
+     */
+    private static final String SEARCH_COLUMNS =
+            " musicid, musictitle, groupname, artistname, albumtitle, year, genrename ";
+
+    private static final String SEARCH_UNION =
+            " SELECT " + SEARCH_COLUMNS +
+            " FROM " +
+            " ( " +
+            " SELECT M.musicid, M.title AS musictitle, GR.name AS groupname, 'Vari artisti' AS artistname, AL.title AS albumtitle, M.year, GE.name AS genrename " +
+            " FROM " +
+             MUSIC_TABLE + " AS M LEFT JOIN " + ALBUM_TABLE + " AS AL ON M.albumid = AL.albumid " +
+            " JOIN " + GROUP_TABLE + " AS GR ON M.authorid = GR.groupid " +
+            " JOIN " + GENRE_TABLE + " AS GE ON M.genreid = GE.genreid " +
+            ") AS temp1 " +
+            " WHERE (temp1.musictitle ~* ? " +
+            " OR temp1.groupname ~* ? " +
+            " OR temp1.albumtitle ~* ? " +
+            " OR temp1.genrename ~* ?) " +
+            " AND temp1.musicid NOT IN ( " +
+            " SELECT M.musicid " +
+            " FROM " +
+             MUSIC_TABLE + " AS M JOIN " + GROUP_TABLE + " AS GR ON M.authorid = GR.groupid " +
+            " JOIN " + ARTIST_TABLE + " AS AR ON AR.groupid = GR.groupid AND AR.name ~* ?" +
+            " ) " +
+
+            " UNION " +
+
+            " SELECT M.musicid, M.title AS musictitle, GR.name AS groupname, AR.name AS artistname, AL.title AS albumtitle, M.year, GE.name AS genrename " +
+            " FROM " +
+             MUSIC_TABLE + " AS M LEFT JOIN " + ALBUM_TABLE + " AS AL ON M.albumid = AL.albumid " +
+            " JOIN " + GROUP_TABLE + " AS GR ON M.authorid = GR.groupid " +
+            " JOIN " + GENRE_TABLE + " AS GE ON M.genreid = GE.genreid " +
+            " JOIN " + ARTIST_TABLE + " AS AR ON AR.groupid = GR.groupid AND AR.name ~* ?";
+
+    private static final List<String> COUNTED_TABLES = Arrays.asList(
+            MUSIC_TABLE, ALBUM_TABLE, ARTIST_TABLE, GROUP_TABLE, GENRE_TABLE, LINK_TABLE);
+
+    /*
+     * Colonne delle tabelle, al posto di SELECT *: ogni query legge solo le
+     * colonne lette dai RowMapper, anche se in futuro le tabelle ne
+     * avranno altre.
+     */
+    private static final String MUSIC_COLUMNS = TableColumns.select(MUSIC_TABLE);
+    private static final String ALBUM_COLUMNS = TableColumns.select(ALBUM_TABLE);
+    private static final String ARTIST_COLUMNS = TableColumns.select(ARTIST_TABLE);
+    private static final String GROUP_COLUMNS = TableColumns.select(GROUP_TABLE);
+    private static final String GENRE_COLUMNS = TableColumns.select(GENRE_TABLE);
+    private static final String LINK_COLUMNS = TableColumns.select(LINK_TABLE);
+    private static final String MUSIC_COLUMNS_M = TableColumns.select(MUSIC_TABLE, "M");
+
     private static PostgreSQLImpl postgresInstance = null;
     private static final Logger logger = LoggerFactory.getLogger(PostgreSQLImpl.class);
 
+    private final ConnectionManager connectionManager;
+
+    /**
+     * Restituisce l'istanza condivisa, oppure null se in questo momento
+     * il database non è raggiungibile. La connessione viene riaperta
+     * automaticamente (vedi ConnectionManager), per cui una chiamata
+     * successiva può restituire l'istanza anche se questa ha
+     * restituito null.
+     */
     public static synchronized PostgreSQLImpl getInstance() {
         if(postgresInstance == null) {
             postgresInstance = new PostgreSQLImpl();
-            if (conn == null) {
-                return null;
-            }
+        }
+        if(!postgresInstance.connectionManager.isAvailable()) {
+            return null;
         }
         return postgresInstance;
     }
 
     public PostgreSQLImpl() {
+        this(new ConnectionManager(DB_SERVER, DB_PORT, DB_DATABASE, CREDENTIALS_FILE));
+    }
 
-        try {
-            BufferedReader br = new BufferedReader(new FileReader("creds.txt"));
-            String usr = br.readLine();
-            String psw = br.readLine();
-            br.close();
-            PGSimpleDataSource dataSource = new PGSimpleDataSource();
-            dataSource.setServerNames(new String[]{"localhost"});
-            dataSource.setDatabaseName("MusicDBPostgres");
-            dataSource.setPortNumbers(new int[]{5432});
-            dataSource.setUser(usr);
-            dataSource.setPassword(psw);
-            dataSource.setCurrentSchema("MusicDB");
-            conn = dataSource.getConnection();
-            logger.info("Database connection created successfully.");
-
-            String sql = "SET SCHEMA '"+DB_NAME+"'";
-
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.executeUpdate();
-            ps.close();
-            logger.info("Schema "+ DB_NAME +" set successfully.");
+    public PostgreSQLImpl(ConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
 
-        } catch (SQLException | IOException e) {
-            logger.error("Exception during PostgreSQLImpl constructor: " + e.getMessage());
-            conn = null;
+    public static Connection getConnection() {
+        PostgreSQLImpl instance = getInstance();
+        return instance == null ? null : instance.connectionManager.currentConnection();
+    }
+
+    public ConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Pubblica la modifica appena eseguita sul canale CHANGE_CHANNEL (vedi
+     * ChangeListener), con l'id della transazione come versione. La
+     * scrittura è già stata confermata (autocommit): se la notifica
+     * fallisce la scrittura resta valida e l'errore viene solo registrato.
+     */
+    private void notifyChange(String table, int id, Operation operation) {
+        String sql = " SELECT pg_notify(?, ? || ':' || txid_current()) ";
+
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setString(1, CHANGE_CHANNEL);
+            ps.setString(2, ChangeEvent.payloadPrefix(table, id, operation));
+            ps.execute();
+        } catch (SQLException e) {
+            logger.warn("Notifica della modifica {}:{} non inviata: {}", table, id, e.getMessage());
         }
+    }
 
+    /**
+     * Come notifyChange, ma per tutte le righe eliminate da un'istruzione
+     * e sulla connessione della transazione che le ha eliminate:
+     * PostgreSQL consegna le notifiche solo se la transazione viene
+     * confermata.
+     */
+    private static void notifyChanges(Connection conn, String table, List<Integer> ids,
+                                      Operation operation) throws SQLException {
+        if(ids.isEmpty()) {
+            return;
+        }
+        String sql =
+                " SELECT pg_notify(?, ? || ':' || id || ':' || ? || ':' || txid_current()) " +
+                " FROM unnest(?) AS id ";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, CHANGE_CHANNEL);
+            ps.setString(2, table);
+            ps.setString(3, String.valueOf(operation.getCode()));
+            ps.setArray(4, conn.createArrayOf("integer", ids.toArray()));
+            ps.executeQuery().close();
+        }
     }
 
-    public static Connection getConnection() {
-        return conn;
+    /**
+     * Restituisce la connessione da usare per la query.
+     * @throws SQLException Se il database non è raggiungibile: viene
+     *                      gestita come ogni altro errore della query
+     */
+    private Connection connection() throws SQLException {
+        return connectionManager.getConnection();
     }
 
     @Override
-    public List<Music> getAllMusic(int page) {
+    public List<Music> getAllMusic(int page, int pageSize) {
         List<Music> musicList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + MUSIC_COLUMNS +
                 " FROM " + MUSIC_TABLE +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1,PAGE_SIZE);
-            ps.setInt(2,page*PAGE_SIZE);
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1,pageSize);
+            ps.setInt(2,page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Music> mapper = RowMappers.music(rs);
                 while(rs.next()) {
-                    musicList.add(new Music(rs));
+                    musicList.add(mapper.mapRow(rs));
                 }
             }
             return musicList;
@@ -107,15 +243,16 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         List<Music> musicList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + MUSIC_COLUMNS +
                 " FROM "  + MUSIC_TABLE +
                 " WHERE " + MUSICID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, musicId);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Music> mapper = RowMappers.music(rs);
                 if(rs.next()) {
-                    musicList.add(new Music(rs));
+                    musicList.add(mapper.mapRow(rs));
                 }
             }
             return musicList;
@@ -126,31 +263,82 @@ public class PostgreSQLImpl extends com.gb.db.Database {
     }
 
     @Override
-    public List<JoinAll> joinAll(int page) {
+    public List<MusicDetails> getAllMusicDetails(int page, int pageSize) {
+        List<MusicDetails> musicList = new ArrayList<>();
+
+        String sql =
+                " SELECT " + MUSIC_DETAILS_COLUMNS +
+                " FROM " + MUSIC_DETAILS_JOINS +
+                " LIMIT ? OFFSET ? ";
+
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<MusicDetails> mapper = RowMappers.musicDetails(rs);
+                while(rs.next()) {
+                    musicList.add(mapper.mapRow(rs));
+                }
+            }
+            return musicList;
+        } catch (SQLException e) {
+            logger.error("Error in getAllMusicDetails: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public List<MusicDetails> getMusicDetailsById(int musicId) {
+        List<MusicDetails> musicList = new ArrayList<>();
+
+        String sql =
+                " SELECT " + MUSIC_DETAILS_COLUMNS +
+                " FROM " + MUSIC_DETAILS_JOINS +
+                " WHERE M." + MUSICID + " = ? ";
+
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, musicId);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<MusicDetails> mapper = RowMappers.musicDetails(rs);
+                if(rs.next()) {
+                    musicList.add(mapper.mapRow(rs));
+                }
+            }
+            return musicList;
+        } catch (SQLException e) {
+            logger.error("Error in getMusicDetailsById: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public List<MusicDetails> getMusicDetailsByIds(List<Integer> musicIds) {
+        String sql =
+                " SELECT " + MUSIC_DETAILS_COLUMNS +
+                " FROM " + MUSIC_DETAILS_JOINS +
+                " WHERE M." + MUSICID + " = ANY(?) " +
+                " ORDER BY M." + MUSICID;
+
+        return getByIds(sql, musicIds, RowMappers::musicDetails, "getMusicDetailsByIds");
+    }
+
+    @Override
+    public List<JoinAll> joinAll(int page, int pageSize) {
         List<JoinAll> musicList = new ArrayList<>();
 
         String sql =
-                " SELECT M.musicid, M.title AS musictitle, groupname, tmptable.numartisti, Al.title AS albumtitle, " +
-                " M.year, Ge.name AS genrename, COUNT(L.link) AS numlink " +
-                " FROM " +
-                " music AS M LEFT JOIN album AS Al ON (M.albumid = Al.albumid) " +
-                " LEFT JOIN " +
-                " ( " +
-                    " SELECT COUNT(Ar.artistid) AS numartisti, Gr.name AS groupname, Gr.groupid AS tmpgrid " +
-                    " FROM grouptable AS Gr LEFT JOIN artist AS Ar ON (Ar.groupid = Gr.groupid) " +
-                    " GROUP BY tmpgrid, groupname " +
-                " ) as tmptable ON (M.authorid = tmpgrid) " +
-                " INNER JOIN genre AS Ge ON (M.genreid = Ge.genreid) " +
-                " LEFT JOIN link AS L on (M.musicid = L.musicid) " +
-                " GROUP BY M.musicid, tmptable.groupname, Al.title, Ge.name, tmptable.numartisti " +
+                " SELECT " + JOIN_ALL_COLUMNS +
+                " FROM " + JOIN_ALL_JOINS +
+                JOIN_ALL_GROUP_BY +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, PAGE_SIZE);
-            ps.setInt(2, page*PAGE_SIZE);
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<JoinAll> mapper = RowMappers.joinAll(rs);
                 while(rs.next()) {
-                    musicList.add(new JoinAll(rs));
+                    musicList.add(mapper.mapRow(rs));
                 }
             }
             return musicList;
@@ -169,7 +357,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, music.getMusicId());
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -191,13 +379,13 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                  YEAR + " = ?, "  + GENREID  + " = ? " +
                 " WHERE " + MUSICID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setString(1, music.getTitle());
             ps.setInt(2, music.getAuthorId());
-            if (music.getAlbumId() == null) {
+            if (!music.hasAlbum()) {
                 ps.setNull(3, Types.INTEGER);
             } else {
-                ps.setInt(3, music.getAlbumId());
+                ps.setInt(3, music.getAlbumIdValue());
             }
             ps.setInt(4, music.getYear());
             ps.setInt(5, music.getGenreId());
@@ -209,6 +397,8 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(MUSIC_TABLE, music.getMusicId(), Operation.UPDATE);
+
         return 0;
     }
 
@@ -221,7 +411,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, music.getMusicId());
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -242,14 +432,14 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " ( " + MUSICID + ", " + TITLE + ", " + AUTHORID + ", " + ALBUMID + ", " +
                  YEAR + ", " + GENREID + " ) VALUES (?,?,?,?,?,?)";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, music.getMusicId());
             ps.setString(2, music.getTitle());
             ps.setInt(3, music.getAuthorId());
-            if (music.getAlbumId() == null) {
+            if (!music.hasAlbum()) {
                 ps.setNull(4, Types.INTEGER);
             } else {
-                ps.setInt(4, music.getAlbumId());
+                ps.setInt(4, music.getAlbumIdValue());
             }
             ps.setInt(5, music.getYear());
             ps.setInt(6, music.getGenreId());
@@ -260,6 +450,8 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(MUSIC_TABLE, music.getMusicId(), Operation.INSERT);
+
         return 0;
     }
 
@@ -272,7 +464,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, musicId);
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -292,7 +484,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " DELETE FROM " + MUSIC_TABLE +
                 " WHERE " + MUSICID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, musicId);
             ps.executeUpdate();
         } catch (SQLException e) {
@@ -300,13 +492,15 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(MUSIC_TABLE, musicId, Operation.DELETE);
+
         return 0;
     }
 
     /**
      * La query SQL che viene eseguita è la seguente:<br>
      *<br>
-     * SELECT *<br>
+     * SELECT musicid, musictitle, groupname, artistname, albumtitle, year, genrename<br>
      * FROM<br>
      * (<br>
      * &emsp;SELECT M.musicid, M.title AS musictitle, GR.name AS groupname, 'Vari artisti' AS artistname, AL.title AS albumtitle, M.year, GE.name AS genrename<br>
@@ -350,77 +544,149 @@ public class PostgreSQLImpl extends com.gb.db.Database {
      */
     @Override
     public List<MusicStrings> searchMusic(String searchTerm, int page) {
+        return searchMusic(searchTerm, page*PAGE_SIZE, PAGE_SIZE);
+    }
+
+    @Override
+    public List<MusicStrings> searchMusic(String searchTerm, int offset, int limit) {
         List<MusicStrings> musicList = new ArrayList<>();
-        searchTerm = searchTerm.replaceAll("([\\\\+*?\\[\\](){}|.^$])", "\\\\$1");
+        searchTerm = escapeSearchTerm(searchTerm);
 
         String sql =
-                " SELECT * " +
-                " FROM " +
-                " ( " +
-                " SELECT M.musicid, M.title AS musictitle, GR.name AS groupname, 'Vari artisti' AS artistname, AL.title AS albumtitle, M.year, GE.name AS genrename " +
-                " FROM " +
-                 MUSIC_TABLE + " AS M LEFT JOIN " + ALBUM_TABLE + " AS AL ON M.albumid = AL.albumid " +
-                " JOIN " + GROUP_TABLE + " AS GR ON M.authorid = GR.groupid " +
-                " JOIN " + GENRE_TABLE + " AS GE ON M.genreid = GE.genreid " +
-                ") AS temp1 " +
-                " WHERE (temp1.musictitle ~* ? " +
-                " OR temp1.groupname ~* ? " +
-                " OR temp1.albumtitle ~* ? " +
-                " OR temp1.genrename ~* ?) " +
-                " AND temp1.musicid NOT IN ( " +
-                " SELECT M.musicid " +
-                " FROM " +
-                 MUSIC_TABLE + " AS M JOIN " + GROUP_TABLE + " AS GR ON M.authorid = GR.groupid " +
-                " JOIN " + ARTIST_TABLE + " AS AR ON AR.groupid = GR.groupid AND AR.name ~* ?" +
-                " ) " +
+                SEARCH_UNION +
+                " ORDER BY musicid " +
+                " LIMIT ? OFFSET ?";
+
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            for(int i = 1; i <= 6; i++) {
+                ps.setString(i, searchTerm);
+            }
+            ps.setInt(7, limit);
+            ps.setInt(8, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<MusicStrings> mapper = RowMappers.musicStrings(rs);
+                while(rs.next()) {
+                    musicList.add(mapper.mapRow(rs));
+                }
+            }
+            return musicList;
+        } catch (SQLException e) {
+            logger.error("Error in searchMusic: {}", e.getMessage());
+            return null;
+        }
+    }
 
-                " UNION " +
+    @Override
+    public List<Integer> searchMusicIds(String searchTerm) {
+        List<Integer> idList = new ArrayList<>();
+        searchTerm = escapeSearchTerm(searchTerm);
 
-                " SELECT M.musicid, M.title AS musictitle, GR.name AS groupname, AR.name AS artistname, AL.title AS albumtitle, M.year, GE.name AS genrename " +
+        String sql =
+                " SELECT M.musicid " +
                 " FROM " +
                  MUSIC_TABLE + " AS M LEFT JOIN " + ALBUM_TABLE + " AS AL ON M.albumid = AL.albumid " +
                 " JOIN " + GROUP_TABLE + " AS GR ON M.authorid = GR.groupid " +
                 " JOIN " + GENRE_TABLE + " AS GE ON M.genreid = GE.genreid " +
-                " JOIN " + ARTIST_TABLE + " AS AR ON AR.groupid = GR.groupid AND AR.name ~* ?" +
-                " ORDER BY musicid " +
-                " LIMIT ? OFFSET ?";
+                " WHERE M.title ~* ? " +
+                " OR GR.name ~* ? " +
+                " OR AL.title ~* ? " +
+                " OR GE.name ~* ? " +
+                " OR EXISTS (SELECT 1 FROM " + ARTIST_TABLE + " AS AR WHERE AR.groupid = GR.groupid AND AR.name ~* ?) " +
+                " ORDER BY M.musicid ";
+
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            for(int i = 1; i <= 5; i++) {
+                ps.setString(i, searchTerm);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while(rs.next()) {
+                    idList.add(rs.getInt(1));
+                }
+            }
+            return idList;
+        } catch (SQLException e) {
+            logger.error("Error in searchMusicIds: {}", e.getMessage());
+            return null;
+        }
+    }
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, searchTerm);
-            ps.setString(2, searchTerm);
-            ps.setString(3, searchTerm);
-            ps.setString(4, searchTerm);
-            ps.setString(5, searchTerm);
-            ps.setString(6, searchTerm);
-            ps.setInt(7, PAGE_SIZE);
-            ps.setInt(8, page*PAGE_SIZE);
+    @Override
+    public List<MusicStrings> searchMusicByIds(String searchTerm, List<Integer> musicIds) {
+        List<MusicStrings> musicList = new ArrayList<>();
+        if(musicIds.isEmpty()) {
+            return musicList;
+        }
+        searchTerm = escapeSearchTerm(searchTerm);
+
+        String sql =
+                " SELECT " + SEARCH_COLUMNS +
+                " FROM (" + SEARCH_UNION + ") AS hits " +
+                " WHERE hits.musicid = ANY(?) " +
+                " ORDER BY musicid ";
+
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            for(int i = 1; i <= 6; i++) {
+                ps.setString(i, searchTerm);
+            }
+            ps.setArray(7, connection().createArrayOf("integer", musicIds.toArray()));
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<MusicStrings> mapper = RowMappers.musicStrings(rs);
                 while(rs.next()) {
-                    musicList.add(new MusicStrings(rs));
+                    musicList.add(mapper.mapRow(rs));
                 }
             }
             return musicList;
         } catch (SQLException e) {
-            logger.error("Error in searchMusic: {}", e.getMessage());
+            logger.error("Error in searchMusicByIds: {}", e.getMessage());
             return null;
         }
     }
 
+    /*
+     * Esegue una query con un unico parametro, l'array degli id
+     * (... = ANY(?)), al posto di una query per ogni id.
+     */
+    private <T> List<T> getByIds(String sql, List<Integer> ids, RowMapperFactory<T> factory, String methodName) {
+        List<T> list = new ArrayList<>();
+        if(ids.isEmpty()) {
+            return list;
+        }
+
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setArray(1, connection().createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<T> mapper = factory.create(rs);
+                while(rs.next()) {
+                    list.add(mapper.mapRow(rs));
+                }
+            }
+            return list;
+        } catch (SQLException e) {
+            logger.error("Error in {}: {}", methodName, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String escapeSearchTerm(String searchTerm) {
+        return searchTerm.replaceAll("([\\\\+*?\\[\\](){}|.^$])", "\\\\$1");
+    }
+
     @Override
-    public List<Album> getAllAlbums(int page) {
+    public List<Album> getAllAlbums(int page, int pageSize) {
         List<Album> albumList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + ALBUM_COLUMNS +
                 " FROM " + ALBUM_TABLE +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, PAGE_SIZE);
-            ps.setInt(2, page*PAGE_SIZE);
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Album> mapper = RowMappers.album(rs);
                 while(rs.next()) {
-                    albumList.add(new Album(rs));
+                    albumList.add(mapper.mapRow(rs));
                 }
             }
             return albumList;
@@ -435,15 +701,16 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         List<Album> albumList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + ALBUM_COLUMNS +
                 " FROM "  + ALBUM_TABLE +
                 " WHERE " + ALBUMID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, albumId);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Album> mapper = RowMappers.album(rs);
                 if(rs.next()) {
-                    albumList.add(new Album(rs));
+                    albumList.add(mapper.mapRow(rs));
                 }
             }
             return albumList;
@@ -453,6 +720,17 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         }
     }
 
+    @Override
+    public List<Album> getAlbumsByIds(List<Integer> ids) {
+        String sql =
+                " SELECT " + ALBUM_COLUMNS +
+                " FROM " + ALBUM_TABLE +
+                " WHERE " + ALBUMID + " = ANY(?) " +
+                " ORDER BY " + ALBUMID;
+
+        return getByIds(sql, ids, RowMappers::album, "getAlbumsByIds");
+    }
+
     @Override
     public int deleteAlbum(int albumId) {
         String check =
@@ -462,7 +740,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, albumId);
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -482,7 +760,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " DELETE FROM " + ALBUM_TABLE +
                 " WHERE " + ALBUMID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, albumId);
             ps.executeUpdate();
         } catch (SQLException e) {
@@ -490,9 +768,51 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(ALBUM_TABLE, albumId, Operation.DELETE);
+
         return 0;
     }
 
+    /**
+     * Le righe vengono eliminate con un'istruzione per tabella, dai link
+     * all'album, in modo che nessuna chiave esterna venga violata.
+     */
+    @Override
+    public DeleteSummary deleteAlbumCascade(int albumId) {
+        String lock =
+                " SELECT " + ALBUMID +
+                " FROM " + ALBUM_TABLE +
+                " WHERE " + ALBUMID + " = ? " +
+                " FOR UPDATE ";
+        String links =
+                " DELETE FROM " + LINK_TABLE +
+                " WHERE " + MUSICID + " IN (SELECT " + MUSICID + " FROM " + MUSIC_TABLE + " WHERE " + ALBUMID + " = ?) " +
+                " RETURNING " + MUSICID;
+        String music =
+                " DELETE FROM " + MUSIC_TABLE +
+                " WHERE " + ALBUMID + " = ? " +
+                " RETURNING " + MUSICID;
+        String album =
+                " DELETE FROM " + ALBUM_TABLE +
+                " WHERE " + ALBUMID + " = ? " +
+                " RETURNING " + ALBUMID;
+
+        return inTransaction(conn -> {
+            if(queryIds(conn, lock, albumId).isEmpty()) {
+                logger.warn("L'album con id {} non esiste, impossibile eliminarlo.", albumId);
+                return DeleteSummary.notFound();
+            }
+            List<Integer> deletedLinks = queryIds(conn, links, albumId);
+            List<Integer> deletedMusic = queryIds(conn, music, albumId);
+            List<Integer> deletedAlbums = queryIds(conn, album, albumId);
+
+            notifyChanges(conn, LINK_TABLE, distinct(deletedLinks), Operation.DELETE);
+            notifyChanges(conn, MUSIC_TABLE, deletedMusic, Operation.DELETE);
+            notifyChanges(conn, ALBUM_TABLE, deletedAlbums, Operation.DELETE);
+            return new DeleteSummary(deletedMusic.size(), deletedLinks.size(), 0, 0);
+        }, "deleteAlbumCascade");
+    }
+
     @Override
     public int insertAlbum(Album album) {
         String check =
@@ -502,7 +822,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, album.getAlbumId());
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -523,7 +843,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " ( " + ALBUMID + ", " + TITLE + ", " + YEAR + ", " + GROUPID +
                 " ) VALUES (?,?,?,?)";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, album.getAlbumId());
             ps.setString(2, album.getTitle());
             ps.setInt(3, album.getYear());
@@ -535,6 +855,8 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(ALBUM_TABLE, album.getAlbumId(), Operation.INSERT);
+
         return 0;
     }
 
@@ -547,7 +869,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, album.getAlbumId());
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -568,7 +890,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                  TITLE + " = ?," + YEAR + " = ?, " + GROUPID + " = ? " +
                 " WHERE " + ALBUMID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setString(1, album.getTitle());
             ps.setInt(2, album.getYear());
             ps.setInt(3, album.getGroupId());
@@ -580,24 +902,27 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(ALBUM_TABLE, album.getAlbumId(), Operation.UPDATE);
+
         return 0;
     }
 
     @Override
-    public List<Artist> getAllArtists(int page) {
+    public List<Artist> getAllArtists(int page, int pageSize) {
         List<Artist> artistList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + ARTIST_COLUMNS +
                 " FROM " + ARTIST_TABLE +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, PAGE_SIZE);
-            ps.setInt(2, page*PAGE_SIZE);
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Artist> mapper = RowMappers.artist(rs);
                 while(rs.next()) {
-                    artistList.add(new Artist(rs));
+                    artistList.add(mapper.mapRow(rs));
                 }
             }
             return artistList;
@@ -608,7 +933,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
     }
 
     @Override
-    public List<ArtistJoinGroup> artistJoinGroup(int page) {
+    public List<ArtistJoinGroup> artistJoinGroup(int page, int pageSize) {
         List<ArtistJoinGroup> list = new ArrayList<>();
 
         String sql =
@@ -617,12 +942,13 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " ON A."+GROUPID+" = G."+GROUPID+
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, PAGE_SIZE);
-            ps.setInt(2, page*PAGE_SIZE);
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<ArtistJoinGroup> mapper = RowMappers.artistJoinGroup(rs);
                 while(rs.next()) {
-                    list.add(new ArtistJoinGroup(rs));
+                    list.add(mapper.mapRow(rs));
                 }
             }
             return list;
@@ -641,7 +967,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, artist.getArtistId());
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -662,7 +988,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                  NAME + " = ?, " + GROUPID + " = ? " +
                 " WHERE " + ARTISTID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setString(1, artist.getName());
             ps.setInt(2, artist.getGroupId());
             ps.setInt(3, artist.getArtistId());
@@ -673,6 +999,8 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(ARTIST_TABLE, artist.getArtistId(), Operation.UPDATE);
+
         return 0;
     }
 
@@ -685,7 +1013,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, artist.getArtistId());
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -706,7 +1034,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " ( " + ARTISTID + ", " + NAME + ", " + GROUPID +
                 " ) VALUES (?,?,?)";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, artist.getArtistId());
             ps.setString(2, artist.getName());
             ps.setInt(3, artist.getGroupId());
@@ -717,6 +1045,8 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(ARTIST_TABLE, artist.getArtistId(), Operation.INSERT);
+
         return 0;
     }
 
@@ -729,7 +1059,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, artistId);
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -749,7 +1079,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " DELETE FROM " + ARTIST_TABLE +
                 " WHERE " + ARTISTID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, artistId);
             ps.executeUpdate();
         } catch (SQLException e) {
@@ -757,24 +1087,27 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(ARTIST_TABLE, artistId, Operation.DELETE);
+
         return 0;
     }
 
     @Override
-    public List<Genre> getAllGenres(int page) {
+    public List<Genre> getAllGenres(int page, int pageSize) {
         List<Genre> genreList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + GENRE_COLUMNS +
                 " FROM " + GENRE_TABLE +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, PAGE_SIZE);
-            ps.setInt(2, page*PAGE_SIZE);
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Genre> mapper = RowMappers.genre(rs);
                 while(rs.next()) {
-                    genreList.add(new Genre(rs));
+                    genreList.add(mapper.mapRow(rs));
                 }
             }
             return genreList;
@@ -789,15 +1122,16 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         List<Genre> genreList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + GENRE_COLUMNS +
                 " FROM "  + GENRE_TABLE +
                 " WHERE " + GENREID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, genreId);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Genre> mapper = RowMappers.genre(rs);
                 if(rs.next()) {
-                    genreList.add(new Genre(rs));
+                    genreList.add(mapper.mapRow(rs));
                 }
             }
             return genreList;
@@ -807,6 +1141,17 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         }
     }
 
+    @Override
+    public List<Genre> getGenresByIds(List<Integer> ids) {
+        String sql =
+                " SELECT " + GENRE_COLUMNS +
+                " FROM " + GENRE_TABLE +
+                " WHERE " + GENREID + " = ANY(?) " +
+                " ORDER BY " + GENREID;
+
+        return getByIds(sql, ids, RowMappers::genre, "getGenresByIds");
+    }
+
     @Override
     public int insertGenre(Genre genre) {
         String check =
@@ -816,7 +1161,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, genre.getGenreId());
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -837,7 +1182,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " ( " + GENREID + ", " + NAME +
                 " ) VALUES (?,?)";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, genre.getGenreId());
             ps.setString(2, genre.getName());
 
@@ -847,6 +1192,8 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(GENRE_TABLE, genre.getGenreId(), Operation.INSERT);
+
         return 0;
     }
 
@@ -859,7 +1206,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, genre.getGenreId());
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -880,7 +1227,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                  NAME + " = ? " +
                 " WHERE " + GENREID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setString(1, genre.getName());
             ps.setInt(2, genre.getGenreId());
 
@@ -890,6 +1237,8 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(GENRE_TABLE, genre.getGenreId(), Operation.UPDATE);
+
         return 0;
     }
 
@@ -902,7 +1251,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, genreId);
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -922,7 +1271,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " DELETE FROM " + GENRE_TABLE +
                 " WHERE " + GENREID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, genreId);
             ps.executeUpdate();
         } catch (SQLException e) {
@@ -930,24 +1279,27 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(GENRE_TABLE, genreId, Operation.DELETE);
+
         return 0;
     }
 
     @Override
-    public List<Group> getAllGroups(int page) {
+    public List<Group> getAllGroups(int page, int pageSize) {
         List<Group> groupList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + GROUP_COLUMNS +
                 " FROM " + GROUP_TABLE +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, PAGE_SIZE);
-            ps.setInt(2, page*PAGE_SIZE);
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Group> mapper = RowMappers.group(rs);
                 while(rs.next()) {
-                    groupList.add(new Group(rs));
+                    groupList.add(mapper.mapRow(rs));
                 }
             }
             return groupList;
@@ -962,15 +1314,16 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         List<Group> groupList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + GROUP_COLUMNS +
                 " FROM "  + GROUP_TABLE +
                 " WHERE " + GROUPID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, groupId);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Group> mapper = RowMappers.group(rs);
                 if(rs.next()) {
-                    groupList.add(new Group(rs));
+                    groupList.add(mapper.mapRow(rs));
                 }
             }
             return groupList;
@@ -980,6 +1333,17 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         }
     }
 
+    @Override
+    public List<Group> getGroupsByIds(List<Integer> ids) {
+        String sql =
+                " SELECT " + GROUP_COLUMNS +
+                " FROM " + GROUP_TABLE +
+                " WHERE " + GROUPID + " = ANY(?) " +
+                " ORDER BY " + GROUPID;
+
+        return getByIds(sql, ids, RowMappers::group, "getGroupsByIds");
+    }
+
     @Override
     public int insertGroup(Group group) {
         String check =
@@ -989,7 +1353,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, group.getGroupId());
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -1010,7 +1374,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " ( " + GROUPID + ", " + NAME +
                 " ) VALUES (?,?)";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, group.getGroupId());
             ps.setString(2, group.getName());
 
@@ -1020,6 +1384,8 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(GROUP_TABLE, group.getGroupId(), Operation.INSERT);
+
         return 0;
     }
 
@@ -1032,7 +1398,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, group.getGroupId());
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -1053,7 +1419,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                  NAME + " = ? " +
                 " WHERE " + GROUPID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setString(1, group.getName());
             ps.setInt(2, group.getGroupId());
 
@@ -1063,6 +1429,8 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(GROUP_TABLE, group.getGroupId(), Operation.UPDATE);
+
         return 0;
     }
 
@@ -1075,7 +1443,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
 
         boolean exists = false;
 
-        try (PreparedStatement pStat = conn.prepareStatement(check)) {
+        try (PreparedStatement pStat = connection().prepareStatement(check)) {
             pStat.setInt(1, groupId);
             try (ResultSet rs = pStat.executeQuery()) {
                 if (rs.next()) {
@@ -1095,7 +1463,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " DELETE FROM " + GROUP_TABLE +
                 " WHERE " + GROUPID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, groupId);
             ps.executeUpdate();
         } catch (SQLException e) {
@@ -1103,24 +1471,85 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(GROUP_TABLE, groupId, Operation.DELETE);
+
         return 0;
     }
 
+    /**
+     * Come deleteAlbumCascade: link, canzoni, artisti e album del gruppo
+     * vengono eliminati con un'istruzione per tabella prima del gruppo.
+     */
     @Override
-    public List<Link> getAllLinks(int page) {
+    public DeleteSummary deleteGroupCascade(int groupId) {
+        String musicOfGroup =
+                " SELECT " + MUSICID +
+                " FROM " + MUSIC_TABLE +
+                " WHERE " + AUTHORID + " = ? " +
+                " OR " + ALBUMID + " IN (SELECT " + ALBUMID + " FROM " + ALBUM_TABLE + " WHERE " + GROUPID + " = ?) ";
+        String lock =
+                " SELECT " + GROUPID +
+                " FROM " + GROUP_TABLE +
+                " WHERE " + GROUPID + " = ? " +
+                " FOR UPDATE ";
+        String links =
+                " DELETE FROM " + LINK_TABLE +
+                " WHERE " + MUSICID + " IN (" + musicOfGroup + ") " +
+                " RETURNING " + MUSICID;
+        String music =
+                " DELETE FROM " + MUSIC_TABLE +
+                " WHERE " + MUSICID + " IN (" + musicOfGroup + ") " +
+                " RETURNING " + MUSICID;
+        String artists =
+                " DELETE FROM " + ARTIST_TABLE +
+                " WHERE " + GROUPID + " = ? " +
+                " RETURNING " + ARTISTID;
+        String albums =
+                " DELETE FROM " + ALBUM_TABLE +
+                " WHERE " + GROUPID + " = ? " +
+                " RETURNING " + ALBUMID;
+        String group =
+                " DELETE FROM " + GROUP_TABLE +
+                " WHERE " + GROUPID + " = ? " +
+                " RETURNING " + GROUPID;
+
+        return inTransaction(conn -> {
+            if(queryIds(conn, lock, groupId).isEmpty()) {
+                logger.warn("Il gruppo con id {} non esiste, impossibile eliminarlo.", groupId);
+                return DeleteSummary.notFound();
+            }
+            List<Integer> deletedLinks = queryIds(conn, links, groupId, groupId);
+            List<Integer> deletedMusic = queryIds(conn, music, groupId, groupId);
+            List<Integer> deletedArtists = queryIds(conn, artists, groupId);
+            List<Integer> deletedAlbums = queryIds(conn, albums, groupId);
+            List<Integer> deletedGroups = queryIds(conn, group, groupId);
+
+            notifyChanges(conn, LINK_TABLE, distinct(deletedLinks), Operation.DELETE);
+            notifyChanges(conn, MUSIC_TABLE, deletedMusic, Operation.DELETE);
+            notifyChanges(conn, ARTIST_TABLE, deletedArtists, Operation.DELETE);
+            notifyChanges(conn, ALBUM_TABLE, deletedAlbums, Operation.DELETE);
+            notifyChanges(conn, GROUP_TABLE, deletedGroups, Operation.DELETE);
+            return new DeleteSummary(deletedMusic.size(), deletedLinks.size(),
+                    deletedArtists.size(), deletedAlbums.size());
+        }, "deleteGroupCascade");
+    }
+
+    @Override
+    public List<Link> getAllLinks(int page, int pageSize) {
         List<Link> linkList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + LINK_COLUMNS +
                 " FROM " + LINK_TABLE +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, PAGE_SIZE);
-            ps.setInt(2, page*PAGE_SIZE);
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Link> mapper = RowMappers.link(rs);
                 while(rs.next()) {
-                    linkList.add(new Link(rs));
+                    linkList.add(mapper.mapRow(rs));
                 }
             }
             return linkList;
@@ -1135,15 +1564,16 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         List<Link> linkList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + LINK_COLUMNS +
                 " FROM " + LINK_TABLE +
                 " WHERE " + MUSICID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, musicId);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Link> mapper = RowMappers.link(rs);
                 while(rs.next()) {
-                    linkList.add(new Link(rs));
+                    linkList.add(mapper.mapRow(rs));
                 }
             }
             return linkList;
@@ -1154,21 +1584,22 @@ public class PostgreSQLImpl extends com.gb.db.Database {
     }
 
     @Override
-    public List<MusicJoinLink> musicJoinLink(int page) {
+    public List<MusicJoinLink> musicJoinLink(int page, int pageSize) {
         List<MusicJoinLink> musicList = new ArrayList<>();
 
         String sql =
-                " SELECT M."+MUSICID+", M."+TITLE+", M."+AUTHORID+", M."+ALBUMID+", M."+YEAR+", M."+GENREID+", L."+LINK+
+                " SELECT " + MUSIC_COLUMNS_M + ", L."+LINK+
                 " FROM "+MUSIC_TABLE+" as M INNER JOIN "+LINK+" as L" +
                 " ON M."+MUSICID+" = L."+MUSICID+
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, PAGE_SIZE);
-            ps.setInt(2, page*PAGE_SIZE);
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<MusicJoinLink> mapper = RowMappers.musicJoinLink(rs);
                 while(rs.next()) {
-                    musicList.add(new MusicJoinLink(rs));
+                    musicList.add(mapper.mapRow(rs));
                 }
             }
             return musicList;
@@ -1185,7 +1616,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " ( " + MUSICID + ", " + LINK +
                 " ) VALUES (?,?)";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, link.getMusicId());
             ps.setString(2, link.getLink());
 
@@ -1195,26 +1626,29 @@ public class PostgreSQLImpl extends com.gb.db.Database {
             return -2;
         }
 
+        notifyChange(LINK_TABLE, link.getMusicId(), Operation.INSERT);
+
         return 0;
     }
 
     @Override
-    public List<Music> getMusicByAlbum(int albumId, int page) {
+    public List<Music> getMusicByAlbum(int albumId, int page, int pageSize) {
         List<Music> musicList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + MUSIC_COLUMNS +
                 " FROM "  + MUSIC_TABLE +
                 " WHERE " + ALBUMID + " = ? " +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, albumId);
-            ps.setInt(2, PAGE_SIZE);
-            ps.setInt(3, page*PAGE_SIZE);
+            ps.setInt(2, pageSize);
+            ps.setInt(3, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Music> mapper = RowMappers.music(rs);
                 while(rs.next()) {
-                    musicList.add(new Music(rs));
+                    musicList.add(mapper.mapRow(rs));
                 }
             }
             return musicList;
@@ -1225,22 +1659,23 @@ public class PostgreSQLImpl extends com.gb.db.Database {
     }
 
     @Override
-    public List<Music> getMusicByGenre(int genreId, int page) {
+    public List<Music> getMusicByGenre(int genreId, int page, int pageSize) {
         List<Music> musicList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + MUSIC_COLUMNS +
                 " FROM "  + MUSIC_TABLE +
                 " WHERE " + GENREID + " = ? " +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, genreId);
-            ps.setInt(2, PAGE_SIZE);
-            ps.setInt(3, page*PAGE_SIZE);
+            ps.setInt(2, pageSize);
+            ps.setInt(3, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Music> mapper = RowMappers.music(rs);
                 while(rs.next()) {
-                    musicList.add(new Music(rs));
+                    musicList.add(mapper.mapRow(rs));
                 }
             }
             return musicList;
@@ -1251,22 +1686,23 @@ public class PostgreSQLImpl extends com.gb.db.Database {
     }
 
     @Override
-    public List<Music> getMusicByGroup(int groupId, int page) {
+    public List<Music> getMusicByGroup(int groupId, int page, int pageSize) {
         List<Music> musicList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + MUSIC_COLUMNS +
                 " FROM "  + MUSIC_TABLE +
                 " WHERE " + AUTHORID + " = ? " +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, groupId);
-            ps.setInt(2, PAGE_SIZE);
-            ps.setInt(3, page*PAGE_SIZE);
+            ps.setInt(2, pageSize);
+            ps.setInt(3, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Music> mapper = RowMappers.music(rs);
                 while(rs.next()) {
-                    musicList.add(new Music(rs));
+                    musicList.add(mapper.mapRow(rs));
                 }
             }
             return musicList;
@@ -1277,7 +1713,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
     }
 
     @Override
-    public List<Music> getMusicByArtist(int artistId, int page) {
+    public List<Music> getMusicByArtist(int artistId, int page, int pageSize) {
         List<Music> musicList = new ArrayList<>();
 
         String sql =
@@ -1288,13 +1724,14 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " A.artistid = ? " +
                 " LIMIT ? OFFSET ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, artistId);
-            ps.setInt(2, PAGE_SIZE);
-            ps.setInt(3, page*PAGE_SIZE);
+            ps.setInt(2, pageSize);
+            ps.setInt(3, page*pageSize);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Music> mapper = RowMappers.music(rs);
                 while(rs.next()) {
-                    musicList.add(new Music(rs));
+                    musicList.add(mapper.mapRow(rs));
                 }
             }
             return musicList;
@@ -1304,6 +1741,158 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         }
     }
 
+    /**
+     * Le query delle pagine filtrate partono dall'entità usata come filtro
+     * (album, genere, gruppo o artista) e fanno un LEFT JOIN LATERAL con la
+     * pagina di canzoni richiesta. In questo modo, con un solo round trip,
+     * si ottiene sia il nome da mostrare come intestazione che le canzoni:
+     * se l'entità non esiste non viene restituita alcuna riga, se la pagina
+     * è vuota viene restituita una sola riga con le colonne di music a NULL.
+     */
+    @Override
+    public MusicPage getMusicPageByAlbum(int albumId, int page, int pageSize) {
+        String sql =
+                " SELECT H." + TITLE + " AS headername, D.* " +
+                " FROM " + ALBUM_TABLE + " AS H LEFT JOIN LATERAL ( " +
+                "   SELECT " + MUSIC_DETAILS_COLUMNS +
+                "   FROM " + MUSIC_DETAILS_JOINS +
+                "   WHERE M." + ALBUMID + " = H." + ALBUMID +
+                "   LIMIT ? OFFSET ? " +
+                " ) AS D ON TRUE " +
+                " WHERE H." + ALBUMID + " = ? ";
+
+        return getMusicPage(sql, albumId, page, pageSize, "getMusicPageByAlbum");
+    }
+
+    @Override
+    public MusicPage getMusicPageByGenre(int genreId, int page, int pageSize) {
+        String sql =
+                " SELECT H." + NAME + " AS headername, D.* " +
+                " FROM " + GENRE_TABLE + " AS H LEFT JOIN LATERAL ( " +
+                "   SELECT " + MUSIC_DETAILS_COLUMNS +
+                "   FROM " + MUSIC_DETAILS_JOINS +
+                "   WHERE M." + GENREID + " = H." + GENREID +
+                "   LIMIT ? OFFSET ? " +
+                " ) AS D ON TRUE " +
+                " WHERE H." + GENREID + " = ? ";
+
+        return getMusicPage(sql, genreId, page, pageSize, "getMusicPageByGenre");
+    }
+
+    @Override
+    public MusicPage getMusicPageByGroup(int groupId, int page, int pageSize) {
+        String sql =
+                " SELECT H." + NAME + " AS headername, D.* " +
+                " FROM " + GROUP_TABLE + " AS H LEFT JOIN LATERAL ( " +
+                "   SELECT " + MUSIC_DETAILS_COLUMNS +
+                "   FROM " + MUSIC_DETAILS_JOINS +
+                "   WHERE M." + AUTHORID + " = H." + GROUPID +
+                "   LIMIT ? OFFSET ? " +
+                " ) AS D ON TRUE " +
+                " WHERE H." + GROUPID + " = ? ";
+
+        return getMusicPage(sql, groupId, page, pageSize, "getMusicPageByGroup");
+    }
+
+    @Override
+    public MusicPage getMusicPageByArtist(int artistId, int page, int pageSize) {
+        String sql =
+                " SELECT H." + NAME + " AS headername, D.* " +
+                " FROM " + ARTIST_TABLE + " AS H LEFT JOIN LATERAL ( " +
+                "   SELECT " + MUSIC_DETAILS_COLUMNS +
+                "   FROM " + MUSIC_DETAILS_JOINS +
+                "   WHERE M." + AUTHORID + " = H." + GROUPID +
+                "   LIMIT ? OFFSET ? " +
+                " ) AS D ON TRUE " +
+                " WHERE H." + ARTISTID + " = ? ";
+
+        return getMusicPage(sql, artistId, page, pageSize, "getMusicPageByArtist");
+    }
+
+    /**
+     * Il testo SQL viene costruito da MusicQuerySql, una volta per ogni
+     * combinazione di filtri e ordinamento.
+     */
+    @Override
+    public List<MusicDetails> findMusic(MusicQuery query) {
+        List<MusicDetails> musicList = new ArrayList<>();
+
+        try (PreparedStatement ps = connection().prepareStatement(MusicQuerySql.sql(query))) {
+            MusicQuerySql.bind(ps, query);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<MusicDetails> mapper = RowMappers.musicDetails(rs);
+                while(rs.next()) {
+                    musicList.add(mapper.mapRow(rs));
+                }
+            }
+            return musicList;
+        } catch (SQLException e) {
+            logger.error("Error in findMusic: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private MusicPage getMusicPage(String sql, int filterId, int page, int pageSize, String methodName) {
+        String headerName = null;
+        List<MusicDetails> musicList = new ArrayList<>();
+
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
+            ps.setInt(3, filterId);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<MusicDetails> mapper = RowMappers.musicDetails(rs);
+                int headerIndex = rs.findColumn("headername");
+                int musicIdIndex = rs.findColumn(MUSICID);
+                while(rs.next()) {
+                    headerName = rs.getString(headerIndex);
+                    rs.getInt(musicIdIndex);
+                    if(!rs.wasNull()) {
+                        musicList.add(mapper.mapRow(rs));
+                    }
+                }
+            }
+            return new MusicPage(headerName, musicList);
+        } catch (SQLException e) {
+            logger.error("Error in {}: {}", methodName, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public MusicWithLinks getMusicWithLinks(int musicId) {
+        Music music = null;
+        List<Link> linkList = new ArrayList<>();
+
+        String sql =
+                " SELECT " + MUSIC_COLUMNS_M + ", L." + LINK +
+                " FROM " + MUSIC_TABLE + " AS M LEFT JOIN " + LINK_TABLE + " AS L " +
+                " ON M." + MUSICID + " = L." + MUSICID +
+                " WHERE M." + MUSICID + " = ? ";
+
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, musicId);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Music> musicMapper = RowMappers.music(rs);
+                RowMapper<Link> linkMapper = RowMappers.link(rs);
+                int linkIndex = rs.findColumn(LINK);
+                while(rs.next()) {
+                    if(music == null) {
+                        music = musicMapper.mapRow(rs);
+                    }
+                    rs.getString(linkIndex);
+                    if(!rs.wasNull()) {
+                        linkList.add(linkMapper.mapRow(rs));
+                    }
+                }
+            }
+            return new MusicWithLinks(music, linkList);
+        } catch (SQLException e) {
+            logger.error("Error in getMusicWithLinks: {}", e.getMessage());
+            return null;
+        }
+    }
+
     @Override
     public Map<Integer, String> getGroupMap() {
         Map<Integer, String> groupMap = new HashMap<>();
@@ -1312,7 +1901,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " SELECT G."+GROUPID+", G."+NAME+" "+
                 " FROM " + GROUP_TABLE + " AS G ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             try (ResultSet rs = ps.executeQuery()) {
                 while(rs.next()) {
                     groupMap.put(rs.getInt(1), rs.getString(2));
@@ -1333,7 +1922,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " SELECT A."+ALBUMID+", A."+TITLE+" "+
                 " FROM " + ALBUM_TABLE + " AS A ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             try (ResultSet rs = ps.executeQuery()) {
                 while(rs.next()) {
                     albumMap.put(rs.getInt(1), rs.getString(2));
@@ -1354,7 +1943,7 @@ public class PostgreSQLImpl extends com.gb.db.Database {
                 " SELECT G."+GENREID+", G."+NAME+" "+
                 " FROM " + GENRE_TABLE + " AS G ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             try (ResultSet rs = ps.executeQuery()) {
                 while(rs.next()) {
                     genreMap.put(rs.getInt(1), rs.getString(2));
@@ -1372,15 +1961,16 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         List<Artist> artistList = new ArrayList<>();
 
         String sql =
-                " SELECT * " +
+                " SELECT " + ARTIST_COLUMNS +
                 " FROM "  + ARTIST_TABLE +
                 " WHERE " + ARTISTID + " = ? ";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
             ps.setInt(1, artistId);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<Artist> mapper = RowMappers.artist(rs);
                 if(rs.next()) {
-                    artistList.add(new Artist(rs));
+                    artistList.add(mapper.mapRow(rs));
                 }
             }
             return artistList;
@@ -1390,4 +1980,307 @@ public class PostgreSQLImpl extends com.gb.db.Database {
         }
     }
 
+    @Override
+    public List<Artist> getArtistsByIds(List<Integer> ids) {
+        String sql =
+                " SELECT " + ARTIST_COLUMNS +
+                " FROM " + ARTIST_TABLE +
+                " WHERE " + ARTISTID + " = ANY(?) " +
+                " ORDER BY " + ARTISTID;
+
+        return getByIds(sql, ids, RowMappers::artist, "getArtistsByIds");
+    }
+
+    /*
+     * CountDAO
+     */
+
+    /**
+     * Per le tabelle con almeno COUNT_ESTIMATE_MIN_ROWS righe restituisce
+     * la stima di pg_class.reltuples (aggiornata da VACUUM e ANALYZE),
+     * che non richiede di scorrere la tabella come COUNT(*). Le tabelle
+     * più piccole, o mai analizzate, vengono contate esattamente.
+     */
+    @Override
+    public long countRows(String table) {
+        if(!COUNTED_TABLES.contains(table)) {
+            logger.warn("Conteggio richiesto per una tabella non prevista: {}", table);
+            return -1;
+        }
+
+        String estimateSql =
+                " SELECT reltuples::bigint " +
+                " FROM pg_class " +
+                " WHERE oid = to_regclass(?) ";
+        String countSql =
+                " SELECT COUNT(*) " +
+                " FROM " + table;
+
+        try (PreparedStatement ps = connection().prepareStatement(estimateSql)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                if(rs.next() && rs.getLong(1) >= COUNT_ESTIMATE_MIN_ROWS) {
+                    return rs.getLong(1);
+                }
+            }
+            return count(countSql, null, "countRows");
+        } catch (SQLException e) {
+            logger.error("Error in countRows: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public long countMusicBy(String filter, int id) {
+        String sql;
+        switch (filter) {
+            case ALBUMID:
+            case GENREID:
+                sql = " SELECT COUNT(*) FROM " + MUSIC_TABLE + " WHERE " + filter + " = ? ";
+                break;
+            case GROUPID:
+                sql = " SELECT COUNT(*) FROM " + MUSIC_TABLE + " WHERE " + AUTHORID + " = ? ";
+                break;
+            case ARTISTID:
+                sql = " SELECT COUNT(*) " +
+                      " FROM " + MUSIC_TABLE + " AS M JOIN " + ARTIST_TABLE + " AS H ON M." + AUTHORID + " = H." + GROUPID +
+                      " WHERE H." + ARTISTID + " = ? ";
+                break;
+            default:
+                logger.warn("Conteggio richiesto per un filtro non previsto: {}", filter);
+                return -1;
+        }
+        return count(sql, id, "countMusicBy");
+    }
+
+    private long count(String sql, Integer param, String methodName) {
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            if(param != null) {
+                ps.setInt(1, param);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error in {}: {}", methodName, e.getMessage());
+            return -1;
+        }
+    }
+
+    /*
+     * ProjectionDAO
+     */
+
+    /**
+     * Legge solo le colonne richieste, in ordine di chiave: con gli
+     * indici di migrations/001_covering_indexes.sql le pagine di id e
+     * titoli vengono servite da un index-only scan.
+     */
+    @Override
+    public List<Map<String, Object>> getFields(String table, List<String> fields, int page, int pageSize) {
+        if(!TableColumns.areValid(table, fields)) {
+            logger.warn("Colonne non valide per la tabella {}: {}", table, fields);
+            return null;
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        String sql =
+                " SELECT " + String.join(", ", fields) +
+                " FROM " + table +
+                " ORDER BY " + TableColumns.key(table) +
+                " LIMIT ? OFFSET ? ";
+
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            ps.setInt(1, pageSize);
+            ps.setInt(2, page*pageSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while(rs.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for(int i = 0; i < fields.size(); i++) {
+                        row.put(fields.get(i), rs.getObject(i + 1));
+                    }
+                    rows.add(row);
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            logger.error("Error in getFields: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /*
+     * ExportDAO
+     */
+
+    @Override
+    public int exportMusic(int fromId, Consumer<Music> consumer) {
+        String sql =
+                " SELECT " + MUSIC_COLUMNS +
+                " FROM " + MUSIC_TABLE +
+                " WHERE " + MUSICID + " >= ? " +
+                " ORDER BY " + MUSICID;
+
+        return export(sql, fromId, RowMappers::music, consumer, "exportMusic");
+    }
+
+    @Override
+    public int exportAlbums(int fromId, Consumer<Album> consumer) {
+        String sql =
+                " SELECT " + ALBUM_COLUMNS +
+                " FROM " + ALBUM_TABLE +
+                " WHERE " + ALBUMID + " >= ? " +
+                " ORDER BY " + ALBUMID;
+
+        return export(sql, fromId, RowMappers::album, consumer, "exportAlbums");
+    }
+
+    @Override
+    public int exportArtists(int fromId, Consumer<Artist> consumer) {
+        String sql =
+                " SELECT " + ARTIST_COLUMNS +
+                " FROM " + ARTIST_TABLE +
+                " WHERE " + ARTISTID + " >= ? " +
+                " ORDER BY " + ARTISTID;
+
+        return export(sql, fromId, RowMappers::artist, consumer, "exportArtists");
+    }
+
+    @Override
+    public int exportGroups(int fromId, Consumer<Group> consumer) {
+        String sql =
+                " SELECT " + GROUP_COLUMNS +
+                " FROM " + GROUP_TABLE +
+                " WHERE " + GROUPID + " >= ? " +
+                " ORDER BY " + GROUPID;
+
+        return export(sql, fromId, RowMappers::group, consumer, "exportGroups");
+    }
+
+    @Override
+    public int exportGenres(int fromId, Consumer<Genre> consumer) {
+        String sql =
+                " SELECT " + GENRE_COLUMNS +
+                " FROM " + GENRE_TABLE +
+                " WHERE " + GENREID + " >= ? " +
+                " ORDER BY " + GENREID;
+
+        return export(sql, fromId, RowMappers::genre, consumer, "exportGenres");
+    }
+
+    @Override
+    public int exportLinks(int fromMusicId, Consumer<Link> consumer) {
+        String sql =
+                " SELECT " + LINK_COLUMNS +
+                " FROM " + LINK_TABLE +
+                " WHERE " + MUSICID + " >= ? " +
+                " ORDER BY " + MUSICID + ", " + LINK;
+
+        return export(sql, fromMusicId, RowMappers::link, consumer, "exportLinks");
+    }
+
+    @Override
+    public int exportJoinAll(int fromMusicId, Consumer<JoinAll> consumer) {
+        String sql =
+                " SELECT " + JOIN_ALL_COLUMNS +
+                " FROM " + JOIN_ALL_JOINS +
+                " WHERE M.musicid >= ? " +
+                JOIN_ALL_GROUP_BY +
+                " ORDER BY M.musicid ";
+
+        return export(sql, fromMusicId, RowMappers::joinAll, consumer, "exportJoinAll");
+    }
+
+    /*
+     * Eliminazioni a cascata
+     */
+
+    @FunctionalInterface
+    private interface Transaction<T> {
+
+        T run(Connection conn) throws SQLException;
+
+    }
+
+    /**
+     * Esegue le istruzioni in un'unica transazione su una connessione
+     * dedicata, come le esportazioni, per non disattivare l'autocommit
+     * della connessione condivisa. Se un'istruzione fallisce (ad esempio
+     * per una riga inserita nel frattempo che viola una chiave esterna)
+     * la transazione viene annullata per intero.
+     * @return Il risultato delle istruzioni, oppure null in caso di errore
+     */
+    private <T> T inTransaction(Transaction<T> transaction, String methodName) {
+        try (Connection conn = connectionManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = transaction.run(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error in {}: {}", methodName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Esegue la query (una SELECT o una DELETE ... RETURNING) e
+     * restituisce gli id della prima colonna.
+     */
+    private static List<Integer> queryIds(Connection conn, String sql, int... params) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for(int i = 0; i < params.length; i++) {
+                ps.setInt(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while(rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static List<Integer> distinct(List<Integer> ids) {
+        return new ArrayList<>(new LinkedHashSet<>(ids));
+    }
+
+    /**
+     * Esegue una query di esportazione su una connessione dedicata, in
+     * modo che un'esportazione lunga non blocchi le altre richieste sulla
+     * connessione condivisa. Con l'autocommit disattivato il driver usa
+     * un cursore lato server e legge le righe a blocchi di
+     * EXPORT_FETCH_SIZE, invece di caricare tutto il risultato in memoria.
+     * Le eccezioni lanciate dal consumer (ad esempio se il client chiude
+     * la connessione) vengono propagate al chiamante.
+     */
+    private <T> int export(String sql, int fromId, RowMapperFactory<T> factory,
+                           Consumer<T> consumer, String methodName) {
+        try (Connection conn = connectionManager.openConnection()) {
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setFetchSize(EXPORT_FETCH_SIZE);
+                ps.setInt(1, fromId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    RowMapper<T> mapper = factory.create(rs);
+                    while(rs.next()) {
+                        consumer.accept(mapper.mapRow(rs));
+                    }
+                }
+            }
+            conn.commit();
+            return 0;
+        } catch (SQLException e) {
+            logger.error("Error in {}: {}", methodName, e.getMessage());
+            return -2;
+        }
+    }
+
 }
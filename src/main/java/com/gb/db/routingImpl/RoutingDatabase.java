@@ -0,0 +1,235 @@
+package com.gb.db.routingImpl;
+
+import com.gb.db.Database;
+import com.gb.db.ForwardingDatabase;
+import com.gb.db.postgreSQLImpl.ConnectionManager;
+import com.gb.db.postgreSQLImpl.PostgreSQLImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.gb.Constants.*;
+
+/**
+ * Questa classe smista le query fra il server primario e le sue repliche
+ * (PostgreSQL in streaming replication): le scritture vanno sempre al
+ * primario, le letture ad una replica scelta a turno fra quelle sane. <br>
+ * - Ogni PROBE_INTERVAL_MILLIS viene misurato il ritardo (lag) di ogni
+ *   replica; una replica irraggiungibile o con un ritardo maggiore di
+ *   MAX_LAG_MILLIS non riceve letture finché non torna in pari. <br>
+ * - Read-your-writes: dopo una scrittura andata a buon fine, le letture
+ *   dello stesso client vanno al primario finché la replica scelta non
+ *   ha sicuramente ricevuto la modifica. Il client della richiesta
+ *   corrente viene indicato con setCurrentClient(). <br>
+ * - Se nessuna replica è utilizzabile, anche le letture vanno al primario. <br>
+ * Le repliche sono elencate nel file REPLICAS_FILE, una per riga, nel
+ * formato "host:porta"; database e credenziali sono gli stessi del primario.
+ */
+public class RoutingDatabase extends ForwardingDatabase {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingDatabase.class);
+
+    private static final long PROBE_INTERVAL_MILLIS = 1_000;
+    private static final long MAX_LAG_MILLIS = 10_000;
+
+    private static final String LAG_QUERY =
+            " SELECT CASE " +
+            "   WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "   WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "   ELSE COALESCE((EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint, 0) " +
+            " END ";
+
+    private static final ThreadLocal<String> currentClient = new ThreadLocal<>();
+
+    private static RoutingDatabase routingInstance = null;
+
+    /**
+     * Misura il ritardo di una replica, in millisecondi.
+     */
+    public interface LagProbe {
+        long lagMillis(Database replica) throws SQLException;
+    }
+
+    private final Database primary;
+    private final List<Replica> replicas;
+    private final LagProbe probe;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Map<String, Long> lastWriteByClient = new ConcurrentHashMap<>();
+
+    public static synchronized RoutingDatabase getInstance() {
+        if(routingInstance == null) {
+            List<Database> replicaList = new ArrayList<>();
+            for(String address : readReplicaAddresses()) {
+                String[] hostPort = address.split(":");
+                int port = hostPort.length > 1 ? Integer.parseInt(hostPort[1].trim()) : DB_PORT;
+                replicaList.add(new PostgreSQLImpl(
+                        new ConnectionManager(hostPort[0].trim(), port, DB_DATABASE, CREDENTIALS_FILE)));
+            }
+            routingInstance = new RoutingDatabase(new PostgreSQLImpl(), replicaList, RoutingDatabase::measureLag);
+            routingInstance.startProbing();
+        }
+        return routingInstance;
+    }
+
+    public RoutingDatabase(Database primary, List<? extends Database> replicas, LagProbe probe) {
+        this.primary = primary;
+        List<Replica> list = new ArrayList<>();
+        for(Database db : replicas) {
+            list.add(new Replica(db));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        this.probe = probe;
+    }
+
+    /**
+     * Indica il client (ad esempio l'IP) della richiesta gestita
+     * dal thread corrente. Con null il thread non ha un client.
+     */
+    public static void setCurrentClient(String client) {
+        if(client == null) {
+            currentClient.remove();
+        } else {
+            currentClient.set(client);
+        }
+    }
+
+    /**
+     * Misura il ritardo di ogni replica e ne aggiorna lo stato.
+     * Viene chiamato periodicamente dal thread avviato da startProbing().
+     */
+    public void probeReplicas() {
+        for(Replica replica : replicas) {
+            try {
+                replica.lagMillis = probe.lagMillis(replica.db);
+                replica.reachable = true;
+            } catch (SQLException e) {
+                if(replica.reachable) {
+                    logger.warn("Replica non raggiungibile: {}", e.getMessage());
+                }
+                replica.reachable = false;
+            }
+        }
+
+        long expired = System.currentTimeMillis() - MAX_LAG_MILLIS - PROBE_INTERVAL_MILLIS;
+        lastWriteByClient.values().removeIf(time -> time < expired);
+    }
+
+    @Override
+    protected Database readDelegate() {
+        if(replicas.isEmpty()) {
+            return primary;
+        }
+
+        /*
+          Il lag misurato può essere vecchio di PROBE_INTERVAL_MILLIS:
+          la replica ha sicuramente ricevuto l'ultima scrittura del client
+          solo se da allora è passato più tempo del lag più questo intervallo.
+         */
+        long sinceLastWrite = Long.MAX_VALUE;
+        String client = currentClient.get();
+        if(client != null) {
+            Long lastWrite = lastWriteByClient.get(client);
+            if(lastWrite != null) {
+                sinceLastWrite = System.currentTimeMillis() - lastWrite;
+            }
+        }
+
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for(int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if(replica.isUsable() && replica.lagMillis + PROBE_INTERVAL_MILLIS < sinceLastWrite) {
+                return replica.db;
+            }
+        }
+        return primary;
+    }
+
+    @Override
+    protected Database writeDelegate() {
+        return primary;
+    }
+
+    @Override
+    protected int onWrite(int result) {
+        String client = currentClient.get();
+        if(result == 0 && client != null) {
+            lastWriteByClient.put(client, System.currentTimeMillis());
+        }
+        return result;
+    }
+
+    private void startProbing() {
+        if(replicas.isEmpty()) {
+            return;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::probeReplicas, 0, PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static long measureLag(Database replica) throws SQLException {
+        Connection conn = ((PostgreSQLImpl) replica).getConnectionManager().getConnection();
+        try (PreparedStatement ps = conn.prepareStatement(LAG_QUERY);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static List<String> readReplicaAddresses() {
+        List<String> addresses = new ArrayList<>();
+        File file = new File(REPLICAS_FILE);
+        if(!file.exists()) {
+            logger.warn("File {} non trovato, le letture andranno al primario.", REPLICAS_FILE);
+            return addresses;
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while((line = br.readLine()) != null) {
+                if(!line.trim().isEmpty()) {
+                    addresses.add(line.trim());
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error in readReplicaAddresses: {}", e.getMessage());
+        }
+        return addresses;
+    }
+
+    private static final class Replica {
+
+        private final Database db;
+        private volatile boolean reachable = false;
+        private volatile long lagMillis = Long.MAX_VALUE / 2;
+
+        private Replica(Database db) {
+            this.db = db;
+        }
+
+        private boolean isUsable() {
+            return reachable && lagMillis <= MAX_LAG_MILLIS;
+        }
+
+    }
+
+}
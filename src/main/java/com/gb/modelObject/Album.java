@@ -10,10 +10,10 @@ import static com.gb.Constants.*;
 
 public class Album {
 
-    private Integer albumId;
+    private int albumId;
     private String title;
-    private Integer year;
-    private Integer groupId;
+    private int year;
+    private int groupId;
 
     private static final Logger logger = LoggerFactory.getLogger(Album.class);
 
@@ -31,18 +31,18 @@ public class Album {
         }
     }
 
-    public Album(Integer albumId, String title, Integer year, Integer groupId) {
+    public Album(int albumId, String title, int year, int groupId) {
         setAlbumId(albumId);
         setTitle(title);
         setYear(year);
         setGroupId(groupId);
     }
 
-    public Integer getAlbumId() {
+    public int getAlbumId() {
         return albumId;
     }
 
-    public void setAlbumId(Integer albumId) {
+    public void setAlbumId(int albumId) {
         if(albumId <= 0) {
             throw new IllegalArgumentException("AlbumId deve essere > 0.");
         }
@@ -60,22 +60,22 @@ public class Album {
         this.title = title;
     }
 
-    public Integer getYear() {
+    public int getYear() {
         return year;
     }
 
-    public void setYear(Integer year) {
+    public void setYear(int year) {
         if(year < 0 || year > 3000) {
             throw new IllegalArgumentException("Anno album deve essere compreso fra 0 e 3000.");
         }
         this.year = year;
     }
 
-    public Integer getGroupId() {
+    public int getGroupId() {
         return groupId;
     }
 
-    public void setGroupId(Integer groupId) {
+    public void setGroupId(int groupId) {
         if(groupId <= 0) {
             throw new IllegalArgumentException("Album.groupid deve essere > 0.");
         }
@@ -10,9 +10,9 @@ import static com.gb.Constants.*;
 
 public class Artist {
 
-    private Integer artistId;
+    private int artistId;
     private String name;
-    private Integer groupId;
+    private int groupId;
 
     private static final Logger logger = LoggerFactory.getLogger(Artist.class);
 
@@ -29,17 +29,17 @@ public class Artist {
         }
     }
 
-    public Artist(Integer artistId, String name, Integer groupId) {
+    public Artist(int artistId, String name, int groupId) {
         this.artistId = artistId;
         this.name = name;
         this.groupId = groupId;
     }
 
-    public Integer getArtistId() {
+    public int getArtistId() {
         return artistId;
     }
 
-    public void setArtistId(Integer artistId) {
+    public void setArtistId(int artistId) {
         if(artistId <= 0) {
             throw new IllegalArgumentException("ArtistId deve essere > 0.");
         }
@@ -57,11 +57,11 @@ public class Artist {
         this.name = name;
     }
 
-    public Integer getGroupId() {
+    public int getGroupId() {
         return groupId;
     }
 
-    public void setGroupId(Integer groupId) {
+    public void setGroupId(int groupId) {
         if(groupId <= 0) {
             throw new IllegalArgumentException("Artist.groupId deve essere > 0.");
         }
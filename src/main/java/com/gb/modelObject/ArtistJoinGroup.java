@@ -27,6 +27,11 @@ public class ArtistJoinGroup {
         }
     }
 
+    public ArtistJoinGroup(Artist artist, Group group) {
+        this.artist = artist;
+        this.group = group;
+    }
+
     public Artist getArtist() {
         return artist;
     }
@@ -0,0 +1,66 @@
+package com.gb.modelObject;
+
+/**
+ * Questa classe rappresenta il risultato di un'eliminazione a cascata
+ * (vedi GroupDAO.deleteGroupCascade e AlbumDAO.deleteAlbumCascade): il
+ * numero di canzoni, link, artisti e album eliminati insieme all'entità
+ * richiesta, da mostrare all'utente. <br>
+ * Se l'entità da eliminare non esiste, found vale false e nessuna riga
+ * è stata eliminata.
+ */
+public class DeleteSummary {
+
+    private final boolean found;
+    private final int music;
+    private final int links;
+    private final int artists;
+    private final int albums;
+
+    public DeleteSummary(int music, int links, int artists, int albums) {
+        this(true, music, links, artists, albums);
+    }
+
+    private DeleteSummary(boolean found, int music, int links, int artists, int albums) {
+        this.found = found;
+        this.music = music;
+        this.links = links;
+        this.artists = artists;
+        this.albums = albums;
+    }
+
+    public static DeleteSummary notFound() {
+        return new DeleteSummary(false, 0, 0, 0, 0);
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public int getMusic() {
+        return music;
+    }
+
+    public int getLinks() {
+        return links;
+    }
+
+    public int getArtists() {
+        return artists;
+    }
+
+    public int getAlbums() {
+        return albums;
+    }
+
+    @Override
+    public String toString() {
+        return "DeleteSummary{" +
+                "found=" + found +
+                ", music=" + music +
+                ", links=" + links +
+                ", artists=" + artists +
+                ", albums=" + albums +
+                '}';
+    }
+
+}
@@ -10,7 +10,7 @@ import static com.gb.Constants.*;
 
 public class Genre {
 
-    private Integer genreId;
+    private int genreId;
     private String name;
 
     private static final Logger logger = LoggerFactory.getLogger(Genre.class);
@@ -27,16 +27,16 @@ public class Genre {
         }
     }
 
-    public Genre(Integer genreId, String name) {
+    public Genre(int genreId, String name) {
         setGenreId(genreId);
         setName(name);
     }
 
-    public Integer getGenreId() {
+    public int getGenreId() {
         return genreId;
     }
 
-    public void setGenreId(Integer genreId) {
+    public void setGenreId(int genreId) {
         if(genreId <= 0) {
             throw new IllegalArgumentException("GenreId deve essere > 0.");
         }
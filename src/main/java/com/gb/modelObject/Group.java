@@ -10,7 +10,7 @@ import static com.gb.Constants.*;
 
 public class Group {
 
-    private Integer groupId;
+    private int groupId;
     private String name;
 
     private static final Logger logger = LoggerFactory.getLogger(Group.class);
@@ -27,16 +27,16 @@ public class Group {
         }
     }
 
-    public Group(Integer groupId, String name) {
+    public Group(int groupId, String name) {
         setGroupId(groupId);
         setName(name);
     }
 
-    public Integer getGroupId() {
+    public int getGroupId() {
         return groupId;
     }
 
-    public void setGroupId(Integer groupId) {
+    public void setGroupId(int groupId) {
         if(groupId <= 0) {
             throw new IllegalArgumentException("GroupId deve essere > 0.");
         }
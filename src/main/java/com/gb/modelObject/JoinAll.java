@@ -33,6 +33,18 @@ public class JoinAll {
         }
     }
 
+    public JoinAll(int musicId, String musicTitle, String groupName, int numArtists,
+                   String albumTitle, int year, String genreName, int numLinks) {
+        setMusicId(musicId);
+        setMusicTitle(musicTitle);
+        setGroupName(groupName);
+        setNumArtists(numArtists);
+        setAlbumTitle(albumTitle);
+        setYear(year);
+        setGenreName(genreName);
+        setNumLinks(numLinks);
+    }
+
     public int getMusicId() {
         return musicId;
     }
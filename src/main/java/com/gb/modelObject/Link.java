@@ -10,7 +10,7 @@ import static com.gb.Constants.*;
 
 public class Link {
 
-    private Integer musicId;
+    private int musicId;
     private String link;
 
     private static final Logger logger = LoggerFactory.getLogger(Link.class);
@@ -27,16 +27,16 @@ public class Link {
         }
     }
 
-    public Link(Integer musicId, String link) {
+    public Link(int musicId, String link) {
         this.musicId = musicId;
         this.link = link;
     }
 
-    public Integer getMusicId() {
+    public int getMusicId() {
         return musicId;
     }
 
-    public void setMusicId(Integer musicId) {
+    public void setMusicId(int musicId) {
         if(musicId <= 0) {
             throw new IllegalArgumentException("Link.musicId deve essere > 0.");
         }
@@ -12,12 +12,13 @@ public class Music {
 
     private static final Logger logger = LoggerFactory.getLogger(Music.class);
 
-    private Integer musicId;
+    private int musicId;
     private String title;
-    private Integer authorId;
-    private Integer albumId;
-    private Integer year;
-    private Integer genreId;
+    private int authorId;
+    /* 0 indica che la canzone non appartiene ad alcun album (albumid NULL) */
+    private int albumId;
+    private int year;
+    private int genreId;
 
     public Music() { }
 
@@ -26,10 +27,9 @@ public class Music {
             setMusicId(rs.getInt(MUSICID));
             setTitle(rs.getString(TITLE));
             setAuthorId(rs.getInt(AUTHORID));
-            if(rs.getString(ALBUMID) != null) {
-                setAlbumId(rs.getInt(ALBUMID));
-            } else {
-                setAlbumId(null);
+            int album = rs.getInt(ALBUMID);
+            if(!rs.wasNull()) {
+                setAlbumId(album);
             }
             setYear(rs.getInt(YEAR));
             setGenreId(rs.getInt(GENREID));
@@ -38,7 +38,7 @@ public class Music {
         }
     }
 
-    public Music(Integer musicId, String title, Integer authorId, Integer albumId, Integer year, Integer genreId) {
+    public Music(int musicId, String title, int authorId, Integer albumId, int year, int genreId) {
         setMusicId(musicId);
         setTitle(title);
         setAuthorId(authorId);
@@ -47,11 +47,11 @@ public class Music {
         setGenreId(genreId);
     }
 
-    public Integer getMusicId() {
+    public int getMusicId() {
         return musicId;
     }
 
-    public void setMusicId(Integer musicId) {
+    public void setMusicId(int musicId) {
         if(musicId <= 0) {
             throw new IllegalArgumentException("MusicId deve essere > 0.");
         }
@@ -69,44 +69,65 @@ public class Music {
         this.title = title;
     }
 
-    public Integer getAuthorId() {
+    public int getAuthorId() {
         return authorId;
     }
 
-    public void setAuthorId(Integer authorId) {
+    public void setAuthorId(int authorId) {
         if(authorId <= 0) {
             throw new IllegalArgumentException("Music.authorId deve essere > 0.");
         }
         this.authorId = authorId;
     }
 
+    /**
+     * Restituisce l'id dell'album, oppure null se la canzone non appartiene
+     * ad alcun album. Per evitare il boxing, chi deve solo leggere il valore
+     * può usare hasAlbum() e getAlbumIdValue().
+     */
     public Integer getAlbumId() {
+        return hasAlbum() ? albumId : null;
+    }
+
+    public boolean hasAlbum() {
+        return albumId != 0;
+    }
+
+    public int getAlbumIdValue() {
         return albumId;
     }
 
-    public void setAlbumId(Integer albumId) {
-        if(albumId != null && albumId < 0) {
+    public void setAlbumId(int albumId) {
+        if(albumId <= 0) {
             throw new IllegalArgumentException("Music.albumId, se specificato, deve essere > 0.");
         }
         this.albumId = albumId;
     }
 
-    public Integer getYear() {
+    public void setAlbumId(Integer albumId) {
+        if(albumId == null) {
+            this.albumId = 0;
+        } else {
+            setAlbumId(albumId.intValue());
+        }
+    }
+
+    public int getYear() {
         return year;
     }
 
-    public void setYear(Integer year) {
+    public void setYear(int year) {
         if(year < 0 || year > 3000) {
             throw new IllegalArgumentException("Anno musica deve essere compreso fra 0 e 3000.");
         }
         this.year = year;
     }
 
-    public Integer getGenreId() {
+    public int getGenreId() {
         return genreId;
     }
 
-    public void setGenreId(Integer genreId) {
+    public void setGenreId(int genreId) {
         if(genreId <= 0) {
             throw new IllegalArgumentException("Music.genreId deve essere > 0.");
         }
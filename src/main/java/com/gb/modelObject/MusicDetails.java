@@ -0,0 +1,71 @@
+package com.gb.modelObject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Questa classe estende Music aggiungendo i nomi (o titoli) associati
+ * alle chiavi esterne della canzone: nome del gruppo autore, titolo
+ * dell'album e nome del genere. Viene usata dalla lista delle canzoni,
+ * in modo che l'utente non debba visitare altre pagine per capire a
+ * cosa corrispondano gli ID. I nomi vengono ottenuti con dei join nella
+ * stessa query che recupera le canzoni.
+ */
+public class MusicDetails extends Music {
+
+    private static final Logger logger = LoggerFactory.getLogger(MusicDetails.class);
+
+    private String authorName;
+    private String albumTitle;
+    private String genreName;
+
+    public MusicDetails() { }
+
+    public MusicDetails(ResultSet rs) {
+        super(rs);
+        try {
+            setAuthorName(rs.getString("authorname"));
+            setAlbumTitle(rs.getString("albumtitle"));
+            setGenreName(rs.getString("genrename"));
+        } catch(SQLException e) {
+            logger.error("Error creating MusicDetails object: {}", e.getMessage());
+        }
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public void setAuthorName(String authorName) {
+        if(authorName.length() > 100) {
+            throw new IllegalArgumentException("Lunghezza nome autore (gruppo) deve essere < 100.");
+        }
+        this.authorName = authorName;
+    }
+
+    public String getAlbumTitle() {
+        return albumTitle;
+    }
+
+    public void setAlbumTitle(String albumTitle) {
+        if(albumTitle != null && albumTitle.length() > 100) {
+            throw new IllegalArgumentException("Lunghezza titolo album deve essere < 100.");
+        }
+        this.albumTitle = albumTitle;
+    }
+
+    public String getGenreName() {
+        return genreName;
+    }
+
+    public void setGenreName(String genreName) {
+        if(genreName.length() > 100) {
+            throw new IllegalArgumentException("Lunghezza nome genere deve essere < 100.");
+        }
+        this.genreName = genreName;
+    }
+
+}
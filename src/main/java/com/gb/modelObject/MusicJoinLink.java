@@ -19,7 +19,10 @@ public class MusicJoinLink {
             music.setMusicId(rs.getInt(MUSICID));
             music.setTitle(rs.getString(TITLE));
             music.setAuthorId(rs.getInt(AUTHORID));
-            music.setAlbumId(rs.getInt(ALBUMID));
+            int album = rs.getInt(ALBUMID);
+            if(!rs.wasNull()) {
+                music.setAlbumId(album);
+            }
             music.setYear(rs.getInt(YEAR));
             music.setGenreId(rs.getInt(GENREID));
             link = new Link();
@@ -30,6 +33,11 @@ public class MusicJoinLink {
         }
     }
 
+    public MusicJoinLink(Music music, Link link) {
+        this.music = music;
+        this.link = link;
+    }
+
     public Music getMusic() {
         return music;
     }
@@ -0,0 +1,36 @@
+package com.gb.modelObject;
+
+import java.util.List;
+
+/**
+ * Questa classe rappresenta una pagina di canzoni (con i nomi associati
+ * alle chiavi esterne, vedi MusicDetails) filtrate per album, genere,
+ * gruppo o artista, insieme al nome (o titolo) dell'entità
+ * usata come filtro, che viene mostrato come intestazione della pagina.
+ * Permette di ottenere entrambe le informazioni con un'unica query. <br>
+ * Se l'entità usata come filtro non esiste, headerName vale null; se
+ * esiste ma la pagina richiesta non contiene canzoni, la lista è vuota.
+ */
+public class MusicPage {
+
+    private final String headerName;
+    private final List<MusicDetails> musicList;
+
+    public MusicPage(String headerName, List<MusicDetails> musicList) {
+        this.headerName = headerName;
+        this.musicList = musicList;
+    }
+
+    public String getHeaderName() {
+        return headerName;
+    }
+
+    public List<MusicDetails> getMusicList() {
+        return musicList;
+    }
+
+    public boolean isHeaderFound() {
+        return headerName != null;
+    }
+
+}
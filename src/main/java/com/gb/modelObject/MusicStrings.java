@@ -19,12 +19,12 @@ public class MusicStrings {
 
     private static final Logger logger = LoggerFactory.getLogger(MusicStrings.class);
 
-    private Integer musicId;
+    private int musicId;
     private String title;
     private String author;
     private String artist;
     private String album;
-    private Integer year;
+    private int year;
     private String genre;
 
     public MusicStrings() {}
@@ -43,11 +43,11 @@ public class MusicStrings {
         }
     }
 
-    public Integer getMusicId() {
+    public int getMusicId() {
         return musicId;
     }
 
-    public void setMusicId(Integer musicId) {
+    public void setMusicId(int musicId) {
         if(musicId <= 0) {
             throw new IllegalArgumentException("MusicId deve essere > 0.");
         }
@@ -98,11 +98,11 @@ public class MusicStrings {
         this.artist = artist;
     }
 
-    public Integer getYear() {
+    public int getYear() {
         return year;
     }
 
-    public void setYear(Integer year) {
+    public void setYear(int year) {
         if(year < 0 || year > 3000) {
             throw new IllegalArgumentException("Anno musica deve essere compreso fra 0 e 3000.");
         }
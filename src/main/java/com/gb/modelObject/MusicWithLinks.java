@@ -0,0 +1,28 @@
+package com.gb.modelObject;
+
+import java.util.List;
+
+/**
+ * Questa classe contiene una canzone e tutti i link ad essa associati,
+ * in modo da poter popolare la pagina dei link con un'unica query.
+ * Se la canzone non esiste, music vale null e la lista dei link è vuota.
+ */
+public class MusicWithLinks {
+
+    private final Music music;
+    private final List<Link> linkList;
+
+    public MusicWithLinks(Music music, List<Link> linkList) {
+        this.music = music;
+        this.linkList = linkList;
+    }
+
+    public Music getMusic() {
+        return music;
+    }
+
+    public List<Link> getLinkList() {
+        return linkList;
+    }
+
+}
@@ -1,22 +1,37 @@
 package com.gb.restApp;
 
+import com.gb.codec.BinaryCodec;
+import com.gb.db.Database;
+import com.gb.db.TableColumns;
+import com.gb.modelObject.DeleteSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spark.ModelAndView;
 import spark.Request;
 import spark.Response;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import static com.gb.Constants.*;
 import static com.gb.restApp.MessageHandler.*;
 import static com.gb.restApp.MyTemplateEngine.*;
 import static com.gb.utils.UtilFunctions.isGeThanZero;
+import static com.gb.utils.UtilFunctions.isPositiveInteger;
+import static com.gb.utils.UtilFunctions.jsonValue;
 import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
+import static org.apache.http.HttpStatus.SC_NOT_ACCEPTABLE;
 import static org.apache.http.HttpStatus.SC_OK;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 /**
  * Questa classe è stata creata principalmente per fare
@@ -62,18 +77,40 @@ public class DbReturnHelper {
         return returnMessage(res, successStatusCode, "text-success", successMessage);
     }
 
+    /**
+     * Come dbQueryResult, per le eliminazioni a cascata (parametro
+     * "cascade=true"): il messaggio di successo riporta quante righe
+     * collegate sono state eliminate.
+     * @param successMessage Costruisce il messaggio dal riepilogo
+     */
+    public static String dbCascadeResult(Supplier<DeleteSummary> databaseCall,
+                                         String failureMessage, Function<DeleteSummary, String> successMessage,
+                                         Response res) {
+        DeleteSummary summary = databaseCall.get();
+        if (summary == null) {
+            return handleInternalError(res);
+        }
+        if (!summary.isFound()) {
+            return returnMessage(res, SC_BAD_REQUEST, "text-warning", failureMessage);
+        }
+        return returnMessage(res, SC_OK, "text-success", successMessage.apply(summary));
+    }
+
     /**
      * Questo metodo incapsula le query al database che restituiscono
      * una lista, quindi le operazioni di SELECT. Permette di specificare
      * quali messaggi mostrare all'utente in caso di fallimento o successo.
-     * @param function La funzione della classe Database da chiamare
+     * @param function La funzione della classe Database da chiamare,
+     *                 con il numero di pagina e le righe per pagina
+     * @param rowCount Il numero totale di righe della lista, per il
+     *                 numero di pagine (vedi putPageCount)
      * @param listName Il nome della lista da inserire nella View
      * @param viewName La View da mostrare all'utente
      * @param req L'oggetto Request
      * @param res L'oggetto Response
      * @return La stringa da mostrare all'utente
      */
-    public static String dbGetQueryResult(Function<Integer,List<?>> function,
+    public static String dbGetQueryResult(BiFunction<Integer,Integer,List<?>> function, LongSupplier rowCount,
                                           String listName, String viewName,
                                           Request req, Response res) {
         int pageNum = 0;
@@ -85,25 +122,188 @@ public class DbReturnHelper {
                 pageNum = Integer.parseInt(pageString);
             }
         }
+        int pageSize = parsePageSize(req);
+        if(pageSize < 0) {
+            return handleParseError(res);
+        }
 
-        List<?> list = function.apply(pageNum);
+        List<?> list = function.apply(pageNum, pageSize);
         if (list == null) {
             return handleInternalError(res);
         }
         if (list.isEmpty()) {
             return handleNotFound(res);
         }
+        Map<String, Object> model = new HashMap<>();
+        putPageCount(model, rowCount.getAsLong(), pageSize, list.size(), req, res);
+        if (acceptsBinary(req)) {
+            return returnBinary(list, res);
+        }
 
         res.status(SC_OK);
 
         info(list.toString());
 
-        Map<String, Object> model = new HashMap<>();
         model.put(listName, list);
         model.put("page", pageNum);
         return getEngineInstance().render(new ModelAndView(model, viewName));
     }
 
+    /**
+     * Legge il parametro "limit", le righe per pagina scelte dal client.
+     * @return PAGE_SIZE se il parametro è assente, al più MAX_PAGE_SIZE,
+     *         oppure -1 se il parametro non è un intero positivo
+     */
+    public static int parsePageSize(Request req) {
+        String limit = req.queryParams("limit");
+        if(limit == null) {
+            return PAGE_SIZE;
+        }
+        if(!isPositiveInteger(limit)) {
+            return -1;
+        }
+        return Math.min(Integer.parseInt(limit), MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Legge il parametro "ids", una lista di id separati da virgole
+     * (es. ids=1,2,3).
+     * @return Gli id, oppure null se un id non è nel formato corretto o
+     *         se sono più di MAX_PAGE_SIZE
+     */
+    public static List<Integer> parseIds(Request req) {
+        String[] values = req.queryParams("ids").split(",");
+        if(values.length > MAX_PAGE_SIZE) {
+            return null;
+        }
+        List<Integer> ids = new ArrayList<>(values.length);
+        for(String value : values) {
+            if(!isPositiveInteger(value.trim())) {
+                return null;
+            }
+            ids.add(Integer.parseInt(value.trim()));
+        }
+        return ids;
+    }
+
+    /**
+     * Come dbGetByIdQueryResult, ma per più id con una sola chiamata
+     * al database (parametro "ids", vedi parseIds). La View viene
+     * mostrata senza paginazione.
+     */
+    public static String dbGetByIdsQueryResult(Function<List<Integer>,List<?>> function,
+                                               String listName, String viewName,
+                                               Request req, Response res) {
+        List<Integer> ids = parseIds(req);
+        if(ids == null) {
+            return returnMessage(res, SC_BAD_REQUEST, "text-danger",
+                    "Specificare al più " + MAX_PAGE_SIZE + " id nel formato corretto, separati da virgole.");
+        }
+
+        List<?> list = function.apply(ids);
+        if (list == null) {
+            return handleInternalError(res);
+        }
+        if (list.isEmpty()) {
+            return handleNotFound(res);
+        }
+        if (acceptsBinary(req)) {
+            return returnBinary(list, res);
+        }
+
+        res.status(SC_OK);
+
+        info(list.toString());
+
+        Map<String, Object> model = new HashMap<>();
+        model.put(listName, list);
+        model.put("page", -1);
+        return getEngineInstance().render(new ModelAndView(model, viewName));
+    }
+
+    /**
+     * Lista paginata con le sole colonne scelte dal client (parametro
+     * "fields", ad esempio fields=musicid,title), lette dal database
+     * senza le altre. Risponde sempre con un array JSON di oggetti
+     * colonna -> valore; page e limit sono gli stessi di dbGetQueryResult.
+     * @param table La tabella da leggere, vedi TableColumns
+     * @param rowCount Il numero totale di righe, per gli header di putPageCount
+     */
+    public static String dbGetFieldsResult(Database db, String table, LongSupplier rowCount,
+                                           Request req, Response res) {
+        List<String> fields = new ArrayList<>();
+        for(String field : req.queryParams("fields").split(",")) {
+            fields.add(field.trim().toLowerCase());
+        }
+        if(!TableColumns.areValid(table, fields)) {
+            return returnMessage(res, SC_BAD_REQUEST, "text-danger",
+                    "Colonne non valide, scegliere tra: " + String.join(", ", TableColumns.of(table)) + ".");
+        }
+        int pageNum = 0;
+        String pageString = req.queryParams("page");
+        if(pageString != null) {
+            if(!isGeThanZero(pageString)) {
+                return handleParseError(res);
+            }
+            pageNum = Integer.parseInt(pageString);
+        }
+        int pageSize = parsePageSize(req);
+        if(pageSize < 0) {
+            return handleParseError(res);
+        }
+
+        List<Map<String, Object>> rows = db.getFields(table, fields, pageNum, pageSize);
+        if (rows == null) {
+            return handleInternalError(res);
+        }
+        if (rows.isEmpty()) {
+            return handleNotFound(res);
+        }
+        putPageCount(new HashMap<>(), rowCount.getAsLong(), pageSize, rows.size(), req, res);
+
+        res.status(SC_OK);
+        res.type(APPLICATION_JSON);
+
+        info(rows.size() + " righe con le colonne " + fields);
+
+        return rows.stream()
+                .map(row -> row.entrySet().stream()
+                        .map(column -> "\"" + column.getKey() + "\":" + jsonValue(column.getValue()))
+                        .collect(Collectors.joining(",", "{", "}")))
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    /**
+     * Aggiunge il numero di righe e di pagine di una lista paginata al
+     * modello ("rows" e "pages", per pagination.html) e agli header
+     * TOTAL_COUNT_HEADER e PAGE_COUNT_HEADER della Response, in modo che
+     * anche i client JSON e binari possano saltare direttamente ad una
+     * pagina. Con un conteggio non riuscito ("-1") non aggiunge il
+     * totale: la pagina viene mostrata comunque. Se il client ha scelto
+     * le righe per pagina, "limit" viene aggiunto al modello per i link
+     * delle altre pagine. <br>
+     * Per le tabelle grandi il conteggio è una stima (vedi
+     * CountDAO.countRows), per cui "fullPage" indica se la pagina
+     * corrente è piena: in quel caso il template lascia attivo il link
+     * alla pagina successiva anche oltre il numero di pagine stimato.
+     * @param pageRows Le righe della pagina corrente
+     */
+    public static void putPageCount(Map<String, Object> model, long rows, int pageSize, int pageRows,
+                                    Request req, Response res) {
+        if (req.queryParams("limit") != null) {
+            model.put("limit", pageSize);
+        }
+        model.put("fullPage", pageRows >= pageSize);
+        if (rows < 0) {
+            return;
+        }
+        long pages = Math.max(1, (rows + pageSize - 1) / pageSize);
+        model.put("rows", rows);
+        model.put("pages", pages);
+        res.header(TOTAL_COUNT_HEADER, String.valueOf(rows));
+        res.header(PAGE_COUNT_HEADER, String.valueOf(pages));
+    }
+
     /**
      * Questo metodo incapsula le query al database che restituiscono
      * una lista contenente un solo elemento, quindi le operazioni di
@@ -137,6 +337,9 @@ public class DbReturnHelper {
         if (list.isEmpty()) {
             return handleNotFound(res);
         }
+        if (acceptsBinary(req)) {
+            return returnBinary(list, res);
+        }
 
         res.status(SC_OK);
 
@@ -147,4 +350,51 @@ public class DbReturnHelper {
         return getEngineInstance().render(new ModelAndView(model, viewName));
     }
 
+    /**
+     * Restituisce true se il client ha chiesto, tramite l'header Accept,
+     * una risposta JSON al posto della View.
+     */
+    public static boolean acceptsJson(Request req) {
+        String accept = req.headers("Accept");
+        return accept != null && accept.contains(APPLICATION_JSON);
+    }
+
+    /**
+     * Restituisce true se il client ha chiesto, tramite l'header Accept,
+     * la codifica binaria delle liste (BinaryCodec.MEDIA_TYPE).
+     */
+    public static boolean acceptsBinary(Request req) {
+        String accept = req.headers("Accept");
+        return accept != null && accept.contains(BinaryCodec.MEDIA_TYPE);
+    }
+
+    /**
+     * Scrive la lista nella codifica binaria di BinaryCodec, al posto
+     * della View. Se le righe non possono essere codificate (ad esempio
+     * quelle di musicJoinLink) risponde con 406 Not Acceptable.
+     * @param list La lista restituita dal database
+     * @param res L'oggetto Response
+     * @return La stringa vuota: il corpo è già stato scritto
+     */
+    public static String returnBinary(List<?> list, Response res) {
+        if (!BinaryCodec.supports(list)) {
+            return returnMessage(res, SC_NOT_ACCEPTABLE, "text-warning",
+                    "Codifica binaria non disponibile per questa risorsa.");
+        }
+
+        byte[] message = BinaryCodec.encode(list);
+        res.status(SC_OK);
+        res.raw().setContentType(BinaryCodec.MEDIA_TYPE);
+        res.raw().setContentLength(message.length);
+        try {
+            OutputStream out = res.raw().getOutputStream();
+            out.write(message);
+            out.flush();
+        } catch (IOException e) {
+            logger.warn("Errore durante l'invio della risposta binaria: {}", e.getMessage());
+        }
+        info(list.size() + " righe in codifica binaria (" + message.length + " byte)");
+        return "";
+    }
+
 }
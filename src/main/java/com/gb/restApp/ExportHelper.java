@@ -0,0 +1,63 @@
+package com.gb.restApp;
+
+import com.gb.db.Database;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.gb.Constants.*;
+
+/**
+ * Questa classe associa ad ogni tabella esportabile la chiamata
+ * ad ExportDAO e le colonne da scrivere, in modo che il Main
+ * debba occuparsi solamente della Request e della Response.
+ */
+public class ExportHelper {
+
+    public static final String JOIN_ALL = "joinall";
+
+    public static final List<String> EXPORTABLE_TABLES = Collections.unmodifiableList(Arrays.asList(
+            MUSIC_TABLE, ALBUM_TABLE, ARTIST_TABLE, GROUP_TABLE, GENRE_TABLE, LINK_TABLE, JOIN_ALL));
+
+    /**
+     * Esporta la tabella sul writer, partendo dalla chiave fromId compresa.
+     * @param table Una delle tabelle di EXPORTABLE_TABLES
+     * @return Il risultato del metodo di ExportDAO ("0" = OK, "-2" = Errore),
+     *         oppure "-1" se la tabella non è esportabile
+     */
+    public static int exportTable(Database db, String table, int fromId, ExportWriter writer) {
+        switch (table) {
+            case MUSIC_TABLE:
+                writer.writeHeader(MUSICID, TITLE, AUTHORID, ALBUMID, YEAR, GENREID);
+                return db.exportMusic(fromId, music -> writer.writeRow(music.getMusicId(), music.getTitle(),
+                        music.getAuthorId(), music.getAlbumId(), music.getYear(), music.getGenreId()));
+            case ALBUM_TABLE:
+                writer.writeHeader(ALBUMID, TITLE, YEAR, GROUPID);
+                return db.exportAlbums(fromId, album -> writer.writeRow(album.getAlbumId(), album.getTitle(),
+                        album.getYear(), album.getGroupId()));
+            case ARTIST_TABLE:
+                writer.writeHeader(ARTISTID, NAME, GROUPID);
+                return db.exportArtists(fromId, artist -> writer.writeRow(artist.getArtistId(), artist.getName(),
+                        artist.getGroupId()));
+            case GROUP_TABLE:
+                writer.writeHeader(GROUPID, NAME);
+                return db.exportGroups(fromId, group -> writer.writeRow(group.getGroupId(), group.getName()));
+            case GENRE_TABLE:
+                writer.writeHeader(GENREID, NAME);
+                return db.exportGenres(fromId, genre -> writer.writeRow(genre.getGenreId(), genre.getName()));
+            case LINK_TABLE:
+                writer.writeHeader(MUSICID, LINK);
+                return db.exportLinks(fromId, link -> writer.writeRow(link.getMusicId(), link.getLink()));
+            case JOIN_ALL:
+                writer.writeHeader(MUSICID, "musictitle", "groupname", "numartisti",
+                        "albumtitle", YEAR, "genrename", "numlink");
+                return db.exportJoinAll(fromId, row -> writer.writeRow(row.getMusicId(), row.getMusicTitle(),
+                        row.getGroupName(), row.getNumArtists(), row.getAlbumTitle(), row.getYear(),
+                        row.getGenreName(), row.getNumLinks()));
+            default:
+                return -1;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.gb.restApp;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static com.gb.utils.UtilFunctions.csvField;
+import static com.gb.utils.UtilFunctions.jsonValue;
+
+/**
+ * Scrive le righe di un'esportazione direttamente sullo stream della
+ * Response, senza accumularle in memoria, in uno dei seguenti formati: <br>
+ * - CSV: una riga di intestazione con i nomi delle colonne, poi una riga
+ *   per ogni record (RFC 4180). <br>
+ * - JSON Lines: un oggetto JSON per riga, con i nomi delle colonne come chiavi. <br>
+ * Se richiesto l'output viene compresso con gzip. Gli errori di scrittura
+ * (ad esempio il client che chiude la connessione) vengono lanciati come
+ * UncheckedIOException, in modo che writeRow possa essere usato come
+ * consumer dei metodi di ExportDAO.
+ */
+public class ExportWriter {
+
+    public static final String CSV = "csv";
+    public static final String JSON_LINES = "jsonl";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream stream;
+    private final Writer writer;
+    private final boolean jsonLines;
+    private String[] columns = new String[0];
+
+    /**
+     * @param out Lo stream su cui scrivere, che non viene chiuso
+     * @param format CSV oppure JSON_LINES
+     * @param gzip Se true l'output viene compresso
+     */
+    public ExportWriter(OutputStream out, String format, boolean gzip) throws IOException {
+        this.stream = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        this.writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.jsonLines = JSON_LINES.equals(format);
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return CSV.equals(format) || JSON_LINES.equals(format);
+    }
+
+    public static String contentType(String format) {
+        return JSON_LINES.equals(format) ? "application/x-ndjson" : "text/csv";
+    }
+
+    /**
+     * Imposta i nomi delle colonne. In formato CSV scrive la riga di intestazione.
+     */
+    public void writeHeader(String... columns) {
+        this.columns = columns;
+        if(!jsonLines) {
+            writeLine(columns);
+        }
+    }
+
+    /**
+     * Scrive un record: i valori devono essere nello stesso ordine
+     * delle colonne passate a writeHeader.
+     */
+    public void writeRow(Object... values) {
+        if(jsonLines) {
+            StringBuilder sb = new StringBuilder("{");
+            for(int i = 0; i < columns.length; i++) {
+                if(i > 0) {
+                    sb.append(',');
+                }
+                sb.append(jsonValue(columns[i])).append(':').append(jsonValue(values[i]));
+            }
+            write(sb.append("}\n").toString());
+        } else {
+            writeLine(values);
+        }
+    }
+
+    /**
+     * Svuota i buffer e, se l'output è compresso, scrive la coda del
+     * formato gzip. Lo stream passato al costruttore resta aperto.
+     */
+    public void finish() throws IOException {
+        writer.flush();
+        if(stream instanceof GZIPOutputStream) {
+            ((GZIPOutputStream) stream).finish();
+        }
+        stream.flush();
+    }
+
+    private void writeLine(Object[] values) {
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < values.length; i++) {
+            if(i > 0) {
+                sb.append(',');
+            }
+            sb.append(csvField(values[i]));
+        }
+        write(sb.append("\r\n").toString());
+    }
+
+    private void write(String text) {
+        try {
+            writer.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
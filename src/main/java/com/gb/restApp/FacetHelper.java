@@ -0,0 +1,113 @@
+package com.gb.restApp;
+
+import com.gb.search.FacetIndex;
+import com.gb.search.FacetService.FacetValue;
+import spark.Request;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.*;
+
+import static com.gb.Constants.*;
+import static com.gb.utils.UtilFunctions.isGeThanZero;
+
+/**
+ * Questa classe traduce le faccette di /search tra i parametri della
+ * Request (genreid, decade, groupid, albumid, gli stessi di /music) e
+ * il modello della pagina search, in modo che il Main debba occuparsi
+ * solamente della ricerca.
+ */
+public class FacetHelper {
+
+    public static final String DECADE = "decade";
+
+    private static final Map<String, String> PARAMS = new LinkedHashMap<>();
+    private static final Map<String, String> TITLES = new HashMap<>();
+
+    static {
+        PARAMS.put(FacetIndex.GENRE, GENREID);
+        PARAMS.put(FacetIndex.DECADE, DECADE);
+        PARAMS.put(FacetIndex.GROUP, GROUPID);
+        PARAMS.put(FacetIndex.ALBUM, ALBUMID);
+        TITLES.put(FacetIndex.GENRE, "Genere");
+        TITLES.put(FacetIndex.DECADE, "Decennio");
+        TITLES.put(FacetIndex.GROUP, "Gruppo");
+        TITLES.put(FacetIndex.ALBUM, "Album");
+    }
+
+    /**
+     * Legge i valori scelti per le faccette.
+     * @return Faccetta -> valore scelto, oppure null se un valore
+     *         non è nel formato corretto
+     */
+    public static Map<String, Integer> parseSelections(Request req) {
+        Map<String, Integer> selections = new LinkedHashMap<>();
+        for(Map.Entry<String, String> param : PARAMS.entrySet()) {
+            String value = req.queryParams(param.getValue());
+            if(value != null && !value.isEmpty()) {
+                if(!isGeThanZero(value)) {
+                    return null;
+                }
+                selections.put(param.getKey(), Integer.parseInt(value));
+            }
+        }
+        return selections;
+    }
+
+    /**
+     * Modello delle faccette per il template: per ogni faccetta (con il
+     * titolo da mostrare) i valori con etichetta, conteggio e link. Il
+     * link di un valore aggiunge il valore alla ricerca, quello di un
+     * valore già scelto lo toglie.
+     */
+    public static Map<String, List<Map<String, Object>>> toModel(String searchTerm, Map<String, Integer> selections,
+                                                                 Map<String, List<FacetValue>> facets) {
+        Map<String, List<Map<String, Object>>> model = new LinkedHashMap<>();
+        facets.forEach((facet, values) -> {
+            List<Map<String, Object>> items = new ArrayList<>();
+            for(FacetValue value : values) {
+                boolean selected = Integer.valueOf(value.getValue()).equals(selections.get(facet));
+                Map<String, Integer> linkSelections = new LinkedHashMap<>(selections);
+                if(selected) {
+                    linkSelections.remove(facet);
+                } else {
+                    linkSelections.put(facet, value.getValue());
+                }
+                Map<String, Object> item = new HashMap<>();
+                item.put("label", value.getLabel());
+                item.put("count", value.getCount());
+                item.put("selected", selected);
+                item.put("link", link(searchTerm, linkSelections));
+                items.add(item);
+            }
+            if(!items.isEmpty()) {
+                model.put(TITLES.get(facet), items);
+            }
+        });
+        return model;
+    }
+
+    /**
+     * I valori scelti come parametri, per i link di paginazione.
+     */
+    public static Map<String, Integer> toParams(Map<String, Integer> selections) {
+        Map<String, Integer> params = new LinkedHashMap<>();
+        selections.forEach((facet, value) -> params.put(PARAMS.get(facet), value));
+        return params;
+    }
+
+    private static String link(String searchTerm, Map<String, Integer> selections) {
+        StringBuilder link = new StringBuilder("/search?string=").append(encode(searchTerm));
+        toParams(selections).forEach((param, value) -> link.append('&').append(param).append('=').append(value));
+        return link.toString();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -2,8 +2,21 @@ package com.gb.restApp;
 
 import static spark.Spark.*;
 
+import com.gb.dao.MusicQuery;
+import com.gb.db.AsyncDatabase;
 import com.gb.db.Database;
+import com.gb.db.RowCountCache;
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.db.cdc.ChangeSubscription;
+import com.gb.db.postgreSQLImpl.ChangeListener;
+import com.gb.db.routingImpl.RoutingDatabase;
 import com.gb.modelObject.*;
+import com.gb.search.AutocompleteService;
+import com.gb.search.Bitmap;
+import com.gb.search.FacetService;
+import com.gb.search.FuzzySearchService;
+import com.gb.search.Suggestion;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Closeables;
 import org.slf4j.Logger;
@@ -15,6 +28,12 @@ import spark.TemplateEngine;
 import java.io.*;
 import java.net.URLDecoder;
 import java.util.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
 
 import static org.apache.http.HttpStatus.*;
 import static javax.ws.rs.core.MediaType.*;
@@ -46,6 +65,9 @@ public class Main {
 
     private static final TemplateEngine engine = MyTemplateEngine.getEngineInstance();
 
+    private static final AtomicInteger eventStreams = new AtomicInteger();
+    private static final AtomicInteger exportStreams = new AtomicInteger();
+
     public static void main(String[] args) {
 
         port(8080);
@@ -54,6 +76,10 @@ public class Main {
 
         before(Main::applyFilters);
 
+        afterAfter((req, res) -> RoutingDatabase.setCurrentClient(null));
+
+        ChangeListener.start();
+
         get("/", Main::getHomepage);
 
         path("/music", () -> {
@@ -83,6 +109,14 @@ public class Main {
 
         get("/viewlinks", Main::viewLinks);
 
+        get("/export/:table", Main::exportTable);
+
+        get("/events", Main::events);
+
+        get("/autocomplete", Main::autocomplete);
+
+        get("/find", Main::find);
+
         get("/favicon.ico", Main::favicon);
 
         get("/:form", Main::dispatchForms);
@@ -135,6 +169,12 @@ public class Main {
             text.append(req.body());
         }
         logger.info(text.toString());
+
+        /*
+          Il client viene usato dal RoutingDatabase per leggere
+          dal primario le proprie scritture (read-your-writes).
+         */
+        RoutingDatabase.setCurrentClient(req.ip());
     }
 
     private static String getHomepage(Request req, Response res) {
@@ -287,6 +327,24 @@ public class Main {
             return handleInternalError(res);
         }
 
+        /* Le mappe usate per le select dei form vengono richieste subito
+           in modo asincrono, così vengono lette in parallelo fra loro e
+           con l'eventuale oggetto da modificare. */
+        AsyncDatabase async = AsyncDatabase.getInstance();
+        CompletableFuture<Map<Integer,String>> groupMap = null;
+        CompletableFuture<Map<Integer,String>> albumMap = null;
+        CompletableFuture<Map<Integer,String>> genreMap = null;
+        boolean needsMusicMaps = viewName.equals("upmusic") || viewName.equals("insmusic");
+        boolean needsGroupMap = needsMusicMaps || viewName.equals("upartist") || viewName.equals("insartist")
+                || viewName.equals("insalbum") || viewName.equals("upalbum");
+        if (needsMusicMaps) {
+            albumMap = async.supply(Database::getAlbumMap);
+            genreMap = async.supply(Database::getGenreMap);
+        }
+        if (needsGroupMap) {
+            groupMap = async.supply(Database::getGroupMap);
+        }
+
         /* Se un case non ha "break", vengono eseguite tutte le istruzioni fino a che
            non si trova un "break" (o finisce il blocco switch). Questo viene comodo
            nell'effettuare degli "or" fra i vari casi. Viene detto "fall through". */
@@ -295,28 +353,28 @@ public class Main {
                 putObjectInModel("musicToEdit", (id) -> db.getMusicById(id).get(0), req, model);
                 // fall through
             case "insmusic":
-                putMapInModel("authorMap", db::getGroupMap, model);
-                putMapInModel("albumMap", db::getAlbumMap, model);
-                putMapInModel("genreMap", db::getGenreMap, model);
+                putMapInModel("authorMap", groupMap::join, model);
+                putMapInModel("albumMap", albumMap::join, model);
+                putMapInModel("genreMap", genreMap::join, model);
                 break;
             case "delmusic":
                 putIdInModel("musicToDel", req, model);
                 break;
             case "upartist":
                 putObjectInModel("artistToEdit", (id) -> db.getArtistById(id).get(0), req, model);
-                putMapInModel("groupMap", db::getGroupMap, model);
+                putMapInModel("groupMap", groupMap::join, model);
                 break;
             case "insartist":
                 // fall through
             case "insalbum":
-                putMapInModel("groupMap", db::getGroupMap, model);
+                putMapInModel("groupMap", groupMap::join, model);
                 break;
             case "delartist":
                 putIdInModel("artistToDel", req, model);
                 break;
             case "upalbum":
                 putObjectInModel("albumToEdit", (id) -> db.getAlbumById(id).get(0), req, model);
-                putMapInModel("groupMap", db::getGroupMap, model);
+                putMapInModel("groupMap", groupMap::join, model);
                 break;
             case "delalbum":
                 putIdInModel("albumToDel", req, model);
@@ -349,9 +407,29 @@ public class Main {
             return handleInternalError(res);
         }
 
+        //Lettura di più canzoni tramite id
+        if(req.queryParams("ids") != null) {
+            return dbGetByIdsQueryResult(db::getMusicDetailsByIds, "musicList", "musicList", req, res);
+        }
+
+        //Lista con le sole colonne richieste, senza i filtri
+        if(req.queryParams("fields") != null) {
+            if(req.queryParams("albumid") != null || req.queryParams("genreid") != null
+                    || req.queryParams("groupid") != null || req.queryParams("artistid") != null) {
+                return returnMessage(res, SC_BAD_REQUEST, "text-danger",
+                        "Il parametro fields non si può usare insieme ai filtri.");
+            }
+            return dbGetFieldsResult(db, MUSIC_TABLE, () -> RowCountCache.getInstance().countRows(db, MUSIC_TABLE), req, res);
+        }
+
+        //Filtri combinati, ordinamento e paginazione per cursore
+        if(MusicQueryHelper.isQuery(req)) {
+            return findMusic(db, req, res);
+        }
+
         Map<String, Object> model = new HashMap<>();
 
-        List<Music> musicList;
+        List<MusicDetails> musicList;
         int pageNum = 0;
         if (req.queryParams("page") != null) {
             if (!isGeThanZero(req.queryParams("page"))) {
@@ -360,6 +438,16 @@ public class Main {
                 pageNum = Integer.parseInt(req.queryParams("page"));
             }
         }
+        int pageSize = parsePageSize(req);
+        if (pageSize < 0) {
+            return handleParseError(res);
+        }
+
+        /* Le ricerche filtrate ottengono con un'unica query sia la pagina
+           di canzoni che il nome dell'entità da mostrare come intestazione */
+        MusicPage musicPage = null;
+        String headerKey = null;
+        LongSupplier rowCount = () -> RowCountCache.getInstance().countRows(db, MUSIC_TABLE);
 
         //Ricerca tramite album
         if(req.queryParams("albumid") != null) {
@@ -367,10 +455,10 @@ public class Main {
                 return handleParseError(res);
             } else {
                 int albumId = Integer.parseInt(req.queryParams("albumid"));
-                musicList = db.getMusicByAlbum(albumId, pageNum);
-                String albumName = db.getAlbumById(albumId).get(0).getTitle();
+                musicPage = db.getMusicPageByAlbum(albumId, pageNum, pageSize);
+                rowCount = () -> RowCountCache.getInstance().countMusicBy(db, ALBUMID, albumId);
                 model.put("albumId", albumId);
-                model.put("albumName", albumName);
+                headerKey = "albumName";
             }
         } else
         //Ricerca tramite genere
@@ -379,10 +467,10 @@ public class Main {
                 return handleParseError(res);
             } else {
                 int genreId = Integer.parseInt(req.queryParams("genreid"));
-                musicList = db.getMusicByGenre(genreId, pageNum);
-                String genreName = db.getGenreById(genreId).get(0).getName();
+                musicPage = db.getMusicPageByGenre(genreId, pageNum, pageSize);
+                rowCount = () -> RowCountCache.getInstance().countMusicBy(db, GENREID, genreId);
                 model.put("genreId", genreId);
-                model.put("genreName", genreName);
+                headerKey = "genreName";
             }
         } else
         //Ricerca tramite gruppo
@@ -391,10 +479,10 @@ public class Main {
                 return handleParseError(res);
             } else {
                 int groupId = Integer.parseInt(req.queryParams("groupid"));
-                musicList = db.getMusicByGroup(groupId, pageNum);
-                String groupName = db.getGroupById(groupId).get(0).getName();
+                musicPage = db.getMusicPageByGroup(groupId, pageNum, pageSize);
+                rowCount = () -> RowCountCache.getInstance().countMusicBy(db, GROUPID, groupId);
                 model.put("groupId", groupId);
-                model.put("groupName", groupName);
+                headerKey = "groupName";
             }
         } else
         //Ricerca tramite artista
@@ -403,15 +491,26 @@ public class Main {
                 return handleParseError(res);
             } else {
                 int artistId = Integer.parseInt(req.queryParams("artistid"));
-                musicList = db.getMusicByArtist(artistId, pageNum);
-                String artistName = db.getArtistById(artistId).get(0).getName();
+                musicPage = db.getMusicPageByArtist(artistId, pageNum, pageSize);
+                rowCount = () -> RowCountCache.getInstance().countMusicBy(db, ARTISTID, artistId);
                 model.put("artistId", artistId);
-                model.put("artistName", artistName);
+                headerKey = "artistName";
+            }
+        }
+
+        if (headerKey != null) {
+            if (musicPage == null) {
+                return handleInternalError(res);
+            }
+            if (!musicPage.isHeaderFound()) {
+                return handleNotFound(res);
             }
+            model.put(headerKey, musicPage.getHeaderName());
+            musicList = musicPage.getMusicList();
         }
         //Default
         else {
-            musicList = db.getAllMusic(pageNum);
+            musicList = db.getAllMusicDetails(pageNum, pageSize);
         }
 
         if (musicList == null) {
@@ -420,6 +519,10 @@ public class Main {
         if (musicList.isEmpty()) {
             return handleNotFound(res);
         }
+        putPageCount(model, rowCount.getAsLong(), pageSize, musicList.size(), req, res);
+        if (acceptsBinary(req)) {
+            return returnBinary(musicList, res);
+        }
 
         res.status(SC_OK);
 
@@ -430,13 +533,63 @@ public class Main {
         return engine.render(new ModelAndView(model, "musicList"));
     }
 
+    /**
+     * Lista delle canzoni con una MusicQuery: qualsiasi combinazione dei
+     * filtri di /music, gli anni (yearFrom e yearTo, inclusi), l'inizio
+     * del titolo (prefix), l'ordinamento (sort=id|title|year, order=asc|desc) e il cursore della pagina
+     * precedente (after) al posto di page. Il cursore della pagina
+     * successiva è nell'header NEXT_CURSOR_HEADER, assente sull'ultima.
+     */
+    private static String findMusic(Database db, Request req, Response res) {
+        int pageSize = parsePageSize(req);
+        if (pageSize < 0) {
+            return handleParseError(res);
+        }
+        if (req.queryParams("page") != null) {
+            return returnMessage(res, SC_BAD_REQUEST, "text-danger",
+                    "Con i filtri combinati usare il parametro after al posto di page.");
+        }
+        MusicQuery query = MusicQueryHelper.parse(req, pageSize);
+        if (query == null) {
+            return handleParseError(res);
+        }
+
+        List<MusicDetails> musicList = db.findMusic(query);
+        if (musicList == null) {
+            return handleInternalError(res);
+        }
+        if (musicList.isEmpty()) {
+            return handleNotFound(res);
+        }
+        String next = null;
+        if (musicList.size() == query.getLimit()) {
+            next = query.cursorAfter(musicList.get(musicList.size() - 1)).encode();
+            res.header(NEXT_CURSOR_HEADER, next);
+        }
+        if (acceptsBinary(req)) {
+            return returnBinary(musicList, res);
+        }
+
+        res.status(SC_OK);
+
+        info(musicList.toString());
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("musicList", musicList);
+        model.put("page", -1);
+        model.put("queryParams", MusicQueryHelper.toParams(query));
+        model.put("after", query.getAfter());
+        model.put("next", next);
+        return engine.render(new ModelAndView(model, "musicList"));
+    }
+
     private static String getMusicById(Request req, Response res) {
         Database db = Database.getDatabase();
         if (db == null) {
             return handleInternalError(res);
         }
 
-        return dbGetByIdQueryResult(db::getMusicById, MUSICID, "musicList", "musicList", req, res);
+        return dbGetByIdQueryResult(db::getMusicDetailsById, MUSICID, "musicList", "musicList", req, res);
     }
 
     private static String insertMusic(Request req, Response res) {
@@ -498,6 +651,16 @@ public class Main {
                 SC_BAD_REQUEST, SC_OK, res);
     }
 
+    /**
+     * Ricerca delle canzoni. Con fuzzy=true la ricerca tollera gli errori
+     * di battitura (vedi FuzzySearchService) e i risultati sono ordinati
+     * per somiglianza invece che per id. Altrimenti la pagina mostra anche
+     * le faccette dei risultati (vedi FacetService), che si possono
+     * scegliere con i parametri genreid, decade, groupid e albumid, e la
+     * paginazione è per canzone. Come nelle altre liste, il parametro limit
+     * sceglie le righe per pagina e, quando gli id dei risultati sono
+     * noti, la pagina riporta il numero di risultati e di pagine.
+     */
     private static String searchMusic(Request req, Response res) {
         int pageNum = 0;
 
@@ -514,27 +677,73 @@ public class Main {
             }
         }
 
+        int pageSize = parsePageSize(req);
+        if(pageSize < 0) {
+            return handleParseError(res);
+        }
+
         if(req.queryParams("string") == null || req.queryParams("string").equals("")) {
             return returnMessage(res, SC_BAD_REQUEST, "text-warning",
                     "Specificare la stringa di ricerca in maniera corretta.");
         }
 
-        List<MusicStrings> musicList = db.searchMusic(req.queryParams("string"), pageNum);
+        Map<String, Integer> selections = FacetHelper.parseSelections(req);
+        if(selections == null) {
+            return handleParseError(res);
+        }
+
+        String searchTerm = req.queryParams("string");
+        boolean fuzzy = Boolean.parseBoolean(req.queryParams("fuzzy"));
+        List<MusicStrings> musicList;
+        Map<String, List<FacetService.FacetValue>> facets = null;
+        long rows = -1;
+        if(fuzzy) {
+            musicList = FuzzySearchService.getInstance().search(searchTerm, pageNum, pageSize);
+        } else {
+            /* Gli id di tutti i risultati servono per le faccette; il
+               drill-down li restringe con un'intersezione di bitmap. La
+               pagina viene letta dagli id già trovati, senza ripetere la
+               ricerca, per cui anche la risposta binaria (che non mostra
+               le faccette) è paginata per canzone. */
+            List<Integer> musicIds = db.searchMusicIds(searchTerm);
+            if (musicIds == null) {
+                return handleInternalError(res);
+            }
+            Bitmap hits;
+            if(selections.isEmpty() && acceptsBinary(req)) {
+                hits = Bitmap.of(musicIds);
+            } else {
+                FacetService facetService = FacetService.getInstance();
+                hits = facetService.filter(musicIds, selections);
+                facets = facetService.facets(hits);
+            }
+            musicList = db.searchMusicByIds(searchTerm, hits.toList(pageNum*pageSize, pageSize));
+            rows = hits.cardinality();
+        }
         if (musicList == null) {
             return handleInternalError(res);
         }
         if (musicList.isEmpty()) {
             return handleNotFound(res);
         }
+        Map<String, Object> model = new HashMap<>();
+        putPageCount(model, rows, pageSize, musicList.size(), req, res);
+        if (acceptsBinary(req)) {
+            return returnBinary(musicList, res);
+        }
 
         res.status(SC_OK);
 
         info(musicList.toString());
 
-        Map<String, Object> model = new HashMap<>();
         model.put("musicList", musicList);
         model.put("page", pageNum);
-        model.put("string", req.queryParams("string"));
+        model.put("string", searchTerm);
+        model.put("fuzzy", fuzzy);
+        model.put("selections", FacetHelper.toParams(selections));
+        if(facets != null) {
+            model.put("facets", FacetHelper.toModel(searchTerm, selections, facets));
+        }
         return engine.render(new ModelAndView(model, "search"));
     }
 
@@ -544,7 +753,16 @@ public class Main {
             return handleInternalError(res);
         }
 
-        return dbGetQueryResult(db::getAllAlbums, "albumList", "albumlist", req, res);
+        if(req.queryParams("fields") != null) {
+            return dbGetFieldsResult(db, ALBUM_TABLE, () -> RowCountCache.getInstance().countRows(db, ALBUM_TABLE), req, res);
+        }
+
+        if(req.queryParams("ids") != null) {
+            return dbGetByIdsQueryResult(db::getAlbumsByIds, "albumList", "albumlist", req, res);
+        }
+
+        return dbGetQueryResult(db::getAllAlbums, () -> RowCountCache.getInstance().countRows(db, ALBUM_TABLE),
+                "albumList", "albumlist", req, res);
     }
 
     private static String insertAlbum(Request req, Response res) {
@@ -600,6 +818,14 @@ public class Main {
 
         int albumId = Integer.parseInt(req.queryParams(ALBUMID));
 
+        if("true".equals(req.queryParams(CASCADE))) {
+            return dbCascadeResult(() -> db.deleteAlbumCascade(albumId),
+                    "Non esiste un album con id "+ albumId +", impossibile eliminarlo.",
+                    summary -> "Album con id "+ albumId +" eliminato insieme a "
+                            + summary.getMusic() +" canzoni e "+ summary.getLinks() +" link.",
+                    res);
+        }
+
         return dbQueryResult(() -> db.deleteAlbum(albumId),
                 "Non esiste un album con id "+ albumId +", impossibile eliminarlo.",
                 "Album con id "+ albumId +" eliminato con successo.",
@@ -612,7 +838,16 @@ public class Main {
             return handleInternalError(res);
         }
 
-        return dbGetQueryResult(db::getAllArtists, "artistList", "artistlist", req, res);
+        if(req.queryParams("fields") != null) {
+            return dbGetFieldsResult(db, ARTIST_TABLE, () -> RowCountCache.getInstance().countRows(db, ARTIST_TABLE), req, res);
+        }
+
+        if(req.queryParams("ids") != null) {
+            return dbGetByIdsQueryResult(db::getArtistsByIds, "artistList", "artistlist", req, res);
+        }
+
+        return dbGetQueryResult(db::getAllArtists, () -> RowCountCache.getInstance().countRows(db, ARTIST_TABLE),
+                "artistList", "artistlist", req, res);
     }
 
     private static String updateArtist(Request req, Response res) {
@@ -680,7 +915,16 @@ public class Main {
             return handleInternalError(res);
         }
 
-        return dbGetQueryResult(db::getAllGroups, "groupList", "grouplist", req, res);
+        if(req.queryParams("fields") != null) {
+            return dbGetFieldsResult(db, GROUP_TABLE, () -> RowCountCache.getInstance().countRows(db, GROUP_TABLE), req, res);
+        }
+
+        if(req.queryParams("ids") != null) {
+            return dbGetByIdsQueryResult(db::getGroupsByIds, "groupList", "grouplist", req, res);
+        }
+
+        return dbGetQueryResult(db::getAllGroups, () -> RowCountCache.getInstance().countRows(db, GROUP_TABLE),
+                "groupList", "grouplist", req, res);
     }
 
     private static String insertGroup(Request req, Response res) {
@@ -736,6 +980,15 @@ public class Main {
 
         int groupId = Integer.parseInt(req.queryParams(GROUPID));
 
+        if("true".equals(req.queryParams(CASCADE))) {
+            return dbCascadeResult(() -> db.deleteGroupCascade(groupId),
+                    "Non esiste un gruppo con id "+ groupId +", impossibile eliminarlo.",
+                    summary -> "Gruppo con id "+ groupId +" eliminato insieme a "
+                            + summary.getMusic() +" canzoni, "+ summary.getLinks() +" link, "
+                            + summary.getArtists() +" artisti e "+ summary.getAlbums() +" album.",
+                    res);
+        }
+
         return dbQueryResult(() -> db.deleteGroup(groupId),
                 "Non esiste un gruppo con id "+ groupId +", impossibile eliminarlo.",
                 "Gruppo con id "+ groupId +" eliminato con successo.",
@@ -748,7 +1001,16 @@ public class Main {
             return handleInternalError(res);
         }
 
-        return dbGetQueryResult(db::getAllGenres, "genreList", "genrelist", req, res);
+        if(req.queryParams("fields") != null) {
+            return dbGetFieldsResult(db, GENRE_TABLE, () -> RowCountCache.getInstance().countRows(db, GENRE_TABLE), req, res);
+        }
+
+        if(req.queryParams("ids") != null) {
+            return dbGetByIdsQueryResult(db::getGenresByIds, "genreList", "genrelist", req, res);
+        }
+
+        return dbGetQueryResult(db::getAllGenres, () -> RowCountCache.getInstance().countRows(db, GENRE_TABLE),
+                "genreList", "genrelist", req, res);
     }
 
     private static String insertGenre(Request req, Response res) {
@@ -816,7 +1078,12 @@ public class Main {
             return handleInternalError(res);
         }
 
-        return dbGetQueryResult(db::getAllLinks, "linkList", "linklist", req, res);
+        if(req.queryParams("fields") != null) {
+            return dbGetFieldsResult(db, LINK_TABLE, () -> RowCountCache.getInstance().countRows(db, LINK_TABLE), req, res);
+        }
+
+        return dbGetQueryResult(db::getAllLinks, () -> RowCountCache.getInstance().countRows(db, LINK_TABLE),
+                "linkList", "linklist", req, res);
     }
 
     private static String insertLink(Request req, Response res) {
@@ -845,7 +1112,8 @@ public class Main {
             return handleInternalError(res);
         }
 
-        return dbGetQueryResult(db::musicJoinLink, "musicJoinLinkList", "musicJoinLink", req, res);
+        return dbGetQueryResult(db::musicJoinLink, () -> RowCountCache.getInstance().countRows(db, LINK_TABLE),
+                "musicJoinLinkList", "musicJoinLink", req, res);
     }
 
     private static String artistJoinGroup(Request req, Response res) {
@@ -854,7 +1122,8 @@ public class Main {
             return handleInternalError(res);
         }
 
-        return dbGetQueryResult(db::artistJoinGroup, "artistJoinGroupList", "artistJoinGroup", req, res);
+        return dbGetQueryResult(db::artistJoinGroup, () -> RowCountCache.getInstance().countRows(db, ARTIST_TABLE),
+                "artistJoinGroupList", "artistJoinGroup", req, res);
     }
 
     private static String joinAll(Request req, Response res) {
@@ -863,7 +1132,8 @@ public class Main {
             return handleInternalError(res);
         }
 
-        return dbGetQueryResult(db::joinAll, "joinAllList", "joinAll", req, res);
+        return dbGetQueryResult(db::joinAll, () -> RowCountCache.getInstance().countRows(db, MUSIC_TABLE),
+                "joinAllList", "joinAll", req, res);
     }
 
     private static String viewLinks(Request req, Response res) {
@@ -880,13 +1150,14 @@ public class Main {
             return handleParseError(res);
         }
 
-        Music music = db.getMusicById(musicId).get(0);
-
-        List<Link> linkList = db.getLinksForMusic(musicId);
-        if (linkList == null) {
+        MusicWithLinks musicWithLinks = db.getMusicWithLinks(musicId);
+        if (musicWithLinks == null) {
             return handleInternalError(res);
         }
-        if (linkList.isEmpty()) {
+
+        Music music = musicWithLinks.getMusic();
+        List<Link> linkList = musicWithLinks.getLinkList();
+        if (music == null || linkList.isEmpty()) {
             return handleNotFound(res);
         }
 
@@ -900,6 +1171,241 @@ public class Main {
         return engine.render(new ModelAndView(model, "linksformusic"));
     }
 
+    /**
+     * Esporta un'intera tabella (oppure joinall) in formato CSV o JSON
+     * Lines, scrivendo le righe sullo stream della Response man mano che
+     * vengono lette: non essendo nota la lunghezza, la risposta viene
+     * inviata con chunked transfer encoding. Parametri opzionali: <br>
+     * - format: "csv" (default) oppure "jsonl" <br>
+     * - from: chiave primaria da cui partire (compresa), per riprendere
+     *   un'esportazione interrotta <br>
+     * - gzip: se "true" l'output viene compresso; viene compresso anche
+     *   se il client lo accetta (header Accept-Encoding) <br>
+     * Ogni esportazione usa una connessione dedicata al database, per cui
+     * il numero di esportazioni in corso è limitato da EXPORT_MAX_STREAMS.
+     */
+    private static String exportTable(Request req, Response res) {
+        Database db = Database.getDatabase();
+        if (db == null) {
+            return handleInternalError(res);
+        }
+
+        String table = req.params(":table").toLowerCase();
+        if(!ExportHelper.EXPORTABLE_TABLES.contains(table)) {
+            return handleNotFound(res);
+        }
+
+        int fromId = 0;
+        if(req.queryParams("from") != null) {
+            if(!isGeThanZero(req.queryParams("from"))) {
+                return handleParseError(res);
+            } else {
+                fromId = Integer.parseInt(req.queryParams("from"));
+            }
+        }
+
+        String format = req.queryParamOrDefault("format", ExportWriter.CSV);
+        if(!ExportWriter.isSupportedFormat(format)) {
+            return returnMessage(res, SC_BAD_REQUEST, "text-warning",
+                    "Formato di esportazione non supportato (csv oppure jsonl).");
+        }
+
+        String acceptEncoding = req.headers("Accept-Encoding");
+        boolean gzip = Boolean.parseBoolean(req.queryParams("gzip"))
+                || (acceptEncoding != null && acceptEncoding.contains("gzip"));
+
+        if(exportStreams.incrementAndGet() > EXPORT_MAX_STREAMS) {
+            exportStreams.decrementAndGet();
+            return returnMessage(res, SC_SERVICE_UNAVAILABLE, "text-warning",
+                    "Troppe esportazioni in corso, riprovare più tardi.");
+        }
+
+        try {
+            res.status(SC_OK);
+            res.raw().setContentType(ExportWriter.contentType(format));
+            res.raw().setCharacterEncoding("UTF-8");
+            if(gzip) {
+                res.header("Content-Encoding", "gzip");
+            }
+
+            int result;
+            try {
+                ExportWriter writer = new ExportWriter(res.raw().getOutputStream(), format, gzip);
+                result = ExportHelper.exportTable(db, table, fromId, writer);
+                if(result == 0) {
+                    writer.finish();
+                    logger.info("Esportazione di {} completata.", table);
+                    return "";
+                }
+            } catch (IOException | UncheckedIOException e) {
+                logger.warn("Esportazione di {} interrotta: {}", table, e.getMessage());
+                return "";
+            }
+
+            /*
+              Se non è ancora stato inviato nulla si può ancora rispondere
+              con un errore; altrimenti il client riceve un'esportazione
+              parziale, che può riprendere con il parametro "from".
+             */
+            if(!res.raw().isCommitted()) {
+                res.raw().reset();
+                res.raw().setContentType(TEXT_HTML);
+                res.raw().setCharacterEncoding("UTF-8");
+                return handleInternalError(res);
+            }
+            logger.error("Error in exportTable: esportazione di {} interrotta da un errore del database", table);
+            return "";
+        } finally {
+            exportStreams.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stream Server-Sent Events con le modifiche del catalogo (vedi
+     * ChangeFeed), che sostituisce il polling delle pagine. Ogni evento
+     * ha come id la versione, come nome l'operazione (INSERT, UPDATE,
+     * DELETE, RESET) e come dati l'evento in JSON. Un RESET indica che
+     * degli eventi sono andati persi e che i dati vanno riletti. Parametri
+     * opzionali, separati da virgole: <br>
+     * - table: le tabelle di interesse (es. table=music,album) <br>
+     * - id: gli id di interesse (es. id=1000,1001) <br>
+     * Ogni stream occupa un thread del server, per cui il numero di stream
+     * aperti è limitato da EVENTS_MAX_STREAMS. In assenza di eventi viene
+     * inviato un commento ogni EVENTS_HEARTBEAT_MILLIS, che permette anche
+     * di accorgersi dei client che si sono disconnessi.
+     */
+    private static String events(Request req, Response res) {
+        Set<String> tables = new HashSet<>();
+        if(req.queryParams("table") != null) {
+            for(String table : req.queryParams("table").split(",")) {
+                if(!ExportHelper.EXPORTABLE_TABLES.contains(table) || table.equals(ExportHelper.JOIN_ALL)) {
+                    return handleParseError(res);
+                }
+                tables.add(table);
+            }
+        }
+        Set<Integer> ids = new HashSet<>();
+        if(req.queryParams("id") != null) {
+            for(String id : req.queryParams("id").split(",")) {
+                if(!isPositiveInteger(id)) {
+                    return handleParseError(res);
+                }
+                ids.add(Integer.parseInt(id));
+            }
+        }
+
+        if(eventStreams.incrementAndGet() > EVENTS_MAX_STREAMS) {
+            eventStreams.decrementAndGet();
+            return returnMessage(res, SC_SERVICE_UNAVAILABLE, "text-warning",
+                    "Troppi stream di eventi aperti, riprovare più tardi.");
+        }
+
+        res.status(SC_OK);
+        res.raw().setContentType("text/event-stream");
+        res.raw().setCharacterEncoding("UTF-8");
+        res.header("Cache-Control", "no-cache");
+        res.header("X-Accel-Buffering", "no");
+
+        try (ChangeSubscription subscription =
+                     new ChangeSubscription(ChangeFeed.getInstance(), tables, ids, EVENTS_QUEUE_SIZE)) {
+            Writer out = new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8);
+            out.write("retry: " + EVENTS_HEARTBEAT_MILLIS + "\n\n");
+            out.flush();
+            while(true) {
+                ChangeEvent event = subscription.poll(EVENTS_HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if(event == null) {
+                    out.write(": keep-alive\n\n");
+                } else {
+                    out.write("id: " + event.getVersion() + "\n" +
+                              "event: " + event.getOperation() + "\n" +
+                              "data: " + event.toJson() + "\n\n");
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            logger.info("Stream di eventi chiuso dal client {}.", req.ip());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            eventStreams.decrementAndGet();
+        }
+        return "";
+    }
+
+    /**
+     * Suggerimenti per l'autocompletamento del campo di ricerca, serviti
+     * dall'indice in memoria di AutocompleteService senza interrogare il
+     * database. Parametri: <br>
+     * - prefix: il testo digitato (obbligatorio) <br>
+     * - limit: numero massimo di suggerimenti, al più AUTOCOMPLETE_SIZE <br>
+     * Restituisce un array JSON di {text, type, id}, dal più popolare.
+     */
+    private static String autocomplete(Request req, Response res) {
+        String prefix = req.queryParams("prefix");
+        if(prefix == null || prefix.trim().isEmpty()) {
+            return returnMessage(res, SC_BAD_REQUEST, "text-warning",
+                    "Specificare il prefisso da completare.");
+        }
+
+        int limit = AUTOCOMPLETE_SIZE;
+        if(req.queryParams("limit") != null) {
+            if(!isPositiveInteger(req.queryParams("limit"))) {
+                return handleParseError(res);
+            } else {
+                limit = Math.min(Integer.parseInt(req.queryParams("limit")), AUTOCOMPLETE_SIZE);
+            }
+        }
+
+        List<Suggestion> suggestions = AutocompleteService.getInstance().suggest(prefix, limit);
+
+        res.status(SC_OK);
+        res.type(APPLICATION_JSON);
+        return suggestions.stream().map(Suggestion::toJson).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    /**
+     * Ricerca unica su canzoni, gruppi, artisti, album e generi, servita
+     * con una sola visita dell'indice di AutocompleteService: i risultati
+     * sono divisi per tipo e ognuno porta direttamente alla pagina
+     * dell'entità, senza scorrere le liste pagina per pagina. Parametri: <br>
+     * - q: il testo cercato (obbligatorio) <br>
+     * - limit: numero massimo di risultati per tipo, al più AUTOCOMPLETE_SIZE <br>
+     * Con "Accept: application/json" restituisce un oggetto JSON
+     * {tipo: [{text, type, id}]}, altrimenti la pagina find.
+     */
+    private static String find(Request req, Response res) {
+        String query = req.queryParams("q");
+        if(query == null || query.trim().isEmpty()) {
+            return returnMessage(res, SC_BAD_REQUEST, "text-warning",
+                    "Specificare il testo da cercare.");
+        }
+
+        int limit = FIND_SIZE;
+        if(req.queryParams("limit") != null) {
+            if(!isPositiveInteger(req.queryParams("limit"))) {
+                return handleParseError(res);
+            } else {
+                limit = Math.min(Integer.parseInt(req.queryParams("limit")), AUTOCOMPLETE_SIZE);
+            }
+        }
+
+        Map<String, List<Suggestion>> results = AutocompleteService.getInstance().find(query, limit);
+
+        res.status(SC_OK);
+        if(acceptsJson(req)) {
+            res.type(APPLICATION_JSON);
+            return results.entrySet().stream()
+                    .map(entry -> "\"" + entry.getKey() + "\":" + entry.getValue().stream()
+                            .map(Suggestion::toJson).collect(Collectors.joining(",", "[", "]")))
+                    .collect(Collectors.joining(",", "{", "}"));
+        }
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("query", query);
+        model.put("results", results);
+        return engine.render(new ModelAndView(model, "find"));
+    }
+
     /**
      * Funzione per fornire l'iconcina  di fianco al titolo.
      * Adattato dalla seguente fonte:
@@ -0,0 +1,159 @@
+package com.gb.restApp;
+
+import com.gb.dao.MusicQuery;
+import com.gb.dao.MusicQuery.Cursor;
+import com.gb.dao.MusicQuery.Sort;
+import spark.Request;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.gb.Constants.*;
+import static com.gb.utils.UtilFunctions.isGeThanZero;
+import static com.gb.utils.UtilFunctions.isPositiveInteger;
+
+/**
+ * Questa classe traduce i parametri di /music in una MusicQuery quando
+ * la richiesta combina più filtri (albumid, genreid, groupid, artistid)
+ * o usa yearFrom, yearTo, prefix, sort, order e after, e prepara i parametri per il link
+ * alla pagina successiva, in modo che il Main debba occuparsi solamente
+ * della Request e della Response.
+ */
+public class MusicQueryHelper {
+
+    public static final String YEAR_FROM = "yearFrom";
+    public static final String YEAR_TO = "yearTo";
+    public static final String PREFIX = "prefix";
+    public static final String SORT = "sort";
+    public static final String ORDER = "order";
+    public static final String AFTER = "after";
+
+    private static final List<String> ID_FILTERS = Arrays.asList(ALBUMID, GENREID, GROUPID, ARTISTID);
+
+    /**
+     * True se la richiesta va servita con una MusicQuery invece che con
+     * le pagine numerate di un singolo filtro.
+     */
+    public static boolean isQuery(Request req) {
+        long filters = ID_FILTERS.stream().filter(param -> req.queryParams(param) != null).count();
+        return filters > 1 || req.queryParams(YEAR_FROM) != null || req.queryParams(YEAR_TO) != null
+                || req.queryParams(PREFIX) != null || req.queryParams(SORT) != null
+                || req.queryParams(ORDER) != null || req.queryParams(AFTER) != null;
+    }
+
+    /**
+     * Legge la query dai parametri della richiesta.
+     * @param pageSize Le canzoni per pagina, vedi DbReturnHelper.parsePageSize
+     * @return La query, oppure null se un parametro non è valido
+     */
+    public static MusicQuery parse(Request req, int pageSize) {
+        MusicQuery.Builder builder = MusicQuery.builder().limit(pageSize);
+        for(String param : ID_FILTERS) {
+            String value = req.queryParams(param);
+            if(value == null) {
+                continue;
+            }
+            if(!isPositiveInteger(value)) {
+                return null;
+            }
+            int id = Integer.parseInt(value);
+            switch (param) {
+                case ALBUMID:
+                    builder.album(id);
+                    break;
+                case GENREID:
+                    builder.genre(id);
+                    break;
+                case GROUPID:
+                    builder.group(id);
+                    break;
+                default:
+                    builder.artist(id);
+                    break;
+            }
+        }
+        String yearFrom = req.queryParams(YEAR_FROM);
+        String yearTo = req.queryParams(YEAR_TO);
+        if(!isYear(yearFrom) || !isYear(yearTo)) {
+            return null;
+        }
+        builder.years(isEmpty(yearFrom) ? null : Integer.valueOf(yearFrom),
+                isEmpty(yearTo) ? null : Integer.valueOf(yearTo));
+        builder.titlePrefix(req.queryParams(PREFIX));
+
+        Sort sort = parseSort(req.queryParamOrDefault(SORT, "id"));
+        String order = req.queryParamOrDefault(ORDER, "asc");
+        if(sort == null || !(order.equals("asc") || order.equals("desc"))) {
+            return null;
+        }
+        builder.sort(sort, order.equals("desc"));
+
+        String after = req.queryParams(AFTER);
+        if(after != null) {
+            Cursor cursor = Cursor.decode(after, sort);
+            if(cursor == null) {
+                return null;
+            }
+            builder.after(cursor);
+        }
+        try {
+            return builder.build();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * I parametri della query senza il cursore, per il form della
+     * pagina successiva (che aggiunge after) e per tornare alla prima.
+     */
+    public static Map<String, Object> toParams(MusicQuery query) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        putIfPresent(params, ALBUMID, query.getAlbumId());
+        putIfPresent(params, GENREID, query.getGenreId());
+        putIfPresent(params, GROUPID, query.getGroupId());
+        putIfPresent(params, ARTISTID, query.getArtistId());
+        putIfPresent(params, YEAR_FROM, query.getYearFrom());
+        putIfPresent(params, YEAR_TO, query.getYearTo());
+        putIfPresent(params, PREFIX, query.getTitlePrefix());
+        params.put(SORT, query.getSort().name().toLowerCase(Locale.ROOT));
+        params.put(ORDER, query.isDescending() ? "desc" : "asc");
+        params.put("limit", query.getLimit());
+        return params;
+    }
+
+    private static Sort parseSort(String value) {
+        switch (value) {
+            case "id":
+                return Sort.ID;
+            case "title":
+                return Sort.TITLE;
+            case "year":
+                return Sort.YEAR;
+            default:
+                return null;
+        }
+    }
+
+    /*
+     * Un anno vuoto (campo del form non compilato) equivale ad un parametro
+     * assente; gli anni validi sono quelli di Music.setYear.
+     */
+    private static boolean isYear(String value) {
+        return isEmpty(value) || (isGeThanZero(value) && Integer.parseInt(value) <= 3000);
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private static void putIfPresent(Map<String, Object> params, String name, Object value) {
+        if(value != null) {
+            params.put(name, value);
+        }
+    }
+
+}
@@ -0,0 +1,297 @@
+package com.gb.search;
+
+import com.gb.db.Database;
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.modelObject.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import static com.gb.Constants.*;
+
+/**
+ * Mantiene il PrefixIndex usato da /autocomplete e da /find, con titoli
+ * delle canzoni, nomi di gruppi e artisti, titoli degli album e nomi dei
+ * generi. La popolarità di un suggerimento è ricavata dal catalogo: <br>
+ * - canzone: 1 + numero di link <br>
+ * - gruppo, album, genere: numero di canzoni <br>
+ * - artista: numero di canzoni del suo gruppo <br>
+ * L'indice viene costruito leggendo le tabelle con ExportDAO e poi
+ * aggiornato con gli eventi del ChangeFeed, pubblicati dai metodi di
+ * scrittura dei DAO: per ogni evento si rilegge solo la riga modificata.
+ * Gli aggiornamenti vengono applicati in ordine da un unico thread, per
+ * cui il thread che pubblica gli eventi non resta in attesa; un evento
+ * RESET ricostruisce l'indice da capo. Se la costruzione fallisce viene
+ * ritentata (vedi IndexUpdater).
+ */
+public class AutocompleteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutocompleteService.class);
+
+    private static AutocompleteService serviceInstance = null;
+
+    private final Supplier<Database> database;
+    private final IndexUpdater updater;
+    private volatile PrefixIndex index;
+
+    /*
+     * Stato usato solo dal thread di aggiornamento: le chiavi esterne
+     * delle canzoni (per aggiornare i conteggi quando una canzone cambia)
+     * e i conteggi da cui deriva la popolarità.
+     */
+    private final Map<Integer, Music> musicRefs = new HashMap<>();
+    private final Map<Integer, Integer> linksByMusic = new HashMap<>();
+    private final Map<Integer, Integer> musicByGroup = new HashMap<>();
+    private final Map<Integer, Integer> musicByAlbum = new HashMap<>();
+    private final Map<Integer, Integer> musicByGenre = new HashMap<>();
+    private final Map<Integer, Integer> groupByArtist = new HashMap<>();
+    private final Map<Integer, Set<Integer>> artistsByGroup = new HashMap<>();
+
+    /**
+     * Restituisce il servizio condiviso, costruendo l'indice alla prima
+     * chiamata.
+     */
+    public static synchronized AutocompleteService getInstance() {
+        if(serviceInstance == null) {
+            serviceInstance = new AutocompleteService(Database::getDatabase, ChangeFeed.getInstance());
+            serviceInstance.awaitUpdates();
+        }
+        return serviceInstance;
+    }
+
+    public AutocompleteService(Supplier<Database> database, ChangeFeed feed) {
+        this.database = database;
+        this.index = new PrefixIndex(AUTOCOMPLETE_SIZE);
+        this.updater = new IndexUpdater("autocomplete-updater", this::rebuild);
+        feed.subscribe(event -> updater.execute(() -> apply(event)));
+    }
+
+    /**
+     * @param prefix Il testo digitato dall'utente
+     * @param limit Numero massimo di suggerimenti (al più AUTOCOMPLETE_SIZE)
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return index.lookup(prefix, limit);
+    }
+
+    /**
+     * Ricerca su tutti i tipi di entità, con i risultati divisi per tipo.
+     * @param text Il testo cercato (inizio di una parola)
+     * @param limit Numero massimo di risultati per tipo (al più AUTOCOMPLETE_SIZE)
+     * @return Tipo -> risultati, nell'ordine di Suggestion.TYPES e senza
+     *         i tipi che non hanno risultati
+     */
+    public Map<String, List<Suggestion>> find(String text, int limit) {
+        Map<String, List<Suggestion>> byType = index.lookupByType(text, limit);
+        Map<String, List<Suggestion>> ordered = new LinkedHashMap<>();
+        for(String type : Suggestion.TYPES) {
+            if(byType.containsKey(type)) {
+                ordered.put(type, byType.get(type));
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Attende che gli aggiornamenti già ricevuti siano stati applicati.
+     */
+    public void awaitUpdates() {
+        updater.await();
+    }
+
+    /**
+     * False finché l'indice non è stato costruito: fino ad allora le
+     * ricerche non trovano nulla e la costruzione viene ritentata.
+     */
+    public boolean isReady() {
+        return updater.isBuilt();
+    }
+
+    private boolean rebuild() {
+        Database db = database.get();
+        if(db == null) {
+            logger.error("Error in AutocompleteService.rebuild: database non disponibile");
+            return false;
+        }
+        musicRefs.clear();
+        linksByMusic.clear();
+        musicByGroup.clear();
+        musicByAlbum.clear();
+        musicByGenre.clear();
+        groupByArtist.clear();
+        artistsByGroup.clear();
+
+        List<Group> groups = new ArrayList<>();
+        List<Album> albums = new ArrayList<>();
+        List<Artist> artists = new ArrayList<>();
+        List<Genre> genres = new ArrayList<>();
+        List<Music> music = new ArrayList<>();
+        int result = db.exportGroups(0, groups::add) + db.exportAlbums(0, albums::add)
+                + db.exportArtists(0, artists::add) + db.exportGenres(0, genres::add)
+                + db.exportMusic(0, music::add)
+                + db.exportLinks(0, link -> increment(linksByMusic, link.getMusicId(), 1));
+        if(result != 0) {
+            logger.error("Error in AutocompleteService.rebuild: lettura del catalogo fallita");
+            return false;
+        }
+
+        for(Music m : music) {
+            musicRefs.put(m.getMusicId(), m);
+            countMusic(m, 1);
+        }
+        for(Artist artist : artists) {
+            groupByArtist.put(artist.getArtistId(), artist.getGroupId());
+            artistsByGroup.computeIfAbsent(artist.getGroupId(), k -> new HashSet<>()).add(artist.getArtistId());
+        }
+
+        PrefixIndex rebuilt = new PrefixIndex(AUTOCOMPLETE_SIZE);
+        music.forEach(m -> rebuilt.put(new Suggestion(m.getTitle(), Suggestion.MUSIC, m.getMusicId(),
+                1 + linksByMusic.getOrDefault(m.getMusicId(), 0))));
+        groups.forEach(group -> rebuilt.put(new Suggestion(group.getName(), Suggestion.GROUP, group.getGroupId(),
+                musicByGroup.getOrDefault(group.getGroupId(), 0))));
+        artists.forEach(artist -> rebuilt.put(new Suggestion(artist.getName(), Suggestion.ARTIST,
+                artist.getArtistId(), musicByGroup.getOrDefault(artist.getGroupId(), 0))));
+        albums.forEach(album -> rebuilt.put(new Suggestion(album.getTitle(), Suggestion.ALBUM, album.getAlbumId(),
+                musicByAlbum.getOrDefault(album.getAlbumId(), 0))));
+        genres.forEach(genre -> rebuilt.put(new Suggestion(genre.getName(), Suggestion.GENRE, genre.getGenreId(),
+                musicByGenre.getOrDefault(genre.getGenreId(), 0))));
+        index = rebuilt;
+        logger.info("Indice di autocompletamento costruito ({} suggerimenti).", rebuilt.size());
+        return true;
+    }
+
+    private void apply(ChangeEvent event) {
+        if(event.getOperation() == ChangeEvent.Operation.RESET) {
+            updater.rebuildNow();
+            return;
+        }
+        Database db = database.get();
+        if(db == null) {
+            logger.warn("Evento {} non applicato all'autocompletamento: database non disponibile.", event);
+            return;
+        }
+        boolean deleted = event.getOperation() == ChangeEvent.Operation.DELETE;
+        int id = event.getId();
+        switch (event.getTable()) {
+            case MUSIC_TABLE:
+                applyMusic(id, deleted ? null : first(db.getMusicById(id)));
+                break;
+            case LINK_TABLE: {
+                List<Link> links = db.getLinksForMusic(id);
+                if(links != null) {
+                    linksByMusic.put(id, links.size());
+                    reweight(Suggestion.MUSIC, id, 1 + links.size());
+                }
+                break;
+            }
+            case GROUP_TABLE: {
+                Group group = deleted ? null : first(db.getGroupById(id));
+                if(group == null) {
+                    index.remove(Suggestion.GROUP, id);
+                } else {
+                    index.put(new Suggestion(group.getName(), Suggestion.GROUP, id,
+                            musicByGroup.getOrDefault(id, 0)));
+                }
+                break;
+            }
+            case ARTIST_TABLE:
+                applyArtist(id, deleted ? null : first(db.getArtistById(id)));
+                break;
+            case ALBUM_TABLE: {
+                Album album = deleted ? null : first(db.getAlbumById(id));
+                if(album == null) {
+                    index.remove(Suggestion.ALBUM, id);
+                } else {
+                    index.put(new Suggestion(album.getTitle(), Suggestion.ALBUM, id,
+                            musicByAlbum.getOrDefault(id, 0)));
+                }
+                break;
+            }
+            case GENRE_TABLE: {
+                Genre genre = deleted ? null : first(db.getGenreById(id));
+                if(genre == null) {
+                    index.remove(Suggestion.GENRE, id);
+                } else {
+                    index.put(new Suggestion(genre.getName(), Suggestion.GENRE, id,
+                            musicByGenre.getOrDefault(id, 0)));
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private void applyMusic(int musicId, Music music) {
+        Music old = musicRefs.remove(musicId);
+        if(old != null) {
+            countMusic(old, -1);
+            reweightReferences(old);
+        }
+        if(music == null) {
+            linksByMusic.remove(musicId);
+            index.remove(Suggestion.MUSIC, musicId);
+            return;
+        }
+        musicRefs.put(musicId, music);
+        countMusic(music, 1);
+        reweightReferences(music);
+        index.put(new Suggestion(music.getTitle(), Suggestion.MUSIC, musicId,
+                1 + linksByMusic.getOrDefault(musicId, 0)));
+    }
+
+    private void applyArtist(int artistId, Artist artist) {
+        Integer oldGroup = groupByArtist.remove(artistId);
+        if(oldGroup != null) {
+            artistsByGroup.getOrDefault(oldGroup, new HashSet<>()).remove(artistId);
+        }
+        if(artist == null) {
+            index.remove(Suggestion.ARTIST, artistId);
+            return;
+        }
+        groupByArtist.put(artistId, artist.getGroupId());
+        artistsByGroup.computeIfAbsent(artist.getGroupId(), k -> new HashSet<>()).add(artistId);
+        index.put(new Suggestion(artist.getName(), Suggestion.ARTIST, artistId,
+                musicByGroup.getOrDefault(artist.getGroupId(), 0)));
+    }
+
+    private void countMusic(Music music, int delta) {
+        increment(musicByGroup, music.getAuthorId(), delta);
+        increment(musicByGenre, music.getGenreId(), delta);
+        if(music.hasAlbum()) {
+            increment(musicByAlbum, music.getAlbumIdValue(), delta);
+        }
+    }
+
+    private void reweightReferences(Music music) {
+        int groupCount = musicByGroup.getOrDefault(music.getAuthorId(), 0);
+        reweight(Suggestion.GROUP, music.getAuthorId(), groupCount);
+        for(int artistId : artistsByGroup.getOrDefault(music.getAuthorId(), Collections.emptySet())) {
+            reweight(Suggestion.ARTIST, artistId, groupCount);
+        }
+        reweight(Suggestion.GENRE, music.getGenreId(), musicByGenre.getOrDefault(music.getGenreId(), 0));
+        if(music.hasAlbum()) {
+            reweight(Suggestion.ALBUM, music.getAlbumIdValue(),
+                    musicByAlbum.getOrDefault(music.getAlbumIdValue(), 0));
+        }
+    }
+
+    private void reweight(String type, int id, int weight) {
+        Suggestion current = index.get(type, id);
+        if(current != null && current.getWeight() != weight) {
+            index.put(current.withWeight(weight));
+        }
+    }
+
+    private static void increment(Map<Integer, Integer> counts, int key, int delta) {
+        counts.merge(key, delta, Integer::sum);
+    }
+
+    private static <T> T first(List<T> list) {
+        return list == null || list.isEmpty() ? null : list.get(0);
+    }
+
+}
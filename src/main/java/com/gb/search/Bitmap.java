@@ -0,0 +1,317 @@
+package com.gb.search;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Insieme di interi non negativi (gli id delle canzoni) compresso come
+ * una roaring bitmap: gli id vengono divisi in blocchi da 65536 in base
+ * ai 16 bit alti, e ogni blocco è un array ordinato dei 16 bit bassi
+ * finché contiene al più ARRAY_MAX id, oltre diventa una bitmap di 65536
+ * bit (8 KB). Gli id sparsi (ad esempio 1000, 7364, 982365) non occupano
+ * quindi la memoria di una java.util.BitSet lunga quanto l'id più alto,
+ * mentre i blocchi densi si intersecano una parola (64 id) alla volta. <br>
+ * Non è thread-safe: FacetIndex la protegge con il suo lock.
+ */
+public final class Bitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private final TreeMap<Integer, Container> containers = new TreeMap<>();
+
+    public static Bitmap of(Collection<Integer> values) {
+        Bitmap bitmap = new Bitmap();
+        values.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    public void add(int value) {
+        checkValue(value);
+        Container container = containers.get(value >>> 16);
+        if(container == null) {
+            container = new ArrayContainer();
+        }
+        containers.put(value >>> 16, container.add((char) value));
+    }
+
+    public void remove(int value) {
+        Container container = containers.get(value >>> 16);
+        if(container != null) {
+            Container updated = container.remove((char) value);
+            if(updated.cardinality() == 0) {
+                containers.remove(value >>> 16);
+            } else {
+                containers.put(value >>> 16, updated);
+            }
+        }
+    }
+
+    public boolean contains(int value) {
+        Container container = containers.get(value >>> 16);
+        return container != null && container.contains((char) value);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for(Container container : containers.values()) {
+            cardinality += container.cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return containers.isEmpty();
+    }
+
+    /**
+     * Intersezione, senza modificare le due bitmap.
+     */
+    public Bitmap and(Bitmap other) {
+        Bitmap result = new Bitmap();
+        for(Map.Entry<Integer, Container> entry : containers.entrySet()) {
+            Container theirs = other.containers.get(entry.getKey());
+            if(theirs != null) {
+                Container intersection = entry.getValue().and(theirs);
+                if(intersection.cardinality() > 0) {
+                    result.containers.put(entry.getKey(), intersection);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cardinalità dell'intersezione, senza costruirla.
+     */
+    public int andCardinality(Bitmap other) {
+        int cardinality = 0;
+        for(Map.Entry<Integer, Container> entry : containers.entrySet()) {
+            Container theirs = other.containers.get(entry.getKey());
+            if(theirs != null) {
+                cardinality += entry.getValue().andCardinality(theirs);
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * Visita gli id in ordine crescente.
+     */
+    public void forEach(IntConsumer action) {
+        for(Map.Entry<Integer, Container> entry : containers.entrySet()) {
+            int high = entry.getKey() << 16;
+            entry.getValue().forEach(low -> action.accept(high | low));
+        }
+    }
+
+    /**
+     * Gli id in ordine crescente, saltando i primi offset, al più limit.
+     */
+    public List<Integer> toList(int offset, int limit) {
+        List<Integer> values = new ArrayList<>();
+        int[] skipped = {0};
+        forEach(value -> {
+            if(skipped[0] < offset) {
+                skipped[0]++;
+            } else if(values.size() < limit) {
+                values.add(value);
+            }
+        });
+        return values;
+    }
+
+    private static void checkValue(int value) {
+        if(value < 0) {
+            throw new IllegalArgumentException("Valore negativo: " + value);
+        }
+    }
+
+    private interface Container {
+
+        Container add(char low);
+
+        Container remove(char low);
+
+        boolean contains(char low);
+
+        int cardinality();
+
+        Container and(Container other);
+
+        int andCardinality(Container other);
+
+        void forEach(IntConsumer action);
+
+    }
+
+    private static final class ArrayContainer implements Container {
+
+        private char[] values = new char[4];
+        private int size = 0;
+
+        @Override
+        public Container add(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if(index >= 0) {
+                return this;
+            }
+            if(size == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            index = -index - 1;
+            if(size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = low;
+            size++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if(index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public Container and(Container other) {
+            ArrayContainer result = new ArrayContainer();
+            result.values = new char[Math.max(1, size)];
+            for(int i = 0; i < size; i++) {
+                if(other.contains(values[i])) {
+                    result.values[result.size++] = values[i];
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int andCardinality(Container other) {
+            int cardinality = 0;
+            for(int i = 0; i < size; i++) {
+                if(other.contains(values[i])) {
+                    cardinality++;
+                }
+            }
+            return cardinality;
+        }
+
+        @Override
+        public void forEach(IntConsumer action) {
+            for(int i = 0; i < size; i++) {
+                action.accept(values[i]);
+            }
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for(int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+
+    }
+
+    private static final class BitmapContainer implements Container {
+
+        private final long[] words = new long[WORDS];
+        private int cardinality = 0;
+
+        @Override
+        public Container add(char low) {
+            long before = words[low >>> 6];
+            words[low >>> 6] |= 1L << low;
+            if(before != words[low >>> 6]) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(char low) {
+            long before = words[low >>> 6];
+            words[low >>> 6] &= ~(1L << low);
+            if(before != words[low >>> 6]) {
+                cardinality--;
+            }
+            if(cardinality <= ARRAY_MAX) {
+                ArrayContainer array = new ArrayContainer();
+                forEach(value -> array.add((char) value));
+                return array;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other) {
+            if(!(other instanceof BitmapContainer)) {
+                return other.and(this);
+            }
+            BitmapContainer result = new BitmapContainer();
+            long[] theirs = ((BitmapContainer) other).words;
+            for(int i = 0; i < WORDS; i++) {
+                result.words[i] = words[i] & theirs[i];
+                result.cardinality += Long.bitCount(result.words[i]);
+            }
+            if(result.cardinality <= ARRAY_MAX) {
+                ArrayContainer array = new ArrayContainer();
+                result.forEach(value -> array.add((char) value));
+                return array;
+            }
+            return result;
+        }
+
+        @Override
+        public int andCardinality(Container other) {
+            if(!(other instanceof BitmapContainer)) {
+                return other.andCardinality(this);
+            }
+            long[] theirs = ((BitmapContainer) other).words;
+            int result = 0;
+            for(int i = 0; i < WORDS; i++) {
+                result += Long.bitCount(words[i] & theirs[i]);
+            }
+            return result;
+        }
+
+        @Override
+        public void forEach(IntConsumer action) {
+            for(int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while(word != 0) {
+                    action.accept(i * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+    }
+
+}
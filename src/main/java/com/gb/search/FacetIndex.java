@@ -0,0 +1,149 @@
+package com.gb.search;
+
+import com.gb.modelObject.Music;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice delle faccette delle canzoni: per ogni valore di ogni faccetta
+ * (genere, decennio, gruppo, album) una Bitmap con gli id delle canzoni
+ * che hanno quel valore. <br>
+ * - I conteggi di un insieme di risultati si ottengono intersecando la
+ *   sua bitmap con quelle dei valori, senza un GROUP BY per faccetta. Se i
+ *   risultati sono meno dei valori della faccetta (ad esempio 30 canzoni
+ *   contro migliaia di gruppi) conviene invece leggere il valore di ogni
+ *   risultato, per cui viene scelto il metodo più economico. <br>
+ * - Restringere i risultati ad un valore (drill-down) è un'intersezione
+ *   di bitmap.
+ */
+public class FacetIndex {
+
+    public static final String GENRE = "genre";
+    public static final String DECADE = "decade";
+    public static final String GROUP = "group";
+    public static final String ALBUM = "album";
+
+    public static final List<String> FACETS = Collections.unmodifiableList(Arrays.asList(GENRE, DECADE, GROUP, ALBUM));
+
+    private final Map<String, Map<Integer, Bitmap>> postings = new HashMap<>();
+    private final Map<Integer, int[]> valuesByMusic = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FacetIndex() {
+        for(String facet : FACETS) {
+            postings.put(facet, new HashMap<>());
+        }
+    }
+
+    /**
+     * Indicizza la canzone, sostituendo i valori precedenti.
+     */
+    public void put(Music music) {
+        int[] values = {
+                music.getGenreId(),
+                music.getYear() / 10 * 10,
+                music.getAuthorId(),
+                music.hasAlbum() ? music.getAlbumIdValue() : -1
+        };
+        lock.writeLock().lock();
+        try {
+            removeLocked(music.getMusicId());
+            valuesByMusic.put(music.getMusicId(), values);
+            for(int i = 0; i < FACETS.size(); i++) {
+                if(values[i] >= 0) {
+                    postings.get(FACETS.get(i)).computeIfAbsent(values[i], k -> new Bitmap()).add(music.getMusicId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int musicId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(musicId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Restringe i risultati alle canzoni che hanno tutti i valori scelti.
+     * @param hits Gli id dei risultati
+     * @param selections Faccetta -> valore scelto
+     */
+    public Bitmap filter(Bitmap hits, Map<String, Integer> selections) {
+        lock.readLock().lock();
+        try {
+            Bitmap filtered = hits;
+            for(Map.Entry<String, Integer> selection : selections.entrySet()) {
+                Bitmap posting = postings.get(selection.getKey()).get(selection.getValue());
+                if(posting == null) {
+                    return new Bitmap();
+                }
+                filtered = filtered.and(posting);
+            }
+            return filtered;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Conta i risultati per ogni valore di ogni faccetta.
+     * @return Faccetta -> (valore -> numero di risultati), senza i valori
+     *         che non hanno risultati
+     */
+    public Map<String, Map<Integer, Integer>> count(Bitmap hits) {
+        Map<String, Map<Integer, Integer>> counts = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            int hitCount = hits.cardinality();
+            for(int i = 0; i < FACETS.size(); i++) {
+                Map<Integer, Integer> facetCounts = new HashMap<>();
+                Map<Integer, Bitmap> facetPostings = postings.get(FACETS.get(i));
+                if(hitCount < facetPostings.size()) {
+                    int facet = i;
+                    hits.forEach(musicId -> {
+                        int[] values = valuesByMusic.get(musicId);
+                        if(values != null && values[facet] >= 0) {
+                            facetCounts.merge(values[facet], 1, Integer::sum);
+                        }
+                    });
+                } else {
+                    for(Map.Entry<Integer, Bitmap> posting : facetPostings.entrySet()) {
+                        int count = posting.getValue().andCardinality(hits);
+                        if(count > 0) {
+                            facetCounts.put(posting.getKey(), count);
+                        }
+                    }
+                }
+                counts.put(FACETS.get(i), facetCounts);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    private void removeLocked(int musicId) {
+        int[] old = valuesByMusic.remove(musicId);
+        if(old == null) {
+            return;
+        }
+        for(int i = 0; i < FACETS.size(); i++) {
+            Map<Integer, Bitmap> facetPostings = postings.get(FACETS.get(i));
+            Bitmap posting = facetPostings.get(old[i]);
+            if(posting != null) {
+                posting.remove(musicId);
+                if(posting.isEmpty()) {
+                    facetPostings.remove(old[i]);
+                }
+            }
+        }
+    }
+
+}
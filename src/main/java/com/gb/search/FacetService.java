@@ -0,0 +1,232 @@
+package com.gb.search;
+
+import com.gb.db.Database;
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.modelObject.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static com.gb.Constants.*;
+
+/**
+ * Faccette dei risultati di /search: quante canzoni trovate per ogni
+ * genere, decennio, gruppo e album, e il drill-down su uno o più valori.
+ * Mantiene un FacetIndex su tutte le canzoni del catalogo e i nomi da
+ * mostrare per i valori; come AutocompleteService viene costruito con
+ * ExportDAO e aggiornato dal ChangeFeed su un unico thread, e la
+ * costruzione fallita viene ritentata.
+ */
+public class FacetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FacetService.class);
+
+    private static FacetService serviceInstance = null;
+
+    private final Supplier<Database> database;
+    private final IndexUpdater updater;
+    private volatile FacetIndex index = new FacetIndex();
+    private final Map<Integer, String> genreNames = new ConcurrentHashMap<>();
+    private final Map<Integer, String> groupNames = new ConcurrentHashMap<>();
+    private final Map<Integer, String> albumTitles = new ConcurrentHashMap<>();
+
+    /**
+     * Restituisce il servizio condiviso, costruendo l'indice alla prima
+     * chiamata.
+     */
+    public static synchronized FacetService getInstance() {
+        if(serviceInstance == null) {
+            serviceInstance = new FacetService(Database::getDatabase, ChangeFeed.getInstance());
+            serviceInstance.awaitUpdates();
+        }
+        return serviceInstance;
+    }
+
+    public FacetService(Supplier<Database> database, ChangeFeed feed) {
+        this.database = database;
+        this.updater = new IndexUpdater("facet-updater", this::rebuild);
+        feed.subscribe(event -> updater.execute(() -> apply(event)));
+    }
+
+    /**
+     * Restringe i risultati di una ricerca ai valori scelti.
+     * @param musicIds Gli id delle canzoni trovate
+     * @param selections Faccetta (vedi FacetIndex.FACETS) -> valore scelto
+     */
+    public Bitmap filter(Collection<Integer> musicIds, Map<String, Integer> selections) {
+        return index.filter(Bitmap.of(musicIds), selections);
+    }
+
+    /**
+     * I valori più frequenti (al più FACET_SIZE) di ogni faccetta tra i
+     * risultati, dal più frequente.
+     */
+    public Map<String, List<FacetValue>> facets(Bitmap hits) {
+        Map<String, List<FacetValue>> facets = new LinkedHashMap<>();
+        index.count(hits).forEach((facet, counts) -> {
+            List<FacetValue> values = new ArrayList<>();
+            counts.forEach((value, count) -> values.add(new FacetValue(facet, value, label(facet, value), count)));
+            values.sort(Comparator.comparingInt(FacetValue::getCount).reversed()
+                    .thenComparing(FacetValue::getLabel));
+            facets.put(facet, values.size() > FACET_SIZE ? new ArrayList<>(values.subList(0, FACET_SIZE)) : values);
+        });
+        return facets;
+    }
+
+    /**
+     * Attende che gli aggiornamenti già ricevuti siano stati applicati.
+     */
+    public void awaitUpdates() {
+        updater.await();
+    }
+
+    /**
+     * False finché l'indice non è stato costruito.
+     */
+    public boolean isReady() {
+        return updater.isBuilt();
+    }
+
+    private String label(String facet, int value) {
+        String label;
+        switch (facet) {
+            case FacetIndex.GENRE:
+                label = genreNames.get(value);
+                break;
+            case FacetIndex.GROUP:
+                label = groupNames.get(value);
+                break;
+            case FacetIndex.ALBUM:
+                label = albumTitles.get(value);
+                break;
+            default:
+                return value + "-" + (value + 9);
+        }
+        return label == null ? String.valueOf(value) : label;
+    }
+
+    private boolean rebuild() {
+        Database db = database.get();
+        if(db == null) {
+            logger.error("Error in FacetService.rebuild: database non disponibile");
+            return false;
+        }
+        FacetIndex rebuilt = new FacetIndex();
+        Map<Integer, String> genres = new HashMap<>();
+        Map<Integer, String> groups = new HashMap<>();
+        Map<Integer, String> albums = new HashMap<>();
+        int result = db.exportGenres(0, genre -> genres.put(genre.getGenreId(), genre.getName()))
+                + db.exportGroups(0, group -> groups.put(group.getGroupId(), group.getName()))
+                + db.exportAlbums(0, album -> albums.put(album.getAlbumId(), album.getTitle()))
+                + db.exportMusic(0, rebuilt::put);
+        if(result != 0) {
+            logger.error("Error in FacetService.rebuild: lettura del catalogo fallita");
+            return false;
+        }
+        replace(genreNames, genres);
+        replace(groupNames, groups);
+        replace(albumTitles, albums);
+        index = rebuilt;
+        logger.info("Indice delle faccette costruito.");
+        return true;
+    }
+
+    private static void replace(Map<Integer, String> target, Map<Integer, String> source) {
+        target.putAll(source);
+        target.keySet().retainAll(source.keySet());
+    }
+
+    private void apply(ChangeEvent event) {
+        if(event.getOperation() == ChangeEvent.Operation.RESET) {
+            updater.rebuildNow();
+            return;
+        }
+        Database db = database.get();
+        if(db == null) {
+            logger.warn("Evento {} non applicato alle faccette: database non disponibile.", event);
+            return;
+        }
+        boolean deleted = event.getOperation() == ChangeEvent.Operation.DELETE;
+        int id = event.getId();
+        switch (event.getTable()) {
+            case MUSIC_TABLE: {
+                Music music = deleted ? null : first(db.getMusicById(id));
+                if(music == null) {
+                    index.remove(id);
+                } else {
+                    index.put(music);
+                }
+                break;
+            }
+            case GENRE_TABLE: {
+                Genre genre = deleted ? null : first(db.getGenreById(id));
+                updateName(genreNames, id, genre == null ? null : genre.getName());
+                break;
+            }
+            case GROUP_TABLE: {
+                Group group = deleted ? null : first(db.getGroupById(id));
+                updateName(groupNames, id, group == null ? null : group.getName());
+                break;
+            }
+            case ALBUM_TABLE: {
+                Album album = deleted ? null : first(db.getAlbumById(id));
+                updateName(albumTitles, id, album == null ? null : album.getTitle());
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private static void updateName(Map<Integer, String> names, int id, String name) {
+        if(name == null) {
+            names.remove(id);
+        } else {
+            names.put(id, name);
+        }
+    }
+
+    private static <T> T first(List<T> list) {
+        return list == null || list.isEmpty() ? null : list.get(0);
+    }
+
+    /**
+     * Un valore di una faccetta con il numero di risultati che lo hanno.
+     */
+    public static final class FacetValue {
+
+        private final String facet;
+        private final int value;
+        private final String label;
+        private final int count;
+
+        public FacetValue(String facet, int value, String label, int count) {
+            this.facet = facet;
+            this.value = value;
+            this.label = label;
+            this.count = count;
+        }
+
+        public String getFacet() {
+            return facet;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+    }
+
+}
@@ -0,0 +1,265 @@
+package com.gb.search;
+
+import com.gb.db.Database;
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.modelObject.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static com.gb.Constants.*;
+
+/**
+ * Ricerca tollerante agli errori di battitura per /search?fuzzy=true:
+ * "Beatels" trova le canzoni dei Beatles. Il termine viene confrontato
+ * con i titoli delle canzoni, i nomi dei gruppi e i titoli degli album,
+ * ognuno con il suo TrigramIndex; una corrispondenza su un gruppo o un
+ * album vale per tutte le sue canzoni. I risultati sono ordinati per
+ * distanza di Levenshtein e poi per id, e restituiti come MusicStrings
+ * (con artista "Vari artisti", come searchMusic quando il termine non
+ * corrisponde al nome di un artista). <br>
+ * Come AutocompleteService, gli indici vengono costruiti leggendo le
+ * tabelle con ExportDAO (ritentando se la costruzione fallisce) e
+ * aggiornati dal ChangeFeed su un unico thread; le righe dei risultati vengono composte dai dati in memoria, per cui
+ * una ricerca non interroga il database.
+ */
+public class FuzzySearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FuzzySearchService.class);
+
+    private static final String VARIOUS_ARTISTS = "Vari artisti";
+
+    private static FuzzySearchService serviceInstance = null;
+
+    private final Supplier<Database> database;
+    private final IndexUpdater updater;
+    private volatile Catalog catalog = new Catalog();
+
+    /**
+     * Restituisce il servizio condiviso, costruendo gli indici alla prima
+     * chiamata.
+     */
+    public static synchronized FuzzySearchService getInstance() {
+        if(serviceInstance == null) {
+            serviceInstance = new FuzzySearchService(Database::getDatabase, ChangeFeed.getInstance());
+            serviceInstance.awaitUpdates();
+        }
+        return serviceInstance;
+    }
+
+    public FuzzySearchService(Supplier<Database> database, ChangeFeed feed) {
+        this.database = database;
+        this.updater = new IndexUpdater("fuzzy-search-updater", this::rebuild);
+        feed.subscribe(event -> updater.execute(() -> apply(event)));
+    }
+
+    /**
+     * @param searchTerm Il termine cercato
+     * @param page Pagina dei risultati, di PAGE_SIZE righe
+     */
+    public List<MusicStrings> search(String searchTerm, int page) {
+        return search(searchTerm, page, PAGE_SIZE);
+    }
+
+    /**
+     * @param searchTerm Il termine cercato
+     * @param page Pagina dei risultati, di pageSize righe
+     * @param pageSize Righe per pagina
+     */
+    public List<MusicStrings> search(String searchTerm, int page, int pageSize) {
+        Catalog current = catalog;
+        Map<Integer, Integer> distances = new HashMap<>(current.titles.search(searchTerm));
+        current.groups.search(searchTerm).forEach((groupId, distance) ->
+                current.musicByGroup.getOrDefault(groupId, Collections.emptySet())
+                        .forEach(musicId -> distances.merge(musicId, distance, Math::min)));
+        current.albums.search(searchTerm).forEach((albumId, distance) ->
+                current.musicByAlbum.getOrDefault(albumId, Collections.emptySet())
+                        .forEach(musicId -> distances.merge(musicId, distance, Math::min)));
+
+        return distances.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .map(entry -> current.toStrings(entry.getKey()))
+                .filter(Objects::nonNull)
+                .skip((long) page * pageSize)
+                .limit(pageSize)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Attende che gli aggiornamenti già ricevuti siano stati applicati.
+     */
+    public void awaitUpdates() {
+        updater.await();
+    }
+
+    /**
+     * False finché gli indici non sono stati costruiti.
+     */
+    public boolean isReady() {
+        return updater.isBuilt();
+    }
+
+    private boolean rebuild() {
+        Database db = database.get();
+        if(db == null) {
+            logger.error("Error in FuzzySearchService.rebuild: database non disponibile");
+            return false;
+        }
+        Catalog rebuilt = new Catalog();
+        int result = db.exportGroups(0, rebuilt::putGroup) + db.exportAlbums(0, rebuilt::putAlbum)
+                + db.exportGenres(0, genre -> rebuilt.genreNames.put(genre.getGenreId(), genre.getName()))
+                + db.exportMusic(0, rebuilt::putMusic);
+        if(result != 0) {
+            logger.error("Error in FuzzySearchService.rebuild: lettura del catalogo fallita");
+            return false;
+        }
+        catalog = rebuilt;
+        logger.info("Indici della ricerca fuzzy costruiti ({} canzoni).", rebuilt.music.size());
+        return true;
+    }
+
+    private void apply(ChangeEvent event) {
+        if(event.getOperation() == ChangeEvent.Operation.RESET) {
+            updater.rebuildNow();
+            return;
+        }
+        Database db = database.get();
+        if(db == null) {
+            logger.warn("Evento {} non applicato alla ricerca fuzzy: database non disponibile.", event);
+            return;
+        }
+        boolean deleted = event.getOperation() == ChangeEvent.Operation.DELETE;
+        int id = event.getId();
+        Catalog current = catalog;
+        switch (event.getTable()) {
+            case MUSIC_TABLE: {
+                Music music = deleted ? null : first(db.getMusicById(id));
+                current.removeMusic(id);
+                if(music != null) {
+                    current.putMusic(music);
+                }
+                break;
+            }
+            case GROUP_TABLE: {
+                Group group = deleted ? null : first(db.getGroupById(id));
+                if(group == null) {
+                    current.groupNames.remove(id);
+                    current.groups.remove(id);
+                } else {
+                    current.putGroup(group);
+                }
+                break;
+            }
+            case ALBUM_TABLE: {
+                Album album = deleted ? null : first(db.getAlbumById(id));
+                if(album == null) {
+                    current.albumTitles.remove(id);
+                    current.albums.remove(id);
+                } else {
+                    current.putAlbum(album);
+                }
+                break;
+            }
+            case GENRE_TABLE: {
+                Genre genre = deleted ? null : first(db.getGenreById(id));
+                if(genre == null) {
+                    current.genreNames.remove(id);
+                } else {
+                    current.genreNames.put(id, genre.getName());
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private static <T> T first(List<T> list) {
+        return list == null || list.isEmpty() ? null : list.get(0);
+    }
+
+    /**
+     * Gli indici e i dati necessari a comporre le righe dei risultati.
+     * Viene sostituito per intero da rebuild e modificato solo dal thread
+     * di aggiornamento; le mappe sono concorrenti perché le ricerche le
+     * leggono dai thread delle richieste.
+     */
+    private static final class Catalog {
+
+        private final TrigramIndex titles = new TrigramIndex(FUZZY_MAX_POSTINGS);
+        private final TrigramIndex groups = new TrigramIndex(FUZZY_MAX_POSTINGS);
+        private final TrigramIndex albums = new TrigramIndex(FUZZY_MAX_POSTINGS);
+
+        private final Map<Integer, Music> music = new ConcurrentHashMap<>();
+        private final Map<Integer, String> groupNames = new ConcurrentHashMap<>();
+        private final Map<Integer, String> albumTitles = new ConcurrentHashMap<>();
+        private final Map<Integer, String> genreNames = new ConcurrentHashMap<>();
+        private final Map<Integer, Set<Integer>> musicByGroup = new ConcurrentHashMap<>();
+        private final Map<Integer, Set<Integer>> musicByAlbum = new ConcurrentHashMap<>();
+
+        private void putGroup(Group group) {
+            groupNames.put(group.getGroupId(), group.getName());
+            groups.put(group.getGroupId(), group.getName());
+        }
+
+        private void putAlbum(Album album) {
+            albumTitles.put(album.getAlbumId(), album.getTitle());
+            albums.put(album.getAlbumId(), album.getTitle());
+        }
+
+        private void putMusic(Music row) {
+            music.put(row.getMusicId(), row);
+            titles.put(row.getMusicId(), row.getTitle());
+            musicByGroup.computeIfAbsent(row.getAuthorId(), k -> new ConcurrentSkipListSet<>()).add(row.getMusicId());
+            if(row.hasAlbum()) {
+                musicByAlbum.computeIfAbsent(row.getAlbumIdValue(), k -> new ConcurrentSkipListSet<>())
+                        .add(row.getMusicId());
+            }
+        }
+
+        private void removeMusic(int musicId) {
+            Music old = music.remove(musicId);
+            if(old == null) {
+                return;
+            }
+            titles.remove(musicId);
+            musicByGroup.getOrDefault(old.getAuthorId(), Collections.emptySet()).remove(musicId);
+            if(old.hasAlbum()) {
+                musicByAlbum.getOrDefault(old.getAlbumIdValue(), Collections.emptySet()).remove(musicId);
+            }
+        }
+
+        /**
+         * Riga del risultato, oppure null se il gruppo o il genere non
+         * esistono (come l'inner join di searchMusic).
+         */
+        private MusicStrings toStrings(int musicId) {
+            Music row = music.get(musicId);
+            if(row == null) {
+                return null;
+            }
+            String groupName = groupNames.get(row.getAuthorId());
+            String genreName = genreNames.get(row.getGenreId());
+            if(groupName == null || genreName == null) {
+                return null;
+            }
+            MusicStrings strings = new MusicStrings();
+            strings.setMusicId(musicId);
+            strings.setTitle(row.getTitle());
+            strings.setAuthor(groupName);
+            strings.setArtist(VARIOUS_ARTISTS);
+            strings.setAlbum(row.hasAlbum() ? albumTitles.get(row.getAlbumIdValue()) : null);
+            strings.setYear(row.getYear());
+            strings.setGenre(genreName);
+            return strings;
+        }
+
+    }
+
+}
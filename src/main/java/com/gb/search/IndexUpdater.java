@@ -0,0 +1,101 @@
+package com.gb.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Il thread che costruisce e aggiorna gli indici di AutocompleteService,
+ * FuzzySearchService e FacetService. Se la costruzione fallisce (database
+ * non disponibile, esportazione non riuscita) viene ritentata con
+ * un'attesa che raddoppia ad ogni fallimento, come la riconnessione di
+ * ChangeListener: un indice rimasto vuoto all'avvio non dipende da un
+ * evento RESET che potrebbe non arrivare mai.
+ */
+final class IndexUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexUpdater.class);
+
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final String name;
+    private final BooleanSupplier rebuild;
+    private final ScheduledExecutorService executor;
+    private volatile boolean built = false;
+
+    /*
+     * Usati solo dal thread di aggiornamento.
+     */
+    private long backoff = INITIAL_BACKOFF_MILLIS;
+    private ScheduledFuture<?> retry;
+
+    /**
+     * @param name Il nome del thread, usato anche nel log
+     * @param rebuild Ricostruisce l'indice; restituisce false se non è riuscito
+     */
+    IndexUpdater(String name, BooleanSupplier rebuild) {
+        this.name = name;
+        this.rebuild = rebuild;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::rebuildNow);
+    }
+
+    /**
+     * Esegue l'aggiornamento sul thread, dopo quelli già ricevuti.
+     */
+    void execute(Runnable update) {
+        executor.execute(update);
+    }
+
+    /**
+     * Ricostruisce l'indice; va chiamato dal thread di aggiornamento (ad
+     * esempio per un evento RESET). Un nuovo tentativo già programmato
+     * viene annullato.
+     */
+    void rebuildNow() {
+        if(retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
+        if(rebuild.getAsBoolean()) {
+            built = true;
+            backoff = INITIAL_BACKOFF_MILLIS;
+            return;
+        }
+        logger.warn("Indice {} non costruito, nuovo tentativo fra {} ms.", name, backoff);
+        retry = executor.schedule(this::rebuildNow, backoff, TimeUnit.MILLISECONDS);
+        backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+    }
+
+    /**
+     * True dopo la prima costruzione riuscita.
+     */
+    boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Attende che gli aggiornamenti già ricevuti siano stati applicati.
+     */
+    void await() {
+        try {
+            executor.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Error in {}.await: {}", name, e.getMessage());
+        }
+    }
+
+}
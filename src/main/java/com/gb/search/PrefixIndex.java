@@ -0,0 +1,312 @@
+package com.gb.search;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Indice per l'autocompletamento: un radix trie (trie compresso, in cui
+ * le catene di nodi con un solo figlio sono fuse in un unico arco) sui
+ * testi normalizzati dei suggerimenti. <br>
+ * - Ogni suggerimento viene indicizzato sia con il testo intero che a
+ *   partire da ogni parola, per cui "chi" trova anche
+ *   "Teminite X Chime X PsoGnar". <br>
+ * - Ogni nodo mantiene i topSize suggerimenti più popolari del proprio
+ *   sottoalbero, sia in totale che per ogni tipo: una ricerca scende
+ *   lungo il prefisso e restituisce le liste già pronte, senza visitare
+ *   il sottoalbero. <br>
+ * - Gli aggiornamenti sono incrementali: inserire o rimuovere un
+ *   suggerimento ricalcola solo i nodi lungo i percorsi delle sue chiavi. <br>
+ * Le letture possono essere concorrenti, le scritture sono esclusive.
+ */
+public class PrefixIndex {
+
+    private static final Suggestion[] NONE = new Suggestion[0];
+    private static final Pattern MARKS = Pattern.compile("\\p{M}");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final int topSize;
+    private final Node root = new Node("");
+    private final Map<Suggestion, Suggestion> entries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param topSize Numero massimo di risultati di una ricerca
+     */
+    public PrefixIndex(int topSize) {
+        this.topSize = topSize;
+    }
+
+    /**
+     * Normalizza un testo per l'indice: minuscolo, senza accenti, con
+     * le sequenze di caratteri diversi da lettere e cifre ridotte ad
+     * un singolo spazio.
+     */
+    public static String normalize(String text) {
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Aggiunge il suggerimento, sostituendo quello già presente
+     * per la stessa entità (ad esempio con un testo o un peso diverso).
+     */
+    public void put(Suggestion suggestion) {
+        lock.writeLock().lock();
+        try {
+            Suggestion old = entries.remove(suggestion);
+            if(old != null) {
+                for(String key : keys(old.getText())) {
+                    removeKey(key, old);
+                }
+            }
+            entries.put(suggestion, suggestion);
+            for(String key : keys(suggestion.getText())) {
+                insertKey(key, suggestion);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String type, int id) {
+        lock.writeLock().lock();
+        try {
+            Suggestion old = entries.remove(new Suggestion("", type, id, 0));
+            if(old != null) {
+                for(String key : keys(old.getText())) {
+                    removeKey(key, old);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Restituisce il suggerimento indicizzato per l'entità, oppure null.
+     */
+    public Suggestion get(String type, int id) {
+        lock.readLock().lock();
+        try {
+            return entries.get(new Suggestion("", type, id, 0));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Restituisce i suggerimenti più popolari che hanno una parola
+     * che inizia con il prefisso (normalizzato).
+     */
+    public List<Suggestion> lookup(String prefix, int limit) {
+        String key = normalize(prefix);
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if(node == null) {
+                return Collections.emptyList();
+            }
+            return Arrays.asList(Arrays.copyOf(node.top, Math.min(limit, node.top.length)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Come lookup, ma con i risultati divisi per tipo (al più limit per
+     * tipo), ottenuti con la stessa discesa lungo il prefisso.
+     * @return Tipo -> suggerimenti, senza i tipi che non hanno risultati
+     */
+    public Map<String, List<Suggestion>> lookupByType(String prefix, int limit) {
+        Map<String, List<Suggestion>> result = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Node node = find(normalize(prefix));
+            if(node != null) {
+                node.topByType.forEach((type, top) ->
+                        result.put(type, Arrays.asList(Arrays.copyOf(top, Math.min(limit, top.length)))));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Il nodo in cui termina il prefisso (o l'arco che lo contiene),
+     * oppure null se nessuna chiave inizia con il prefisso.
+     */
+    private Node find(String key) {
+        if(key.isEmpty()) {
+            return null;
+        }
+        Node node = root;
+        int i = 0;
+        while(i < key.length()) {
+            Node child = node.children.get(key.charAt(i));
+            if(child == null) {
+                return null;
+            }
+            String rest = key.substring(i);
+            if(child.label.startsWith(rest)) {
+                return child;
+            }
+            if(!rest.startsWith(child.label)) {
+                return null;
+            }
+            node = child;
+            i += child.label.length();
+        }
+        return node;
+    }
+
+    private static Set<String> keys(String text) {
+        String normalized = normalize(text);
+        Set<String> keys = new LinkedHashSet<>();
+        if(normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        for(int i = 1; i < normalized.length(); i++) {
+            if(normalized.charAt(i - 1) == ' ') {
+                keys.add(normalized.substring(i));
+            }
+        }
+        return keys;
+    }
+
+    private void insertKey(String key, Suggestion suggestion) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while(i < key.length()) {
+            Node child = node.children.get(key.charAt(i));
+            if(child == null) {
+                child = new Node(key.substring(i));
+                node.children.put(key.charAt(i), child);
+                i = key.length();
+            } else {
+                int common = commonPrefixLength(child.label, key, i);
+                if(common < child.label.length()) {
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.children.put(child.label.charAt(0), child);
+                    node.children.put(middle.label.charAt(0), middle);
+                    child = middle;
+                }
+                i += common;
+            }
+            node = child;
+            path.add(node);
+        }
+        node.terminals.add(suggestion);
+        for(int j = path.size() - 1; j >= 0; j--) {
+            recompute(path.get(j));
+        }
+    }
+
+    private void removeKey(String key, Suggestion suggestion) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while(i < key.length()) {
+            node = node.children.get(key.charAt(i));
+            if(node == null || !key.startsWith(node.label, i)) {
+                return;
+            }
+            path.add(node);
+            i += node.label.length();
+        }
+        node.terminals.remove(suggestion);
+
+        for(int j = path.size() - 1; j > 0; j--) {
+            Node current = path.get(j);
+            Node parent = path.get(j - 1);
+            if(current.terminals.isEmpty() && current.children.isEmpty()) {
+                parent.children.remove(current.label.charAt(0));
+            } else if(current.terminals.isEmpty() && current.children.size() == 1) {
+                Node child = current.children.values().iterator().next();
+                child.label = current.label + child.label;
+                parent.children.put(child.label.charAt(0), child);
+            } else {
+                recompute(current);
+            }
+        }
+        recompute(root);
+    }
+
+    private void recompute(Node node) {
+        Map<String, List<Suggestion>> candidates = new HashMap<>();
+        for(Suggestion terminal : node.terminals) {
+            candidates.computeIfAbsent(terminal.getType(), k -> new ArrayList<>()).add(terminal);
+        }
+        for(Node child : node.children.values()) {
+            child.topByType.forEach((type, top) ->
+                    candidates.computeIfAbsent(type, k -> new ArrayList<>()).addAll(Arrays.asList(top)));
+        }
+
+        Map<String, Suggestion[]> topByType = new HashMap<>(4);
+        List<Suggestion> all = new ArrayList<>();
+        candidates.forEach((type, list) -> {
+            Suggestion[] top = top(list);
+            topByType.put(type, top);
+            all.addAll(Arrays.asList(top));
+        });
+        node.topByType = topByType;
+        node.top = top(all);
+    }
+
+    /*
+     * I topSize suggerimenti più popolari, senza duplicati (la stessa
+     * entità può arrivare da più figli, con chiavi diverse).
+     */
+    private Suggestion[] top(List<Suggestion> candidates) {
+        candidates.sort(Suggestion.BY_POPULARITY);
+        Set<Suggestion> top = new LinkedHashSet<>();
+        for(Suggestion candidate : candidates) {
+            if(top.size() == topSize) {
+                break;
+            }
+            top.add(candidate);
+        }
+        return top.toArray(NONE);
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while(i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+
+        private String label;
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final Set<Suggestion> terminals = new HashSet<>(2);
+        private Suggestion[] top = NONE;
+        private Map<String, Suggestion[]> topByType = Collections.emptyMap();
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.gb.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import static com.gb.utils.UtilFunctions.jsonValue;
+
+/**
+ * Un suggerimento dell'autocompletamento: il testo da mostrare, il tipo
+ * e l'id dell'entità a cui si riferisce, e la sua popolarità. Due
+ * suggerimenti sono uguali se si riferiscono alla stessa entità.
+ */
+public final class Suggestion {
+
+    public static final String MUSIC = "music";
+    public static final String GROUP = "group";
+    public static final String ARTIST = "artist";
+    public static final String ALBUM = "album";
+    public static final String GENRE = "genre";
+
+    /**
+     * I tipi, nell'ordine in cui vengono mostrati i risultati di /find.
+     */
+    public static final List<String> TYPES = Collections.unmodifiableList(
+            Arrays.asList(MUSIC, GROUP, ARTIST, ALBUM, GENRE));
+
+    /**
+     * Ordine dei risultati: prima i più popolari, a parità di
+     * popolarità in ordine alfabetico.
+     */
+    public static final Comparator<Suggestion> BY_POPULARITY = Comparator
+            .comparingInt(Suggestion::getWeight).reversed()
+            .thenComparing(Suggestion::getText)
+            .thenComparing(Suggestion::getType)
+            .thenComparingInt(Suggestion::getId);
+
+    private final String text;
+    private final String type;
+    private final int id;
+    private final int weight;
+
+    public Suggestion(String text, String type, int id, int weight) {
+        this.text = text;
+        this.type = type;
+        this.id = id;
+        this.weight = weight;
+    }
+
+    public Suggestion withWeight(int newWeight) {
+        return new Suggestion(text, type, id, newWeight);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public String toJson() {
+        return "{\"text\":" + jsonValue(text) + ",\"type\":" + jsonValue(type) + ",\"id\":" + id + "}";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof Suggestion)) {
+            return false;
+        }
+        Suggestion other = (Suggestion) o;
+        return id == other.id && type.equals(other.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, id);
+    }
+
+    @Override
+    public String toString() {
+        return type + ":" + id + " " + text + " (" + weight + ")";
+    }
+}
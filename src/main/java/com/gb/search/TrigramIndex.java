@@ -0,0 +1,230 @@
+package com.gb.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice invertito per la ricerca tollerante agli errori di battitura:
+ * ogni testo (normalizzato con PrefixIndex.normalize) viene scomposto
+ * nei suoi trigrammi, con lo stesso padding di pg_trgm ("  beatles "), e
+ * ogni trigramma punta agli id dei testi che lo contengono. <br>
+ * Una ricerca procede in due fasi: <br>
+ * - pruning: si contano i trigrammi in comune tra il termine cercato e
+ *   ogni testo. Una modifica (inserimento, cancellazione o sostituzione
+ *   di un carattere) altera al più 3 trigrammi, per cui un testo entro
+ *   k modifiche condivide almeno |trigrammi| - 3k trigrammi del termine:
+ *   gli altri vengono scartati senza calcolare la distanza. <br>
+ * - verifica: per i candidati rimasti si calcola la distanza di
+ *   Levenshtein tra il termine e le parole del testo (vedi distance). <br>
+ * I trigrammi molto frequenti (più di maxPostings testi, ad esempio
+ * "the") non vengono usati per contare i candidati: scorrerli costerebbe
+ * più di quanto scartano, e la soglia viene abbassata di conseguenza.
+ * Se la soglia scende a zero (tutti o quasi i trigrammi del termine sono
+ * frequenti, come per "love") un testo può condividere con il termine
+ * solo trigrammi frequenti: in quel caso diventano candidati anche i
+ * testi di quei trigrammi, per cui il risultato non cambia.
+ */
+public class TrigramIndex {
+
+    private final int maxPostings;
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+    private final Map<Integer, String> texts = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param maxPostings Numero di testi oltre il quale un trigramma non
+     *                    viene usato per selezionare i candidati
+     */
+    public TrigramIndex(int maxPostings) {
+        this.maxPostings = maxPostings;
+    }
+
+    /**
+     * Numero massimo di modifiche tollerate per un termine (normalizzato)
+     * di questa lunghezza: nessuna fino a 3 caratteri, poi una, poi due
+     * dai 7 caratteri in su, così che "beatels" trovi "beatles".
+     */
+    public static int maxDistance(int length) {
+        if(length <= 3) {
+            return 0;
+        }
+        return length < 7 ? 1 : 2;
+    }
+
+    /**
+     * Trigrammi di un testo già normalizzato, parola per parola.
+     */
+    public static Set<String> trigrams(String normalized) {
+        Set<String> grams = new HashSet<>();
+        for(String word : normalized.split(" ")) {
+            if(word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for(int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(padded.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * Distanza di Levenshtein tra il termine e il testo (entrambi
+     * normalizzati), confrontando il termine con ogni sequenza di parole
+     * consecutive del testo lunga quanto il termine: "beatels" dista 2
+     * da "the beatles". Restituisce max + 1 se la distanza supera max.
+     */
+    public static int distance(String term, String text, int max) {
+        String[] words = text.split(" ");
+        int termWords = term.split(" ").length;
+        if(words.length <= termWords) {
+            return levenshtein(term, text, max);
+        }
+        int best = max + 1;
+        for(int i = 0; i + termWords <= words.length && best > 0; i++) {
+            String window = String.join(" ", Arrays.asList(words).subList(i, i + termWords));
+            best = Math.min(best, levenshtein(term, window, Math.min(max, best - 1)));
+        }
+        return best;
+    }
+
+    /**
+     * Distanza di Levenshtein, calcolata con due sole righe della matrice
+     * e interrotta appena tutta la riga supera max (restituendo max + 1).
+     */
+    public static int levenshtein(String a, String b, int max) {
+        if(Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for(int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for(int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for(int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if(rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    /**
+     * Indicizza il testo con l'id indicato, sostituendo quello precedente.
+     */
+    public void put(int id, String text) {
+        String normalized = PrefixIndex.normalize(text);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if(normalized.isEmpty()) {
+                return;
+            }
+            texts.put(id, normalized);
+            for(String gram : trigrams(normalized)) {
+                postings.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return texts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cerca i testi entro maxDistance(lunghezza del termine) modifiche.
+     * @return Gli id trovati, ognuno con la sua distanza dal termine
+     */
+    public Map<Integer, Integer> search(String term) {
+        String normalized = PrefixIndex.normalize(term);
+        Map<Integer, Integer> found = new HashMap<>();
+        if(normalized.isEmpty()) {
+            return found;
+        }
+        int max = maxDistance(normalized.length());
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> shared = new HashMap<>();
+            List<Set<Integer>> skipped = new ArrayList<>();
+            int used = 0;
+            for(String gram : trigrams(normalized)) {
+                Set<Integer> ids = postings.get(gram);
+                if(ids == null) {
+                    used++;
+                } else if(ids.size() <= maxPostings) {
+                    used++;
+                    for(int id : ids) {
+                        shared.merge(id, 1, Integer::sum);
+                    }
+                } else {
+                    skipped.add(ids);
+                }
+            }
+
+            int required = used - 3 * max;
+            if(required <= 0) {
+                for(Set<Integer> ids : skipped) {
+                    for(int id : ids) {
+                        shared.putIfAbsent(id, 0);
+                    }
+                }
+            }
+            for(Map.Entry<Integer, Integer> candidate : shared.entrySet()) {
+                if(candidate.getValue() >= required) {
+                    int distance = distance(normalized, texts.get(candidate.getKey()), max);
+                    if(distance <= max) {
+                        found.put(candidate.getKey(), distance);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    private void removeLocked(int id) {
+        String old = texts.remove(id);
+        if(old == null) {
+            return;
+        }
+        for(String gram : trigrams(old)) {
+            Set<Integer> ids = postings.get(gram);
+            if(ids != null) {
+                ids.remove(id);
+                if(ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+}
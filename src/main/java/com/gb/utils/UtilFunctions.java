@@ -34,4 +34,69 @@ public class UtilFunctions {
         }
     }
 
+    /**
+     * Restituisce il valore come campo CSV (RFC 4180): se contiene
+     * virgole, virgolette o a capo viene racchiuso fra virgolette,
+     * raddoppiando quelle interne. Il valore null diventa il campo vuoto.
+     * @param value Il valore da scrivere
+     * @return Il campo CSV
+     */
+    public static String csvField(Object value) {
+        if(value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if(text.indexOf(',') < 0 && text.indexOf('"') < 0
+                && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Restituisce il valore come valore JSON: i numeri restano tali,
+     * null diventa null e le stringhe vengono racchiuse fra virgolette,
+     * con l'escape di virgolette, backslash e caratteri di controllo.
+     * @param value Il valore da scrivere
+     * @return Il valore JSON
+     */
+    public static String jsonValue(Object value) {
+        if(value == null) {
+            return "null";
+        }
+        if(value instanceof Number) {
+            return value.toString();
+        }
+        String text = value.toString();
+        StringBuilder sb = new StringBuilder(text.length() + 2);
+        sb.append('"');
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if(c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
 }
@@ -0,0 +1,72 @@
+package unit;
+
+import com.gb.db.AsyncDatabase;
+import com.gb.db.Database;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AsyncDatabaseTest {
+
+    private AsyncDatabase async;
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] AsyncDatabaseTest");
+    }
+
+    @BeforeEach
+    void createPool() {
+        async = new AsyncDatabase(() -> mock(Database.class), 2, 4);
+    }
+
+    @AfterEach
+    void shutdown() {
+        async.shutdown();
+    }
+
+    @Test
+    void independentQueriesRunConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CompletableFuture<Boolean> first = async.supply(db -> awaitOther(bothStarted));
+        CompletableFuture<Boolean> second = async.supply(db -> awaitOther(bothStarted));
+
+        assertTrue(first.get(5, TimeUnit.SECONDS), "Le due query devono essere eseguite in parallelo.");
+        assertTrue(second.get(5, TimeUnit.SECONDS), "Le due query devono essere eseguite in parallelo.");
+    }
+
+    @Test
+    void queriesUseWorkerDatabase() throws Exception {
+        Map<Integer, String> groups = Collections.singletonMap(1, "gruppo");
+        AsyncDatabase pool = new AsyncDatabase(() -> {
+            Database db = mock(Database.class);
+            when(db.getGroupMap()).thenReturn(groups);
+            return db;
+        }, 1, 1);
+        try {
+            assertEquals(groups, pool.supply(Database::getGroupMap).get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static boolean awaitOther(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+}
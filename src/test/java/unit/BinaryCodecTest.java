@@ -0,0 +1,113 @@
+package unit;
+
+import com.gb.codec.BinaryCodec;
+import com.gb.db.inMemoryImpl.CatalogLoader;
+import com.gb.db.inMemoryImpl.InMemoryDatabase;
+import com.gb.modelObject.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import static com.gb.Constants.*;
+
+/**
+ * Le liste da codificare vengono lette dal catalogo in memoria,
+ * caricato dal dump presente nella root del progetto.
+ */
+class BinaryCodecTest {
+
+    private InMemoryDatabase database;
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] BinaryCodecTest");
+    }
+
+    @BeforeEach
+    void loadDump() throws IOException {
+        database = new InMemoryDatabase();
+        CatalogLoader.loadFromDump(DUMP_FILE, database);
+    }
+
+    @Test
+    void musicDetailsRoundTrip() throws IOException {
+        List<MusicDetails> music = database.getAllMusicDetails(0);
+        music.addAll(database.getMusicDetailsById(7364));
+
+        List<Object> decoded = BinaryCodec.decode(BinaryCodec.encode(music));
+        assertEquals(music.size(), decoded.size());
+        for(int i = 0; i < music.size(); i++) {
+            MusicDetails expected = music.get(i);
+            MusicDetails actual = (MusicDetails) decoded.get(i);
+            assertEquals(expected.getMusicId(), actual.getMusicId());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getAlbumId(), actual.getAlbumId());
+            assertEquals(expected.getYear(), actual.getYear());
+            assertEquals(expected.getAuthorName(), actual.getAuthorName());
+            assertEquals(expected.getAlbumTitle(), actual.getAlbumTitle());
+            assertEquals(expected.getGenreName(), actual.getGenreName());
+        }
+        assertNull(((MusicDetails) decoded.get(decoded.size() - 1)).getAlbumId());
+    }
+
+    @Test
+    void repeatedStringsAreWrittenOnce() throws IOException {
+        List<JoinAll> rows = database.joinAll(0);
+        byte[] message = BinaryCodec.encode(rows);
+
+        List<Object> decoded = BinaryCodec.decode(message);
+        JoinAll first = (JoinAll) decoded.get(0);
+        assertEquals(rows.get(0).getGroupName(), first.getGroupName());
+        assertEquals(rows.get(0).getNumLinks(), first.getNumLinks());
+
+        String groupName = rows.get(0).getGroupName();
+        assertTrue(rows.stream().filter(row -> row.getGroupName().equals(groupName)).count() > 1);
+        assertEquals(1, occurrences(message, groupName.getBytes()));
+    }
+
+    @Test
+    void messagesCanBeReadFromAStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(BinaryCodec.encode(database.getAllGroups(0)));
+        out.write(BinaryCodec.encode(database.searchMusic("chime", 0)));
+        out.write(BinaryCodec.encode(Collections.emptyList()));
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        assertEquals(database.getAllGroups(0).size(), BinaryCodec.decode(in).size());
+        assertTrue(BinaryCodec.decode(in).get(0) instanceof MusicStrings);
+        assertTrue(BinaryCodec.decode(in).isEmpty());
+        assertNull(BinaryCodec.decode(in));
+    }
+
+    @Test
+    void unsupportedOrCorruptedMessagesAreRejected() {
+        assertFalse(BinaryCodec.supports(database.musicJoinLink(0)));
+        assertThrows(IllegalArgumentException.class, () -> BinaryCodec.encode(database.artistJoinGroup(0)));
+
+        byte[] message = BinaryCodec.encode(Collections.singletonList(new Genre(1, "Rock")));
+        byte[] newerVersion = message.clone();
+        newerVersion[1] = (byte) (BinaryCodec.VERSION + 1); // dopo la lunghezza, di un solo byte
+        assertThrows(IOException.class, () -> BinaryCodec.decode(newerVersion));
+        assertThrows(IOException.class, () -> BinaryCodec.decode(Arrays.copyOf(message, message.length - 1)));
+    }
+
+    private static int occurrences(byte[] data, byte[] pattern) {
+        int count = 0;
+        for(int i = 0; i <= data.length - pattern.length; i++) {
+            if(Arrays.equals(Arrays.copyOfRange(data, i, i + pattern.length), pattern)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,159 @@
+package unit;
+
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeEvent.Operation;
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.db.cdc.ChangeSubscription;
+import com.gb.db.inMemoryImpl.InMemoryDatabase;
+import com.gb.db.postgreSQLImpl.ChangeListener;
+import com.gb.db.postgreSQLImpl.ConnectionManager;
+import com.gb.modelObject.Genre;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import static com.gb.Constants.*;
+
+class ChangeFeedTest {
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] ChangeFeedTest");
+    }
+
+    @Test
+    void payloadRoundTrip() {
+        ChangeEvent event = ChangeEvent.fromPayload("music:42:U:1234");
+        assertEquals(MUSIC_TABLE, event.getTable());
+        assertEquals(42, event.getId());
+        assertEquals(Operation.UPDATE, event.getOperation());
+        assertEquals(1234, event.getVersion());
+        assertEquals("music:42:U:1234", event.toPayload());
+
+        assertThrows(IllegalArgumentException.class, () -> ChangeEvent.fromPayload("music:42:X:1"));
+        assertThrows(IllegalArgumentException.class, () -> ChangeEvent.fromPayload("music:42"));
+    }
+
+    @Test
+    void inMemoryWritesArePublishedInOrder() {
+        List<ChangeEvent> events = new ArrayList<>();
+        Runnable unsubscribe = ChangeFeed.getInstance().subscribe(events::add);
+        try {
+            InMemoryDatabase database = new InMemoryDatabase();
+            assertEquals(0, database.insertGenre(new Genre(1, "Rock")));
+            assertEquals(-1, database.insertGenre(new Genre(1, "Rock")));
+            assertEquals(0, database.updateGenre(new Genre(1, "Hard rock")));
+            assertEquals(0, database.deleteGenre(1));
+        } finally {
+            unsubscribe.run();
+        }
+
+        assertEquals(3, events.size(), "Le scritture fallite non vengono pubblicate.");
+        assertEquals(Operation.INSERT, events.get(0).getOperation());
+        assertEquals(Operation.UPDATE, events.get(1).getOperation());
+        assertEquals(Operation.DELETE, events.get(2).getOperation());
+        assertTrue(events.get(0).getVersion() < events.get(1).getVersion());
+        assertTrue(events.get(1).getVersion() < events.get(2).getVersion());
+    }
+
+    @Test
+    void failingSubscriberDoesNotStopDelivery() {
+        ChangeFeed feed = new ChangeFeed();
+        List<ChangeEvent> events = new ArrayList<>();
+        feed.subscribe(event -> { throw new IllegalStateException("subscriber rotto"); });
+        Runnable unsubscribe = feed.subscribe(events::add);
+
+        feed.publishLocal(GENRE_TABLE, 1, Operation.INSERT);
+        unsubscribe.run();
+        feed.publishLocal(GENRE_TABLE, 1, Operation.DELETE);
+
+        assertEquals(1, events.size());
+        assertEquals(1, feed.getSubscriberCount());
+    }
+
+    @Test
+    void subscriptionFiltersByTableAndId() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed();
+        try (ChangeSubscription subscription = new ChangeSubscription(feed,
+                Collections.singleton(MUSIC_TABLE), new HashSet<>(Arrays.asList(1, 2)), 10)) {
+            feed.publishLocal(ALBUM_TABLE, 1, Operation.UPDATE);
+            feed.publishLocal(MUSIC_TABLE, 3, Operation.UPDATE);
+            feed.publishLocal(MUSIC_TABLE, 2, Operation.DELETE);
+            feed.publish(ChangeEvent.reset(0));
+
+            assertEquals(2, subscription.poll(0, TimeUnit.MILLISECONDS).getId());
+            assertEquals(Operation.RESET, subscription.poll(0, TimeUnit.MILLISECONDS).getOperation());
+            assertNull(subscription.poll(0, TimeUnit.MILLISECONDS));
+        }
+        assertEquals(0, feed.getSubscriberCount());
+    }
+
+    @Test
+    void slowSubscriberGetsResetInsteadOfDroppedEvents() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed();
+        try (ChangeSubscription subscription = new ChangeSubscription(feed,
+                Collections.emptySet(), Collections.emptySet(), 2)) {
+            for(int i = 1; i <= 5; i++) {
+                feed.publishLocal(GENRE_TABLE, i, Operation.INSERT);
+            }
+            assertEquals(3, subscription.getDroppedCount());
+
+            assertEquals(Operation.RESET, subscription.poll(0, TimeUnit.MILLISECONDS).getOperation());
+            assertNull(subscription.poll(0, TimeUnit.MILLISECONDS), "Gli eventi in coda vengono sostituiti dal RESET.");
+
+            feed.publishLocal(GENRE_TABLE, 6, Operation.INSERT);
+            assertEquals(6, subscription.poll(0, TimeUnit.MILLISECONDS).getId());
+        }
+    }
+
+    @Test
+    void listenerForwardsNotifications() throws SQLException {
+        ChangeFeed feed = new ChangeFeed();
+        List<ChangeEvent> events = new ArrayList<>();
+        feed.subscribe(events::add);
+
+        ConnectionManager manager = mock(ConnectionManager.class);
+        Connection conn = mock(Connection.class);
+        PGConnection pgConn = mock(PGConnection.class);
+        when(manager.openConnection()).thenReturn(conn);
+        when(conn.createStatement()).thenReturn(mock(Statement.class));
+        when(conn.unwrap(PGConnection.class)).thenReturn(pgConn);
+
+        ChangeListener listener = new ChangeListener(manager, feed);
+        PGNotification valid = notification("album:7:D:99");
+        PGNotification invalid = notification("non valida");
+        when(pgConn.getNotifications(anyInt())).thenAnswer(invocation -> {
+            listener.stop();
+            return new PGNotification[]{valid, invalid};
+        });
+
+        listener.run();
+
+        assertEquals(1, events.size());
+        assertEquals(ALBUM_TABLE, events.get(0).getTable());
+        assertEquals(Operation.DELETE, events.get(0).getOperation());
+        verify(conn).close();
+    }
+
+    private static PGNotification notification(String payload) {
+        PGNotification notification = mock(PGNotification.class);
+        when(notification.getName()).thenReturn(CHANGE_CHANNEL);
+        when(notification.getParameter()).thenReturn(payload);
+        return notification;
+    }
+
+}
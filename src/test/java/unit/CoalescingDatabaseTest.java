@@ -0,0 +1,136 @@
+package unit;
+
+import com.gb.db.CoalescingDatabase;
+import com.gb.db.Database;
+import com.gb.modelObject.MusicStrings;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.gb.Constants.PAGE_SIZE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CoalescingDatabaseTest {
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] CoalescingDatabaseTest");
+    }
+
+    @Test
+    void concurrentIdenticalReadsShareOneQuery() throws Exception {
+        Map<Integer, String> groups = Collections.singletonMap(1, "gruppo");
+        CountDownLatch release = new CountDownLatch(1);
+        Database delegate = mock(Database.class);
+        when(delegate.getGroupMap()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return groups;
+        });
+        CoalescingDatabase db = new CoalescingDatabase(delegate);
+
+        CompletableFuture<Map<Integer, String>> first = CompletableFuture.supplyAsync(db::getGroupMap);
+        while(db.getReadCount() < 1) {
+            Thread.sleep(1);
+        }
+        CompletableFuture<Map<Integer, String>> second = CompletableFuture.supplyAsync(db::getGroupMap);
+        while(db.getCollapsedCount() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertSame(groups, first.get(5, TimeUnit.SECONDS));
+        assertSame(groups, second.get(5, TimeUnit.SECONDS));
+        verify(delegate, times(1)).getGroupMap();
+    }
+
+    @Test
+    void errorsReachEveryCollapsedRead() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Database delegate = mock(Database.class);
+        when(delegate.getGroupMap()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new StackOverflowError();
+        });
+        CoalescingDatabase db = new CoalescingDatabase(delegate);
+
+        CompletableFuture<Map<Integer, String>> first = CompletableFuture.supplyAsync(db::getGroupMap);
+        while(db.getReadCount() < 1) {
+            Thread.sleep(1);
+        }
+        CompletableFuture<Map<Integer, String>> second = CompletableFuture.supplyAsync(db::getGroupMap);
+        while(db.getCollapsedCount() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        ExecutionException firstError = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        ExecutionException secondError = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertTrue(firstError.getCause() instanceof StackOverflowError);
+        assertTrue(secondError.getCause() instanceof StackOverflowError);
+    }
+
+    @Test
+    void overloadsAndSeparatorsDoNotShareKeys() throws Exception {
+        List<MusicStrings> pageRows = new ArrayList<>();
+        List<MusicStrings> rangeRows = new ArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Database delegate = mock(Database.class);
+        when(delegate.searchMusic("a:1", 2)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return pageRows;
+        });
+        when(delegate.searchMusic("a", 1, 2)).thenReturn(rangeRows);
+        CoalescingDatabase db = new CoalescingDatabase(delegate);
+
+        CompletableFuture<List<MusicStrings>> first = CompletableFuture.supplyAsync(() -> db.searchMusic("a:1", 2));
+        while(db.getReadCount() < 1) {
+            Thread.sleep(1);
+        }
+        assertSame(rangeRows, db.searchMusic("a", 1, 2));
+        release.countDown();
+
+        assertSame(pageRows, first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, db.getCollapsedCount());
+    }
+
+    @Test
+    void differentArgumentsAndLaterReadsAreNotShared() {
+        Database delegate = mock(Database.class);
+        CoalescingDatabase db = new CoalescingDatabase(delegate);
+
+        db.getAllMusic(0);
+        db.getAllMusic(1);
+        db.getAllMusic(0);
+
+        verify(delegate, times(2)).getAllMusic(0, PAGE_SIZE);
+        verify(delegate, times(1)).getAllMusic(1, PAGE_SIZE);
+        assertEquals(0, db.getCollapsedCount());
+    }
+
+    @Test
+    void pageSizeIsForwarded() {
+        Database delegate = mock(Database.class);
+        CoalescingDatabase db = new CoalescingDatabase(delegate);
+
+        db.getAllMusic(0, 25);
+        db.getAllAlbums(1, 25);
+        db.getAllLinks(2, 50);
+
+        verify(delegate).getAllMusic(0, 25);
+        verify(delegate).getAllAlbums(1, 25);
+        verify(delegate).getAllLinks(2, 50);
+        verify(delegate, never()).getAllMusic(0, PAGE_SIZE);
+        verify(delegate, never()).getAllAlbums(1, PAGE_SIZE);
+        verify(delegate, never()).getAllLinks(2, PAGE_SIZE);
+    }
+
+}
@@ -0,0 +1,31 @@
+package unit;
+
+import com.gb.db.postgreSQLImpl.ConnectionManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionManagerTest {
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] ConnectionManagerTest");
+    }
+
+    @Test
+    void failsFastWhileCircuitIsOpen() {
+        ConnectionManager manager = new ConnectionManager("localhost", 5432, "MusicDBPostgres",
+                "file-credenziali-inesistente.txt");
+
+        assertThrows(SQLException.class, manager::getConnection);
+        SQLException fastFailure = assertThrows(SQLException.class, manager::getConnection);
+        assertTrue(fastFailure.getMessage().contains("non disponibile"),
+                "Dopo un fallimento il tentativo successivo deve fallire subito.");
+        assertFalse(manager.isAvailable());
+        assertNull(manager.currentConnection());
+    }
+
+}
@@ -6,10 +6,16 @@ import spark.Request;
 import spark.Response;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+import static com.gb.Constants.PAGE_COUNT_HEADER;
+import static com.gb.Constants.TOTAL_COUNT_HEADER;
 import static com.gb.restApp.DbReturnHelper.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -49,20 +55,41 @@ class DbReturnHelperTest {
         Request req = mock(Request.class);
         when(req.queryParams("page")).thenReturn("abcde", "1234", "1234");
 
-        Function<Integer, List<?>> databaseCall = mock(Function.class);
-        when(databaseCall.apply(anyInt())).thenReturn(null, new ArrayList<>());
+        BiFunction<Integer, Integer, List<?>> databaseCall = mock(BiFunction.class);
+        when(databaseCall.apply(anyInt(), anyInt())).thenReturn(null, new ArrayList<>());
+        LongSupplier rowCount = () -> 25;
 
         String resultString;
-        resultString = dbGetQueryResult(databaseCall, "", "", req, res);
+        resultString = dbGetQueryResult(databaseCall, rowCount, "", "", req, res);
         assertTrue(resultString.contains("Errore nella deserializzazione"));
 
-        resultString = dbGetQueryResult(databaseCall, "", "", req, res);
+        resultString = dbGetQueryResult(databaseCall, rowCount, "", "", req, res);
         assertTrue(resultString.contains("verificato un errore"));
 
-        resultString = dbGetQueryResult(databaseCall, "", "", req, res);
+        resultString = dbGetQueryResult(databaseCall, rowCount, "", "", req, res);
         assertTrue(resultString.contains("non trovata"));
     }
 
+    @Test
+    void putPageCountTest() {
+        Response res = mock(Response.class);
+        Request req = mock(Request.class);
+        Map<String, Object> model = new HashMap<>();
+
+        putPageCount(model, 25, 10, 10, req, res);
+        assertEquals(25L, model.get("rows"));
+        assertEquals(3L, model.get("pages"));
+        assertEquals(true, model.get("fullPage"));
+        assertFalse(model.containsKey("limit"));
+        verify(res).header(TOTAL_COUNT_HEADER, "25");
+        verify(res).header(PAGE_COUNT_HEADER, "3");
+
+        model.clear();
+        putPageCount(model, -1, 10, 5, req, res);
+        assertEquals(false, model.get("fullPage"));
+        assertFalse(model.containsKey("rows"), "Un conteggio non disponibile non viene mostrato.");
+    }
+
     @Test
     void dbGetByIdQueryResultTest() {
         final String param = "test";
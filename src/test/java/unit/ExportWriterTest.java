@@ -0,0 +1,104 @@
+package unit;
+
+import com.gb.db.inMemoryImpl.CatalogLoader;
+import com.gb.db.inMemoryImpl.InMemoryDatabase;
+import com.gb.modelObject.Group;
+import com.gb.restApp.ExportHelper;
+import com.gb.restApp.ExportWriter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import static com.gb.Constants.*;
+
+/**
+ * L'esportazione viene provata sul catalogo in memoria, caricato dal
+ * dump presente nella root del progetto.
+ */
+class ExportWriterTest {
+
+    private InMemoryDatabase database;
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] ExportWriterTest");
+    }
+
+    @BeforeEach
+    void loadDump() throws IOException {
+        database = new InMemoryDatabase();
+        CatalogLoader.loadFromDump(DUMP_FILE, database);
+    }
+
+    @Test
+    void csvHasHeaderAndRowsInKeyOrder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter writer = new ExportWriter(out, ExportWriter.CSV, false);
+        assertEquals(0, ExportHelper.exportTable(database, MUSIC_TABLE, 0, writer));
+        writer.finish();
+
+        List<String> lines = lines(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("musicid,title,authorid,albumid,year,genreid", lines.get(0));
+        int previous = 0;
+        for(String line : lines.subList(1, lines.size())) {
+            int musicId = Integer.parseInt(line.substring(0, line.indexOf(',')));
+            assertTrue(musicId > previous, "Le righe devono essere in ordine di chiave.");
+            previous = musicId;
+        }
+    }
+
+    @Test
+    void fromResumesAtTheGivenKey() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter writer = new ExportWriter(out, ExportWriter.CSV, false);
+        assertEquals(0, ExportHelper.exportTable(database, MUSIC_TABLE, 7364, writer));
+        writer.finish();
+
+        List<String> lines = lines(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(lines.get(1).startsWith("7364,"));
+        assertTrue(lines.get(1).contains(",,"), "Una canzone senza album ha il campo albumid vuoto.");
+    }
+
+    @Test
+    void jsonLinesAreEscapedAndCompressed() throws IOException {
+        assertEquals(0, database.insertGroup(new Group(999999, "Quote \"and\", comma\\")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter writer = new ExportWriter(out, ExportWriter.JSON_LINES, true);
+        assertEquals(0, ExportHelper.exportTable(database, GROUP_TABLE, 999999, writer));
+        writer.finish();
+
+        List<String> lines = lines(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(1, lines.size());
+        assertEquals("{\"groupid\":999999,\"name\":\"Quote \\\"and\\\", comma\\\\\"}", lines.get(0));
+
+        out.reset();
+        writer = new ExportWriter(out, ExportWriter.CSV, false);
+        assertEquals(0, ExportHelper.exportTable(database, GROUP_TABLE, 999999, writer));
+        writer.finish();
+        assertEquals("999999,\"Quote \"\"and\"\", comma\\\"",
+                lines(new ByteArrayInputStream(out.toByteArray())).get(1));
+    }
+
+    @Test
+    void unknownTableIsRejected() throws IOException {
+        ExportWriter writer = new ExportWriter(new ByteArrayOutputStream(), ExportWriter.CSV, false);
+        assertEquals(-1, ExportHelper.exportTable(database, "pg_user", 0, writer));
+        assertFalse(ExportWriter.isSupportedFormat("xml"));
+    }
+
+    private static List<String> lines(InputStream in) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+}
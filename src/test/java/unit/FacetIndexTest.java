@@ -0,0 +1,123 @@
+package unit;
+
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.db.inMemoryImpl.InMemoryDatabase;
+import com.gb.modelObject.Genre;
+import com.gb.modelObject.Group;
+import com.gb.modelObject.Music;
+import com.gb.search.Bitmap;
+import com.gb.search.FacetIndex;
+import com.gb.search.FacetService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FacetIndexTest {
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] FacetIndexTest");
+    }
+
+    @Test
+    void bitmapKeepsSparseAndDenseBlocks() {
+        Bitmap sparse = Bitmap.of(Arrays.asList(982365, 7, 1000, 7364));
+        assertEquals(4, sparse.cardinality());
+        assertEquals(Arrays.asList(7, 1000, 7364, 982365), sparse.toList(0, 10));
+        assertEquals(Arrays.asList(7364), sparse.toList(2, 1));
+
+        Bitmap dense = new Bitmap();
+        for(int i = 0; i < 10_000; i++) {
+            dense.add(i);
+        }
+        assertEquals(10_000, dense.cardinality());
+        assertEquals(3, dense.andCardinality(sparse));
+        assertEquals(Arrays.asList(7, 1000, 7364), dense.and(sparse).toList(0, 10));
+
+        for(int i = 0; i < 10_000; i += 2) {
+            dense.remove(i);
+        }
+        assertEquals(5000, dense.cardinality());
+        assertTrue(dense.contains(7));
+        assertFalse(dense.contains(1000));
+        assertThrows(IllegalArgumentException.class, () -> dense.add(-1));
+    }
+
+    @Test
+    void countsAndDrillDown() {
+        FacetIndex index = new FacetIndex();
+        index.put(new Music(1, "Uno", 10, 100, 1995, 5));
+        index.put(new Music(2, "Due", 10, null, 1999, 5));
+        index.put(new Music(3, "Tre", 11, 101, 2004, 6));
+        Bitmap hits = Bitmap.of(Arrays.asList(1, 2, 3));
+
+        Map<String, Map<Integer, Integer>> counts = index.count(hits);
+        assertEquals(map(5, 2, 6, 1), counts.get(FacetIndex.GENRE));
+        assertEquals(map(1990, 2, 2000, 1), counts.get(FacetIndex.DECADE));
+        assertEquals(map(10, 2, 11, 1), counts.get(FacetIndex.GROUP));
+        assertEquals(map(100, 1, 101, 1), counts.get(FacetIndex.ALBUM), "Le canzoni senza album non vengono contate.");
+
+        Bitmap rock = index.filter(hits, Collections.singletonMap(FacetIndex.GENRE, 5));
+        assertEquals(Arrays.asList(1, 2), rock.toList(0, 10));
+        assertEquals(map(100, 1), index.count(rock).get(FacetIndex.ALBUM));
+        assertTrue(index.filter(hits, Collections.singletonMap(FacetIndex.GENRE, 42)).isEmpty());
+
+        index.put(new Music(2, "Due", 11, null, 2010, 6));
+        index.remove(3);
+        assertEquals(map(10, 1, 11, 1), index.count(hits).get(FacetIndex.GROUP));
+        assertEquals(map(1990, 1, 2010, 1), index.count(hits).get(FacetIndex.DECADE));
+    }
+
+    @Test
+    void bothCountingStrategiesAgree() {
+        FacetIndex index = new FacetIndex();
+        for(int i = 1; i <= 500; i++) {
+            index.put(new Music(i, "Canzone " + i, i % 50 + 1, null, 1950 + i % 70, i % 7 + 1));
+        }
+        Bitmap few = Bitmap.of(Arrays.asList(1, 2, 51));
+        Bitmap many = new Bitmap();
+        for(int i = 1; i <= 500; i += 3) {
+            many.add(i);
+        }
+        assertEquals(map(2, 2, 3, 1), index.count(few).get(FacetIndex.GROUP));
+        int total = index.count(many).get(FacetIndex.GROUP).values().stream().mapToInt(Integer::intValue).sum();
+        assertEquals(many.cardinality(), total);
+    }
+
+    @Test
+    void serviceRetriesFailedRebuild() throws InterruptedException {
+        InMemoryDatabase database = new InMemoryDatabase();
+        assertEquals(0, database.insertGroup(new Group(1, "Kavinsky")));
+        assertEquals(0, database.insertGenre(new Genre(1, "Synthwave")));
+        assertEquals(0, database.insertMusic(new Music(1, "Nightcall", 1, null, 2010, 1)));
+        AtomicInteger calls = new AtomicInteger();
+        FacetService service = new FacetService(
+                () -> calls.getAndIncrement() == 0 ? null : database, new ChangeFeed());
+        Map<String, Integer> selections = Collections.singletonMap(FacetIndex.GENRE, 1);
+        service.awaitUpdates();
+        assertFalse(service.isReady());
+        assertEquals(0, service.filter(Collections.singletonList(1), selections).cardinality());
+
+        for(int i = 0; i < 100 && !service.isReady(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(service.isReady());
+        assertEquals(1, service.filter(Collections.singletonList(1), selections).cardinality());
+    }
+
+    private static Map<Integer, Integer> map(int... keysAndValues) {
+        Map<Integer, Integer> map = new HashMap<>();
+        for(int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+}
@@ -0,0 +1,260 @@
+package unit;
+
+import com.gb.dao.MusicQuery;
+import com.gb.db.cdc.ChangeEvent;
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.db.inMemoryImpl.CatalogLoader;
+import com.gb.db.inMemoryImpl.CatalogSnapshot;
+import com.gb.db.inMemoryImpl.InMemoryDatabase;
+import com.gb.modelObject.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import static com.gb.Constants.*;
+
+/**
+ * Il catalogo viene caricato dal dump presente nella root del progetto.
+ */
+class InMemoryDatabaseTest {
+
+    private InMemoryDatabase database;
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] InMemoryDatabaseTest");
+    }
+
+    @BeforeEach
+    void loadDump() throws IOException {
+        database = new InMemoryDatabase();
+        CatalogLoader.loadFromDump(DUMP_FILE, database);
+    }
+
+    @Test
+    void pagesHaveAtMostPageSizeRows() {
+        assertEquals(PAGE_SIZE, database.getAllMusic(0).size());
+        assertTrue(database.getAllMusic(1).size() <= PAGE_SIZE);
+        assertNull(database.getAllMusic(-1),
+                "Una pagina negativa deve restituire null, come in PostgreSQLImpl.");
+    }
+
+    @Test
+    void pageSizeIsChosenByTheCaller() {
+        List<Music> firstPage = database.getAllMusic(0);
+        assertEquals(3, database.getAllMusic(0, 3).size());
+        assertEquals(firstPage.get(3).getMusicId(), database.getAllMusic(1, 3).get(0).getMusicId());
+        assertEquals(firstPage.size(), database.getAllMusic(0, PAGE_SIZE).size());
+        assertNull(database.getAllGroups(0, -1));
+    }
+
+    @Test
+    void multiGetReturnsExistingRowsInIdOrder() {
+        List<Album> albums = database.getAlbumsByIds(Arrays.asList(424242, 692033, 692033));
+        assertEquals(1, albums.size());
+        assertEquals(692033, albums.get(0).getAlbumId());
+
+        List<Music> firstPage = database.getAllMusic(0);
+        int first = firstPage.get(0).getMusicId();
+        int second = firstPage.get(1).getMusicId();
+        List<MusicDetails> music = database.getMusicDetailsByIds(Arrays.asList(second, first));
+        assertEquals(first, music.get(0).getMusicId());
+        assertEquals(second, music.get(1).getMusicId());
+        assertTrue(database.getGenresByIds(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    void musicPageUsesSecondaryIndexes() {
+        MusicPage page = database.getMusicPageByAlbum(692033, 0);
+        assertTrue(page.isHeaderFound());
+        assertEquals("Sound Asleep", page.getHeaderName());
+        assertEquals(6, page.getMusicList().size());
+
+        assertFalse(database.getMusicPageByAlbum(424242, 0).isHeaderFound());
+    }
+
+    @Test
+    void searchReturnsOneRowPerMatchingArtist() {
+        List<MusicStrings> result = database.searchMusic("CHIME", 0);
+        assertFalse(result.isEmpty());
+        for(MusicStrings music : result) {
+            assertEquals("Chime", music.getArtist());
+        }
+    }
+
+    @Test
+    void searchIdsMatchSearchRows() {
+        List<Integer> ids = database.searchMusicIds("chime");
+        assertFalse(ids.isEmpty());
+        List<MusicStrings> rows = database.searchMusicByIds("chime", ids.subList(0, 1));
+        assertFalse(rows.isEmpty());
+        for(MusicStrings music : rows) {
+            assertEquals((int) ids.get(0), music.getMusicId());
+        }
+        assertTrue(database.searchMusicByIds("chime", Collections.singletonList(424242)).isEmpty());
+    }
+
+    @Test
+    void fieldsReturnOnlyRequestedColumns() {
+        List<Music> firstPage = database.getAllMusic(0, 3);
+        List<Map<String, Object>> rows = database.getFields(MUSIC_TABLE, Arrays.asList(TITLE, MUSICID), 0, 3);
+        assertEquals(3, rows.size());
+        assertEquals(Arrays.asList(TITLE, MUSICID), new ArrayList<>(rows.get(0).keySet()));
+        assertEquals(firstPage.get(2).getMusicId(), rows.get(2).get(MUSICID));
+        assertEquals(firstPage.get(2).getTitle(), rows.get(2).get(TITLE));
+
+        assertNull(database.getFields(MUSIC_TABLE, Arrays.asList(MUSICID, NAME), 0, 3));
+        assertNull(database.getFields(GENRE_TABLE, Collections.emptyList(), 0, 3));
+        assertNull(database.getFields("musicdb", Collections.singletonList(MUSICID), 0, 3));
+    }
+
+    @Test
+    void findMusicPagesByCursor() {
+        MusicQuery first = MusicQuery.builder().album(692033).genre(382535)
+                .sort(MusicQuery.Sort.TITLE, false).limit(4).build();
+        List<MusicDetails> firstPage = database.findMusic(first);
+        assertEquals(4, firstPage.size());
+        assertEquals("dreamscape.", firstPage.get(0).getTitle());
+
+        MusicQuery second = MusicQuery.builder().album(692033).genre(382535)
+                .sort(MusicQuery.Sort.TITLE, false).limit(4)
+                .after(first.cursorAfter(firstPage.get(3))).build();
+        List<MusicDetails> secondPage = database.findMusic(second);
+        assertEquals(2, secondPage.size());
+        assertEquals("thoughts of you.", secondPage.get(1).getTitle());
+
+        assertTrue(database.findMusic(MusicQuery.builder().album(692033).genre(424242).build()).isEmpty());
+        List<MusicDetails> prefixed = database.findMusic(MusicQuery.builder().titlePrefix("TEST")
+                .sort(MusicQuery.Sort.ID, true).build());
+        assertEquals(7364, prefixed.get(1).getMusicId());
+    }
+
+    @Test
+    void yearRangeIsSortedByYear() {
+        MusicQuery first = MusicQuery.builder().years(2000, 2019)
+                .sort(MusicQuery.Sort.YEAR, true).limit(3).build();
+        List<MusicDetails> firstPage = database.findMusic(first);
+        assertEquals(Arrays.asList(2019, 2018, 2014),
+                firstPage.stream().map(Music::getYear).collect(Collectors.toList()));
+        List<MusicDetails> secondPage = database.findMusic(MusicQuery.builder().years(2000, 2019)
+                .sort(MusicQuery.Sort.YEAR, true).limit(3).after(first.cursorAfter(firstPage.get(2))).build());
+        assertEquals(Arrays.asList(2008, 2006),
+                secondPage.stream().map(Music::getYear).collect(Collectors.toList()));
+
+        Music music = database.getMusicById(1000).get(0);
+        music.setYear(1990);
+        assertEquals(0, database.updateMusic(music));
+        assertEquals(1000, database.findMusic(MusicQuery.builder().years(1990, 1999).build()).get(0).getMusicId());
+        assertTrue(database.findMusic(MusicQuery.builder().years(2018, 2018).build()).isEmpty());
+    }
+
+    @Test
+    void countsMatchListings() {
+        assertEquals(6, database.countMusicBy(ALBUMID, 692033));
+        assertEquals(0, database.countMusicBy(ALBUMID, 424242));
+        assertEquals(-1, database.countMusicBy(TITLE, 1));
+
+        long[] exported = {0};
+        database.exportMusic(0, music -> exported[0]++);
+        long musicCount = database.countRows(MUSIC_TABLE);
+        assertEquals(exported[0], musicCount);
+        assertEquals(-1, database.countRows("musicdb"));
+
+        assertEquals(0, database.insertMusic(new Music(555, "Nuova", 2222, null, 2020, 2222)));
+        assertEquals(musicCount + 1, database.countRows(MUSIC_TABLE));
+    }
+
+    @Test
+    void writesRespectKeysAndIndexes() {
+        Music music = new Music(555, "Nuova", 2222, null, 2020, 2222);
+        assertEquals(0, database.insertMusic(music));
+        assertEquals(-1, database.insertMusic(music));
+        assertEquals(1, database.getMusicPageByGroup(2222, 0).getMusicList().stream()
+                .filter(m -> m.getMusicId() == 555).count());
+
+        music.setAuthorId(1234);
+        assertEquals(0, database.updateMusic(music));
+        assertTrue(database.getMusicPageByGroup(2222, 0).getMusicList().stream()
+                .noneMatch(m -> m.getMusicId() == 555));
+
+        assertEquals(-2, database.deleteGenre(2222), "Il genere è ancora usato da una canzone.");
+        assertEquals(-2, database.insertLink(new Link(424242, "https://example.com")));
+        assertEquals(0, database.deleteMusic(555));
+        assertEquals(-1, database.deleteMusic(555));
+    }
+
+    @Test
+    void cascadeDeletesDependents() {
+        assertEquals(-2, database.deleteGroup(529385));
+
+        DeleteSummary album = database.deleteAlbumCascade(692033);
+        assertTrue(album.isFound());
+        assertEquals(6, album.getMusic());
+        assertEquals(6, album.getLinks());
+        assertTrue(database.getAlbumById(692033).isEmpty());
+        assertTrue(database.getMusicById(357357).isEmpty());
+        assertTrue(database.getLinksForMusic(357357).isEmpty());
+        assertFalse(database.deleteAlbumCascade(692033).isFound());
+
+        DeleteSummary group = database.deleteGroupCascade(529385);
+        assertTrue(group.isFound());
+        assertEquals(0, group.getMusic());
+        assertEquals(1, group.getArtists());
+        assertEquals(0, group.getAlbums());
+        assertTrue(database.getGroupById(529385).isEmpty());
+        assertEquals(0, database.countMusicBy(GROUPID, 529385));
+        assertFalse(database.deleteGroupCascade(529385).isFound());
+    }
+
+    @Test
+    void snapshotRoundTrip(@TempDir Path dir) throws IOException {
+        String path = dir.resolve("catalog.snapshot").toString();
+        Map<String, Map<Integer, Long>> fingerprints = new HashMap<>();
+        fingerprints.put(MUSIC_TABLE, Collections.singletonMap(0, 42L));
+        CatalogSnapshot.write(database, fingerprints, path);
+
+        InMemoryDatabase restored = new InMemoryDatabase();
+        assertEquals(fingerprints, CatalogSnapshot.read(path, restored));
+        assertEquals(database.getAllMusic(1).size(), restored.getAllMusic(1).size());
+        assertEquals(database.getGroupMap(), restored.getGroupMap());
+        assertEquals(3, restored.getLinksForMusic(1000).size());
+        assertNull(restored.getMusicById(7364).get(0).getAlbumId());
+
+        Files.write(dir.resolve("broken.snapshot"), new byte[]{1, 2, 3});
+        assertThrows(IOException.class,
+                () -> CatalogSnapshot.read(dir.resolve("broken.snapshot").toString(), new InMemoryDatabase()));
+    }
+
+    @Test
+    void loadingPublishesNoEvents(@TempDir Path dir) throws IOException {
+        String path = dir.resolve("catalog.snapshot").toString();
+        CatalogSnapshot.write(database, new HashMap<>(), path);
+        List<ChangeEvent> events = new ArrayList<>();
+        Runnable unsubscribe = ChangeFeed.getInstance().subscribe(events::add);
+        try {
+            CatalogLoader.loadFromDump(DUMP_FILE, new InMemoryDatabase());
+            CatalogSnapshot.read(path, new InMemoryDatabase());
+            assertTrue(events.isEmpty());
+
+            assertEquals(0, database.insertGenre(new Genre(424242, "Nuovo")));
+            assertEquals(1, events.size());
+        } finally {
+            unsubscribe.run();
+        }
+    }
+
+}
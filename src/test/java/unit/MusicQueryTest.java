@@ -0,0 +1,46 @@
+package unit;
+
+import com.gb.dao.MusicQuery;
+import com.gb.dao.MusicQuery.Cursor;
+import com.gb.dao.MusicQuery.Sort;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicQueryTest {
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] MusicQueryTest");
+    }
+
+    @Test
+    void cursorRoundTrip() {
+        Cursor title = new Cursor("Riga 1\nRiga 2, è", 7364);
+        assertEquals(title, Cursor.decode(title.encode(), Sort.TITLE));
+        Cursor year = new Cursor(2020, 1000);
+        assertEquals(year, Cursor.decode(year.encode(), Sort.YEAR));
+        Cursor id = new Cursor(null, 1234);
+        assertEquals(id, Cursor.decode(id.encode(), Sort.ID));
+
+        assertNull(Cursor.decode(title.encode(), Sort.YEAR));
+        assertNull(Cursor.decode(year.encode(), Sort.ID));
+        assertNull(Cursor.decode("non*base64", Sort.ID));
+    }
+
+    @Test
+    void builderRejectsInvalidQueries() {
+        assertThrows(IllegalArgumentException.class, () -> MusicQuery.builder().limit(0).build());
+        assertThrows(IllegalArgumentException.class, () -> MusicQuery.builder().years(2000, 1990).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> MusicQuery.builder().sort(Sort.TITLE, false).after(new Cursor(2020, 1)).build());
+
+        MusicQuery query = MusicQuery.builder().album(1).titlePrefix("").build();
+        assertNull(query.getTitlePrefix());
+        assertEquals(query, MusicQuery.builder().album(1).build());
+        assertEquals(query.toString(), MusicQuery.builder().album(1).build().toString());
+        assertNotEquals(query, MusicQuery.builder().album(1).genre(2).build());
+    }
+
+}
@@ -2,7 +2,9 @@ package unit;
 
 import com.gb.db.postgreSQLImpl.PostgreSQLImpl;
 import com.gb.modelObject.Link;
+import com.gb.modelObject.MusicPage;
 import com.gb.modelObject.MusicStrings;
+import com.gb.modelObject.MusicWithLinks;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -61,6 +63,16 @@ class PostgreSQLImplTest {
         getQueryWithIdTest(() -> database.getMusicById(1234));
     }
 
+    @Test
+    void getAllMusicDetails() {
+        getQueryWithPageTest(() -> database.getAllMusicDetails(0));
+    }
+
+    @Test
+    void getMusicDetailsById() {
+        getQueryWithIdTest(() -> database.getMusicDetailsById(1000));
+    }
+
     @Test
     void getAllAlbums() {
         getQueryWithPageTest(() -> database.getAllAlbums(0));
@@ -148,4 +160,61 @@ class PostgreSQLImplTest {
                 "Il musicId specificato e quello del link recuperato devono coincidere.");
     }
 
+    @Test
+    void getMusicPageByAlbum() {
+        MusicPage musicPage = database.getMusicPageByAlbum(692033, 0);
+
+        assertNotNull(musicPage,
+                "Ci sono stati degli errori durante l'esecuzione della query con paginazione.");
+        assertTrue(musicPage.isHeaderFound(),
+                "Dovrebbe essere restituito il titolo dell'album.");
+        assertTrue(musicPage.getMusicList().size() <= PAGE_SIZE,
+                "Il numero di risultati per pagina è maggiore di quello definito.");
+
+        MusicPage notFound = database.getMusicPageByAlbum(Integer.MAX_VALUE, 0);
+        assertNotNull(notFound);
+        assertFalse(notFound.isHeaderFound(),
+                "Non dovrebbe esistere un album con l'id specificato.");
+    }
+
+    @Test
+    void getMusicPageByGenre() {
+        MusicPage musicPage = database.getMusicPageByGenre(382535, 0);
+
+        assertNotNull(musicPage);
+        assertTrue(musicPage.isHeaderFound());
+        assertTrue(musicPage.getMusicList().size() <= PAGE_SIZE);
+    }
+
+    @Test
+    void getMusicPageByGroup() {
+        MusicPage musicPage = database.getMusicPageByGroup(529385, 0);
+
+        assertNotNull(musicPage);
+        assertTrue(musicPage.isHeaderFound());
+        assertTrue(musicPage.getMusicList().size() <= PAGE_SIZE);
+    }
+
+    @Test
+    void getMusicPageByArtist() {
+        MusicPage musicPage = database.getMusicPageByArtist(537854, 0);
+
+        assertNotNull(musicPage);
+        assertTrue(musicPage.isHeaderFound());
+        assertTrue(musicPage.getMusicList().size() <= PAGE_SIZE);
+    }
+
+    @Test
+    void getMusicWithLinks() {
+        final int musicId = 1000;
+
+        MusicWithLinks musicWithLinks = database.getMusicWithLinks(musicId);
+
+        assertNotNull(musicWithLinks);
+        assertNotNull(musicWithLinks.getMusic(),
+                "La canzone specificata dovrebbe esistere.");
+        assertFalse(musicWithLinks.getLinkList().isEmpty(),
+                "Dovrebbe essere restituito almeno un link.");
+    }
+
 }
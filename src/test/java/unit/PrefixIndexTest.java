@@ -0,0 +1,143 @@
+package unit;
+
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.db.inMemoryImpl.InMemoryDatabase;
+import com.gb.modelObject.Genre;
+import com.gb.modelObject.Group;
+import com.gb.modelObject.Music;
+import com.gb.search.AutocompleteService;
+import com.gb.search.PrefixIndex;
+import com.gb.search.Suggestion;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] PrefixIndexTest");
+    }
+
+    @Test
+    void resultsAreRankedByPopularity() {
+        PrefixIndex index = new PrefixIndex(2);
+        index.put(new Suggestion("Rock", Suggestion.GENRE, 1, 3));
+        index.put(new Suggestion("Rocket", Suggestion.MUSIC, 2, 10));
+        index.put(new Suggestion("Roar", Suggestion.MUSIC, 3, 5));
+
+        assertEquals(Arrays.asList(2, 3), ids(index.lookup("ro", 10)));
+        assertEquals(Arrays.asList(2, 1), ids(index.lookup("roc", 10)));
+        assertEquals(Arrays.asList(2), ids(index.lookup("roc", 1)));
+        assertTrue(index.lookup("x", 10).isEmpty());
+        assertTrue(index.lookup("rocks", 10).isEmpty());
+    }
+
+    @Test
+    void matchesEveryWordIgnoringCaseAndAccents() {
+        PrefixIndex index = new PrefixIndex(10);
+        index.put(new Suggestion("Teminite X Chime", Suggestion.GROUP, 1, 1));
+        index.put(new Suggestion("Perché no?", Suggestion.MUSIC, 2, 1));
+
+        assertEquals(Arrays.asList(1), ids(index.lookup("CHI", 10)));
+        assertEquals(Arrays.asList(1), ids(index.lookup("x ch", 10)));
+        assertEquals(Arrays.asList(2), ids(index.lookup("perche", 10)));
+        assertEquals(Arrays.asList(2), ids(index.lookup("  no", 10)));
+        assertTrue(index.lookup("?!", 10).isEmpty());
+    }
+
+    @Test
+    void putReplacesAndRemovePrunes() {
+        PrefixIndex index = new PrefixIndex(10);
+        index.put(new Suggestion("Roma", Suggestion.ALBUM, 1, 1));
+        index.put(new Suggestion("Romantico", Suggestion.ALBUM, 2, 1));
+        index.put(new Suggestion("Milano", Suggestion.ALBUM, 1, 1));
+
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList(2), ids(index.lookup("rom", 10)));
+        assertEquals(Arrays.asList(1), ids(index.lookup("mil", 10)));
+
+        index.remove(Suggestion.ALBUM, 2);
+        assertTrue(index.lookup("r", 10).isEmpty());
+        assertNull(index.get(Suggestion.ALBUM, 2));
+        assertEquals(Arrays.asList(1), ids(index.lookup("m", 10)));
+    }
+
+    @Test
+    void lookupByTypeLimitsEachType() {
+        PrefixIndex index = new PrefixIndex(2);
+        index.put(new Suggestion("Rock", Suggestion.GENRE, 1, 30));
+        index.put(new Suggestion("Rocket", Suggestion.MUSIC, 2, 10));
+        index.put(new Suggestion("Roar", Suggestion.MUSIC, 3, 5));
+        index.put(new Suggestion("Rover", Suggestion.MUSIC, 4, 1));
+        index.put(new Suggestion("Rome", Suggestion.ALBUM, 5, 2));
+        index.put(new Suggestion("Milano", Suggestion.GROUP, 6, 100));
+
+        Map<String, List<Suggestion>> byType = index.lookupByType("ro", 10);
+        assertEquals(3, byType.size(), "Il gruppo non inizia con \"ro\".");
+        assertEquals(Arrays.asList(2, 3), ids(byType.get(Suggestion.MUSIC)),
+                "La canzone meno popolare resta fuori anche se gli altri tipi hanno pochi risultati.");
+        assertEquals(Arrays.asList(1), ids(byType.get(Suggestion.GENRE)));
+        assertEquals(Arrays.asList(5), ids(byType.get(Suggestion.ALBUM)));
+        assertEquals(Arrays.asList(1, 2), ids(index.lookup("ro", 10)));
+
+        assertEquals(Arrays.asList(2), ids(index.lookupByType("ro", 1).get(Suggestion.MUSIC)));
+        assertTrue(index.lookupByType("x", 10).isEmpty());
+
+        index.remove(Suggestion.MUSIC, 2);
+        assertEquals(Arrays.asList(3, 4), ids(index.lookupByType("ro", 10).get(Suggestion.MUSIC)));
+    }
+
+    @Test
+    void serviceFollowsDatabaseWrites() {
+        InMemoryDatabase database = new InMemoryDatabase();
+        assertEquals(0, database.insertGroup(new Group(1, "Kavinsky")));
+        assertEquals(0, database.insertGenre(new Genre(1, "Synthwave")));
+        AutocompleteService service = new AutocompleteService(() -> database, ChangeFeed.getInstance());
+        service.awaitUpdates();
+        assertEquals(0, service.suggest("synth", 10).get(0).getWeight());
+
+        assertEquals(0, database.insertMusic(new Music(1, "Nightcall", 1, null, 2010, 1)));
+        assertEquals(0, database.insertGenre(new Genre(2, "Synthpop")));
+        service.awaitUpdates();
+        List<Suggestion> suggestions = service.suggest("synth", 10);
+        assertEquals(Arrays.asList(1, 2), ids(suggestions));
+        assertEquals(1, suggestions.get(0).getWeight());
+
+        assertEquals(0, database.deleteMusic(1));
+        assertEquals(0, database.deleteGenre(2));
+        service.awaitUpdates();
+        assertTrue(service.suggest("night", 10).isEmpty());
+        assertEquals(Arrays.asList(1), ids(service.suggest("synth", 10)));
+    }
+
+    @Test
+    void serviceRetriesFailedRebuild() throws InterruptedException {
+        InMemoryDatabase database = new InMemoryDatabase();
+        assertEquals(0, database.insertGenre(new Genre(1, "Synthwave")));
+        AtomicInteger calls = new AtomicInteger();
+        AutocompleteService service = new AutocompleteService(
+                () -> calls.getAndIncrement() == 0 ? null : database, new ChangeFeed());
+        service.awaitUpdates();
+        assertFalse(service.isReady());
+        assertTrue(service.suggest("synth", 10).isEmpty());
+
+        for(int i = 0; i < 100 && !service.isReady(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(service.isReady());
+        assertEquals(Arrays.asList(1), ids(service.suggest("synth", 10)));
+    }
+
+    private static List<Integer> ids(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getId).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,93 @@
+package unit;
+
+import com.gb.db.Database;
+import com.gb.db.routingImpl.RoutingDatabase;
+import com.gb.modelObject.Genre;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Collections;
+
+import static com.gb.Constants.PAGE_SIZE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RoutingDatabaseTest {
+
+    private Database primary;
+    private Database replica;
+    private RoutingDatabase router;
+    private long replicaLag;
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] RoutingDatabaseTest");
+    }
+
+    @BeforeEach
+    void createRouter() {
+        primary = mock(Database.class);
+        replica = mock(Database.class);
+        when(primary.insertGenre(any(Genre.class))).thenReturn(0);
+        replicaLag = 0;
+        router = new RoutingDatabase(primary, Collections.singletonList(replica), db -> replicaLag);
+    }
+
+    @AfterEach
+    void clearClient() {
+        RoutingDatabase.setCurrentClient(null);
+    }
+
+    @Test
+    void readsGoToPrimaryUntilReplicaIsProbed() {
+        router.getAllGenres(0);
+        verify(primary).getAllGenres(0, PAGE_SIZE);
+        verify(replica, never()).getAllGenres(0, PAGE_SIZE);
+
+        router.probeReplicas();
+        router.getAllGenres(0);
+        verify(replica).getAllGenres(0, PAGE_SIZE);
+    }
+
+    @Test
+    void writesAlwaysGoToPrimary() {
+        router.probeReplicas();
+        assertEquals(0, router.insertGenre(new Genre()));
+        verify(primary).insertGenre(any(Genre.class));
+        verify(replica, never()).insertGenre(any(Genre.class));
+    }
+
+    @Test
+    void laggingOrUnreachableReplicaIsSkipped() {
+        replicaLag = 60_000;
+        router.probeReplicas();
+        router.getAllGenres(0);
+        verify(replica, never()).getAllGenres(0, PAGE_SIZE);
+
+        router = new RoutingDatabase(primary, Collections.singletonList(replica), db -> {
+            throw new SQLException("replica spenta");
+        });
+        router.probeReplicas();
+        router.getAllGenres(1);
+        verify(primary).getAllGenres(1, PAGE_SIZE);
+        verify(replica, never()).getAllGenres(1, PAGE_SIZE);
+    }
+
+    @Test
+    void clientReadsItsOwnWritesFromPrimary() {
+        router.probeReplicas();
+
+        RoutingDatabase.setCurrentClient("10.0.0.1");
+        router.insertGenre(new Genre());
+        router.getAllGenres(0);
+        verify(primary).getAllGenres(0, PAGE_SIZE);
+
+        RoutingDatabase.setCurrentClient("10.0.0.2");
+        router.getAllGenres(1);
+        verify(replica).getAllGenres(1, PAGE_SIZE);
+    }
+
+}
@@ -0,0 +1,67 @@
+package unit;
+
+import com.gb.db.Database;
+import com.gb.db.RowCountCache;
+import com.gb.db.cdc.ChangeEvent.Operation;
+import com.gb.db.cdc.ChangeFeed;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import static com.gb.Constants.*;
+
+class RowCountCacheTest {
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] RowCountCacheTest");
+    }
+
+    @Test
+    void countsAreCachedUntilTheTableChanges() {
+        ChangeFeed feed = new ChangeFeed();
+        Database db = mock(Database.class);
+        when(db.countRows(ALBUM_TABLE)).thenReturn(42L, 43L);
+        RowCountCache cache = new RowCountCache(feed, 60_000);
+
+        assertEquals(42, cache.countRows(db, ALBUM_TABLE));
+        assertEquals(42, cache.countRows(db, ALBUM_TABLE));
+        feed.publishLocal(GENRE_TABLE, 1, Operation.INSERT);
+        assertEquals(42, cache.countRows(db, ALBUM_TABLE));
+        verify(db, times(1)).countRows(ALBUM_TABLE);
+
+        feed.publishLocal(ALBUM_TABLE, 7, Operation.DELETE);
+        assertEquals(0, cache.size());
+        assertEquals(43, cache.countRows(db, ALBUM_TABLE));
+    }
+
+    @Test
+    void artistChangesInvalidateMusicByArtist() {
+        ChangeFeed feed = new ChangeFeed();
+        Database db = mock(Database.class);
+        when(db.countMusicBy(anyString(), anyInt())).thenReturn(3L);
+        RowCountCache cache = new RowCountCache(feed, 60_000);
+
+        cache.countMusicBy(db, ARTISTID, 1);
+        cache.countMusicBy(db, ALBUMID, 1);
+        feed.publishLocal(ARTIST_TABLE, 1, Operation.UPDATE);
+        assertEquals(1, cache.size(), "Cambiare un artista non cambia le canzoni di un album.");
+
+        feed.publishLocal(MUSIC_TABLE, 1, Operation.INSERT);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void countsExpireAndErrorsAreNotCached() {
+        Database db = mock(Database.class);
+        when(db.countRows(MUSIC_TABLE)).thenReturn(-1L, 10L, 11L);
+        RowCountCache cache = new RowCountCache(new ChangeFeed(), 0);
+
+        assertEquals(-1, cache.countRows(db, MUSIC_TABLE));
+        assertEquals(10, cache.countRows(db, MUSIC_TABLE));
+        assertEquals(11, cache.countRows(db, MUSIC_TABLE), "Con TTL nullo il conteggio scade subito.");
+    }
+
+}
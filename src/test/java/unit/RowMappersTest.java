@@ -0,0 +1,55 @@
+package unit;
+
+import com.gb.db.mapper.RowMapper;
+import com.gb.db.mapper.RowMappers;
+import com.gb.modelObject.Music;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static com.gb.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RowMappersTest {
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] RowMappersTest");
+    }
+
+    @Test
+    void musicMapperResolvesColumnsOnce() throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.findColumn(MUSICID)).thenReturn(1);
+        when(rs.findColumn(TITLE)).thenReturn(2);
+        when(rs.findColumn(AUTHORID)).thenReturn(3);
+        when(rs.findColumn(ALBUMID)).thenReturn(4);
+        when(rs.findColumn(YEAR)).thenReturn(5);
+        when(rs.findColumn(GENREID)).thenReturn(6);
+        when(rs.getInt(1)).thenReturn(10, 11);
+        when(rs.getString(2)).thenReturn("primo", "secondo");
+        when(rs.getInt(3)).thenReturn(20);
+        when(rs.getInt(4)).thenReturn(30, 0);
+        when(rs.wasNull()).thenReturn(false, true);
+        when(rs.getInt(5)).thenReturn(2020);
+        when(rs.getInt(6)).thenReturn(40);
+
+        RowMapper<Music> mapper = RowMappers.music(rs);
+        Music first = mapper.mapRow(rs);
+        Music second = mapper.mapRow(rs);
+
+        verify(rs, times(1)).findColumn(MUSICID);
+        verify(rs, never()).getInt(MUSICID);
+        verify(rs, never()).getString(ALBUMID);
+
+        assertEquals("primo", first.getTitle());
+        assertEquals(Integer.valueOf(30), first.getAlbumId());
+        assertEquals("secondo", second.getTitle());
+        assertNull(second.getAlbumId(),
+                "Un albumid NULL nel database deve diventare null nel modello.");
+    }
+
+}
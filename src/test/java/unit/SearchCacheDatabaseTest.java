@@ -0,0 +1,95 @@
+package unit;
+
+import com.gb.db.Database;
+import com.gb.db.SearchCacheDatabase;
+import com.gb.db.cdc.ChangeEvent.Operation;
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.modelObject.MusicStrings;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import static com.gb.Constants.*;
+
+class SearchCacheDatabaseTest {
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] SearchCacheDatabaseTest");
+    }
+
+    @Test
+    void pagesAreServedFromOneQuery() {
+        Database delegate = mock(Database.class);
+        when(delegate.searchMusic("Chime", 0, SEARCH_CACHE_ENTRY_ROWS + 1)).thenReturn(rows(25));
+        SearchCacheDatabase db = new SearchCacheDatabase(delegate, new ChangeFeed());
+
+        assertEquals(PAGE_SIZE, db.searchMusic("Chime", 0).size());
+        assertEquals(11, db.searchMusic("CHIME", 1).get(0).getMusicId());
+        assertEquals(5, db.searchMusic("chime", 2).size());
+        assertTrue(db.searchMusic("chime", 3).isEmpty());
+
+        verify(delegate, times(1)).searchMusic(anyString(), anyInt(), anyInt());
+        verify(delegate, never()).searchMusic(anyString(), anyInt());
+        assertEquals(3, db.getHitCount());
+        assertEquals(1, db.getMissCount());
+    }
+
+    @Test
+    void pagesBeyondTheCachedRowsGoToTheDatabase() {
+        Database delegate = mock(Database.class);
+        when(delegate.searchMusic("a", 0, SEARCH_CACHE_ENTRY_ROWS + 1)).thenReturn(rows(SEARCH_CACHE_ENTRY_ROWS + 1));
+        SearchCacheDatabase db = new SearchCacheDatabase(delegate, new ChangeFeed());
+
+        int lastCachedPage = SEARCH_CACHE_ENTRY_ROWS / PAGE_SIZE - 1;
+        assertEquals(PAGE_SIZE, db.searchMusic("a", lastCachedPage).size());
+        db.searchMusic("a", lastCachedPage + 1);
+
+        verify(delegate).searchMusic("a", (lastCachedPage + 1) * PAGE_SIZE, PAGE_SIZE);
+    }
+
+    @Test
+    void catalogChangesInvalidate() {
+        ChangeFeed feed = new ChangeFeed();
+        Database delegate = mock(Database.class);
+        when(delegate.searchMusic(anyString(), anyInt(), anyInt())).thenReturn(rows(3));
+        SearchCacheDatabase db = new SearchCacheDatabase(delegate, feed);
+
+        db.searchMusic("chime", 0);
+        feed.publishLocal(LINK_TABLE, 1, Operation.INSERT);
+        db.searchMusic("chime", 0);
+        assertEquals(1, db.size(), "I link non compaiono nei risultati della ricerca.");
+
+        feed.publishLocal(ARTIST_TABLE, 1, Operation.UPDATE);
+        assertEquals(0, db.size());
+        db.searchMusic("chime", 0);
+
+        verify(delegate, times(2)).searchMusic("chime", 0, SEARCH_CACHE_ENTRY_ROWS + 1);
+    }
+
+    @Test
+    void errorsAreNotCached() {
+        Database delegate = mock(Database.class);
+        when(delegate.searchMusic(anyString(), anyInt(), anyInt())).thenReturn(null).thenReturn(rows(1));
+        SearchCacheDatabase db = new SearchCacheDatabase(delegate, new ChangeFeed());
+
+        assertNull(db.searchMusic("chime", 0));
+        assertEquals(1, db.searchMusic("chime", 0).size());
+    }
+
+    private static List<MusicStrings> rows(int count) {
+        List<MusicStrings> rows = new ArrayList<>();
+        for(int i = 1; i <= count; i++) {
+            MusicStrings row = new MusicStrings();
+            row.setMusicId(i);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+}
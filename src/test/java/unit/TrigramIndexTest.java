@@ -0,0 +1,131 @@
+package unit;
+
+import com.gb.db.cdc.ChangeFeed;
+import com.gb.db.inMemoryImpl.InMemoryDatabase;
+import com.gb.modelObject.Genre;
+import com.gb.modelObject.Group;
+import com.gb.modelObject.Music;
+import com.gb.modelObject.MusicStrings;
+import com.gb.search.FuzzySearchService;
+import com.gb.search.TrigramIndex;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    @BeforeAll
+    static void printName() {
+        System.out.println("[Unit test] TrigramIndexTest");
+    }
+
+    @Test
+    void levenshteinStopsAtMax() {
+        assertEquals(3, TrigramIndex.levenshtein("kitten", "sitting", 5));
+        assertEquals(2, TrigramIndex.levenshtein("beatels", "beatles", 2));
+        assertEquals(2, TrigramIndex.levenshtein("abc", "abcdefgh", 1), "Oltre max restituisce max + 1.");
+        assertEquals(0, TrigramIndex.distance("beatles", "the beatles", 2));
+        assertEquals(1, TrigramIndex.distance("abbey rod", "abbey road", 2));
+    }
+
+    @Test
+    void searchToleratesTypos() {
+        TrigramIndex index = new TrigramIndex(1000);
+        index.put(1, "The Beatles");
+        index.put(2, "The Beach Boys");
+        index.put(3, "Beat Happening");
+
+        Map<Integer, Integer> found = index.search("Beatels");
+        assertEquals(1, found.size());
+        assertEquals(2, (int) found.get(1));
+
+        assertTrue(index.search("bech").containsKey(2));
+        assertTrue(index.search("xyz").isEmpty());
+
+        index.put(1, "Rolling Stones");
+        assertTrue(index.search("Beatels").isEmpty());
+        assertTrue(index.search("roling").containsKey(1));
+        index.remove(1);
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void commonTrigramsDoNotChangeResults() {
+        TrigramIndex selective = new TrigramIndex(1000);
+        TrigramIndex pruned = new TrigramIndex(2);
+        String[] names = {"the cure", "the clash", "the smiths", "the cars", "the doors"};
+        for(int i = 0; i < names.length; i++) {
+            selective.put(i, names[i]);
+            pruned.put(i, names[i]);
+        }
+        assertEquals(selective.search("the smits"), pruned.search("the smits"));
+        assertEquals(selective.search("doors"), pruned.search("doors"));
+    }
+
+    @Test
+    void termWithOnlyCommonTrigramsIsFound() {
+        TrigramIndex selective = new TrigramIndex(1000);
+        TrigramIndex pruned = new TrigramIndex(2);
+        String[] titles = {"love me do", "love you", "lovely", "glove", "shove it"};
+        for(int i = 0; i < titles.length; i++) {
+            selective.put(i, titles[i]);
+            pruned.put(i, titles[i]);
+        }
+        Map<Integer, Integer> found = pruned.search("love");
+        assertEquals(selective.search("love"), found);
+        assertEquals(0, (int) found.get(0));
+        assertEquals(0, (int) found.get(1));
+        assertEquals(selective.search("lov"), pruned.search("lov"));
+    }
+
+    @Test
+    void serviceRanksByDistance() {
+        InMemoryDatabase database = new InMemoryDatabase();
+        assertEquals(0, database.insertGenre(new Genre(1, "Rock")));
+        assertEquals(0, database.insertGroup(new Group(1, "The Beatles")));
+        assertEquals(0, database.insertMusic(new Music(1, "Yesterday", 1, null, 1965, 1)));
+        FuzzySearchService service = new FuzzySearchService(() -> database, ChangeFeed.getInstance());
+        service.awaitUpdates();
+
+        assertEquals(0, database.insertGroup(new Group(2, "Beatless")));
+        assertEquals(0, database.insertMusic(new Music(2, "Michelle", 2, null, 1965, 1)));
+        service.awaitUpdates();
+
+        List<MusicStrings> results = service.search("Beatles", 0);
+        assertEquals(2, results.size());
+        assertEquals(1, results.get(0).getMusicId(), "Prima la corrispondenza esatta.");
+        assertEquals("The Beatles", results.get(0).getAuthor());
+        assertEquals(2, results.get(1).getMusicId());
+
+        assertEquals(0, database.deleteMusic(2));
+        service.awaitUpdates();
+        assertEquals(1, service.search("Beatles", 0).size());
+        assertTrue(service.search("Beatles", 1).isEmpty());
+    }
+
+    @Test
+    void serviceRetriesFailedRebuild() throws InterruptedException {
+        InMemoryDatabase database = new InMemoryDatabase();
+        assertEquals(0, database.insertGenre(new Genre(1, "Rock")));
+        assertEquals(0, database.insertGroup(new Group(1, "The Beatles")));
+        assertEquals(0, database.insertMusic(new Music(1, "Yesterday", 1, null, 1965, 1)));
+        AtomicInteger calls = new AtomicInteger();
+        FuzzySearchService service = new FuzzySearchService(
+                () -> calls.getAndIncrement() == 0 ? null : database, new ChangeFeed());
+        service.awaitUpdates();
+        assertFalse(service.isReady());
+        assertTrue(service.search("Beatels", 0).isEmpty());
+
+        for(int i = 0; i < 100 && !service.isReady(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(service.isReady());
+        assertEquals(1, service.search("Beatels", 0).size());
+    }
+
+}